@@ -0,0 +1,206 @@
+package uk.ac.ncl.csc8404.importer;
+
+import uk.ac.ncl.csc8404.order.OrderStatus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Parser for {@link ImportFormat#CSV} lines. Fields are found with a single
+ * left-to-right scan using {@code indexOf}, with no regular expressions
+ * and no intermediate array of split strings.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+final class CsvRowParser implements RowParser
+{
+
+    private static final int FIELDS = 8;
+
+    private final String[] fields = new String[FIELDS];
+    private final StringBuilder quoted = new StringBuilder();
+
+    @Override
+    public boolean isHeader(String text, int start, int end)
+    {
+        return text.startsWith("orderTime", start);
+    }
+
+    @Override
+    public void parse(String text, int start, int end, RawOrder order)
+    {
+        int count = split(text, start, end);
+        if (count != FIELDS)
+        {
+            throw new IllegalArgumentException("Expected " + FIELDS + " fields but found " + count + ".");
+        }
+
+        order.orderTime = parseLong(fields[0], "order time");
+        order.status = parseStatus(fields[1]);
+        order.firstName = fields[2];
+        order.lastName = fields[3];
+        order.cardNumber = fields[4];
+        order.cardExpiry = parseLong(fields[5], "card expiry");
+        order.cardHolder = fields[6];
+        parseModels(fields[7], order.models);
+    }
+
+    // Fills fields and returns how many there were.
+    private int split(String text, int start, int end)
+    {
+        int count = 0;
+        int pos = start;
+        while (true)
+        {
+            String field;
+            if (pos < end && text.charAt(pos) == '"')
+            {
+                pos = readQuoted(text, pos + 1, end);
+                field = quoted.toString();
+                if (pos < end && text.charAt(pos) != ',')
+                {
+                    throw new IllegalArgumentException("Unexpected text after a quoted field.");
+                }
+            }
+            else
+            {
+                int comma = text.indexOf(',', pos);
+                int fieldEnd = comma < 0 || comma > end ? end : comma;
+                field = text.substring(pos, fieldEnd);
+                pos = fieldEnd;
+            }
+
+            if (count < FIELDS)
+            {
+                fields[count] = field;
+            }
+            count++;
+
+            if (pos >= end)
+            {
+                return count;
+            }
+            pos++; // Skip the comma
+        }
+    }
+
+    // Reads a quoted field into quoted and returns the index after the closing quote.
+    private int readQuoted(String text, int pos, int end)
+    {
+        quoted.setLength(0);
+        while (pos < end)
+        {
+            char c = text.charAt(pos);
+            if (c == '"')
+            {
+                if (pos + 1 < end && text.charAt(pos + 1) == '"')
+                {
+                    quoted.append('"');
+                    pos += 2;
+                    continue;
+                }
+                return pos + 1;
+            }
+            quoted.append(c);
+            pos++;
+        }
+        throw new IllegalArgumentException("Unterminated quoted field.");
+    }
+
+    static long parseLong(String value, String name)
+    {
+        try
+        {
+            return Long.parseLong(value.trim());
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Invalid " + name + " '" + value + "'.");
+        }
+    }
+
+    static OrderStatus parseStatus(String value)
+    {
+        switch (value.trim())
+        {
+            case "PLACED":
+                return OrderStatus.PLACED;
+            case "FULFILLED":
+                return OrderStatus.FULFILLED;
+            case "CANCELLED":
+                return OrderStatus.CANCELLED;
+            default:
+                throw new IllegalArgumentException("Invalid status '" + value + "'.");
+        }
+    }
+
+    // Parses "preset:Manufacturer:Name:part+part;custom:Name:part+part".
+    private static void parseModels(String text, List<RawOrder.RawModel> models)
+    {
+        int pos = 0;
+        while (pos < text.length())
+        {
+            int semicolon = text.indexOf(';', pos);
+            int end = semicolon < 0 ? text.length() : semicolon;
+            if (end > pos)
+            {
+                models.add(parseModel(text, pos, end));
+            }
+            pos = end + 1;
+        }
+    }
+
+    private static RawOrder.RawModel parseModel(String text, int start, int end)
+    {
+        int kindEnd = indexOf(text, ':', start, end);
+        String kind = text.substring(start, kindEnd);
+        if (kind.equals("preset"))
+        {
+            int manufacturerEnd = indexOf(text, ':', kindEnd + 1, end);
+            int nameEnd = indexOf(text, ':', manufacturerEnd + 1, end);
+            return new RawOrder.RawModel(text.substring(kindEnd + 1, manufacturerEnd),
+                    text.substring(manufacturerEnd + 1, nameEnd), parseParts(text, nameEnd + 1, end));
+        }
+        if (kind.equals("custom"))
+        {
+            int nameEnd = indexOf(text, ':', kindEnd + 1, end);
+            return new RawOrder.RawModel(null, text.substring(kindEnd + 1, nameEnd),
+                    parseParts(text, nameEnd + 1, end));
+        }
+        throw new IllegalArgumentException("Invalid model '" + text.substring(start, end) + "'.");
+    }
+
+    private static int indexOf(String text, char c, int start, int end)
+    {
+        int index = text.indexOf(c, start);
+        if (index < 0 || index >= end)
+        {
+            throw new IllegalArgumentException("Invalid model '" + text + "'.");
+        }
+        return index;
+    }
+
+    private static List<String> parseParts(String text, int start, int end)
+    {
+        if (start >= end)
+        {
+            return Collections.emptyList();
+        }
+        List<String> parts = new ArrayList<>(4);
+        int pos = start;
+        while (pos <= end)
+        {
+            int plus = text.indexOf('+', pos);
+            int partEnd = plus < 0 || plus > end ? end : plus;
+            if (partEnd == pos)
+            {
+                throw new IllegalArgumentException("Empty part in '" + text.substring(start, end) + "'.");
+            }
+            parts.add(text.substring(pos, partEnd));
+            pos = partEnd + 1;
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,34 @@
+package uk.ac.ncl.csc8404.importer;
+
+/**
+ * File formats understood by {@link OrderImporter}. Both hold one order
+ * per line with the same fields:
+ * <ul>
+ *     <li>{@code orderTime}: epoch milliseconds when the order was placed</li>
+ *     <li>{@code status}: PLACED, FULFILLED or CANCELLED</li>
+ *     <li>{@code firstName}, {@code lastName}: the customer</li>
+ *     <li>{@code cardNumber}, {@code cardExpiry} (epoch milliseconds), {@code cardHolder}: the card</li>
+ *     <li>{@code models}: the PC models ordered</li>
+ * </ul>
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+public enum ImportFormat
+{
+    /**
+     * Comma separated values in the field order above, with an optional
+     * header line. Fields may be double quoted, with {@code ""} for a quote.
+     * Models are separated by {@code ;}, and each is either
+     * {@code preset:Manufacturer:Name:part+part} or {@code custom:Name:part+part}.
+     */
+    CSV,
+
+    /**
+     * One JSON object per line with the fields above. {@code models} is an
+     * array of objects with {@code type} ("preset" or "custom"), {@code name},
+     * {@code manufacturer} for presets, and a {@code parts} array of strings.
+     * Other fields are ignored.
+     */
+    NDJSON
+}
@@ -0,0 +1,93 @@
+package uk.ac.ncl.csc8404.importer;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable summary of one import run by {@link OrderImporter}.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+public final class ImportReport
+{
+
+    private final long importedRows;
+    private final long rejectedRows;
+    private final long bytesRead;
+    private final long elapsedNanos;
+    private final List<String> errors;
+
+    /**
+     * Constructs a new ImportReport.
+     *
+     * @param importedRows orders added to the system.
+     * @param rejectedRows lines that could not be parsed.
+     * @param bytesRead size of the input.
+     * @param elapsedNanos how long the import took.
+     * @param errors the first few rejection messages, with their line numbers.
+     */
+    ImportReport(long importedRows, long rejectedRows, long bytesRead, long elapsedNanos, List<String> errors)
+    {
+        this.importedRows = importedRows;
+        this.rejectedRows = rejectedRows;
+        this.bytesRead = bytesRead;
+        this.elapsedNanos = elapsedNanos;
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * @return the number of orders added to the system.
+     */
+    public long getImportedRows()
+    {
+        return importedRows;
+    }
+
+    /**
+     * @return the number of lines that could not be parsed and were skipped.
+     */
+    public long getRejectedRows()
+    {
+        return rejectedRows;
+    }
+
+    /**
+     * @return the number of bytes read from the file.
+     */
+    public long getBytesRead()
+    {
+        return bytesRead;
+    }
+
+    /**
+     * @return the wall-clock time of the import in nanoseconds.
+     */
+    public long getElapsedNanos()
+    {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return imported orders per second of wall-clock time.
+     */
+    public double getRowsPerSecond()
+    {
+        return elapsedNanos == 0 ? 0 : importedRows * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    /**
+     * @return the first rejection messages, each starting with its line number.
+     */
+    public List<String> getErrors()
+    {
+        return errors;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Imported " + importedRows + " orders (" + rejectedRows + " rejected) in "
+                + elapsedNanos / 1_000_000 + " ms, " + Math.round(getRowsPerSecond()) + " rows/s";
+    }
+}
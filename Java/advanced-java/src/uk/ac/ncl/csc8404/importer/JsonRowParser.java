@@ -0,0 +1,345 @@
+package uk.ac.ncl.csc8404.importer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parser for {@link ImportFormat#NDJSON} lines. A small cursor over the
+ * line that reads exactly the fields an order needs, straight into a
+ * {@link RawOrder}, without building a tree of JSON values first.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+final class JsonRowParser implements RowParser
+{
+
+    private static final int ORDER_TIME = 1;
+    private static final int STATUS = 1 << 1;
+    private static final int FIRST_NAME = 1 << 2;
+    private static final int LAST_NAME = 1 << 3;
+    private static final int CARD_NUMBER = 1 << 4;
+    private static final int CARD_EXPIRY = 1 << 5;
+    private static final int CARD_HOLDER = 1 << 6;
+    private static final int MODELS = 1 << 7;
+    private static final int REQUIRED = (1 << 8) - 1;
+
+    private final StringBuilder escaped = new StringBuilder();
+
+    private String text;
+    private int pos;
+    private int end;
+
+    @Override
+    public void parse(String text, int start, int end, RawOrder order)
+    {
+        this.text = text;
+        this.pos = start;
+        this.end = end;
+
+        int seen = 0;
+        expect('{');
+        if (!consume('}'))
+        {
+            do
+            {
+                String key = readString();
+                expect(':');
+                switch (key)
+                {
+                    case "orderTime":
+                        order.orderTime = readLong();
+                        seen |= ORDER_TIME;
+                        break;
+                    case "status":
+                        order.status = CsvRowParser.parseStatus(readString());
+                        seen |= STATUS;
+                        break;
+                    case "firstName":
+                        order.firstName = readString();
+                        seen |= FIRST_NAME;
+                        break;
+                    case "lastName":
+                        order.lastName = readString();
+                        seen |= LAST_NAME;
+                        break;
+                    case "cardNumber":
+                        order.cardNumber = readString();
+                        seen |= CARD_NUMBER;
+                        break;
+                    case "cardExpiry":
+                        order.cardExpiry = readLong();
+                        seen |= CARD_EXPIRY;
+                        break;
+                    case "cardHolder":
+                        order.cardHolder = readString();
+                        seen |= CARD_HOLDER;
+                        break;
+                    case "models":
+                        readModels(order.models);
+                        seen |= MODELS;
+                        break;
+                    default:
+                        skipValue();
+                }
+            }
+            while (consume(','));
+            expect('}');
+        }
+
+        skipWhitespace();
+        if (pos != end)
+        {
+            throw new IllegalArgumentException("Unexpected text after the order at column " + column() + ".");
+        }
+        if (seen != REQUIRED)
+        {
+            throw new IllegalArgumentException("Order is missing required fields.");
+        }
+    }
+
+    private void readModels(List<RawOrder.RawModel> models)
+    {
+        expect('[');
+        if (consume(']'))
+        {
+            return;
+        }
+        do
+        {
+            String type = null;
+            String manufacturer = null;
+            String name = null;
+            List<String> parts = new ArrayList<>(4);
+
+            expect('{');
+            if (!consume('}'))
+            {
+                do
+                {
+                    String key = readString();
+                    expect(':');
+                    switch (key)
+                    {
+                        case "type":
+                            type = readString();
+                            break;
+                        case "manufacturer":
+                            manufacturer = readString();
+                            break;
+                        case "name":
+                            name = readString();
+                            break;
+                        case "parts":
+                            readStrings(parts);
+                            break;
+                        default:
+                            skipValue();
+                    }
+                }
+                while (consume(','));
+                expect('}');
+            }
+
+            if ("preset".equals(type) && manufacturer != null && name != null)
+            {
+                models.add(new RawOrder.RawModel(manufacturer, name, parts));
+            }
+            else if ("custom".equals(type) && name != null)
+            {
+                models.add(new RawOrder.RawModel(null, name, parts));
+            }
+            else
+            {
+                throw new IllegalArgumentException("Invalid model before column " + column() + ".");
+            }
+        }
+        while (consume(','));
+        expect(']');
+    }
+
+    private void readStrings(List<String> values)
+    {
+        expect('[');
+        if (consume(']'))
+        {
+            return;
+        }
+        do
+        {
+            values.add(readString());
+        }
+        while (consume(','));
+        expect(']');
+    }
+
+    private String readString()
+    {
+        expect('"');
+        int start = pos;
+        while (pos < end)
+        {
+            char c = text.charAt(pos);
+            if (c == '"')
+            {
+                return text.substring(start, pos++);
+            }
+            if (c == '\\')
+            {
+                escaped.setLength(0);
+                escaped.append(text, start, pos);
+                return readEscapedString();
+            }
+            pos++;
+        }
+        throw new IllegalArgumentException("Unterminated string.");
+    }
+
+    // Slow path, only for strings that contain escapes.
+    private String readEscapedString()
+    {
+        while (pos < end)
+        {
+            char c = text.charAt(pos++);
+            if (c == '"')
+            {
+                return escaped.toString();
+            }
+            if (c != '\\')
+            {
+                escaped.append(c);
+                continue;
+            }
+            if (pos >= end)
+            {
+                break;
+            }
+            char e = text.charAt(pos++);
+            switch (e)
+            {
+                case 'b':
+                    escaped.append('\b');
+                    break;
+                case 'f':
+                    escaped.append('\f');
+                    break;
+                case 'n':
+                    escaped.append('\n');
+                    break;
+                case 'r':
+                    escaped.append('\r');
+                    break;
+                case 't':
+                    escaped.append('\t');
+                    break;
+                case 'u':
+                    if (pos + 4 > end)
+                    {
+                        throw new IllegalArgumentException("Invalid unicode escape.");
+                    }
+                    escaped.append((char) Integer.parseInt(text, pos, pos + 4, 16));
+                    pos += 4;
+                    break;
+                default:
+                    escaped.append(e); // \" \\ and \/
+            }
+        }
+        throw new IllegalArgumentException("Unterminated string.");
+    }
+
+    private long readLong()
+    {
+        skipWhitespace();
+        int start = pos;
+        if (pos < end && text.charAt(pos) == '-')
+        {
+            pos++;
+        }
+        while (pos < end && Character.isDigit(text.charAt(pos)))
+        {
+            pos++;
+        }
+        try
+        {
+            return Long.parseLong(text, start, pos, 10);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Invalid number at column " + (start + 1) + ".");
+        }
+    }
+
+    private void skipValue()
+    {
+        skipWhitespace();
+        if (pos >= end)
+        {
+            throw new IllegalArgumentException("Missing value.");
+        }
+        char c = text.charAt(pos);
+        if (c == '"')
+        {
+            readString();
+        }
+        else if (c == '{' || c == '[')
+        {
+            char close = c == '{' ? '}' : ']';
+            pos++;
+            if (consume(close))
+            {
+                return;
+            }
+            do
+            {
+                if (close == '}')
+                {
+                    readString();
+                    expect(':');
+                }
+                skipValue();
+            }
+            while (consume(','));
+            expect(close);
+        }
+        else
+        {
+            // Numbers, true, false and null
+            while (pos < end && ",}] \t".indexOf(text.charAt(pos)) < 0)
+            {
+                pos++;
+            }
+        }
+    }
+
+    private void expect(char c)
+    {
+        if (!consume(c))
+        {
+            throw new IllegalArgumentException("Expected '" + c + "' at column " + column() + ".");
+        }
+    }
+
+    private boolean consume(char c)
+    {
+        skipWhitespace();
+        if (pos < end && text.charAt(pos) == c)
+        {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace()
+    {
+        while (pos < end && Character.isWhitespace(text.charAt(pos)))
+        {
+            pos++;
+        }
+    }
+
+    private int column()
+    {
+        return pos + 1;
+    }
+}
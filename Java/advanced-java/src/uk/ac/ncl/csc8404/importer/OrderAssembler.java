@@ -0,0 +1,110 @@
+package uk.ac.ncl.csc8404.importer;
+
+import uk.ac.ncl.csc8404.model.CustomModel;
+import uk.ac.ncl.csc8404.model.CustomModelFactory;
+import uk.ac.ncl.csc8404.model.PCModel;
+import uk.ac.ncl.csc8404.model.PresetModel;
+import uk.ac.ncl.csc8404.order.Order;
+import uk.ac.ncl.csc8404.order.OrderImpl;
+import uk.ac.ncl.csc8404.order.OrderStatus;
+import uk.ac.ncl.csc8404.payment.CreditCardFactory;
+import uk.ac.ncl.csc8404.user.Customer;
+import uk.ac.ncl.csc8404.user.CustomerImpl;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns parsed lines into orders. Shared by all parse workers of one
+ * import, so that each customer and preset model is held once however
+ * many lines mention it.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+final class OrderAssembler
+{
+
+    private final ConcurrentHashMap<Customer, Customer> customers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, PresetModel> presets = new ConcurrentHashMap<>();
+
+    /**
+     * Builds the order for a parsed line, with its original time and status.
+     * Custom models are shared factory instances, so their parts are not
+     * changed here; they are added to {@code customParts} for the caller to
+     * apply in file order.
+     *
+     * @param raw the parsed line.
+     * @param customParts receives the custom models and the parts the line gives them.
+     * @return the order.
+     * @throws IllegalArgumentException if the line does not describe a valid order.
+     */
+    Order assemble(RawOrder raw, List<CustomParts> customParts)
+    {
+        Customer customer = customers.computeIfAbsent(new CustomerImpl(raw.firstName, raw.lastName), c -> c);
+
+        List<PCModel> models = new ArrayList<>(raw.models.size());
+        for (RawOrder.RawModel model : raw.models)
+        {
+            if (model.isPreset())
+            {
+                models.add(presets.computeIfAbsent(model.manufacturer + '\u0000' + model.name,
+                        key -> new PresetModel(model.name, model.manufacturer, model.parts)));
+            }
+            else
+            {
+                CustomModel custom = (CustomModel) CustomModelFactory.getInstance(model.name);
+                customParts.add(new CustomParts(custom, model.parts));
+                models.add(custom);
+            }
+        }
+
+        Order order = new OrderImpl(models, customer,
+                CreditCardFactory.getInstance(raw.cardNumber, new Date(raw.cardExpiry), raw.cardHolder),
+                raw.orderTime);
+        if (raw.status == OrderStatus.FULFILLED)
+        {
+            order.fulfill();
+        }
+        else if (raw.status == OrderStatus.CANCELLED)
+        {
+            order.cancel();
+        }
+        return order;
+    }
+
+    /**
+     * The parts one input line gives a custom model.
+     */
+    static final class CustomParts
+    {
+        private final CustomModel model;
+        private final List<String> parts;
+
+        CustomParts(CustomModel model, List<String> parts)
+        {
+            this.model = model;
+            this.parts = parts;
+        }
+
+        CustomModel model()
+        {
+            return model;
+        }
+
+        List<String> parts()
+        {
+            return parts;
+        }
+
+        void apply()
+        {
+            if (!model.getParts().equals(parts))
+            {
+                model.setParts(parts);
+            }
+        }
+    }
+}
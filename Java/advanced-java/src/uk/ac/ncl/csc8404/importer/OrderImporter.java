@@ -0,0 +1,354 @@
+package uk.ac.ncl.csc8404.importer;
+
+import uk.ac.ncl.csc8404.model.CustomModel;
+import uk.ac.ncl.csc8404.order.Order;
+import uk.ac.ncl.csc8404.system.OrderSystem;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams orders from a {@link ImportFormat#CSV} or {@link ImportFormat#NDJSON}
+ * file into an {@link OrderSystem}, keeping each order's original time and
+ * status.
+ * <p>
+ * The file is read through a {@link FileChannel} in chunks that end on a
+ * line break. Chunks are parsed by a pool of workers while the reading
+ * thread hands finished chunks to {@link OrderSystem#importOrders} in file
+ * order, so the order history matches the file. At most two chunks per
+ * worker are held at once, so memory does not grow with the file.
+ * <p>
+ * Lines that cannot be parsed are skipped and counted in the
+ * {@link ImportReport}. Quoted CSV fields cannot span lines.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+public final class OrderImporter
+{
+
+    /**
+     * Default chunk size in bytes.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private static final int MAX_ERRORS = 100;
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final OrderSystem system;
+    private final int workers;
+    private final int chunkSize;
+
+    /**
+     * Constructs an importer with one parse worker per processor.
+     *
+     * @param system the system orders are imported into.
+     * @throws IllegalArgumentException if system is null.
+     */
+    public OrderImporter(OrderSystem system)
+    {
+        this(system, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs a new OrderImporter.
+     *
+     * @param system the system orders are imported into.
+     * @param workers the number of parse workers.
+     * @param chunkSize the number of bytes read at a time. Longer lines are still read whole.
+     * @throws IllegalArgumentException if system is null or workers or chunkSize is not positive.
+     */
+    public OrderImporter(OrderSystem system, int workers, int chunkSize)
+    {
+        if (system == null)
+        {
+            throw new IllegalArgumentException("Order system cannot be null.");
+        }
+        if (workers <= 0)
+        {
+            throw new IllegalArgumentException("Worker count must be positive.");
+        }
+        if (chunkSize <= 0)
+        {
+            throw new IllegalArgumentException("Chunk size must be positive.");
+        }
+
+        this.system = system;
+        this.workers = workers;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports every order in a file.
+     *
+     * @param file the file to read, UTF-8 encoded.
+     * @param format the format of the file.
+     * @return a summary of the import.
+     * @throws IllegalArgumentException if file or format is null.
+     * @throws IOException if the file cannot be read.
+     */
+    public ImportReport importFile(Path file, ImportFormat format) throws IOException
+    {
+        if (file == null || format == null)
+        {
+            throw new IllegalArgumentException("File and format cannot be null.");
+        }
+
+        long start = System.nanoTime();
+        OrderAssembler assembler = new OrderAssembler();
+        int pool = POOL_COUNT.incrementAndGet();
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workers, task ->
+        {
+            Thread thread = new Thread(task, "order-import-" + pool + "-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Feed feed = new Feed();
+        ArrayDeque<Future<ParsedChunk>> inFlight = new ArrayDeque<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            byte[] carry = new byte[0];
+            boolean first = true;
+            boolean eof = false;
+            while (!eof)
+            {
+                byte[] chunk = Arrays.copyOf(carry, Math.max(chunkSize, carry.length * 2));
+                ByteBuffer buffer = ByteBuffer.wrap(chunk, carry.length, chunk.length - carry.length);
+                while (buffer.hasRemaining())
+                {
+                    int read = channel.read(buffer);
+                    if (read < 0)
+                    {
+                        eof = true;
+                        break;
+                    }
+                    feed.bytesRead += read;
+                }
+
+                int filled = buffer.position();
+                int length = eof ? filled : lastLineBreak(chunk, filled) + 1;
+                if (length == 0 && !eof)
+                {
+                    carry = chunk; // No complete line yet, so read a bigger chunk
+                    continue;
+                }
+                carry = Arrays.copyOfRange(chunk, length, filled);
+
+                int offset = first && hasByteOrderMark(chunk, length) ? 3 : 0;
+                if (length > offset)
+                {
+                    boolean header = first;
+                    inFlight.add(executor.submit(() -> parse(chunk, offset, length, header, format, assembler)));
+                    first = false;
+                }
+                if (inFlight.size() >= workers * 2)
+                {
+                    feed.accept(await(inFlight.poll()));
+                }
+            }
+
+            while (!inFlight.isEmpty())
+            {
+                feed.accept(await(inFlight.poll()));
+            }
+        }
+        finally
+        {
+            inFlight.forEach(future -> future.cancel(true));
+            executor.shutdownNow();
+        }
+
+        return new ImportReport(feed.imported, feed.rejected, feed.bytesRead, System.nanoTime() - start, feed.errors);
+    }
+
+    private static int lastLineBreak(byte[] chunk, int filled)
+    {
+        for (int i = filled - 1; i >= 0; i--)
+        {
+            if (chunk[i] == '\n')
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean hasByteOrderMark(byte[] chunk, int length)
+    {
+        return length >= 3 && chunk[0] == (byte) 0xEF && chunk[1] == (byte) 0xBB && chunk[2] == (byte) 0xBF;
+    }
+
+    // Runs on a worker. Line numbers in the result are relative to the chunk.
+    private static ParsedChunk parse(byte[] chunk, int offset, int length, boolean first,
+                                     ImportFormat format, OrderAssembler assembler)
+    {
+        String text = new String(chunk, offset, length - offset, StandardCharsets.UTF_8);
+        RowParser parser = format == ImportFormat.CSV ? new CsvRowParser() : new JsonRowParser();
+        RawOrder raw = new RawOrder();
+        ParsedChunk result = new ParsedChunk();
+
+        int pos = 0;
+        while (pos < text.length())
+        {
+            int lineBreak = text.indexOf('\n', pos);
+            int next = lineBreak < 0 ? text.length() : lineBreak + 1;
+            int end = lineBreak < 0 ? text.length() : lineBreak;
+            if (end > pos && text.charAt(end - 1) == '\r')
+            {
+                end--;
+            }
+
+            int line = result.lines++;
+            boolean blank = isBlank(text, pos, end);
+            if (!blank && !(first && line == 0 && parser.isHeader(text, pos, end)))
+            {
+                try
+                {
+                    raw.clear();
+                    parser.parse(text, pos, end, raw);
+                    List<OrderAssembler.CustomParts> customParts = new ArrayList<>(0);
+                    result.orders.add(assembler.assemble(raw, customParts));
+                    result.customParts.add(customParts);
+                }
+                catch (RuntimeException e)
+                {
+                    result.rejected++;
+                    if (result.errors.size() < MAX_ERRORS)
+                    {
+                        result.errorLines.add(line);
+                        result.errors.add(e.getMessage());
+                    }
+                }
+            }
+            pos = next;
+        }
+        return result;
+    }
+
+    private static boolean isBlank(String text, int start, int end)
+    {
+        for (int i = start; i < end; i++)
+        {
+            if (!Character.isWhitespace(text.charAt(i)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ParsedChunk await(Future<ParsedChunk> future) throws IOException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import was interrupted.");
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * The orders and rejections from one chunk.
+     */
+    private static final class ParsedChunk
+    {
+        final List<Order> orders = new ArrayList<>();
+        final List<List<OrderAssembler.CustomParts>> customParts = new ArrayList<>(); // One list per order
+        final List<Integer> errorLines = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+        int lines;
+        long rejected;
+    }
+
+    /**
+     * Totals kept by the reading thread as chunks are handed to the system.
+     */
+    private final class Feed
+    {
+        long imported;
+        long rejected;
+        long bytesRead;
+        long lines;
+        final List<String> errors = new ArrayList<>();
+
+        void accept(ParsedChunk chunk)
+        {
+            for (int i = 0; i < chunk.errors.size() && errors.size() < MAX_ERRORS; i++)
+            {
+                errors.add("Line " + (lines + chunk.errorLines.get(i) + 1) + ": " + chunk.errors.get(i));
+            }
+            lines += chunk.lines;
+            rejected += chunk.rejected;
+
+            // Custom models are shared and their parts are read when an order is imported, so
+            // the chunk is imported in runs, each starting where a line changes a model's parts.
+            Map<CustomModel, OrderAssembler.CustomParts> run = new IdentityHashMap<>();
+            int from = 0;
+            for (int i = 0; i < chunk.orders.size(); i++)
+            {
+                List<OrderAssembler.CustomParts> lineParts = chunk.customParts.get(i);
+                for (OrderAssembler.CustomParts parts : lineParts)
+                {
+                    OrderAssembler.CustomParts current = run.get(parts.model());
+                    if (current != null && !current.parts().equals(parts.parts()))
+                    {
+                        importRun(chunk.orders.subList(from, i), run);
+                        from = i;
+                        break;
+                    }
+                }
+                for (OrderAssembler.CustomParts parts : lineParts)
+                {
+                    run.put(parts.model(), parts);
+                }
+            }
+            importRun(chunk.orders.subList(from, chunk.orders.size()), run);
+        }
+
+        private void importRun(List<Order> orders, Map<CustomModel, OrderAssembler.CustomParts> run)
+        {
+            run.values().forEach(OrderAssembler.CustomParts::apply);
+            run.clear();
+            if (!orders.isEmpty())
+            {
+                system.importOrders(orders);
+                imported += orders.size();
+            }
+        }
+    }
+}
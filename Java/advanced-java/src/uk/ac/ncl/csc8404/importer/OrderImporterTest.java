@@ -0,0 +1,217 @@
+package uk.ac.ncl.csc8404.importer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.ac.ncl.csc8404.model.*;
+import uk.ac.ncl.csc8404.order.*;
+import uk.ac.ncl.csc8404.system.*;
+import uk.ac.ncl.csc8404.user.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test
+ * This class tests {@link OrderImporter} with both file formats.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+class OrderImporterTest
+{
+
+    private static final long EXPIRY = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(365);
+    private static final long T0 = 1_700_000_000_000L;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testCsvImport() throws IOException
+    {
+        Path file = write("orders.csv",
+                "orderTime,status,firstName,lastName,cardNumber,cardExpiry,cardHolder,models",
+                T0 + ",FULFILLED,Ada,Lovelace,81000001," + EXPIRY
+                        + ",Ada Lovelace,preset:Acme:Desk1:cpu+ram;custom:ImportBuild:gpu+ssd",
+                T0 + 1000 + ",PLACED,\"O'Brien, Jr\",\"Say \"\"Hi\"\"\",81000002," + EXPIRY
+                        + ",Pat O'Brien,preset:Acme:Desk1:cpu+ram",
+                "",
+                "not,enough,fields",
+                T0 + 2000 + ",CANCELLED,Ada,Lovelace,81000001," + EXPIRY + ",Ada Lovelace,custom:ImportBuild:gpu+ssd",
+                T0 + 3000 + ",SHIPPED,Ada,Lovelace,81000001," + EXPIRY + ",Ada Lovelace,preset:Acme:Desk1:cpu+ram");
+
+        OrderSystem system = new OrderSystemImpl();
+        ImportReport report = new OrderImporter(system, 2, 1 << 16).importFile(file, ImportFormat.CSV);
+
+        assertEquals(3, report.getImportedRows());
+        assertEquals(2, report.getRejectedRows());
+        assertEquals(Files.size(file), report.getBytesRead());
+        assertTrue(report.getRowsPerSecond() > 0, "Throughput should be reported.");
+        assertEquals(2, report.getErrors().size());
+        assertTrue(report.getErrors().get(0).startsWith("Line 5: "), report.getErrors().get(0));
+        assertTrue(report.getErrors().get(1).startsWith("Line 7: "), report.getErrors().get(1));
+
+        List<Order> history = system.getOrderHistory();
+        assertEquals(3, history.size());
+        assertEquals(T0, history.get(0).getOrderTime(), "Original times should be kept.");
+        assertEquals(OrderStatus.FULFILLED, history.get(0).getStatus());
+        assertEquals(OrderStatus.PLACED, history.get(1).getStatus());
+        assertEquals(OrderStatus.CANCELLED, history.get(2).getStatus());
+        assertEquals(new CustomerImpl("O'Brien, Jr", "Say \"Hi\""), history.get(1).getCustomer());
+        assertSame(history.get(0).getCustomer(), history.get(2).getCustomer(), "Customers should be shared.");
+        assertSame(history.get(0).getModels().get(0), history.get(1).getModels().get(0),
+                "Preset models should be shared.");
+        assertEquals(List.of("gpu", "ssd"), history.get(0).getModels().get(1).getParts());
+
+        assertEquals(1, system.getLargestCustomer().getValue(), "Imported fulfilled orders should be reported.");
+        assertEquals(history.get(0).getCustomer(), system.getLargestCustomer().getKey());
+        assertEquals(2, system.getOrdersBetween(T0, T0 + 1001).size());
+    }
+
+    @Test
+    void testPartsFollowLinesWithinChunk() throws IOException
+    {
+        String header = "orderTime,status,firstName,lastName,cardNumber,cardExpiry,cardHolder,models";
+        String card = ",Ada,Lovelace,81000001," + EXPIRY + ",Ada Lovelace,";
+        Path file = write("parts.csv", header,
+                T0 + ",FULFILLED" + card + "custom:ImportRun:fan+fan+fan",
+                T0 + 1 + ",FULFILLED" + card + "custom:ImportRun:case",
+                T0 + 2 + ",FULFILLED" + card + "custom:ImportRun:case",
+                T0 + 3 + ",FULFILLED" + card + "custom:ImportRun:fan+case");
+
+        // One chunk holding every line, and a chunk per line, must give the same reports
+        for (int chunkSize : new int[] {1 << 16, 16})
+        {
+            OrderSystem system = new OrderSystemImpl();
+            new OrderImporter(system, 2, chunkSize).importFile(file, ImportFormat.CSV);
+            assertEquals(List.of(Map.entry("fan", 4), Map.entry("case", 3)), system.getTopParts(2),
+                    "Chunk size " + chunkSize);
+        }
+    }
+
+    @Test
+    void testNdjsonImport() throws IOException
+    {
+        Path file = write("orders.ndjson",
+                "{\"orderTime\": " + T0 + ", \"status\": \"FULFILLED\", \"firstName\": \"Grace\", "
+                        + "\"lastName\": \"Hopper\", \"cardNumber\": \"81000003\", \"cardExpiry\": " + EXPIRY
+                        + ", \"cardHolder\": \"Grace Hopper\", \"note\": {\"tags\": [1, true, null]}, "
+                        + "\"models\": [{\"type\": \"preset\", \"manufacturer\": \"Acme\", \"name\": \"Tower\", "
+                        + "\"parts\": [\"cpu\", \"ram\"]}, {\"type\": \"custom\", \"name\": \"ImportJson\", "
+                        + "\"parts\": [\"n\\u00e9on\"]}]}",
+                "{\"orderTime\": " + T0 + ", \"status\": \"PLACED\"}",
+                "{\"orderTime\": " + (T0 + 5) + ", \"status\": \"CANCELLED\", \"firstName\": \"Grace\", "
+                        + "\"lastName\": \"Hop\\\"per\", \"cardNumber\": \"81000003\", \"cardExpiry\": " + EXPIRY
+                        + ", \"cardHolder\": \"Grace Hopper\", \"models\": [{\"type\": \"preset\", "
+                        + "\"manufacturer\": \"Acme\", \"name\": \"Tower\", \"parts\": [\"cpu\", \"ram\"]}]}",
+                "{\"orderTime\": 1} trailing");
+
+        OrderSystem system = new OrderSystemImpl();
+        ImportReport report = new OrderImporter(system).importFile(file, ImportFormat.NDJSON);
+
+        assertEquals(2, report.getImportedRows());
+        assertEquals(2, report.getRejectedRows());
+        assertTrue(report.getErrors().get(0).startsWith("Line 2: "), report.getErrors().get(0));
+        assertTrue(report.getErrors().get(1).startsWith("Line 4: "), report.getErrors().get(1));
+
+        List<Order> history = system.getOrderHistory();
+        assertEquals(OrderStatus.FULFILLED, history.get(0).getStatus());
+        assertEquals(List.of("n\u00e9on"), history.get(0).getModels().get(1).getParts());
+        assertEquals("Hop\"per", history.get(1).getCustomer().getLastName());
+        assertEquals(T0 + 5, history.get(1).getOrderTime());
+        assertEquals(OrderStatus.CANCELLED, history.get(1).getStatus());
+        assertEquals(1, system.getOrders(OrderStatus.CANCELLED).size());
+    }
+
+    @Test
+    void testManySmallChunksKeepFileOrder() throws IOException
+    {
+        String[] lines = new String[2000];
+        for (int i = 0; i < lines.length; i++)
+        {
+            // Times run backwards so history order can only come from the file
+            lines[i] = (T0 - i) + "," + (i % 3 == 0 ? "FULFILLED" : "PLACED") + ",Chunk,Customer" + (i % 50)
+                    + ",81000004," + EXPIRY + ",Chunk Holder,preset:Acme:Chunky:p" + (i % 7);
+        }
+        Path file = write("many.csv", lines);
+
+        OrderSystem system = new OrderSystemImpl();
+        ImportReport report = new OrderImporter(system, 3, 256).importFile(file, ImportFormat.CSV);
+
+        assertEquals(lines.length, report.getImportedRows());
+        assertEquals(0, report.getRejectedRows());
+        List<Order> history = system.getOrderHistory();
+        for (int i = 0; i < lines.length; i++)
+        {
+            assertEquals(T0 - i, history.get(i).getOrderTime(), "History should follow the file.");
+        }
+        assertEquals(667, system.getOrders(OrderStatus.FULFILLED).size());
+    }
+
+    @Test
+    void testEmptyPartsAreRejected() throws IOException
+    {
+        String row = T0 + ",PLACED,Em,Pty,81000007," + EXPIRY + ",Em Pty,";
+        Path file = write("parts.csv",
+                row + "preset:Acme:Trail:a+",
+                row + "custom:ImportBuild:a++b",
+                row + "preset:Acme:Trail:+a",
+                row + "preset:Acme:Trail:a+b");
+
+        OrderSystem system = new OrderSystemImpl();
+        ImportReport report = new OrderImporter(system, 1, 1 << 16).importFile(file, ImportFormat.CSV);
+
+        assertEquals(1, report.getImportedRows());
+        assertEquals(3, report.getRejectedRows(), "Rows with an empty part should be rejected.");
+        assertTrue(report.getErrors().get(0).startsWith("Line 1: "), report.getErrors().get(0));
+        assertEquals(List.of("a", "b"), system.getOrderHistory().get(0).getModels().get(0).getParts());
+    }
+
+    @Test
+    void testImportIntoColumnarSystem() throws IOException
+    {
+        Path file = write("columnar.csv",
+                "\uFEFF" + (T0 + 10) + ",FULFILLED,Col,Umn,81000005," + EXPIRY + ",Col Umn,preset:Acme:Slim:a+b",
+                T0 + ",FULFILLED,Col,Umn,81000005," + EXPIRY + ",Col Umn,preset:Acme:Slim:a+b",
+                (T0 + 5) + ",PLACED,Row,Wise,81000006," + EXPIRY + ",Row Wise,preset:Acme:Slim:a+b");
+
+        ColumnarOrderSystem system = new ColumnarOrderSystem();
+        ImportReport report = new OrderImporter(system, 1, 64).importFile(file, ImportFormat.CSV);
+
+        assertEquals(3, report.getImportedRows(), report.getErrors().toString());
+        assertEquals(2, system.getLargestCustomer().getValue());
+        assertEquals("Slim", system.getMostOrderedModel().getKey().getName());
+        assertEquals(1, system.getLargestCustomer(T0 + 1, T0 + 20).getValue(),
+                "Range reports should work on times imported out of order.");
+        List<Order> between = system.getOrdersBetween(T0, T0 + 11);
+        assertEquals(3, between.size());
+        assertEquals(T0, between.get(0).getOrderTime());
+        assertEquals(T0 + 10, between.get(2).getOrderTime());
+    }
+
+    @Test
+    void testInvalidArguments()
+    {
+        OrderSystem system = new OrderSystemImpl();
+        assertThrows(IllegalArgumentException.class, () -> new OrderImporter(null));
+        assertThrows(IllegalArgumentException.class, () -> new OrderImporter(system, 0, 1024));
+        assertThrows(IllegalArgumentException.class, () -> new OrderImporter(system, 1, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new OrderImporter(system).importFile(null, ImportFormat.CSV));
+        assertThrows(IllegalArgumentException.class, () -> system.importOrders(null));
+    }
+
+    private Path write(String name, String... lines) throws IOException
+    {
+        Path file = dir.resolve(name);
+        Files.writeString(file, String.join("\r\n", lines) + "\n", StandardCharsets.UTF_8);
+        return file;
+    }
+}
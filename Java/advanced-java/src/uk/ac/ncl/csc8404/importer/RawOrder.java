@@ -0,0 +1,60 @@
+package uk.ac.ncl.csc8404.importer;
+
+import uk.ac.ncl.csc8404.order.OrderStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The fields of one input line, before customers, cards and models are
+ * resolved. A parser fills in the same instance for every line it reads.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+final class RawOrder
+{
+
+    long orderTime;
+    OrderStatus status;
+    String firstName;
+    String lastName;
+    String cardNumber;
+    long cardExpiry;
+    String cardHolder;
+    final List<RawModel> models = new ArrayList<>();
+
+    void clear()
+    {
+        orderTime = 0;
+        status = null;
+        firstName = null;
+        lastName = null;
+        cardNumber = null;
+        cardExpiry = 0;
+        cardHolder = null;
+        models.clear();
+    }
+
+    /**
+     * One model of an order, preset when it has a manufacturer.
+     */
+    static final class RawModel
+    {
+        final String manufacturer;
+        final String name;
+        final List<String> parts;
+
+        RawModel(String manufacturer, String name, List<String> parts)
+        {
+            this.manufacturer = manufacturer;
+            this.name = name;
+            this.parts = parts;
+        }
+
+        boolean isPreset()
+        {
+            return manufacturer != null;
+        }
+    }
+}
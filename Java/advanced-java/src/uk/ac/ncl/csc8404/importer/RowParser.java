@@ -0,0 +1,32 @@
+package uk.ac.ncl.csc8404.importer;
+
+/**
+ * Parses one line of an import file. Implementations keep scratch state,
+ * so each parse worker has its own parser.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+interface RowParser
+{
+
+    /**
+     * @param text the text holding the line.
+     * @param start index of the first character of the line.
+     * @param end index just after the last character of the line, without the line break.
+     * @param order filled in with the line's fields.
+     * @throws IllegalArgumentException if the line is malformed.
+     */
+    void parse(String text, int start, int end, RawOrder order);
+
+    /**
+     * @param text the text holding the line.
+     * @param start index of the first character of the line.
+     * @param end index just after the last character of the line.
+     * @return whether the line is a header rather than an order.
+     */
+    default boolean isHeader(String text, int start, int end)
+    {
+        return false;
+    }
+}
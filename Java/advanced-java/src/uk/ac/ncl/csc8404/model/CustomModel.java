@@ -1,6 +1,7 @@
 package uk.ac.ncl.csc8404.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -8,13 +9,16 @@ import java.util.List;
  * In this class customer can configure PC by adding or
  *
  * removing parts. With {@code CustomModelFactory} its constructor is created.
+ * Parts are stored as ids from the {@link PartDictionary}.
+ * The model is shared through the factory, so its methods are synchronized.
  * @author Swapnil Sagar
  * @version 1.0
  */
 public final class CustomModel extends AbstractPCModel
 {
 
-    private final List<String> parts;
+    private int[] partIds;
+    private int partCount;
 
 
     /**
@@ -28,7 +32,7 @@ public final class CustomModel extends AbstractPCModel
     CustomModel(String modelName)
     {
         super(modelName); // Call to the abstract class constructor
-        this.parts = new ArrayList<>();
+        this.partIds = new int[4];
     }
 
 
@@ -40,12 +44,27 @@ public final class CustomModel extends AbstractPCModel
     }
 
     @Override
-    public List<String> getParts()
+    public synchronized List<String> getParts()
     {
 
         // Return a copy to prevent modification in internal list,
         // use of addPart/removePart methods.
-        return new ArrayList<>(parts);
+        List<String> copy = new ArrayList<>(partCount);
+        for (int i = 0; i < partCount; i++)
+        {
+            copy.add(PartDictionary.nameOf(partIds[i]));
+        }
+        return copy;
+    }
+
+    /**
+     * Gets the parts as {@link PartDictionary} ids, in the order they were added.
+     *
+     * @return a copy of the part ids.
+     */
+    public synchronized int[] getPartIds()
+    {
+        return Arrays.copyOf(partIds, partCount);
     }
 
     /**
@@ -54,11 +73,15 @@ public final class CustomModel extends AbstractPCModel
      *
      */
 
-    public void addPart(String part)
+    public synchronized void addPart(String part)
     {
         if (part != null && !part.trim().isEmpty())
         {
-            this.parts.add(part);
+            if (partCount == partIds.length)
+            {
+                partIds = Arrays.copyOf(partIds, partCount * 2);
+            }
+            partIds[partCount++] = PartDictionary.idOf(part);
 
         }
     }
@@ -69,20 +92,53 @@ public final class CustomModel extends AbstractPCModel
      *
      */
 
-    public void removePart(String part)
+    public synchronized void removePart(String part)
     {
 
-        if (part != null)
+        int id = PartDictionary.find(part);
+        for (int i = 0; i < partCount; i++)
+        {
+            if (partIds[i] == id)
+            {
+                // Remove the first occurrence and keep the order of the rest
+                System.arraycopy(partIds, i + 1, partIds, i, partCount - i - 1);
+                partCount--;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Replaces all parts at once, such as when the model is restored
+     * from a journal or imported from another system.
+     * @param parts the new parts in order, empty names are skipped as in addPart.
+     * @throws IllegalArgumentException if parts is null.
+     */
+
+    public synchronized void setParts(List<String> parts)
+    {
+        if (parts == null)
         {
-            this.parts.remove(part);
+            throw new IllegalArgumentException("Part list cannot be null.");
+        }
 
+        int[] ids = new int[Math.max(4, parts.size())];
+        int count = 0;
+        for (String part : parts)
+        {
+            if (part != null && !part.trim().isEmpty())
+            {
+                ids[count++] = PartDictionary.idOf(part);
+            }
         }
+        partIds = ids;
+        partCount = count;
     }
 
     @Override
-    public String toString()
+    public synchronized String toString()
     {
-        return "CustomModel Name=" + getName() + ", Parts=" + parts.size();
+        return "CustomModel Name=" + getName() + ", Parts=" + partCount;
     }
 
 }
@@ -1,7 +1,7 @@
 package uk.ac.ncl.csc8404.model;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  *
@@ -10,6 +10,11 @@ import java.util.Map;
  *
  * factory pattern for created objects and prevents
  * creation of two separate {@code CustomModel} objects with the same name.
+ * <p>
+ * Models are kept in a concurrent registry. A model that no order or caller
+ * refers to any more is released, apart from the most recently requested
+ * ones (see {@link #setMaxRetained(int)}), so throwaway builds do not
+ * accumulate on the heap.
  *
  * @author Swapnil Sagar
  * @version 1.0
@@ -19,7 +24,12 @@ import java.util.Map;
 public final class CustomModelFactory
 {
 
-    private static final Map<String, PCModel> MODELS = new HashMap<>();
+    /**
+     * Default number of recently requested models kept alive by the factory itself.
+     */
+    public static final int DEFAULT_MAX_RETAINED = 4096;
+
+    private static final ModelRegistry MODELS = new ModelRegistry(DEFAULT_MAX_RETAINED);
 
     /**
      * Private constructor to prevent class instantiation.
@@ -46,20 +56,33 @@ public final class CustomModelFactory
 
         String trimmedName = modelName.trim();
 
-        // This is a thread-safe way to perform "put if absent"
-
-        if (!MODELS.containsKey(trimmedName))
-        {
-            PCModel newModel = new CustomModel(trimmedName);
-            MODELS.put(trimmedName, newModel);
+        // Atomic "get or create", safe when several threads ask for the same name
+        return MODELS.getOrCreate(trimmedName);
+    }
 
+    /**
+     * Creates a custom model with the given parts that is not registered
+     * with the factory, such as a build as it was when an order was archived.
+     * It never replaces or changes the model returned by {@link #getInstance(String)}.
+     * @param modelName Name of the custom model. Can't be empty.
+     * @param parts Parts of the model.
+     * @return A new {@link PCModel} instance holding the given parts.
+     * @throws IllegalArgumentException if modelName is empty or parts is null.
+     */
+    public static PCModel newDetached(String modelName, List<String> parts)
+    {
+        if (modelName == null || modelName.trim().isEmpty()) {
+            throw new IllegalArgumentException("Custom model name cannot be null.");
         }
 
-        return MODELS.get(trimmedName);
+        CustomModel model = new CustomModel(modelName.trim());
+        model.setParts(parts);
+        return model;
     }
 
     /**
      * This method @return the count of unique custom models
+     * that are still in use.
      *
      */
 
@@ -68,4 +91,32 @@ public final class CustomModelFactory
         return MODELS.size();
 
     }
-}
\ No newline at end of file
+
+    /**
+     * @return a copy of the custom models that are still in use, in no particular order.
+     */
+    public static List<PCModel> getInstances()
+    {
+        return new ArrayList<>(MODELS.instances());
+    }
+
+    /**
+     * Sets how many recently requested models the factory keeps alive
+     * even when no order refers to them.
+     *
+     * @param maxRetained the bound, zero to keep models only while they are in use.
+     * @throws IllegalArgumentException if maxRetained is negative.
+     */
+    public static void setMaxRetained(int maxRetained)
+    {
+        MODELS.setMaxRetained(maxRetained);
+    }
+
+    /**
+     * @return a snapshot of the factory's hit, miss and eviction counters.
+     */
+    public static RegistryStatistics getStatistics()
+    {
+        return MODELS.statistics();
+    }
+}
@@ -1,7 +1,15 @@
 package uk.ac.ncl.csc8404.model;
 
 import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -52,8 +60,116 @@ class CustomModelFactoryTest
         assertFalse(customModel.getParts().contains("CPU:-i7"));
     }
 
+    @Test
+    void testConcurrentLookupsShareOneInstance() throws Exception
+    {
+        // Stress case: many threads ask for the same fresh names at once
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try
+        {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<PCModel[]>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++)
+            {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    PCModel[] seen = new PCModel[200];
+                    for (int i = 0; i < seen.length; i++)
+                    {
+                        seen[i] = CustomModelFactory.getInstance("RaceBuild" + i);
+                    }
+                    return seen;
+                }));
+            }
+            start.countDown();
+
+            PCModel[] first = results.get(0).get();
+            for (Future<PCModel[]> result : results)
+            {
+                PCModel[] seen = result.get();
+                for (int i = 0; i < seen.length; i++)
+                {
+                    assertSame(first[i], seen[i], "All threads must get the same instance for a name.");
+                }
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
 
+    @Test
+    void testStatisticsCountHitsAndMisses()
+    {
+        RegistryStatistics before = CustomModelFactory.getStatistics();
 
+        PCModel model = CustomModelFactory.getInstance("StatsBuild");
+        CustomModelFactory.getInstance("StatsBuild");
+        CustomModelFactory.getInstance("  StatsBuild  ");
 
-}
+        RegistryStatistics after = CustomModelFactory.getStatistics();
+        assertTrue(after.getMisses() >= before.getMisses() + 1);
+        assertTrue(after.getHits() >= before.getHits() + 2);
+        assertNotNull(model);
+    }
 
+    @Test
+    void testUnusedModelsAreEvicted() throws InterruptedException
+    {
+        // Keep nothing alive in the factory itself, so only callers hold models
+        CustomModelFactory.setMaxRetained(0);
+        try
+        {
+            PCModel kept = CustomModelFactory.getInstance("KeptBuild");
+            WeakReference<PCModel> dropped = new WeakReference<>(CustomModelFactory.getInstance("ThrowawayBuild"));
+
+            for (int i = 0; i < 50 && dropped.get() != null; i++)
+            {
+                System.gc();
+                Thread.sleep(10);
+            }
+            assertNull(dropped.get(), "A model nothing refers to should be collectable.");
+
+            // The name can be used again, the surviving model is still unique
+            assertNotNull(CustomModelFactory.getInstance("ThrowawayBuild"));
+            assertSame(kept, CustomModelFactory.getInstance("KeptBuild"));
+            assertTrue(CustomModelFactory.getStatistics().getEvictions() >= 1);
+        }
+        finally
+        {
+            CustomModelFactory.setMaxRetained(CustomModelFactory.DEFAULT_MAX_RETAINED);
+        }
+    }
+
+    @Test
+    void testNegativeRetentionIsRejected()
+    {
+        assertThrows(IllegalArgumentException.class, () -> CustomModelFactory.setMaxRetained(-1));
+    }
+
+    @Test
+    void testPartsAreStoredAsDictionaryIds()
+    {
+        CustomModel model = (CustomModel) CustomModelFactory.getInstance("DictionaryBuild");
+        model.addPart("GPU:-4090");
+        model.addPart("RAM:-16GB");
+        model.addPart("GPU:-4090");
+
+        int[] ids = model.getPartIds();
+        assertEquals(3, ids.length);
+        assertEquals(ids[0], ids[2], "The same part string shares one id.");
+        assertEquals("RAM:-16GB", PartDictionary.nameOf(ids[1]));
+
+        // Only the first occurrence is removed, the order of the rest is kept
+        model.removePart("GPU:-4090");
+        model.removePart("Never-Added-Part");
+        assertEquals(List.of("RAM:-16GB", "GPU:-4090"), model.getParts());
+
+        // The returned list is a copy
+        model.getParts().clear();
+        assertEquals(2, model.getParts().size());
+    }
+
+}
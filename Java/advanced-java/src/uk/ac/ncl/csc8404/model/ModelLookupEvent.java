@@ -0,0 +1,48 @@
+package uk.ac.ncl.csc8404.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for a {@link CustomModelFactory#getInstance(String)}
+ * lookup, recording whether the model was already registered.
+ * <p>
+ * Disabled by default, like the order system's {@code OrderEvent}, whose
+ * doc describes what a disabled event costs.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+@Name("uk.ac.ncl.csc8404.ModelLookup")
+@Label("Custom Model Lookup")
+@Category({"CSC8404", "Factories"})
+@Description("A custom model requested from CustomModelFactory")
+final class ModelLookupEvent extends Event
+{
+
+    @Label("Model Name")
+    String modelName;
+
+    @Label("Hit")
+    @Description("The model was already registered")
+    boolean hit;
+
+    /**
+     * Commits the event if it is being recorded.
+     *
+     * @param modelName the name looked up.
+     * @param hit whether the model already existed.
+     */
+    void finish(String modelName, boolean hit)
+    {
+        if (shouldCommit())
+        {
+            this.modelName = modelName;
+            this.hit = hit;
+            commit();
+        }
+    }
+}
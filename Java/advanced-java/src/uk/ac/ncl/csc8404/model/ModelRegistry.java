@@ -0,0 +1,189 @@
+package uk.ac.ncl.csc8404.model;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent registry of {@link CustomModel} instances used by {@link CustomModelFactory}.
+ * <p>
+ * Models are held by weak reference, so a model that nothing else
+ * (an order, a caller) refers to can be garbage collected and its name
+ * is then dropped from the registry. This keeps the one-instance-per-name
+ * rule, because a name is only reused once its old model is unreachable.
+ * <p>
+ * The most recently requested models are also kept strongly reachable in
+ * a bounded ring, so a build that is being configured is not lost between
+ * two lookups just because no order refers to it yet.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+final class ModelRegistry
+{
+
+    private final ConcurrentMap<String, NamedReference> models = new ConcurrentHashMap<>();
+    private final ReferenceQueue<CustomModel> collected = new ReferenceQueue<>();
+
+    private volatile AtomicReferenceArray<CustomModel> recent;
+    private final AtomicInteger recentCursor = new AtomicInteger();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructs an empty registry.
+     *
+     * @param maxRetained number of recently requested models kept strongly reachable.
+     */
+    ModelRegistry(int maxRetained)
+    {
+        setMaxRetained(maxRetained);
+    }
+
+    /**
+     * Returns the model for a name, creating it if no live model has that name.
+     * Each call is a {@link ModelLookupEvent} in flight recordings.
+     *
+     * @param name the trimmed model name.
+     * @return the unique live model for the name.
+     */
+    CustomModel getOrCreate(String name)
+    {
+        ModelLookupEvent event = new ModelLookupEvent();
+        event.begin();
+        expungeCollected();
+
+        NamedReference ref = models.get(name);
+        CustomModel model = ref == null ? null : ref.get();
+        if (model != null)
+        {
+            hits.increment();
+            retain(model);
+            event.finish(name, true);
+            return model;
+        }
+
+        // Slow path: the map locks only this name's bin while deciding,
+        // so two racing callers still end up with the same instance.
+        CustomModel[] result = new CustomModel[1];
+        boolean[] created = new boolean[1];
+        models.compute(name, (key, existing) -> {
+            CustomModel live = existing == null ? null : existing.get();
+            if (live != null)
+            {
+                result[0] = live;
+                return existing;
+            }
+            result[0] = new CustomModel(key);
+            created[0] = true;
+            return new NamedReference(key, result[0], collected);
+        });
+
+        model = result[0];
+        if (created[0])
+        {
+            misses.increment();
+        }
+        else
+        {
+            hits.increment();
+        }
+        retain(model);
+        event.finish(name, !created[0]);
+        return model;
+    }
+
+    private void retain(CustomModel model)
+    {
+        AtomicReferenceArray<CustomModel> ring = recent;
+        if (ring.length() > 0)
+        {
+            int slot = Math.floorMod(recentCursor.getAndIncrement(), ring.length());
+            ring.lazySet(slot, model);
+        }
+    }
+
+    // Removes names whose model has been garbage collected.
+    private void expungeCollected()
+    {
+        NamedReference ref;
+        while ((ref = (NamedReference) collected.poll()) != null)
+        {
+            if (models.remove(ref.name, ref))
+            {
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Changes how many recently requested models are kept strongly reachable.
+     * Models dropped from the ring stay registered for as long as something else refers to them.
+     *
+     * @param maxRetained the new bound, zero keeps models only while they are otherwise in use.
+     */
+    void setMaxRetained(int maxRetained)
+    {
+        if (maxRetained < 0)
+        {
+            throw new IllegalArgumentException("Retained model count cannot be negative.");
+        }
+        recent = new AtomicReferenceArray<>(maxRetained);
+    }
+
+    /**
+     * @return the number of names currently registered.
+     */
+    int size()
+    {
+        expungeCollected();
+        return models.size();
+    }
+
+    /**
+     * @return the models that are currently live, in no particular order.
+     */
+    List<CustomModel> instances()
+    {
+        List<CustomModel> live = new ArrayList<>(models.size());
+        for (NamedReference ref : models.values())
+        {
+            CustomModel model = ref.get();
+            if (model != null)
+            {
+                live.add(model);
+            }
+        }
+        return live;
+    }
+
+    /**
+     * @return a snapshot of the lookup counters.
+     */
+    RegistryStatistics statistics()
+    {
+        return new RegistryStatistics(hits.sum(), misses.sum(), evictions.sum(), size());
+    }
+
+    /**
+     * Weak reference that remembers its name, so it can be removed once cleared.
+     */
+    private static final class NamedReference extends WeakReference<CustomModel>
+    {
+        private final String name;
+
+        NamedReference(String name, CustomModel model, ReferenceQueue<CustomModel> queue)
+        {
+            super(model, queue);
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package uk.ac.ncl.csc8404.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Global dictionary of part names.
+ * Each distinct part string is given a small, dense {@code int} id the first
+ * time it is seen, so models can store their parts as {@code int[]} and
+ * reports can count parts in arrays instead of string-keyed maps.
+ * <p>
+ * Ids are never reused or removed. Safe for concurrent use.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+public final class PartDictionary
+{
+
+    private static final ConcurrentMap<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[256];
+    private static int size;
+
+    /**
+     * Private constructor to prevent class instantiation.
+     */
+    private PartDictionary()
+    {}
+
+    /**
+     * Returns the id of a part, assigning a new one if the part has not been seen before.
+     *
+     * @param part the part name, can't be null.
+     * @return the part's id.
+     * @throws IllegalArgumentException if part is null.
+     */
+    public static int idOf(String part)
+    {
+        if (part == null)
+        {
+            throw new IllegalArgumentException("Part cannot be null.");
+        }
+
+        Integer id = IDS.get(part);
+        if (id != null)
+        {
+            return id;
+        }
+        return IDS.computeIfAbsent(part, PartDictionary::register);
+    }
+
+    /**
+     * Looks up the id of a part without registering it.
+     *
+     * @param part the part name.
+     * @return the part's id, or -1 if the part has never been seen.
+     */
+    public static int find(String part)
+    {
+        Integer id = part == null ? null : IDS.get(part);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param id a part id returned by {@link #idOf(String)}.
+     * @return the part name for the id.
+     * @throws IllegalArgumentException if the id was never assigned.
+     */
+    public static String nameOf(int id)
+    {
+        String[] current = names;
+        String name = id >= 0 && id < current.length ? current[id] : null;
+        if (name == null)
+        {
+            throw new IllegalArgumentException("Unknown part id: " + id);
+        }
+        return name;
+    }
+
+    /**
+     * @return the number of distinct parts seen so far, ids run from 0 to size - 1.
+     */
+    public static synchronized int size()
+    {
+        return size;
+    }
+
+    // Called by computeIfAbsent at most once per part.
+    private static synchronized Integer register(String part)
+    {
+        String[] current = names;
+        if (size == current.length)
+        {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[size] = part;
+        names = current;
+        return size++;
+    }
+}
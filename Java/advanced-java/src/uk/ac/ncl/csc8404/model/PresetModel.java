@@ -1,7 +1,6 @@
 package uk.ac.ncl.csc8404.model;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.AbstractList;
 import java.util.List;
 import java.util.Objects;
 
@@ -10,6 +9,8 @@ import java.util.Objects;
  *
  * This represents PC with fixed parts by a specific
  * manufacturer. Defensive copies used to ensure immutability.
+ * Parts are stored as ids from the {@link PartDictionary} and
+ * decoded on demand by the list returned from {@link #getParts()}.
  *
  * @author Swapnil Sagar
  * @version 1.0
@@ -20,7 +21,7 @@ public final class PresetModel extends AbstractPCModel
 
 
     private final String manufacturer;
-    private final List<String> parts;
+    private final int[] partIds;
 
     /**
      * PresetModel Constructor.
@@ -50,7 +51,12 @@ public final class PresetModel extends AbstractPCModel
         this.manufacturer = manufacturer;
 
 
-        this.parts = new ArrayList<>(parts);
+        this.partIds = new int[parts.size()];
+        int i = 0;
+        for (String part : parts)
+        {
+            this.partIds[i++] = PartDictionary.idOf(part);
+        }
     }
 
     @Override
@@ -73,10 +79,20 @@ public final class PresetModel extends AbstractPCModel
     @Override
     public List<String> getParts()
     {
-        return Collections.unmodifiableList(parts);
+        return new PartList();
 
     }
 
+    /**
+     * Gets the parts as {@link PartDictionary} ids.
+     *
+     * @return a copy of the part ids.
+     */
+    public int[] getPartIds()
+    {
+        return partIds.clone();
+    }
+
     @Override
     public String toString()
     {
@@ -103,4 +119,22 @@ public final class PresetModel extends AbstractPCModel
         return Objects.hash(getName(), manufacturer);
 
     }
+
+    /**
+     * Read-only view that decodes part ids as they are read.
+     */
+    private final class PartList extends AbstractList<String>
+    {
+        @Override
+        public String get(int index)
+        {
+            return PartDictionary.nameOf(partIds[index]);
+        }
+
+        @Override
+        public int size()
+        {
+            return partIds.length;
+        }
+    }
 }
@@ -51,4 +51,20 @@ class PresetModelTest
                 "The list returned by getParts() can't be modified.");
 
     }
+
+    @Test
+    void testPartsViewDecodesDictionaryIds()
+    {
+        PresetModel model = new PresetModel("Tower", "Dell", Arrays.asList("CPU:-i7", "RAM:-16GB", "CPU:-i7"));
+
+        assertEquals(List.of("CPU:-i7", "RAM:-16GB", "CPU:-i7"), model.getParts());
+        int[] ids = model.getPartIds();
+        assertEquals(PartDictionary.idOf("CPU:-i7"), ids[0]);
+        assertEquals(ids[0], ids[2]);
+
+        // Changing the returned ids does not change the model
+        ids[1] = ids[0];
+        assertEquals("RAM:-16GB", model.getParts().get(1));
+        assertThrows(IllegalArgumentException.class, () -> PartDictionary.nameOf(-1));
+    }
 }
@@ -0,0 +1,71 @@
+package uk.ac.ncl.csc8404.model;
+
+/**
+ * An immutable snapshot of the lookup counters of {@link CustomModelFactory}.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+public final class RegistryStatistics
+{
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int size;
+
+    /**
+     * Constructs a snapshot.
+     *
+     * @param hits lookups that found a live model.
+     * @param misses lookups that created a new model.
+     * @param evictions models dropped after being garbage collected.
+     * @param size names registered when the snapshot was taken.
+     */
+    RegistryStatistics(long hits, long misses, long evictions, int size)
+    {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+    }
+
+    /**
+     * @return number of lookups that found a live model.
+     */
+    public long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * @return number of lookups that created a new model.
+     */
+    public long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * @return number of models removed because nothing referred to them any more.
+     */
+    public long getEvictions()
+    {
+        return evictions;
+    }
+
+    /**
+     * @return number of names registered when the snapshot was taken.
+     */
+    public int getSize()
+    {
+        return size;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "RegistryStatistics Hits=" + hits + ", Misses=" + misses
+                + ", Evictions=" + evictions + ", Size=" + size;
+    }
+}
@@ -19,6 +19,12 @@ public interface Order
 {
 
 
+    /**
+     * @return the order number, unique among orders in this JVM
+     * and kept when an order is recovered from a journal.
+     */
+    long getOrderId();
+
     /**
      * @return an unmodifiable list of {@link PCModel} objects.
      */
@@ -42,6 +48,12 @@ public interface Order
 
     Date getOrderDate();
 
+    /**
+     * @return the order time in milliseconds since the epoch.
+     */
+
+    long getOrderTime();
+
     /**
      * @return the {@link OrderStatus} current order status.
      */
@@ -50,13 +62,19 @@ public interface Order
 
     /**
      * Update order status to FULFILLED.
+     * Only a PLACED order can be fulfilled, and the change is atomic.
+     *
+     * @throws IllegalStateException if the order is already fulfilled or cancelled.
      */
 
     void fulfill();
 
     /**
      * Update order status to CANCELLED.
+     * Only a PLACED order can be cancelled, and the change is atomic.
+     *
+     * @throws IllegalStateException if the order is already fulfilled or cancelled.
      */
 
     void cancel();
-}
\ No newline at end of file
+}
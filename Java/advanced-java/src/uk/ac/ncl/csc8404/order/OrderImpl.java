@@ -8,11 +8,15 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Implementation of the {@link Order} interface.
  * Single order information is stored here. It begins with
  * a 'PLACED' -> 'FULFILLED' or 'CANCELLED'.
+ * Status changes are atomic, so when several threads race to fulfill
+ * or cancel the same order exactly one of them succeeds.
  *
  * @author Swapnil Sagar
  * @version 1.0
@@ -20,11 +24,14 @@ import java.util.List;
 public final class OrderImpl implements Order
 {
 
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+
+    private final long orderId;
     private final List<PCModel> models;
     private final Customer customer;
     private final CreditCard creditCard;
-    private final Date orderDate;
-    private OrderStatus status;
+    private final long orderTime;
+    private final AtomicReference<OrderStatus> status;
 
     /**
      * New Order Constructor. Date and time are automatically assigned to order
@@ -40,6 +47,47 @@ public final class OrderImpl implements Order
 
     public OrderImpl(List<PCModel> models, Customer customer, CreditCard creditCard)
     {
+        this(models, customer, creditCard, System.currentTimeMillis());
+    }
+
+    /**
+     * New Order Constructor for an order placed at a known time,
+     * with an initial status of 'PLACED'.
+     *
+     * @param models list of PC models.
+     * @param customer customer.
+     * @param creditCard credit card.
+     *
+     * @param orderTime the order time in milliseconds since the epoch.
+     * @throws IllegalArgumentException if any parameter is null.
+     */
+
+    public OrderImpl(List<PCModel> models, Customer customer, CreditCard creditCard, long orderTime)
+    {
+        this(NEXT_ID.getAndIncrement(), models, customer, creditCard, orderTime);
+    }
+
+    /**
+     * Order Constructor for an order that already has a number, such as one
+     * recovered from a journal, with an initial status of 'PLACED'.
+     * Newly numbered orders will not reuse the given number.
+     *
+     * @param orderId the existing order number, must be positive.
+     * @param models list of PC models.
+     * @param customer customer.
+     * @param creditCard credit card.
+     *
+     * @param orderTime the order time in milliseconds since the epoch.
+     * @throws IllegalArgumentException if any parameter is null or the number is not positive.
+     */
+
+    public OrderImpl(long orderId, List<PCModel> models, Customer customer, CreditCard creditCard, long orderTime)
+    {
+
+        if (orderId <= 0)
+        {
+            throw new IllegalArgumentException("Order number must be positive.");
+        }
 
         if (models == null || models.isEmpty())
         {
@@ -57,11 +105,35 @@ public final class OrderImpl implements Order
 
         }
 
+        if (NEXT_ID.get() <= orderId)
+        {
+            NEXT_ID.accumulateAndGet(orderId + 1, Math::max);
+        }
+
+        this.orderId = orderId;
         this.models = new ArrayList<>(models); // Defensive copy
         this.customer = customer;
         this.creditCard = creditCard;
-        this.orderDate = new Date();
-        this.status = OrderStatus.PLACED;
+        this.orderTime = orderTime;
+        this.status = new AtomicReference<>(OrderStatus.PLACED);
+    }
+
+    /**
+     * Takes the next order number from the sequence used by new orders, for
+     * order systems that keep their orders in some other form.
+     *
+     * @return a positive order number no other order has been given.
+     */
+    public static long nextOrderId()
+    {
+        return NEXT_ID.getAndIncrement();
+    }
+
+    @Override
+    public long getOrderId()
+    {
+
+        return orderId;
     }
 
     @Override
@@ -89,8 +161,15 @@ public final class OrderImpl implements Order
     public Date getOrderDate()
     {
 
-        return new Date(orderDate.getTime()); // Defensive copy
+        return new Date(orderTime); // New object each call, the order itself keeps a long
+
+    }
+
+    @Override
+    public long getOrderTime()
+    {
 
+        return orderTime;
     }
 
 
@@ -98,35 +177,40 @@ public final class OrderImpl implements Order
     public OrderStatus getStatus()
     {
 
-        return status;
+        return status.get();
     }
 
     @Override
     public void fulfill()
     {
-        if (this.status == OrderStatus.CANCELLED)
+        if (!status.compareAndSet(OrderStatus.PLACED, OrderStatus.FULFILLED))
         {
-            throw new IllegalStateException("Cancelled order can't be fulfilled.");
+            if (status.get() == OrderStatus.CANCELLED)
+            {
+                throw new IllegalStateException("Cancelled order can't be fulfilled.");
+            }
+            throw new IllegalStateException("Order has already been fulfilled.");
         }
-
-        this.status = OrderStatus.FULFILLED;
     }
 
     @Override
     public void cancel()
     {
-
-        if (this.status == OrderStatus.FULFILLED) {
-            throw new IllegalStateException("Fulfilled order can't be cancelled.");
+        if (!status.compareAndSet(OrderStatus.PLACED, OrderStatus.CANCELLED))
+        {
+            if (status.get() == OrderStatus.FULFILLED)
+            {
+                throw new IllegalStateException("Fulfilled order can't be cancelled.");
+            }
+            throw new IllegalStateException("Order has already been cancelled.");
         }
-        this.status = OrderStatus.CANCELLED;
     }
 
     @Override
     public String toString()
     {
 
-        return "Order Customer=" + customer.getFullName() + ", Date=" + orderDate + ", Status=" + status;
+        return "Order Id=" + orderId + ", Customer=" + customer.getFullName() + ", Date=" + new Date(orderTime) + ", Status=" + status.get();
     }
 
 }
@@ -11,6 +11,11 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -92,4 +97,75 @@ class OrderTest
 
     }
 
-}
\ No newline at end of file
+    @Test
+    void testRepeatedTransitionsAreRejected()
+    {
+        Order fulfilled = new OrderImpl(dummyModels, dummyCustomer, dummyCard);
+        fulfilled.fulfill();
+        assertThrows(IllegalStateException.class, fulfilled::fulfill, "An order can only be fulfilled once.");
+
+        Order cancelled = new OrderImpl(dummyModels, dummyCustomer, dummyCard);
+        cancelled.cancel();
+        assertThrows(IllegalStateException.class, cancelled::cancel, "An order can only be cancelled once.");
+    }
+
+    @Test
+    void testRacingTransitionsHaveOneWinner() throws Exception
+    {
+        // Stress case: a fulfill and a cancel race on each order, exactly one must succeed
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try
+        {
+            for (int i = 0; i < 2000; i++)
+            {
+                Order order = new OrderImpl(dummyModels, dummyCustomer, dummyCard);
+                CountDownLatch start = new CountDownLatch(1);
+
+                Future<Boolean> fulfilled = pool.submit(() -> attempt(start, order::fulfill));
+                Future<Boolean> cancelled = pool.submit(() -> attempt(start, order::cancel));
+                start.countDown();
+
+                boolean fulfillWon = fulfilled.get();
+                boolean cancelWon = cancelled.get();
+                assertTrue(fulfillWon ^ cancelWon, "Exactly one transition should succeed.");
+                assertEquals(fulfillWon ? OrderStatus.FULFILLED : OrderStatus.CANCELLED, order.getStatus());
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void testOrderTime()
+    {
+        Order order = new OrderImpl(dummyModels, dummyCustomer, dummyCard, 1_700_000_000_000L);
+        assertEquals(1_700_000_000_000L, order.getOrderTime());
+        assertEquals(new Date(1_700_000_000_000L), order.getOrderDate());
+
+        // The returned date is a copy
+        order.getOrderDate().setTime(0);
+        assertEquals(1_700_000_000_000L, order.getOrderDate().getTime());
+
+        long before = System.currentTimeMillis();
+        Order now = new OrderImpl(dummyModels, dummyCustomer, dummyCard);
+        assertTrue(now.getOrderTime() >= before && now.getOrderTime() <= System.currentTimeMillis());
+    }
+
+    private static boolean attempt(CountDownLatch start, Runnable transition) throws InterruptedException
+    {
+        start.await();
+        try
+        {
+            transition.run();
+            return true;
+        }
+        catch (IllegalStateException e)
+        {
+            return false;
+        }
+    }
+
+}
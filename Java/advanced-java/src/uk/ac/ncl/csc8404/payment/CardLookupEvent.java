@@ -0,0 +1,45 @@
+package uk.ac.ncl.csc8404.payment;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for a
+ * {@link CreditCardFactory#getInstance(String, java.util.Date, String)}
+ * lookup, recording whether the card was already registered. The card
+ * number is deliberately left out of recordings.
+ * <p>
+ * Disabled by default, like the order system's {@code OrderEvent}, whose
+ * doc describes what a disabled event costs.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+@Name("uk.ac.ncl.csc8404.CardLookup")
+@Label("Credit Card Lookup")
+@Category({"CSC8404", "Factories"})
+@Description("A credit card requested from CreditCardFactory")
+final class CardLookupEvent extends Event
+{
+
+    @Label("Hit")
+    @Description("The card was already registered")
+    boolean hit;
+
+    /**
+     * Commits the event if it is being recorded.
+     *
+     * @param hit whether the card already existed.
+     */
+    void finish(boolean hit)
+    {
+        if (shouldCommit())
+        {
+            this.hit = hit;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package uk.ac.ncl.csc8404.payment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Registry of {@link CreditCard} instances keyed by the numeric value of
+ * their 8-digit card number, used by {@link CreditCardFactory}.
+ * <p>
+ * Cards are kept in open-addressing tables of primitive {@code int} keys,
+ * split into stripes that each have their own {@link StampedLock}.
+ * Lookups of existing cards use an optimistic read and take no lock at all;
+ * only registering a new card locks, and then only one stripe.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+final class CardRegistry
+{
+
+    private static final int STRIPE_BITS = 4;
+    private static final int STRIPES = 1 << STRIPE_BITS;
+    private static final int EMPTY = -1;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Constructs an empty registry.
+     */
+    CardRegistry()
+    {
+        for (int i = 0; i < STRIPES; i++)
+        {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Parses an 8-digit card number without regular expressions or allocation.
+     *
+     * @param cardNumber the card number to check.
+     * @return the numeric value of the card number, or -1 if it is not exactly 8 ASCII digits.
+     */
+    static int parseCardNumber(String cardNumber)
+    {
+        if (cardNumber == null || cardNumber.length() != 8)
+        {
+            return -1;
+        }
+
+        int value = 0;
+        for (int i = 0; i < 8; i++)
+        {
+            char c = cardNumber.charAt(i);
+            if (c < '0' || c > '9')
+            {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Returns the card registered for a number, registering a new one if needed.
+     * Details of an existing card are never updated. Each call is a
+     * {@link CardLookupEvent} in flight recordings.
+     *
+     * @param key the parsed card number.
+     * @param cardNumber the card number as given.
+     * @param expiryDate expiry date for a new card.
+     * @param holderName holder name for a new card.
+     * @return the unique card for the number.
+     */
+    CreditCard getOrCreate(int key, String cardNumber, Date expiryDate, String holderName)
+    {
+        CardLookupEvent event = new CardLookupEvent();
+        event.begin();
+        int hash = mix(key);
+        Stripe stripe = stripes[hash >>> (32 - STRIPE_BITS)];
+
+        CreditCard card = stripe.find(key, hash);
+        if (card != null)
+        {
+            event.finish(true);
+            return card;
+        }
+
+        boolean hit;
+        long stamp = stripe.lock.writeLock();
+        try
+        {
+            card = stripe.table.get(key, hash);
+            hit = card != null;
+            if (!hit)
+            {
+                card = new CreditCardImpl(cardNumber, expiryDate, holderName);
+                stripe.insert(key, hash, card);
+                size.incrementAndGet();
+            }
+        }
+        finally
+        {
+            stripe.lock.unlockWrite(stamp);
+        }
+        event.finish(hit);
+        return card;
+    }
+
+    /**
+     * @return the number of registered cards.
+     */
+    int size()
+    {
+        return size.get();
+    }
+
+    /**
+     * @return the registered cards, in no particular order.
+     */
+    List<CreditCard> instances()
+    {
+        List<CreditCard> cards = new ArrayList<>(size());
+        for (Stripe stripe : stripes)
+        {
+            long stamp = stripe.lock.readLock();
+            try
+            {
+                for (CreditCard card : stripe.table.values)
+                {
+                    if (card != null)
+                    {
+                        cards.add(card);
+                    }
+                }
+            }
+            finally
+            {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        return cards;
+    }
+
+    // Card numbers are dense decimal values, so spread them before using the bits.
+    private static int mix(int key)
+    {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * One lock and one table; the table is replaced, never resized in place.
+     */
+    private static final class Stripe
+    {
+        private final StampedLock lock = new StampedLock();
+        private volatile Table table = new Table(64);
+        private int count;
+
+        CreditCard find(int key, int hash)
+        {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0)
+            {
+                CreditCard card = table.get(key, hash);
+                if (lock.validate(stamp))
+                {
+                    return card;
+                }
+            }
+
+            stamp = lock.readLock();
+            try
+            {
+                return table.get(key, hash);
+            }
+            finally
+            {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        // Caller holds the write lock.
+        void insert(int key, int hash, CreditCard card)
+        {
+            if ((count + 1) * 2 > table.keys.length)
+            {
+                Table grown = new Table(table.keys.length * 2);
+                Table old = table;
+                for (int i = 0; i < old.keys.length; i++)
+                {
+                    if (old.keys[i] != EMPTY)
+                    {
+                        grown.put(old.keys[i], mix(old.keys[i]), old.values[i]);
+                    }
+                }
+                table = grown;
+            }
+            table.put(key, hash, card);
+            count++;
+        }
+    }
+
+    /**
+     * Linear-probing table with a load factor of at most one half.
+     */
+    private static final class Table
+    {
+        private final int[] keys;
+        private final CreditCard[] values;
+
+        Table(int capacity)
+        {
+            keys = new int[capacity];
+            values = new CreditCard[capacity];
+            Arrays.fill(keys, EMPTY);
+        }
+
+        CreditCard get(int key, int hash)
+        {
+            int mask = keys.length - 1;
+            int slot = hash & mask;
+            for (int probes = 0; probes < keys.length; probes++)
+            {
+                int k = keys[slot];
+                if (k == key)
+                {
+                    return values[slot];
+                }
+                if (k == EMPTY)
+                {
+                    return null;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        void put(int key, int hash, CreditCard card)
+        {
+            int mask = keys.length - 1;
+            int slot = hash & mask;
+            while (keys[slot] != EMPTY)
+            {
+                slot = (slot + 1) & mask;
+            }
+            values[slot] = card; // Value first, so a key is never seen without it
+            keys[slot] = key;
+        }
+    }
+}
@@ -1,14 +1,15 @@
 package uk.ac.ncl.csc8404.payment;
 
 import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 
 /**
  * Creating unique {@link CreditCard} instances for factory.
  *
  * Only one CreditCard object should exist in the system for a given card number.
  * This is an example of an instance-controlled class.
+ * Cards are kept in a striped registry keyed by the numeric card number,
+ * so lookups of known cards are lock-free and safe for concurrent callers.
  *
  * @author Swapnil Sagar
  * @version 1.0
@@ -18,7 +19,7 @@ public final class CreditCardFactory
 {
 
 
-    private static final Map<String, CreditCard> CARDS = new HashMap<>();
+    private static final CardRegistry CARDS = new CardRegistry();
 
     // Private constructor to prevent instantiation of the factory itself.
 
@@ -38,7 +39,8 @@ public final class CreditCardFactory
     public static CreditCard getInstance(String cardNumber, Date expiryDate, String holderName)
     {
         // Defensive parameter checks
-        if (cardNumber == null || !cardNumber.matches("\\d{8}"))
+        int key = CardRegistry.parseCardNumber(cardNumber);
+        if (key < 0)
         {
             throw new IllegalArgumentException("Card number must be an 8-digit string.");
         }
@@ -53,14 +55,7 @@ public final class CreditCardFactory
             throw new IllegalArgumentException("Holder name cannot be null or empty.");
         }
 
-        if (!CARDS.containsKey(cardNumber))
-        {
-            CreditCard newCard = new CreditCardImpl(cardNumber, expiryDate, holderName);
-            CARDS.put(cardNumber, newCard);
-
-        }
-
-        return CARDS.get(cardNumber);
+        return CARDS.getOrCreate(key, cardNumber, expiryDate, holderName);
     }
 
 
@@ -71,4 +66,12 @@ public final class CreditCardFactory
     public static int getNumberOfUniqueCards() {
         return CARDS.size();
     }
-}
\ No newline at end of file
+
+    /**
+     * @return a copy of every card created so far, in no particular order.
+     */
+    public static List<CreditCard> getInstances()
+    {
+        return CARDS.instances();
+    }
+}
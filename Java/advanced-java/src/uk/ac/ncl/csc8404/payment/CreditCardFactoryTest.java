@@ -1,8 +1,15 @@
 package uk.ac.ncl.csc8404.payment;
 
 import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import static org.junit.jupiter.api.Assertions.*;
 
 class CreditCardFactoryTest {
@@ -67,5 +74,88 @@ class CreditCardFactoryTest {
 
     }
 
+    @Test
+    void testCardNumberParsing()
+    {
+        // Boundary cases for the hand-written validator
+        assertEquals(0, CardRegistry.parseCardNumber("00000000"));
+        assertEquals(99999999, CardRegistry.parseCardNumber("99999999"));
+        assertEquals(1234567, CardRegistry.parseCardNumber("01234567"));
+
+        assertEquals(-1, CardRegistry.parseCardNumber("1234567"));
+        assertEquals(-1, CardRegistry.parseCardNumber("123456789"));
+        assertEquals(-1, CardRegistry.parseCardNumber("1234 567"));
+        assertEquals(-1, CardRegistry.parseCardNumber("1234567/"));
+        assertEquals(-1, CardRegistry.parseCardNumber("1234567:"));
+        assertEquals(-1, CardRegistry.parseCardNumber("\u0661\u0662\u0663\u0664\u0665\u0666\u0667\u0668"));
+    }
+
+    @Test
+    void testLeadingZerosAreDistinctCards()
+    {
+        CreditCard small = CreditCardFactory.getInstance("00000012", getFutureDate(), "Small");
+        CreditCard shifted = CreditCardFactory.getInstance("00000120", getFutureDate(), "Shifted");
+
+        assertNotSame(small, shifted);
+        assertEquals("00000012", small.getCardNumber(), "The card keeps the number as it was given.");
+    }
+
+    @Test
+    void testManyCardsStayRegistered()
+    {
+        // Enough cards to grow every stripe several times
+        int before = CreditCardFactory.getNumberOfUniqueCards();
+        List<CreditCard> cards = new ArrayList<>();
+        for (int i = 0; i < 5000; i++)
+        {
+            cards.add(CreditCardFactory.getInstance(String.format("5%07d", i), getFutureDate(), "Holder " + i));
+        }
+
+        for (int i = 0; i < 5000; i++)
+        {
+            assertSame(cards.get(i), CreditCardFactory.getInstance(String.format("5%07d", i), getFutureDate(), "Other"));
+        }
+        assertEquals(before + 5000, CreditCardFactory.getNumberOfUniqueCards());
+    }
+
+    @Test
+    void testConcurrentRegistrationIsUnique() throws Exception
+    {
+        // Stress case: threads register the same new card numbers at the same time
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try
+        {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<CreditCard[]>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++)
+            {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    CreditCard[] seen = new CreditCard[1000];
+                    for (int i = 0; i < seen.length; i++)
+                    {
+                        seen[i] = CreditCardFactory.getInstance(String.format("7%07d", i), getFutureDate(), "Racer");
+                    }
+                    return seen;
+                }));
+            }
+            start.countDown();
+
+            CreditCard[] first = results.get(0).get();
+            for (Future<CreditCard[]> result : results)
+            {
+                CreditCard[] seen = result.get();
+                for (int i = 0; i < seen.length; i++)
+                {
+                    assertSame(first[i], seen[i], "All threads must get the same card for a number.");
+                }
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
 
 }
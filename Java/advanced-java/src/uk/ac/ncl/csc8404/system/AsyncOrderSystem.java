@@ -0,0 +1,84 @@
+package uk.ac.ncl.csc8404.system;
+
+import uk.ac.ncl.csc8404.model.PCModel;
+import uk.ac.ncl.csc8404.order.Order;
+import uk.ac.ncl.csc8404.payment.CreditCard;
+import uk.ac.ncl.csc8404.user.Customer;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous front end to an {@link OrderSystem}. Requests return at
+ * once with a future, and the work is done by a pipeline of stages, each
+ * with its own bounded queue.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+public interface AsyncOrderSystem extends AutoCloseable
+{
+
+    /**
+     * The stages an order passes through.
+     */
+    enum Stage
+    {
+        /**
+         * Checks the request before any order is created.
+         */
+        VALIDATION,
+
+        /**
+         * Creates the order and records it in the system.
+         */
+        CREATION,
+
+        /**
+         * Fulfills orders.
+         */
+        FULFILMENT
+    }
+
+    /**
+     * Places an order without waiting for it.
+     *
+     * @param models     The ordered list of PC models ordered.
+     * @param customer   The order placed customer.
+     * @param creditCard The credit card used for payment.
+     * @return A future completed with the new {@link Order}, or exceptionally
+     * with an {@link IllegalArgumentException} if the request is invalid, or a
+     * {@link java.util.concurrent.RejectedExecutionException} if the pipeline
+     * is full or closed.
+     */
+    CompletableFuture<Order> placeOrderAsync(List<PCModel> models, Customer customer, CreditCard creditCard);
+
+    /**
+     * Fulfills an order without waiting for it.
+     *
+     * @param order The order to be fulfilled.
+     * @return A future completed with the fulfillment, or exceptionally with
+     * the exception {@link OrderSystem#fulfillOrder(Order)} would throw, or a
+     * {@link java.util.concurrent.RejectedExecutionException} if the pipeline
+     * is full or closed.
+     */
+    CompletableFuture<FulfillmentResult> fulfillOrderAsync(Order order);
+
+    /**
+     * @param stage a stage of the pipeline.
+     * @return the number of requests waiting for that stage.
+     */
+    int getQueueDepth(Stage stage);
+
+    /**
+     * @return the system the pipeline feeds, for reports and history.
+     */
+    OrderSystem getOrderSystem();
+
+    /**
+     * Stops accepting requests, finishes those already accepted and stops
+     * the pipeline's threads.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,176 @@
+package uk.ac.ncl.csc8404.system;
+
+import uk.ac.ncl.csc8404.order.Order;
+
+import java.io.UncheckedIOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * Fork/join fulfillment of a batch of orders, shared by the {@link OrderSystem}
+ * implementations. The batch is split in half until the slices are small,
+ * each slice is fulfilled on its own, and the partial results are merged
+ * back up the tree.
+ * <p>
+ * An order is reported as failed if fulfilling it throws one of the
+ * documented exceptions: {@link IllegalStateException}, which includes
+ * {@link InsufficientStockException}, {@link IllegalArgumentException}, or
+ * {@link UncheckedIOException} from a journal. Anything else is a bug and
+ * stops the batch.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+final class BatchFulfillment
+{
+
+    private BatchFulfillment()
+    {}
+
+    /**
+     * Fulfills every order in a batch.
+     *
+     * @param orders the orders to fulfill.
+     * @param fulfill fulfills a single order, throwing if it cannot.
+     * @return the merged result and the orders that failed.
+     * @throws IllegalArgumentException if orders is null.
+     */
+    static BatchFulfillmentResult run(Collection<Order> orders, Function<Order, FulfillmentResult> fulfill)
+    {
+        return run(orders, fulfill, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a pool for batches where each fulfillment blocks, such as
+     * waiting for a journal to sync. It keeps the blocked threads off the
+     * common pool, and has more threads than processors so that more
+     * fulfillments share each sync. Its threads are daemons, and the owner
+     * shuts it down once it has no more batches to run.
+     *
+     * @return the new pool.
+     */
+    static ForkJoinPool newBlockingPool()
+    {
+        return new ForkJoinPool(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Fulfills every order in a batch on the given pool.
+     *
+     * @param orders the orders to fulfill.
+     * @param fulfill fulfills a single order, throwing if it cannot.
+     * @param pool the pool to run on, such as one from {@link #newBlockingPool()}.
+     * @return the merged result and the orders that failed.
+     * @throws IllegalArgumentException if orders is null.
+     */
+    static BatchFulfillmentResult run(Collection<Order> orders, Function<Order, FulfillmentResult> fulfill,
+                                              ForkJoinPool pool)
+    {
+        if (orders == null)
+        {
+            throw new IllegalArgumentException("Order batch cannot be null.");
+        }
+
+        Order[] batch = orders.toArray(new Order[0]);
+        BatchPart result = pool.invoke(new BatchTask(batch, 0, batch.length, fulfill));
+
+        // Sorted, so the merged result does not depend on how the batch was split
+        return new BatchFulfillmentResult(new FulfillmentResult(result.presetOrders.sorted(), result.customParts.sorted()),
+                result.fulfilled, result.failures);
+    }
+
+    /**
+     * Fulfills a slice of a batch, splitting it in half until it is small enough.
+     */
+    private static final class BatchTask extends RecursiveTask<BatchPart>
+    {
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 256;
+
+        private final Order[] batch;
+        private final int from;
+        private final int to;
+        private final Function<Order, FulfillmentResult> fulfill;
+
+        BatchTask(Order[] batch, int from, int to, Function<Order, FulfillmentResult> fulfill)
+        {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+            this.fulfill = fulfill;
+        }
+
+        @Override
+        protected BatchPart compute()
+        {
+            if (to - from <= THRESHOLD)
+            {
+                BatchPart part = new BatchPart();
+                for (int i = from; i < to; i++)
+                {
+                    part.add(batch[i], fulfill);
+                }
+                return part;
+            }
+
+            int middle = (from + to) >>> 1;
+            BatchTask right = new BatchTask(batch, middle, to, fulfill);
+            right.fork();
+            BatchPart left = new BatchTask(batch, from, middle, fulfill).compute();
+            return left.merge(right.join());
+        }
+    }
+
+    /**
+     * Partial result of a batch slice. Failures stay in batch order
+     * because a left slice is always merged before its right slice.
+     */
+    private static final class BatchPart
+    {
+        private final CountMap presetOrders = new CountMap(16);
+        private final CountMap customParts = new CountMap(16);
+        private final List<Map.Entry<Order, String>> failures = new ArrayList<>();
+        private int fulfilled;
+
+        void add(Order order, Function<Order, FulfillmentResult> fulfill)
+        {
+            if (order == null)
+            {
+                fail(null, "Order cannot be null.");
+                return;
+            }
+            try
+            {
+                FulfillmentResult result = fulfill.apply(order);
+                presetOrders.addAll(result.presetModelCounts());
+                customParts.addAll(result.partCounts());
+                fulfilled++;
+            }
+            catch (IllegalStateException | IllegalArgumentException | UncheckedIOException e)
+            {
+                // One bad order must not fail the whole batch
+                fail(order, e.getMessage() != null ? e.getMessage() : e.toString());
+            }
+        }
+
+        private void fail(Order order, String reason)
+        {
+            failures.add(new AbstractMap.SimpleImmutableEntry<>(order, reason));
+        }
+
+        BatchPart merge(BatchPart right)
+        {
+            presetOrders.addAll(right.presetOrders);
+            customParts.addAll(right.customParts);
+            failures.addAll(right.failures);
+            fulfilled += right.fulfilled;
+            return this;
+        }
+    }
+}
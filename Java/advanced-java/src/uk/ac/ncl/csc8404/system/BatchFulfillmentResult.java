@@ -0,0 +1,70 @@
+package uk.ac.ncl.csc8404.system;
+
+import uk.ac.ncl.csc8404.order.Order;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable value object representing the result of fulfilling a batch of orders.
+ * It holds one {@link FulfillmentResult} merged over every order that was
+ * fulfilled, and the orders that could not be fulfilled with the reason why.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+public final class BatchFulfillmentResult
+{
+
+    private final FulfillmentResult merged;
+    private final int fulfilledCount;
+    private final List<Map.Entry<Order, String>> failures;
+
+    /**
+     * Constructs a new BatchFulfillmentResult.
+     *
+     * @param merged the combined fulfillment of all fulfilled orders.
+     * @param fulfilledCount the number of orders fulfilled.
+     * @param failures orders that were not fulfilled, in batch order, with the reason.
+     */
+    BatchFulfillmentResult(FulfillmentResult merged, int fulfilledCount, List<Map.Entry<Order, String>> failures)
+    {
+        this.merged = merged;
+        this.fulfilledCount = fulfilledCount;
+        this.failures = Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * @return the preset models and parts needed for every fulfilled order, combined.
+     */
+    public FulfillmentResult getMergedResult()
+    {
+        return merged;
+    }
+
+    /**
+     * @return the number of orders that were fulfilled.
+     */
+    public int getFulfilledCount()
+    {
+        return fulfilledCount;
+    }
+
+    /**
+     * @return one entry per order that could not be fulfilled, in batch order,
+     * with the reason. An order listed more than once, or a null order,
+     * appears once for each time it failed.
+     */
+    public List<Map.Entry<Order, String>> getFailures()
+    {
+        return failures;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BatchFulfillmentResult Fulfilled=" + fulfilledCount + ", Failed=" + failures.size()
+                + ", Result=" + merged;
+    }
+}
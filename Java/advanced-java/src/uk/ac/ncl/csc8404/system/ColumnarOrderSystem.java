@@ -0,0 +1,994 @@
+package uk.ac.ncl.csc8404.system;
+
+import uk.ac.ncl.csc8404.model.*;
+import uk.ac.ncl.csc8404.order.*;
+import uk.ac.ncl.csc8404.payment.*;
+import uk.ac.ncl.csc8404.user.*;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntFunction;
+
+/**
+ * An implementation of the {@link OrderSystem} interface for very large
+ * order histories. Instead of one object per order, orders are kept as
+ * rows of parallel primitive columns: a {@code long} order number and
+ * order time, an {@code int} customer id, an {@code int} card id, a {@code byte} status,
+ * and the end offset of the order's models in one shared {@code int}
+ * column of model ids. Customers, cards and models are stored once each
+ * and referred to by id, so an order costs around 40 bytes and the
+ * collector has almost nothing to trace.
+ * <p>
+ * The {@link Order} objects handed out are flyweights: a row number and
+ * nothing else, created on demand. Two flyweights for the same row are
+ * equal, and fulfilling or cancelling one changes the row.
+ * <p>
+ * Nothing is indexed. Reports and queries are tight loops over the
+ * columns, and as long as order times never decrease along the history
+ * (always true for orders placed here), a time range is found by binary
+ * search first. {@link #getOrders(OrderStatus)}
+ * and {@link #getOrdersFor(Customer)} return lists taken by a scan when
+ * they are called, rather than live views.
+ * <p>
+ * Safe for concurrent use. Placing orders is serialized on one lock,
+ * which only has to fill in a row; status changes are compare-and-set
+ * on the status column and take no lock.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+public final class ColumnarOrderSystem implements OrderSystem
+{
+
+    private static final int CHUNK_SHIFT = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final VarHandle STATUS = MethodHandles.arrayElementVarHandle(byte[].class);
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+    private static final byte PLACED = (byte) OrderStatus.PLACED.ordinal();
+    private static final byte FULFILLED = (byte) OrderStatus.FULFILLED.ordinal();
+    private static final byte CANCELLED = (byte) OrderStatus.CANCELLED.ordinal();
+
+    // Ties in the reports are broken alphabetically, as in OrderSystemImpl
+    private static final Comparator<Customer> BY_FULL_NAME = Comparator.comparing(Customer::getFullName);
+    private static final Comparator<PCModel> BY_MODEL_NAME = Comparator.comparing(PCModel::getName);
+
+    private final Dictionary<Customer> customers = new Dictionary<>();
+    private final Dictionary<CreditCard> cards = new Dictionary<>();
+    private final Dictionary<PCModel> models = new Dictionary<>();
+
+    private final Object appendLock = new Object();
+    private final AtomicIntegerArray statusCounts = new AtomicIntegerArray(STATUSES.length);
+
+    // Recent sales for the trending reports; rows do not record when they were fulfilled
+    private final TrendingCounter<PCModel> trendingModels = new TrendingCounter<>(BY_MODEL_NAME);
+    private final TrendingCounter<String> trendingParts = new TrendingCounter<>(Comparator.<String>naturalOrder());
+
+    // Rows below size are complete; size is written last, so it publishes them
+    private volatile Chunk[] chunks = new Chunk[16];
+    private volatile int[][] modelIds = new int[16][];
+    private volatile int size;
+
+    // Guarded by appendLock
+    private int modelIdCount;
+    private long lastOrderTime = Long.MIN_VALUE;
+
+    private volatile boolean timesSorted = true;
+
+    @Override
+    public Order placeOrder(List<PCModel> orderModels, Customer customer, CreditCard creditCard)
+    {
+        if (orderModels == null || orderModels.isEmpty())
+        {
+            throw new IllegalArgumentException("Model list cannot be null or empty.");
+        }
+        if (customer == null)
+        {
+            throw new IllegalArgumentException("Customer cannot be null.");
+        }
+        if (creditCard == null)
+        {
+            throw new IllegalArgumentException("Credit card cannot be null.");
+        }
+        if (!creditCard.isValid())
+        {
+            throw new IllegalArgumentException("Cannot place order with an invalid credit card.");
+        }
+
+        synchronized (appendLock)
+        {
+            // Keeps the time column sorted even if the wall clock steps back
+            long orderTime = Math.max(System.currentTimeMillis(), lastOrderTime);
+            return new Row(appendRow(OrderImpl.nextOrderId(), orderModels, customer, creditCard, orderTime,
+                    PLACED));
+        }
+    }
+
+    // Caller holds appendLock.
+    private int appendRow(long orderId, List<PCModel> orderModels, Customer customer, CreditCard creditCard,
+                          long orderTime, byte status)
+    {
+        int row = size;
+        if (row == Integer.MAX_VALUE)
+        {
+            throw new IllegalStateException("Order history is full.");
+        }
+        if (orderTime < lastOrderTime)
+        {
+            timesSorted = false; // Written before size, so readers of the new row see it
+        }
+        lastOrderTime = Math.max(orderTime, lastOrderTime);
+
+        for (PCModel model : orderModels)
+        {
+            appendModelId(models.idOf(model));
+        }
+
+        Chunk chunk = chunkForAppend(row);
+        int slot = row & CHUNK_MASK;
+        chunk.orderIds[slot] = orderId;
+        chunk.orderTimes[slot] = orderTime;
+        chunk.customerIds[slot] = customers.idOf(customer);
+        chunk.cardIds[slot] = cards.idOf(creditCard);
+        chunk.modelEnds[slot] = modelIdCount;
+        chunk.statuses[slot] = status;
+        statusCounts.incrementAndGet(status);
+        size = row + 1;
+        return row;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Imported orders become rows like any other and keep their order
+     * numbers; the objects passed in are not kept. Importing orders older than the newest one so far turns off
+     * the binary search of time ranges, which then scan every row.
+     */
+    @Override
+    public void importOrders(Collection<Order> orders)
+    {
+        if (orders == null)
+        {
+            throw new IllegalArgumentException("Imported orders cannot be null.");
+        }
+        for (Order order : orders)
+        {
+            if (order == null)
+            {
+                throw new IllegalArgumentException("Imported orders cannot be null.");
+            }
+            if (order.getModels().isEmpty())
+            {
+                throw new IllegalArgumentException("Model list cannot be null or empty.");
+            }
+        }
+
+        synchronized (appendLock)
+        {
+            for (Order order : orders)
+            {
+                appendRow(order.getOrderId(), order.getModels(), order.getCustomer(), order.getCreditCard(), order.getOrderTime(),
+                        (byte) order.getStatus().ordinal());
+            }
+        }
+        for (Order order : orders)
+        {
+            if (order.getStatus() == OrderStatus.FULFILLED)
+            {
+                trend(order.getModels(), order.getOrderTime()); // The nearest known time; counts only if recent
+            }
+        }
+    }
+
+    private void trend(List<PCModel> orderModels, long fulfilledAt)
+    {
+        PartCounter parts = new PartCounter();
+        for (PCModel model : orderModels)
+        {
+            if (model instanceof PresetModel)
+            {
+                trendingModels.add(model, 1, fulfilledAt);
+            }
+            else if (model instanceof CustomModel)
+            {
+                parts.addAll(((CustomModel) model).getPartIds());
+            }
+        }
+        int distinct = parts.tally();
+        for (int i = 0; i < distinct; i++)
+        {
+            trendingParts.add(PartDictionary.nameOf(parts.partId(i)), parts.count(i), fulfilledAt);
+        }
+    }
+
+    private Chunk chunkForAppend(int row)
+    {
+        int index = row >>> CHUNK_SHIFT;
+        Chunk[] current = chunks;
+        if (index == current.length)
+        {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        if (current[index] == null)
+        {
+            current[index] = new Chunk();
+            chunks = current;
+        }
+        return current[index];
+    }
+
+    private void appendModelId(int modelId)
+    {
+        int segment = modelIdCount >>> CHUNK_SHIFT;
+        int[][] current = modelIds;
+        if (segment == current.length)
+        {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        if (current[segment] == null)
+        {
+            current[segment] = new int[CHUNK_SIZE];
+            modelIds = current;
+        }
+        current[segment][modelIdCount & CHUNK_MASK] = modelId;
+        modelIdCount++;
+    }
+
+
+    @Override
+    public void cancelOrder(Order order)
+    {
+        rowOf(order);
+        if (order.getStatus() == OrderStatus.FULFILLED)
+        {
+            throw new IllegalStateException("Cannot cancel an order that has already been fulfilled.");
+        }
+        order.cancel();
+    }
+
+
+    @Override
+    public FulfillmentResult fulfillOrder(Order order)
+    {
+        int row = rowOf(order);
+        if (order.getStatus() == OrderStatus.CANCELLED || order.getStatus() == OrderStatus.FULFILLED)
+        {
+            throw new IllegalStateException("Order cannot be fulfilled as it is " + order.getStatus());
+        }
+        order.fulfill();
+        long now = System.currentTimeMillis();
+
+        CountMap presetOrders = new CountMap(modelEnd(row) - modelStart(row));
+        PartCounter parts = new PartCounter();
+
+        int[][] ids = modelIds;
+        for (int i = modelStart(row), end = modelEnd(row); i < end; i++)
+        {
+            PCModel model = models.get(ids[i >>> CHUNK_SHIFT][i & CHUNK_MASK]);
+            if (model instanceof PresetModel)
+            {
+                presetOrders.add(((PresetModel) model).getManufacturer(), model.getName(), 1);
+                trendingModels.add(model, 1, now);
+            }
+            else if (model instanceof CustomModel)
+            {
+                parts.addAll(((CustomModel) model).getPartIds());
+            }
+        }
+
+        int distinct = parts.tally();
+        CountMap customParts = new CountMap(distinct);
+        for (int i = 0; i < distinct; i++)
+        {
+            String part = PartDictionary.nameOf(parts.partId(i));
+            customParts.add(part, parts.count(i));
+            trendingParts.add(part, parts.count(i), now);
+        }
+        return new FulfillmentResult(presetOrders, customParts);
+    }
+
+
+    @Override
+    public BatchFulfillmentResult fulfillOrders(Collection<Order> orders)
+    {
+        return BatchFulfillment.run(orders, this::fulfillOrder);
+    }
+
+
+    @Override
+    public Map.Entry<Customer, Integer> getLargestCustomer()
+    {
+        return largestCustomer(allRows());
+    }
+
+    @Override
+    public Map.Entry<PCModel, Integer> getMostOrderedModel()
+    {
+        return mostOrderedModel(allRows());
+    }
+
+    @Override
+    public Map.Entry<String, Integer> getMostOrderedPart()
+    {
+        return mostOrderedPart(allRows());
+    }
+
+    @Override
+    public Map.Entry<Customer, Integer> getLargestCustomer(long fromMillis, long toMillis)
+    {
+        return largestCustomer(rowsBetween(fromMillis, toMillis));
+    }
+
+    @Override
+    public Map.Entry<PCModel, Integer> getMostOrderedModel(long fromMillis, long toMillis)
+    {
+        return mostOrderedModel(rowsBetween(fromMillis, toMillis));
+    }
+
+    @Override
+    public Map.Entry<String, Integer> getMostOrderedPart(long fromMillis, long toMillis)
+    {
+        return mostOrderedPart(rowsBetween(fromMillis, toMillis));
+    }
+
+    @Override
+    public List<Map.Entry<Customer, Integer>> getTopCustomers(int k)
+    {
+        checkTopCount(k);
+        return topOf(customerCounts(allRows()), customers::get, BY_FULL_NAME, k);
+    }
+
+    @Override
+    public List<Map.Entry<PCModel, Integer>> getTopModels(int k)
+    {
+        checkTopCount(k);
+        return topOf(presetCounts(allRows()), models::get, BY_MODEL_NAME, k);
+    }
+
+    @Override
+    public List<Map.Entry<String, Integer>> getTopParts(int k)
+    {
+        checkTopCount(k);
+        return topOf(partCounts(allRows()), PartDictionary::nameOf, Comparator.naturalOrder(), k);
+    }
+
+    // Reports here are always exact, so the bounds are exact too.
+    @Override
+    public List<HeavyHitter<PCModel>> getApproximateTopModels(int k)
+    {
+        return exactHitters(getTopModels(k));
+    }
+
+    @Override
+    public List<HeavyHitter<String>> getApproximateTopParts(int k)
+    {
+        return exactHitters(getTopParts(k));
+    }
+
+    @Override
+    public Map.Entry<PCModel, Integer> getTrendingModel(Duration window)
+    {
+        return trendingModels.getLeader(OrderSystemImpl.windowMillis(window), System.currentTimeMillis());
+    }
+
+    @Override
+    public Map.Entry<String, Integer> getTrendingPart(Duration window)
+    {
+        return trendingParts.getLeader(OrderSystemImpl.windowMillis(window), System.currentTimeMillis());
+    }
+
+    private static <K> List<HeavyHitter<K>> exactHitters(List<Map.Entry<K, Integer>> top)
+    {
+        List<HeavyHitter<K>> hitters = new ArrayList<>(top.size());
+        top.forEach(entry -> hitters.add(new HeavyHitter<>(entry.getKey(), entry.getValue(), 0)));
+        return hitters;
+    }
+
+    private Map.Entry<Customer, Integer> largestCustomer(Rows rows)
+    {
+        return leaderOf(customerCounts(rows), customers::get, BY_FULL_NAME);
+    }
+
+    private Map.Entry<PCModel, Integer> mostOrderedModel(Rows rows)
+    {
+        return leaderOf(presetCounts(rows), models::get, BY_MODEL_NAME);
+    }
+
+    private Map.Entry<String, Integer> mostOrderedPart(Rows rows)
+    {
+        // Alphabetical sort rule
+        return leaderOf(partCounts(rows), PartDictionary::nameOf, Comparator.naturalOrder());
+    }
+
+    // Fulfilled orders per customer id in a row range.
+    private int[] customerCounts(Rows rows)
+    {
+        int[] counts = new int[customers.size()];
+        Chunk[] current = chunks;
+        for (int row = rows.from; row < rows.to; )
+        {
+            Chunk chunk = current[row >>> CHUNK_SHIFT];
+            int slot = row & CHUNK_MASK;
+            int end = Math.min(CHUNK_SIZE, slot + (rows.to - row));
+            row += end - slot;
+            for (; slot < end; slot++)
+            {
+                if (chunk.statuses[slot] == FULFILLED && !rows.excludes(chunk.orderTimes[slot]))
+                {
+                    counts[chunk.customerIds[slot]]++;
+                }
+            }
+        }
+        return counts;
+    }
+
+    // Fulfilled orders per model id in a row range, counting preset models only.
+    private int[] presetCounts(Rows rows)
+    {
+        int[] counts = fulfilledModelCounts(rows);
+        for (int id = 0; id < counts.length; id++)
+        {
+            if (!(models.get(id) instanceof PresetModel))
+            {
+                counts[id] = 0;
+            }
+        }
+        return counts;
+    }
+
+    // Ordered quantity per part id in the custom models of a row range's fulfilled orders.
+    private int[] partCounts(Rows rows)
+    {
+        int[] modelCounts = fulfilledModelCounts(rows);
+
+        // Each custom model's parts are looked up once, however often it was ordered
+        int[][] partsOf = new int[modelCounts.length][];
+        for (int id = 0; id < modelCounts.length; id++)
+        {
+            PCModel model = models.get(id);
+            if (modelCounts[id] > 0 && model instanceof CustomModel)
+            {
+                partsOf[id] = ((CustomModel) model).getPartIds();
+            }
+        }
+
+        int[] partCounts = new int[PartDictionary.size()];
+        for (int id = 0; id < modelCounts.length; id++)
+        {
+            if (partsOf[id] != null)
+            {
+                for (int part : partsOf[id])
+                {
+                    partCounts[part] += modelCounts[id];
+                }
+            }
+        }
+        return partCounts;
+    }
+
+    // How often each model id appears in the fulfilled orders of a row range.
+    private int[] fulfilledModelCounts(Rows rows)
+    {
+        int[] counts = new int[models.size()];
+        Chunk[] current = chunks;
+        int[][] ids = modelIds;
+        for (int row = rows.from; row < rows.to; )
+        {
+            Chunk chunk = current[row >>> CHUNK_SHIFT];
+            int slot = row & CHUNK_MASK;
+            int end = Math.min(CHUNK_SIZE, slot + (rows.to - row));
+            int start = modelStart(row);
+            row += end - slot;
+            for (; slot < end; slot++)
+            {
+                int modelEnd = chunk.modelEnds[slot];
+                if (chunk.statuses[slot] == FULFILLED && !rows.excludes(chunk.orderTimes[slot]))
+                {
+                    for (int i = start; i < modelEnd; i++)
+                    {
+                        counts[ids[i >>> CHUNK_SHIFT][i & CHUNK_MASK]]++;
+                    }
+                }
+                start = modelEnd;
+            }
+        }
+        return counts;
+    }
+
+    private static <K> Map.Entry<K, Integer> leaderOf(int[] counts, IntFunction<K> keyOf, Comparator<K> tieBreak)
+    {
+        K leader = null;
+        int maxCount = 0;
+        for (int id = 0; id < counts.length; id++)
+        {
+            if (counts[id] == 0 || counts[id] < maxCount)
+            {
+                continue;
+            }
+            K candidate = keyOf.apply(id);
+            if (counts[id] > maxCount || tieBreak.compare(candidate, leader) < 0)
+            {
+                leader = candidate;
+                maxCount = counts[id];
+            }
+        }
+        return leader == null ? null : new AbstractMap.SimpleEntry<>(leader, maxCount);
+    }
+
+    // The k highest counts, found with a heap of k entries rather than a full sort.
+    private static <K> List<Map.Entry<K, Integer>> topOf(int[] counts, IntFunction<K> keyOf, Comparator<K> tieBreak, int k)
+    {
+        Comparator<Map.Entry<K, Integer>> ranked = Comparator.<Map.Entry<K, Integer>>comparingInt(e -> -e.getValue())
+                .thenComparing(Map.Entry::getKey, tieBreak);
+        PriorityQueue<Map.Entry<K, Integer>> best = new PriorityQueue<>(ranked.reversed()); // Weakest at the head
+        for (int id = 0; id < counts.length; id++)
+        {
+            if (counts[id] == 0 || (best.size() == k && counts[id] < best.peek().getValue()))
+            {
+                continue;
+            }
+            best.add(new AbstractMap.SimpleEntry<>(keyOf.apply(id), counts[id]));
+            if (best.size() > k)
+            {
+                best.poll();
+            }
+        }
+        List<Map.Entry<K, Integer>> top = new ArrayList<>(best);
+        top.sort(ranked);
+        return top;
+    }
+
+    private static void checkTopCount(int k)
+    {
+        if (k <= 0)
+        {
+            throw new IllegalArgumentException("Number of entries must be positive.");
+        }
+    }
+
+    private static void checkRange(long fromMillis, long toMillis)
+    {
+        if (fromMillis > toMillis)
+        {
+            throw new IllegalArgumentException("Start of time range cannot be after its end.");
+        }
+    }
+
+    private Rows allRows()
+    {
+        return new Rows(0, size, false, 0, 0);
+    }
+
+    private Rows rowsBetween(long fromMillis, long toMillis)
+    {
+        checkRange(fromMillis, toMillis);
+        int end = size;
+        if (timesSorted) // Read after size, so it covers every row below end
+        {
+            return new Rows(firstRowAtOrAfter(fromMillis, end), firstRowAtOrAfter(toMillis, end), false, 0, 0);
+        }
+        return new Rows(0, end, true, fromMillis, toMillis);
+    }
+
+    // Binary search on the time column, valid while it never decreases.
+    private int firstRowAtOrAfter(long millis, int end)
+    {
+        int low = 0;
+        int high = end;
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+            if (orderTime(middle) < millis)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public List<Order> getOrdersBetween(long fromMillis, long toMillis)
+    {
+        Rows rows = rowsBetween(fromMillis, toMillis);
+        List<Order> orders = new ArrayList<>();
+        for (int row = rows.from; row < rows.to; row++)
+        {
+            if (!rows.excludes(orderTime(row)))
+            {
+                orders.add(new Row(row));
+            }
+        }
+        if (rows.filter)
+        {
+            orders.sort(Comparator.comparingLong(Order::getOrderTime)); // Stable, ties stay in history order
+        }
+        return orders;
+    }
+
+    @Override
+    public Collection<Order> getOrders(OrderStatus status)
+    {
+        if (status == null)
+        {
+            throw new IllegalArgumentException("Order status cannot be null.");
+        }
+
+        // The status counts bound the result, so the list is sized once
+        List<Order> orders = new ArrayList<>(statusCounts.get(status.ordinal()));
+        byte wanted = (byte) status.ordinal();
+        int end = size; // Read before chunks, which then hold every row below end
+        Chunk[] current = chunks;
+        for (int row = 0; row < end; row++)
+        {
+            if ((byte) STATUS.getOpaque(current[row >>> CHUNK_SHIFT].statuses, row & CHUNK_MASK) == wanted)
+            {
+                orders.add(new Row(row));
+            }
+        }
+        return Collections.unmodifiableList(orders);
+    }
+
+    @Override
+    public List<Order> getOrdersFor(Customer customer)
+    {
+        if (customer == null)
+        {
+            throw new IllegalArgumentException("Customer cannot be null.");
+        }
+
+        int customerId = customers.find(customer);
+        if (customerId < 0)
+        {
+            return Collections.emptyList();
+        }
+        List<Order> orders = new ArrayList<>();
+        int end = size; // Read before chunks, which then hold every row below end
+        Chunk[] current = chunks;
+        for (int row = 0; row < end; row++)
+        {
+            if (current[row >>> CHUNK_SHIFT].customerIds[row & CHUNK_MASK] == customerId)
+            {
+                orders.add(new Row(row));
+            }
+        }
+        return Collections.unmodifiableList(orders);
+    }
+
+    @Override
+    public int getOrderCountFor(Customer customer, OrderStatus status)
+    {
+        if (customer == null || status == null)
+        {
+            throw new IllegalArgumentException("Customer and order status cannot be null.");
+        }
+
+        int customerId = customers.find(customer);
+        byte wanted = (byte) status.ordinal();
+        int count = 0;
+        int end = customerId < 0 ? 0 : size;
+        Chunk[] current = chunks;
+        for (int row = 0; row < end; row++)
+        {
+            Chunk chunk = current[row >>> CHUNK_SHIFT];
+            int slot = row & CHUNK_MASK;
+            if (chunk.customerIds[slot] == customerId && chunk.statuses[slot] == wanted)
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public List<Order> getOrderHistory()
+    {
+        return new History();
+    }
+
+    @Override
+    public OrderPage getOrderPage(int pageSize, String continuationToken, OrderStatus status, Customer customer)
+    {
+        // getOrdersFor scans every row, so the history is walked from the token instead
+        return OrderPage.read(getOrderHistory(), pageSize, continuationToken, OrderPage.matching(status, customer));
+    }
+
+    private int rowOf(Order order)
+    {
+        if (order == null)
+        {
+            throw new IllegalArgumentException("Order cannot be null.");
+        }
+        if (!(order instanceof Row) || ((Row) order).owner() != this)
+        {
+            throw new IllegalArgumentException("Order was not placed with this order system.");
+        }
+        return ((Row) order).row;
+    }
+
+    private long orderTime(int row)
+    {
+        return chunks[row >>> CHUNK_SHIFT].orderTimes[row & CHUNK_MASK];
+    }
+
+    private int modelStart(int row)
+    {
+        return row == 0 ? 0 : modelEnd(row - 1);
+    }
+
+    private int modelEnd(int row)
+    {
+        return chunks[row >>> CHUNK_SHIFT].modelEnds[row & CHUNK_MASK];
+    }
+
+    /**
+     * The rows a report has to look at: a slice found by binary search
+     * while the time column is sorted, otherwise every row, each checked
+     * against the time range.
+     */
+    private static final class Rows
+    {
+        private final int from;
+        private final int to;
+        private final boolean filter;
+        private final long fromMillis;
+        private final long toMillis;
+
+        Rows(int from, int to, boolean filter, long fromMillis, long toMillis)
+        {
+            this.from = from;
+            this.to = to;
+            this.filter = filter;
+            this.fromMillis = fromMillis;
+            this.toMillis = toMillis;
+        }
+
+        boolean excludes(long orderTime)
+        {
+            return filter && (orderTime < fromMillis || orderTime >= toMillis);
+        }
+    }
+
+    /**
+     * One block of rows. Columns are allocated a block at a time,
+     * so appending never copies earlier rows.
+     */
+    private static final class Chunk
+    {
+        private final long[] orderIds = new long[CHUNK_SIZE];
+        private final long[] orderTimes = new long[CHUNK_SIZE];
+        private final int[] customerIds = new int[CHUNK_SIZE];
+        private final int[] cardIds = new int[CHUNK_SIZE];
+        private final int[] modelEnds = new int[CHUNK_SIZE];
+        private final byte[] statuses = new byte[CHUNK_SIZE];
+    }
+
+    /**
+     * Assigns dense ids to values. Ids are only assigned under the append
+     * lock; lookups by id or by value are safe from any thread.
+     */
+    private static final class Dictionary<T>
+    {
+        private final Map<T, Integer> ids = new ConcurrentHashMap<>();
+        private volatile Object[] values = new Object[16];
+        private volatile int size;
+
+        int idOf(T value)
+        {
+            Integer id = ids.get(value);
+            if (id != null)
+            {
+                return id;
+            }
+
+            int next = size;
+            Object[] current = values;
+            if (next == current.length)
+            {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[next] = value;
+            values = current;
+            size = next + 1;
+            ids.put(value, next);
+            return next;
+        }
+
+        int find(T value)
+        {
+            Integer id = ids.get(value);
+            return id == null ? -1 : id;
+        }
+
+        @SuppressWarnings("unchecked")
+        T get(int id)
+        {
+            return (T) values[id];
+        }
+
+        int size()
+        {
+            return size;
+        }
+    }
+
+    /**
+     * Read-only view of every row, in the order placed.
+     */
+    private final class History extends AbstractList<Order> implements RandomAccess
+    {
+        @Override
+        public Order get(int index)
+        {
+            if (index < 0 || index >= size)
+            {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return new Row(index);
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+    }
+
+    /**
+     * Flyweight {@link Order} for one row. Every call reads the columns.
+     */
+    private final class Row implements Order
+    {
+        private final int row;
+
+        Row(int row)
+        {
+            this.row = row;
+        }
+
+        ColumnarOrderSystem owner()
+        {
+            return ColumnarOrderSystem.this;
+        }
+
+        private Chunk chunk()
+        {
+            return chunks[row >>> CHUNK_SHIFT];
+        }
+
+        @Override
+        public long getOrderId()
+        {
+            return chunk().orderIds[row & CHUNK_MASK];
+        }
+
+        @Override
+        public List<PCModel> getModels()
+        {
+            int start = modelStart(row);
+            int end = modelEnd(row);
+            int[][] ids = modelIds;
+            PCModel[] orderModels = new PCModel[end - start];
+            for (int i = start; i < end; i++)
+            {
+                orderModels[i - start] = models.get(ids[i >>> CHUNK_SHIFT][i & CHUNK_MASK]);
+            }
+            return Collections.unmodifiableList(Arrays.asList(orderModels));
+        }
+
+        @Override
+        public Customer getCustomer()
+        {
+            return customers.get(chunk().customerIds[row & CHUNK_MASK]);
+        }
+
+        @Override
+        public CreditCard getCreditCard()
+        {
+            return cards.get(chunk().cardIds[row & CHUNK_MASK]);
+        }
+
+        @Override
+        public Date getOrderDate()
+        {
+            return new Date(getOrderTime());
+        }
+
+        @Override
+        public long getOrderTime()
+        {
+            return chunk().orderTimes[row & CHUNK_MASK];
+        }
+
+        @Override
+        public OrderStatus getStatus()
+        {
+            return STATUSES[(byte) STATUS.getVolatile(chunk().statuses, row & CHUNK_MASK)];
+        }
+
+        @Override
+        public void fulfill()
+        {
+            if (!transition(FULFILLED))
+            {
+                if (getStatus() == OrderStatus.CANCELLED)
+                {
+                    throw new IllegalStateException("Cancelled order can't be fulfilled.");
+                }
+                throw new IllegalStateException("Order has already been fulfilled.");
+            }
+        }
+
+        @Override
+        public void cancel()
+        {
+            if (!transition(CANCELLED))
+            {
+                if (getStatus() == OrderStatus.FULFILLED)
+                {
+                    throw new IllegalStateException("Fulfilled order can't be cancelled.");
+                }
+                throw new IllegalStateException("Order has already been cancelled.");
+            }
+        }
+
+        // Atomic, only one of two racing transitions can succeed
+        private boolean transition(byte to)
+        {
+            if (!STATUS.compareAndSet(chunk().statuses, row & CHUNK_MASK, PLACED, to))
+            {
+                return false;
+            }
+            statusCounts.incrementAndGet(to);
+            statusCounts.decrementAndGet(PLACED);
+            return true;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (!(o instanceof Row))
+            {
+                return false;
+            }
+            Row that = (Row) o;
+            return row == that.row && owner() == that.owner();
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Integer.hashCode(row);
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Order Id=" + getOrderId() + ", Customer=" + getCustomer().getFullName()
+                    + ", Date=" + getOrderDate() + ", Status=" + getStatus();
+        }
+    }
+}
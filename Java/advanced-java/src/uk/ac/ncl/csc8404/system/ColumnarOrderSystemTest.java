@@ -0,0 +1,299 @@
+package uk.ac.ncl.csc8404.system;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ncl.csc8404.model.*;
+import uk.ac.ncl.csc8404.order.*;
+import uk.ac.ncl.csc8404.payment.*;
+import uk.ac.ncl.csc8404.user.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test
+ * This class tests the column-based {@link ColumnarOrderSystem}, mostly by
+ * checking that it gives the same answers as {@link OrderSystemImpl}.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+class ColumnarOrderSystemTest
+{
+
+    private ColumnarOrderSystem system;
+    private Customer customerAlice, customerBob, customerCharlie;
+    private CreditCard cardAlice, cardBob, cardCharlie;
+    private PCModel gamingPC, officePC, customPC;
+
+    @BeforeEach
+    void setUp()
+    {
+        system = new ColumnarOrderSystem();
+
+        customerAlice = new CustomerImpl("Alice", "Smith");
+        customerBob = new CustomerImpl("Bob", "Jones");
+        customerCharlie = new CustomerImpl("Charlie", "Brown");
+
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.YEAR, 1);
+        Date validDate = cal.getTime();
+        cardAlice = CreditCardFactory.getInstance("11111111", validDate, "Alice Smith");
+        cardBob = CreditCardFactory.getInstance("22222222", validDate, "Bob Jones");
+        cardCharlie = CreditCardFactory.getInstance("33333333", validDate, "Charlie Brown");
+
+        gamingPC = new PresetModel("GamerX", "BuildsRUs", Arrays.asList("i9-CPU", "4090-GPU"));
+        officePC = new PresetModel("OfficePal", "Dell", Arrays.asList("i5-CPU", "Onboard-GPU"));
+        customPC = CustomModelFactory.getInstance("ColumnBuild");
+        for (String part : customPC.getParts())
+        {
+            ((CustomModel) customPC).removePart(part);
+        }
+        ((CustomModel) customPC).addPart("Column-CPU");
+        ((CustomModel) customPC).addPart("Column-RAM");
+        ((CustomModel) customPC).addPart("Column-RAM");
+    }
+
+    @Test
+    void testFlyweightOrders()
+    {
+        Order order = system.placeOrder(List.of(gamingPC, customPC), customerAlice, cardAlice);
+        Order fromHistory = system.getOrderHistory().get(0);
+        assertNotSame(order, fromHistory);
+        assertEquals(order, fromHistory, "Flyweights for the same row should be equal.");
+        assertEquals(order.hashCode(), fromHistory.hashCode());
+
+        assertEquals(List.of(gamingPC, customPC), fromHistory.getModels());
+        assertEquals(customerAlice, fromHistory.getCustomer());
+        assertSame(cardAlice, fromHistory.getCreditCard());
+        assertEquals(OrderStatus.PLACED, fromHistory.getStatus());
+
+        FulfillmentResult result = system.fulfillOrder(fromHistory);
+        assertEquals(OrderStatus.FULFILLED, order.getStatus(), "A status change should be visible through every flyweight.");
+        assertEquals(Map.of("BuildsRUs", Map.of("GamerX", 1)), result.getPresetModelsFromManufacturers());
+        assertEquals(Map.of("Column-CPU", 1, "Column-RAM", 2), result.getPartsFromWarehouse());
+
+        assertThrows(IllegalStateException.class, () -> system.fulfillOrder(order));
+        assertThrows(IllegalStateException.class, () -> system.cancelOrder(order));
+    }
+
+    @Test
+    void testOrderNumbersAreShared()
+    {
+        Order row = system.placeOrder(List.of(gamingPC), customerAlice, cardAlice);
+        Order object = new OrderImpl(List.of(officePC), customerBob, cardBob);
+        Order otherRow = new ColumnarOrderSystem().placeOrder(List.of(gamingPC), customerBob, cardBob);
+        assertNotEquals(row.getOrderId(), object.getOrderId(), "Rows should not reuse object order numbers.");
+        assertNotEquals(row.getOrderId(), otherRow.getOrderId(), "Two systems should not reuse order numbers.");
+
+        system.importOrders(List.of(object));
+        assertEquals(object.getOrderId(), system.getOrderHistory().get(1).getOrderId(),
+                "Imported orders should keep their numbers.");
+    }
+
+    @Test
+    void testOrdersFromAnotherSystemAreRejected()
+    {
+        Order foreign = new OrderSystemImpl().placeOrder(List.of(gamingPC), customerAlice, cardAlice);
+        Order other = new ColumnarOrderSystem().placeOrder(List.of(gamingPC), customerAlice, cardAlice);
+        assertThrows(IllegalArgumentException.class, () -> system.fulfillOrder(foreign));
+        assertThrows(IllegalArgumentException.class, () -> system.cancelOrder(other));
+        assertThrows(IllegalArgumentException.class, () -> system.placeOrder(List.of(), customerAlice, cardAlice));
+    }
+
+    @Test
+    void testReportsMatchObjectBackend()
+    {
+        OrderSystem reference = new OrderSystemImpl();
+        List<Customer> customers = List.of(customerAlice, customerBob, customerCharlie);
+        List<CreditCard> cards = List.of(cardAlice, cardBob, cardCharlie);
+        List<PCModel> models = List.of(gamingPC, officePC, customPC);
+
+        Random random = new Random(8404);
+        for (int i = 0; i < 5000; i++)
+        {
+            int who = random.nextInt(customers.size());
+            List<PCModel> orderModels = new ArrayList<>();
+            for (int m = random.nextInt(3); m >= 0; m--)
+            {
+                orderModels.add(models.get(random.nextInt(models.size())));
+            }
+
+            Order columnar = system.placeOrder(orderModels, customers.get(who), cards.get(who));
+            Order object = reference.placeOrder(orderModels, customers.get(who), cards.get(who));
+            int action = random.nextInt(3);
+            if (action == 0)
+            {
+                assertEquals(reference.fulfillOrder(object), system.fulfillOrder(columnar));
+            }
+            else if (action == 1)
+            {
+                system.cancelOrder(columnar);
+                reference.cancelOrder(object);
+            }
+        }
+
+        assertEquals(reference.getLargestCustomer(), system.getLargestCustomer());
+        assertEquals(reference.getMostOrderedModel(), system.getMostOrderedModel());
+        assertEquals(reference.getMostOrderedPart(), system.getMostOrderedPart());
+        assertEquals(reference.getTopCustomers(2), system.getTopCustomers(2));
+        assertEquals(reference.getTopModels(10), system.getTopModels(10));
+        assertEquals(reference.getTopParts(10), system.getTopParts(10));
+        for (OrderStatus status : OrderStatus.values())
+        {
+            assertEquals(reference.getOrders(status).size(), system.getOrders(status).size());
+            for (Customer customer : customers)
+            {
+                assertEquals(reference.getOrderCountFor(customer, status), system.getOrderCountFor(customer, status));
+            }
+        }
+        assertEquals(reference.getOrdersFor(customerBob).size(), system.getOrdersFor(customerBob).size());
+        assertTrue(system.getOrdersFor(new CustomerImpl("Nobody", "Here")).isEmpty());
+    }
+
+    @Test
+    void testTimeRangeQueries() throws InterruptedException
+    {
+        Order first = system.placeOrder(List.of(gamingPC), customerAlice, cardAlice);
+        Thread.sleep(5);
+        Order second = system.placeOrder(List.of(officePC, customPC), customerBob, cardBob);
+        system.fulfillOrder(first);
+        system.fulfillOrder(second);
+
+        long t1 = first.getOrderTime();
+        long t2 = second.getOrderTime();
+        assertTrue(t1 < t2);
+
+        assertEquals(List.of(first, second), system.getOrdersBetween(t1, t2 + 1));
+        assertEquals(List.of(first), system.getOrdersBetween(t1, t2), "The end of the range is exclusive.");
+        assertTrue(system.getOrdersBetween(t2 + 1, t2 + 1000).isEmpty());
+
+        assertEquals(customerBob, system.getLargestCustomer(t2, t2 + 1).getKey());
+        assertEquals(gamingPC, system.getMostOrderedModel(t1, t2).getKey());
+        assertEquals("Column-RAM", system.getMostOrderedPart(t1, t2 + 1).getKey());
+        assertNull(system.getMostOrderedPart(t1, t2));
+        assertThrows(IllegalArgumentException.class, () -> system.getOrdersBetween(t2, t1));
+    }
+
+    @Test
+    void testConcurrentPlacingAndRacingTransitions() throws Exception
+    {
+        int threads = 4;
+        int ordersPerThread = 2000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try
+        {
+            List<Future<?>> placing = new ArrayList<>();
+            for (int t = 0; t < threads; t++)
+            {
+                placing.add(pool.submit(() -> {
+                    for (int i = 0; i < ordersPerThread; i++)
+                    {
+                        system.placeOrder(List.of(gamingPC, customPC), customerAlice, cardAlice);
+                    }
+                }));
+            }
+            for (Future<?> f : placing)
+            {
+                f.get();
+            }
+            List<Order> history = system.getOrderHistory();
+            assertEquals(threads * ordersPerThread, history.size(), "No placed order should be lost.");
+
+            AtomicInteger wins = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> racing = new ArrayList<>();
+            for (int t = 0; t < threads; t++)
+            {
+                boolean fulfiller = t % 2 == 0;
+                racing.add(pool.submit(() -> {
+                    start.await();
+                    for (Order order : history)
+                    {
+                        try
+                        {
+                            if (fulfiller)
+                            {
+                                system.fulfillOrder(order);
+                            }
+                            else
+                            {
+                                system.cancelOrder(order);
+                            }
+                            wins.incrementAndGet();
+                        }
+                        catch (IllegalStateException e)
+                        {
+                            // Lost the race, expected
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : racing)
+            {
+                f.get();
+            }
+
+            assertEquals(history.size(), wins.get(), "Exactly one transition per order should succeed.");
+            assertEquals(history.size(), system.getOrders(OrderStatus.FULFILLED).size()
+                    + system.getOrders(OrderStatus.CANCELLED).size());
+            // On a single core the cancellers can win every race, leaving nothing to report
+            int fulfilled = system.getOrders(OrderStatus.FULFILLED).size();
+            Map.Entry<Customer, Integer> largest = system.getLargestCustomer();
+            assertEquals(fulfilled, largest == null ? 0 : largest.getValue());
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testReadsWhileTableGrows() throws Exception
+    {
+        // Sixteen full chunks fill the first chunk table, so the next row makes it grow
+        int rows = 16 * 16384 + 100;
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try
+        {
+            Future<?> writer = pool.submit(() ->
+            {
+                for (int i = 0; i < rows; i++)
+                {
+                    system.placeOrder(List.of(i % 2 == 0 ? gamingPC : officePC), customerAlice, cardAlice);
+                }
+                return null;
+            });
+            int seen = 0;
+            while (!writer.isDone())
+            {
+                int placed = system.getOrders(OrderStatus.PLACED).size();
+                assertTrue(placed >= seen, "Placed orders should never go missing.");
+                seen = placed;
+                assertTrue(system.getOrdersFor(customerAlice).size() >= seen);
+                assertTrue(system.getOrderCountFor(customerAlice, OrderStatus.PLACED) >= seen);
+            }
+            writer.get();
+            assertEquals(rows, system.getOrders(OrderStatus.PLACED).size());
+            assertEquals(rows, system.getOrderCountFor(customerAlice, OrderStatus.PLACED));
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+}
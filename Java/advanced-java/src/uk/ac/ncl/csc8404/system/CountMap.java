@@ -0,0 +1,349 @@
+package uk.ac.ncl.csc8404.system;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Counts keyed by a name, or by a pair of names such as a manufacturer and
+ * a model, without boxing. Entries are kept densely in insertion order and
+ * found through an open-addressing table of entry positions, so adding to
+ * an existing count allocates nothing. Not thread-safe, fill a map on
+ * one thread and then only read it.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+final class CountMap
+{
+
+    private static final Comparator<String> NULLS_FIRST = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    private String[] firsts;
+    private String[] seconds;
+    private int[] counts;
+    private int[] table; // entry position + 1, or 0 when the slot is empty
+    private int size;
+
+    /**
+     * @param expected the number of entries to size the map for.
+     */
+    CountMap(int expected)
+    {
+        int capacity = Math.max(expected, 2);
+        firsts = new String[capacity];
+        seconds = new String[capacity];
+        counts = new int[capacity];
+        table = new int[tableSizeFor(capacity)];
+    }
+
+    // At most half full, so probes stay short.
+    private static int tableSizeFor(int entries)
+    {
+        return Integer.highestOneBit(entries * 2 - 1) << 1;
+    }
+
+    private static int hash(String first, String second)
+    {
+        int h = first.hashCode() * 31 + (second == null ? 0 : second.hashCode());
+        return h ^ (h >>> 16);
+    }
+
+    void add(String key, int delta)
+    {
+        add(key, null, delta);
+    }
+
+    /**
+     * Adds to the count of a pair of names, creating it at zero if needed.
+     *
+     * @param first  the first name, not null.
+     * @param second the second name, or null for a single name.
+     * @param delta  the amount to add.
+     */
+    void add(String first, String second, int delta)
+    {
+        int mask = table.length - 1;
+        int slot = hash(first, second) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0)
+        {
+            int index = entry - 1;
+            if (first.equals(firsts[index]) && Objects.equals(second, seconds[index]))
+            {
+                counts[index] += delta;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (size == firsts.length)
+        {
+            grow();
+            add(first, second, delta);
+            return;
+        }
+        firsts[size] = first;
+        seconds[size] = second;
+        counts[size] = delta;
+        table[slot] = ++size;
+    }
+
+    private void grow()
+    {
+        int capacity = firsts.length * 2;
+        firsts = Arrays.copyOf(firsts, capacity);
+        seconds = Arrays.copyOf(seconds, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+        table = new int[tableSizeFor(capacity)];
+        int mask = table.length - 1;
+        for (int i = 0; i < size; i++)
+        {
+            int slot = hash(firsts[i], seconds[i]) & mask;
+            while (table[slot] != 0)
+            {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+    }
+
+    /**
+     * Adds every count of another map to this one.
+     */
+    void addAll(CountMap other)
+    {
+        for (int i = 0; i < other.size; i++)
+        {
+            add(other.firsts[i], other.seconds[i], other.counts[i]);
+        }
+    }
+
+    /**
+     * @return the position of the entry, or -1 if there is none.
+     */
+    int indexOf(Object first, Object second)
+    {
+        if (!(first instanceof String) || (second != null && !(second instanceof String)))
+        {
+            return -1;
+        }
+        int mask = table.length - 1;
+        int slot = hash((String) first, (String) second) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0)
+        {
+            int index = entry - 1;
+            if (first.equals(firsts[index]) && Objects.equals(second, seconds[index]))
+            {
+                return index;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the count of a pair of names, or 0 if it was never added.
+     */
+    int get(String first, String second)
+    {
+        int index = indexOf(first, second);
+        return index < 0 ? 0 : counts[index];
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    String first(int index)
+    {
+        return firsts[index];
+    }
+
+    String second(int index)
+    {
+        return seconds[index];
+    }
+
+    int count(int index)
+    {
+        return counts[index];
+    }
+
+    /**
+     * @return a copy with the entries in order of first name, then second name.
+     */
+    CountMap sorted()
+    {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++)
+        {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer, String>comparing(i -> firsts[i])
+                .thenComparing(i -> seconds[i], NULLS_FIRST));
+
+        CountMap copy = new CountMap(size);
+        for (Integer i : order)
+        {
+            copy.add(firsts[i], seconds[i], counts[i]);
+        }
+        return copy;
+    }
+
+    /**
+     * Two maps are equal when they hold the same counts, in any order.
+     */
+    boolean sameCounts(CountMap other)
+    {
+        if (size != other.size)
+        {
+            return false;
+        }
+        for (int i = 0; i < size; i++)
+        {
+            int index = other.indexOf(firsts[i], seconds[i]);
+            if (index < 0 || other.counts[index] != counts[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the hash code {@link Map#hashCode()} gives the map of single
+     * names to their counts, without building it.
+     */
+    int singleHashCode()
+    {
+        int hash = 0;
+        for (int i = 0; i < size; i++)
+        {
+            hash += firsts[i].hashCode() ^ Integer.hashCode(counts[i]);
+        }
+        return hash;
+    }
+
+    /**
+     * @return the hash code {@link Map#hashCode()} gives the map of first
+     * names to maps of second names to their counts, without building it.
+     * A first name added with no second name is in the map with no pairs.
+     */
+    int nestedHashCode()
+    {
+        int hash = 0;
+        for (int i = 0; i < size; i++)
+        {
+            if (!isFirstOccurrence(i))
+            {
+                continue;
+            }
+            int inner = 0;
+            for (int k = i; k < size; k++)
+            {
+                if (seconds[k] != null && firsts[k].equals(firsts[i]))
+                {
+                    inner += seconds[k].hashCode() ^ Integer.hashCode(counts[k]);
+                }
+            }
+            hash += firsts[i].hashCode() ^ inner;
+        }
+        return hash;
+    }
+
+    // Entries for one first name are usually next to each other, so the scan back is rare
+    private boolean isFirstOccurrence(int index)
+    {
+        if (index > 0 && firsts[index].equals(firsts[index - 1]))
+        {
+            return false;
+        }
+        for (int i = 0; i < index - 1; i++)
+        {
+            if (firsts[i].equals(firsts[index]))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return a read-only {@link Map} view of the counts of single names,
+     * in insertion order, equal to any other map with the same counts.
+     */
+    Map<String, Integer> asMap()
+    {
+        return new SingleView();
+    }
+
+    private final class SingleView extends AbstractMap<String, Integer>
+    {
+        @Override
+        public Integer get(Object key)
+        {
+            int index = indexOf(key, null);
+            return index < 0 ? null : counts[index];
+        }
+
+        @Override
+        public boolean containsKey(Object key)
+        {
+            return indexOf(key, null) >= 0;
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+
+        @Override
+        public Set<Entry<String, Integer>> entrySet()
+        {
+            return new AbstractSet<>()
+            {
+                @Override
+                public Iterator<Entry<String, Integer>> iterator()
+                {
+                    return new Iterator<>()
+                    {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext()
+                        {
+                            return next < size;
+                        }
+
+                        @Override
+                        public Entry<String, Integer> next()
+                        {
+                            if (next >= size)
+                            {
+                                throw new NoSuchElementException();
+                            }
+                            int index = next++;
+                            return new SimpleImmutableEntry<>(firsts[index], counts[index]);
+                        }
+                    };
+                }
+
+                @Override
+                public int size()
+                {
+                    return size;
+                }
+            };
+        }
+    }
+}
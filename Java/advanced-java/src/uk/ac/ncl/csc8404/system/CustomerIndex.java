@@ -0,0 +1,187 @@
+package uk.ac.ncl.csc8404.system;
+
+import uk.ac.ncl.csc8404.order.Order;
+import uk.ac.ncl.csc8404.order.OrderStatus;
+import uk.ac.ncl.csc8404.user.Customer;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Index of orders by customer, kept by {@link OrderSystemImpl}.
+ * Relies on the value-based {@code equals}/{@code hashCode} of customers,
+ * so any customer object with the same names finds the same orders.
+ * Each customer has their own order list and per-status counters,
+ * so lookups take constant time whatever the size of the history.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+final class CustomerIndex
+{
+
+    private final ConcurrentMap<Customer, CustomerOrders> byCustomer = new ConcurrentHashMap<>();
+
+    /**
+     * Records a newly placed order.
+     *
+     * @param order the order, in status PLACED.
+     */
+    void placed(Order order)
+    {
+        byCustomer.computeIfAbsent(order.getCustomer(), c -> new CustomerOrders()).append(order);
+    }
+
+    /**
+     * Records an order that is already in its final status, such as one loaded from a snapshot.
+     *
+     * @param order the order.
+     */
+    void restored(Order order)
+    {
+        placed(order);
+        OrderStatus status = order.getStatus();
+        if (status != OrderStatus.PLACED)
+        {
+            moved(order, OrderStatus.PLACED, status);
+        }
+    }
+
+    /**
+     * Records a status transition that has already happened on the order.
+     *
+     * @param order the order.
+     * @param from the status it left.
+     * @param to the status it entered.
+     */
+    void moved(Order order, OrderStatus from, OrderStatus to)
+    {
+        CustomerOrders orders = byCustomer.get(order.getCustomer());
+        if (orders != null)
+        {
+            orders.counts.incrementAndGet(to.ordinal());
+            orders.counts.decrementAndGet(from.ordinal());
+        }
+    }
+
+    /**
+     * Drops orders that have been moved to the archive. Each affected
+     * customer gets a new order list, so views already handed out keep
+     * their contents. Must not run alongside placing or status changes.
+     *
+     * @param orders the archived orders, in their final status.
+     */
+    void archived(Collection<Order> orders)
+    {
+        Map<Customer, Set<Order>> byOwner = new HashMap<>();
+        for (Order order : orders)
+        {
+            byOwner.computeIfAbsent(order.getCustomer(), c -> Collections.newSetFromMap(new IdentityHashMap<>()))
+                    .add(order);
+        }
+        byOwner.forEach((customer, removed) -> {
+            CustomerOrders current = byCustomer.get(customer);
+            if (current == null)
+            {
+                return;
+            }
+            CustomerOrders kept = new CustomerOrders();
+            for (Order order : current)
+            {
+                if (!removed.contains(order))
+                {
+                    kept.append(order);
+                }
+            }
+            for (int status = 0; status < kept.counts.length(); status++)
+            {
+                kept.counts.set(status, current.counts.get(status));
+            }
+            for (Order order : removed)
+            {
+                kept.counts.decrementAndGet(order.getStatus().ordinal());
+            }
+            if (kept.isEmpty())
+            {
+                byCustomer.remove(customer, current);
+            }
+            else
+            {
+                byCustomer.put(customer, kept);
+            }
+        });
+    }
+
+    /**
+     * @param customer the customer.
+     * @return a live, read-only view of the customer's orders in the order they were placed.
+     */
+    List<Order> ordersFor(Customer customer)
+    {
+        CustomerOrders orders = byCustomer.get(customer);
+        return orders == null ? Collections.emptyList() : orders;
+    }
+
+    /**
+     * @param customer the customer.
+     * @param status the status to count.
+     * @return the number of the customer's orders currently in the status.
+     */
+    int countFor(Customer customer, OrderStatus status)
+    {
+        CustomerOrders orders = byCustomer.get(customer);
+        return orders == null ? 0 : orders.counts.get(status.ordinal());
+    }
+
+    /**
+     * One customer's orders. Appends are synchronized per customer; reads
+     * take no lock and see every order up to the published size.
+     */
+    private static final class CustomerOrders extends AbstractList<Order> implements RandomAccess
+    {
+        private final AtomicIntegerArray counts = new AtomicIntegerArray(OrderStatus.values().length);
+        private volatile Order[] orders = new Order[4];
+        private volatile int size;
+
+        synchronized void append(Order order)
+        {
+            Order[] current = orders;
+            if (size == current.length)
+            {
+                current = Arrays.copyOf(current, size * 2);
+                orders = current;
+            }
+            current[size] = order;
+            counts.incrementAndGet(OrderStatus.PLACED.ordinal());
+            size = size + 1; // Publishes the order to readers
+        }
+
+        @Override
+        public Order get(int index)
+        {
+            int published = size;
+            if (index < 0 || index >= published)
+            {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + published);
+            }
+            return orders[index];
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package uk.ac.ncl.csc8404.system;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 
@@ -7,6 +9,10 @@ import java.util.Objects;
  * An immutable value object representing the result of fulfilling an order.
  * This class return the complex data generated
  * by the fulfillment process.
+ * <p>
+ * Counts are held in compact primitive maps; the nested {@link Map} of
+ * preset models is only built if it is asked for. The maps returned are
+ * read-only and equal to any other map with the same counts.
  *
  * @author Swapnil Sagar
  * @version 1.0
@@ -14,34 +20,126 @@ import java.util.Objects;
 public final class FulfillmentResult
 {
 
-    private final Map<String, Map<String, Integer>> presetModelsFromManufacturers;
-    private final Map<String, Integer> partsFromWarehouse;
+    private final CountMap presetModels;
+    private final CountMap parts;
+    private volatile Map<String, Map<String, Integer>> presetModelsFromManufacturers;
 
 
     /**
      * Constructs a new FulfillmentResult.
+     * A manufacturer with no models is kept, so, as with the maps given,
+     * the result differs from one that never listed it.
      *
      * @param presetModelsFromManufacturers A map detailing preset models.
      * @param partsFromWarehouse A map detailing custom parts.
+     * @throws IllegalArgumentException if either map is null, or holds a null key, model map or count.
      */
 
     public FulfillmentResult(Map<String, Map<String, Integer>> presetModelsFromManufacturers, Map<String, Integer> partsFromWarehouse)
     {
+        if (presetModelsFromManufacturers == null || partsFromWarehouse == null)
+        {
+            throw new IllegalArgumentException("Fulfillment maps cannot be null.");
+        }
 
-        this.presetModelsFromManufacturers = presetModelsFromManufacturers;
-        this.partsFromWarehouse = partsFromWarehouse;
+        presetModels = new CountMap(presetModelsFromManufacturers.size());
+        presetModelsFromManufacturers.forEach((manufacturer, models) ->
+        {
+            if (manufacturer == null || models == null)
+            {
+                throw new IllegalArgumentException("Manufacturers and their models cannot be null.");
+            }
+            if (models.isEmpty())
+            {
+                presetModels.add(manufacturer, 0); // Listed with no models
+            }
+            models.forEach((model, count) ->
+            {
+                if (model == null || count == null)
+                {
+                    throw new IllegalArgumentException("Preset models and their counts cannot be null.");
+                }
+                presetModels.add(manufacturer, model, count);
+            });
+        });
+        parts = new CountMap(partsFromWarehouse.size());
+        partsFromWarehouse.forEach((part, count) ->
+        {
+            if (part == null || count == null)
+            {
+                throw new IllegalArgumentException("Parts and their counts cannot be null.");
+            }
+            parts.add(part, count);
+        });
 
     }
 
+    /**
+     * @param presetModels counts keyed by manufacturer and model name.
+     * @param parts counts keyed by part name.
+     */
+    FulfillmentResult(CountMap presetModels, CountMap parts)
+    {
+        this.presetModels = presetModels;
+        this.parts = parts;
+    }
+
+    CountMap presetModelCounts()
+    {
+        return presetModels;
+    }
+
+    CountMap partCounts()
+    {
+        return parts;
+    }
+
     public Map<String, Map<String, Integer>> getPresetModelsFromManufacturers()
     {
-        return presetModelsFromManufacturers;
+        Map<String, Map<String, Integer>> view = presetModelsFromManufacturers;
+        if (view == null)
+        {
+            Map<String, Map<String, Integer>> nested = new LinkedHashMap<>();
+            for (int i = 0; i < presetModels.size(); i++)
+            {
+                Map<String, Integer> models = nested.computeIfAbsent(presetModels.first(i), k -> new LinkedHashMap<>());
+                if (presetModels.second(i) != null)
+                {
+                    models.put(presetModels.second(i), presetModels.count(i));
+                }
+            }
+            nested.replaceAll((manufacturer, models) -> Collections.unmodifiableMap(models));
+            view = Collections.unmodifiableMap(nested);
+            presetModelsFromManufacturers = view;
+        }
+        return view;
     }
 
 
     public Map<String, Integer> getPartsFromWarehouse()
     {
-        return partsFromWarehouse;
+        return parts.asMap();
+    }
+
+    /**
+     * Reads one count without building the nested map.
+     *
+     * @param manufacturer the manufacturer.
+     * @param model the name of the preset model.
+     * @return how many of that model to order, 0 if none.
+     */
+    public int getPresetModelCount(String manufacturer, String model)
+    {
+        return presetModels.get(manufacturer, model);
+    }
+
+    /**
+     * @param part the name of the part.
+     * @return how many of that part to collect, 0 if none.
+     */
+    public int getPartCount(String part)
+    {
+        return parts.get(part, null);
     }
 
     @Override
@@ -51,22 +149,22 @@ public final class FulfillmentResult
         if (this == obj) return true;
         if (!(obj instanceof FulfillmentResult)) return false;
         FulfillmentResult that = (FulfillmentResult) obj;
-        return Objects.equals(presetModelsFromManufacturers, that.presetModelsFromManufacturers) &&
-                Objects.equals(partsFromWarehouse, that.partsFromWarehouse);
+        return presetModels.sameCounts(that.presetModels) && parts.sameCounts(that.parts);
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(presetModelsFromManufacturers, partsFromWarehouse);
+        // As Objects.hash of the two maps, without building them
+        return 31 * (31 + presetModels.nestedHashCode()) + parts.singleHashCode();
     }
 
     @Override
     public String toString()
     {
         return "FulfillmentResult{" +
-                "presetModelsFromManufacturers=" + presetModelsFromManufacturers +
-                ", partsFromWarehouse=" + partsFromWarehouse +
+                "presetModelsFromManufacturers=" + getPresetModelsFromManufacturers() +
+                ", partsFromWarehouse=" + getPartsFromWarehouse() +
                 '}';
     }
 }
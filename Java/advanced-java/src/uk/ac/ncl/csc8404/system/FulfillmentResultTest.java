@@ -0,0 +1,108 @@
+package uk.ac.ncl.csc8404.system;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test
+ * This class tests the {@link CountMap} behind {@link FulfillmentResult}
+ * and that its map views behave like the maps it replaced.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+class FulfillmentResultTest
+{
+
+    @Test
+    void testCountMapGrowsAndKeepsInsertionOrder()
+    {
+        CountMap counts = new CountMap(1);
+        for (int i = 0; i < 1000; i++)
+        {
+            counts.add("part-" + (i % 100), 1);
+            counts.add("Maker", "model-" + (i % 10), 2);
+        }
+        assertEquals(110, counts.size());
+        assertEquals(10, counts.get("part-42", null));
+        assertEquals(200, counts.get("Maker", "model-3"));
+        assertEquals(0, counts.get("Maker", "part-42"), "Pairs and single names are different keys.");
+        assertEquals("part-0", counts.first(0));
+        assertEquals("Maker", counts.first(1));
+        assertEquals("model-0", counts.second(1));
+
+        CountMap sorted = counts.sorted();
+        assertTrue(sorted.sameCounts(counts));
+        assertEquals("Maker", sorted.first(0));
+        assertEquals("model-0", sorted.second(0));
+        assertEquals("part-99", sorted.first(sorted.size() - 1));
+    }
+
+    @Test
+    void testViewsMatchHashMaps()
+    {
+        Map<String, Map<String, Integer>> presets = new HashMap<>();
+        presets.put("Dell", new HashMap<>(Map.of("OfficePal", 2, "Tower", 1)));
+        presets.put("BuildsRUs", new HashMap<>(Map.of("GamerX", 3)));
+        Map<String, Integer> parts = new HashMap<>(Map.of("i9-CPU", 4, "Extra-RAM", 1));
+        FulfillmentResult fromMaps = new FulfillmentResult(presets, parts);
+
+        CountMap presetCounts = new CountMap(2);
+        presetCounts.add("BuildsRUs", "GamerX", 3);
+        presetCounts.add("Dell", "Tower", 1);
+        presetCounts.add("Dell", "OfficePal", 2);
+        CountMap partCounts = new CountMap(2);
+        partCounts.add("Extra-RAM", 1);
+        partCounts.add("i9-CPU", 4);
+        FulfillmentResult compact = new FulfillmentResult(presetCounts, partCounts);
+
+        assertEquals(fromMaps, compact);
+        assertEquals(fromMaps.hashCode(), compact.hashCode());
+        assertEquals(Objects.hash(presets, parts), compact.hashCode(), "Hash codes should match the maps'.");
+        CountMap interleaved = new CountMap(3);
+        interleaved.add("Dell", "Tower", 1);
+        interleaved.add("BuildsRUs", "GamerX", 3);
+        interleaved.add("Dell", "OfficePal", 2);
+        assertEquals(presets.hashCode(), interleaved.nestedHashCode());
+        assertEquals(presets, compact.getPresetModelsFromManufacturers());
+        assertEquals(parts, compact.getPartsFromWarehouse());
+        assertEquals(parts.hashCode(), compact.getPartsFromWarehouse().hashCode());
+        assertEquals(new TreeMap<>(parts), compact.getPartsFromWarehouse());
+        assertEquals(4, compact.getPartsFromWarehouse().get("i9-CPU"));
+        assertNull(compact.getPartsFromWarehouse().get("Missing"));
+        assertEquals(2, compact.getPresetModelCount("Dell", "OfficePal"));
+        assertEquals(0, compact.getPartCount("Missing"));
+        assertEquals(List.of("BuildsRUs", "Dell"), List.copyOf(compact.getPresetModelsFromManufacturers().keySet()));
+
+        assertThrows(UnsupportedOperationException.class, () -> compact.getPartsFromWarehouse().put("Fan", 1));
+        assertThrows(UnsupportedOperationException.class,
+                () -> compact.getPresetModelsFromManufacturers().get("Dell").clear());
+        assertThrows(IllegalArgumentException.class, () -> new FulfillmentResult(null, parts));
+        assertNotEquals(fromMaps, new FulfillmentResult(presets, Map.of("i9-CPU", 4)));
+        FulfillmentResult listed = new FulfillmentResult(Map.of("Acme", Map.of()), Map.of());
+        assertNotEquals(new FulfillmentResult(Map.of(), Map.of()), listed,
+                "A manufacturer with no models is kept, as in the maps.");
+        assertEquals(Map.of("Acme", Map.of()), listed.getPresetModelsFromManufacturers());
+        assertEquals(listed, new FulfillmentResult(Map.of("Acme", Map.of()), Map.of()));
+        assertEquals(Objects.hash(Map.of("Acme", Map.of()), Map.of()), listed.hashCode());
+
+        Map<String, Integer> nullPart = new HashMap<>();
+        nullPart.put(null, 1);
+        Map<String, Integer> nullCount = new HashMap<>();
+        nullCount.put("Fan", null);
+        Map<String, Map<String, Integer>> nullModels = new HashMap<>();
+        nullModels.put("Acme", null);
+        assertThrows(IllegalArgumentException.class, () -> new FulfillmentResult(presets, nullPart));
+        assertThrows(IllegalArgumentException.class, () -> new FulfillmentResult(presets, nullCount));
+        assertThrows(IllegalArgumentException.class, () -> new FulfillmentResult(nullModels, parts));
+        assertThrows(IllegalArgumentException.class, () -> new FulfillmentResult(Map.of("Acme", nullCount), parts));
+        assertThrows(IllegalArgumentException.class, () -> new FulfillmentResult(Map.of("Acme", nullPart), parts));
+    }
+}
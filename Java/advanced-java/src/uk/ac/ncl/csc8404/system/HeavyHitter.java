@@ -0,0 +1,94 @@
+package uk.ac.ncl.csc8404.system;
+
+import java.util.Objects;
+
+/**
+ * An item from an approximate report, with an estimated count and how far
+ * the estimate may be above the true count. The true count lies between
+ * {@link #getGuaranteedCount()} and {@link #getCount()}. Exact reports have
+ * an error of zero.
+ *
+ * @param <T> the type of item counted.
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+public final class HeavyHitter<T>
+{
+
+    private final T item;
+    private final long count;
+    private final long error;
+
+    /**
+     * Constructs a new HeavyHitter.
+     *
+     * @param item the item.
+     * @param count the estimated count, never below the true count.
+     * @param error the most the estimate may exceed the true count by.
+     */
+    HeavyHitter(T item, long count, long error)
+    {
+        this.item = item;
+        this.count = count;
+        this.error = error;
+    }
+
+    /**
+     * @return the item.
+     */
+    public T getItem()
+    {
+        return item;
+    }
+
+    /**
+     * @return the estimated count, an upper bound on the true count.
+     */
+    public long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * @return the most the estimated count may exceed the true count by.
+     */
+    public long getError()
+    {
+        return error;
+    }
+
+    /**
+     * @return a lower bound on the true count.
+     */
+    public long getGuaranteedCount()
+    {
+        return count - error;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (!(o instanceof HeavyHitter))
+        {
+            return false;
+        }
+        HeavyHitter<?> other = (HeavyHitter<?>) o;
+        return count == other.count && error == other.error && Objects.equals(item, other.item);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(item, count, error);
+    }
+
+    @Override
+    public String toString()
+    {
+        return item + "=" + count + (error == 0 ? "" : " (+/-" + error + ")");
+    }
+}
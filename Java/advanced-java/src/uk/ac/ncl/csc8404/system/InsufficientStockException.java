@@ -0,0 +1,37 @@
+package uk.ac.ncl.csc8404.system;
+
+/**
+ * Thrown when an order cannot be fulfilled because the {@link Inventory}
+ * does not hold enough of a part. The order is left as it was, so it can
+ * be fulfilled once the part is restocked.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+public class InsufficientStockException extends IllegalStateException
+{
+
+    private static final long serialVersionUID = 1L;
+
+    private final String part;
+
+    /**
+     * Constructs a new InsufficientStockException.
+     *
+     * @param part the part that ran short.
+     * @param message the detail message.
+     */
+    public InsufficientStockException(String part, String message)
+    {
+        super(message);
+        this.part = part;
+    }
+
+    /**
+     * @return the part that ran short.
+     */
+    public String getPart()
+    {
+        return part;
+    }
+}
@@ -0,0 +1,276 @@
+package uk.ac.ncl.csc8404.system;
+
+import uk.ac.ncl.csc8404.model.PartDictionary;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Warehouse stock of custom-model parts. A fulfillment reserves every
+ * part it needs, or none of them, so stock is never oversold.
+ * <p>
+ * Each part has its own counter, changed by compare-and-set, and no lock
+ * is shared between parts. A reservation takes its parts one at a time
+ * and puts back what it took if a later part is short; while it does, a
+ * reservation of the same parts may briefly see them as taken and fail.
+ * Counters are kept in blocks indexed by the
+ * {@link PartDictionary part id}, each on its own cache line, so
+ * reservations of different parts do not slow each other down.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+public final class Inventory
+{
+
+    private static final int CHUNK_SHIFT = 8;
+    private static final int CHUNK_PARTS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_PARTS - 1;
+    private static final int STRIDE = 16; // 64 bytes between counters
+
+    private final int lowStockThreshold;
+    private final List<LowStockListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Blocks are never replaced once allocated, only the array holding them grows.
+    private volatile AtomicIntegerArray[] chunks = new AtomicIntegerArray[4];
+
+    /**
+     * Constructs an empty inventory.
+     *
+     * @param lowStockThreshold listeners are told when a part's stock falls below this.
+     * @throws IllegalArgumentException if lowStockThreshold is negative.
+     */
+    public Inventory(int lowStockThreshold)
+    {
+        if (lowStockThreshold < 0)
+        {
+            throw new IllegalArgumentException("Low stock threshold cannot be negative.");
+        }
+        this.lowStockThreshold = lowStockThreshold;
+    }
+
+    /**
+     * @return the stock level below which listeners are told.
+     */
+    public int getLowStockThreshold()
+    {
+        return lowStockThreshold;
+    }
+
+    /**
+     * @param listener told when a part's stock falls below the threshold.
+     * @throws IllegalArgumentException if listener is null.
+     */
+    public void addLowStockListener(LowStockListener listener)
+    {
+        if (listener == null)
+        {
+            throw new IllegalArgumentException("Listener cannot be null.");
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Adds stock of a part, such as a delivery from a supplier.
+     *
+     * @param part the part.
+     * @param quantity how many to add.
+     * @throws IllegalArgumentException if part is null, quantity is negative,
+     *                                  or the stock would exceed Integer.MAX_VALUE.
+     */
+    public void addStock(String part, int quantity)
+    {
+        if (quantity < 0)
+        {
+            throw new IllegalArgumentException("Quantity cannot be negative.");
+        }
+        int id = PartDictionary.idOf(part);
+        AtomicIntegerArray chunk = chunkFor(id);
+        int slot = slotOf(id);
+        int current;
+        do
+        {
+            current = chunk.get(slot);
+            if (current > Integer.MAX_VALUE - quantity)
+            {
+                throw new IllegalArgumentException("Stock of " + part + " would overflow.");
+            }
+        }
+        while (!chunk.compareAndSet(slot, current, current + quantity));
+    }
+
+    /**
+     * @param part the part.
+     * @return the stock of the part, 0 if it was never stocked.
+     */
+    public int getStock(String part)
+    {
+        int id = PartDictionary.find(part);
+        AtomicIntegerArray chunk = id < 0 ? null : existingChunk(id);
+        return chunk == null ? 0 : chunk.get(slotOf(id));
+    }
+
+    /**
+     * Reserves every part in a map, or none of them.
+     *
+     * @param parts part names mapped to how many of each are needed.
+     * @return true if everything was reserved, false if any part was short
+     * and nothing was reserved.
+     * @throws IllegalArgumentException if parts is null, or holds a null part or a count below 1.
+     */
+    public boolean reserve(Map<String, Integer> parts)
+    {
+        int[][] counted = toIds(parts, false);
+        return reserve(counted[0], counted[1], counted[0].length) < 0;
+    }
+
+    /**
+     * Returns reserved parts to stock, for example when picked parts come
+     * back from an order that was cancelled after it was fulfilled.
+     *
+     * @param parts part names mapped to how many of each to return.
+     * @throws IllegalArgumentException if parts is null, or holds a null part or a count below 1.
+     */
+    public void release(Map<String, Integer> parts)
+    {
+        toIds(parts, true); // Check every entry before changing any stock
+        parts.forEach(this::addStock);
+    }
+
+    /**
+     * Reserves the parts gathered in a tallied {@link PartCounter}.
+     *
+     * @return -1 if everything was reserved, otherwise the index of the part that was short.
+     */
+    int reserve(PartCounter parts)
+    {
+        int distinct = parts.size();
+        int[] ids = new int[distinct];
+        int[] counts = new int[distinct];
+        for (int i = 0; i < distinct; i++)
+        {
+            ids[i] = parts.partId(i);
+            counts[i] = parts.count(i);
+        }
+        return reserve(ids, counts, distinct);
+    }
+
+    /**
+     * Returns the parts of a reservation made with {@link #reserve(PartCounter)}.
+     */
+    void release(PartCounter parts)
+    {
+        for (int i = 0; i < parts.size(); i++)
+        {
+            chunkFor(parts.partId(i)).addAndGet(slotOf(parts.partId(i)), parts.count(i));
+        }
+    }
+
+    private int reserve(int[] ids, int[] counts, int n)
+    {
+        int[] remaining = new int[n];
+        for (int i = 0; i < n; i++)
+        {
+            AtomicIntegerArray chunk = existingChunk(ids[i]);
+            int left = chunk == null ? -1 : take(chunk, slotOf(ids[i]), counts[i]);
+            if (left < 0)
+            {
+                for (int j = 0; j < i; j++)
+                {
+                    existingChunk(ids[j]).addAndGet(slotOf(ids[j]), counts[j]);
+                }
+                return i;
+            }
+            remaining[i] = left;
+        }
+
+        // Only once the whole reservation has gone through
+        for (int i = 0; i < n; i++)
+        {
+            if (remaining[i] < lowStockThreshold && remaining[i] + counts[i] >= lowStockThreshold)
+            {
+                for (LowStockListener listener : listeners)
+                {
+                    listener.lowStock(PartDictionary.nameOf(ids[i]), remaining[i]);
+                }
+            }
+        }
+        return -1;
+    }
+
+    // Returns the stock left, or -1 if there was not enough.
+    private static int take(AtomicIntegerArray chunk, int slot, int count)
+    {
+        while (true)
+        {
+            int current = chunk.get(slot);
+            if (current < count)
+            {
+                return -1;
+            }
+            if (chunk.compareAndSet(slot, current, current - count))
+            {
+                return current - count;
+            }
+        }
+    }
+
+    private static int[][] toIds(Map<String, Integer> parts, boolean register)
+    {
+        if (parts == null)
+        {
+            throw new IllegalArgumentException("Parts cannot be null.");
+        }
+        int[] ids = new int[parts.size()];
+        int[] counts = new int[parts.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : parts.entrySet())
+        {
+            if (entry.getKey() == null || entry.getValue() == null || entry.getValue() < 1)
+            {
+                throw new IllegalArgumentException("Each part needs a name and a positive count.");
+            }
+            ids[i] = register ? PartDictionary.idOf(entry.getKey()) : PartDictionary.find(entry.getKey());
+            counts[i] = entry.getValue();
+            i++;
+        }
+        return new int[][] {ids, counts};
+    }
+
+    private static int slotOf(int id)
+    {
+        return (id & CHUNK_MASK) * STRIDE;
+    }
+
+    private AtomicIntegerArray existingChunk(int id)
+    {
+        int chunk = id >>> CHUNK_SHIFT;
+        AtomicIntegerArray[] current = chunks;
+        return id >= 0 && chunk < current.length ? current[chunk] : null;
+    }
+
+    private AtomicIntegerArray chunkFor(int id)
+    {
+        AtomicIntegerArray chunk = existingChunk(id);
+        return chunk != null ? chunk : allocateChunk(id >>> CHUNK_SHIFT);
+    }
+
+    private synchronized AtomicIntegerArray allocateChunk(int chunk)
+    {
+        AtomicIntegerArray[] current = chunks;
+        if (chunk >= current.length)
+        {
+            AtomicIntegerArray[] grown = new AtomicIntegerArray[Math.max(current.length * 2, chunk + 1)];
+            System.arraycopy(current, 0, grown, 0, current.length);
+            current = grown;
+        }
+        if (current[chunk] == null)
+        {
+            current[chunk] = new AtomicIntegerArray(CHUNK_PARTS * STRIDE);
+        }
+        chunks = current;
+        return current[chunk];
+    }
+}
@@ -0,0 +1,159 @@
+package uk.ac.ncl.csc8404.system;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.ac.ncl.csc8404.model.*;
+import uk.ac.ncl.csc8404.order.*;
+import uk.ac.ncl.csc8404.payment.*;
+import uk.ac.ncl.csc8404.user.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test
+ * This class tests reserving parts from an {@link Inventory}, alone and
+ * when fulfilling orders with {@link OrderSystemImpl}.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+class InventoryTest
+{
+
+    @Test
+    void testReservationsAreAllOrNothing()
+    {
+        Inventory inventory = new Inventory(5);
+        List<String> alerts = new ArrayList<>();
+        inventory.addLowStockListener((part, remaining) -> alerts.add(part + "=" + remaining));
+        inventory.addStock("Stock-Fan", 10);
+        inventory.addStock("Stock-Case", 5);
+
+        assertTrue(inventory.reserve(Map.of("Stock-Fan", 4, "Stock-Case", 5)));
+        assertEquals(6, inventory.getStock("Stock-Fan"));
+        assertEquals(List.of("Stock-Case=0"), alerts);
+
+        assertFalse(inventory.reserve(Map.of("Stock-Fan", 2, "Stock-Case", 1)), "The case is out of stock.");
+        assertEquals(6, inventory.getStock("Stock-Fan"), "Nothing is reserved when a part is short.");
+        assertFalse(inventory.reserve(Map.of("Stock-Never-Stocked", 1)));
+        assertEquals(0, inventory.getStock("Stock-Never-Stocked"));
+
+        assertTrue(inventory.reserve(Map.of("Stock-Fan", 2)));
+        assertTrue(inventory.reserve(Map.of("Stock-Fan", 1)));
+        assertEquals(List.of("Stock-Case=0", "Stock-Fan=4"), alerts, "Told once when crossing the threshold.");
+
+        inventory.release(Map.of("Stock-Fan", 3, "Stock-Case", 1));
+        assertEquals(6, inventory.getStock("Stock-Fan"));
+        assertEquals(1, inventory.getStock("Stock-Case"));
+
+        assertThrows(IllegalArgumentException.class, () -> inventory.reserve(Map.of("Stock-Fan", 0)));
+        assertThrows(IllegalArgumentException.class, () -> inventory.addStock("Stock-Fan", -1));
+        assertThrows(IllegalArgumentException.class, () -> inventory.addStock("Stock-Fan", Integer.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> new Inventory(-1));
+    }
+
+    @Test
+    void testFulfillmentReservesParts() throws Exception
+    {
+        OrderSystemImpl system = new OrderSystemImpl();
+        Inventory inventory = new Inventory(0);
+        inventory.addStock("Stock-GPU", 300);
+        inventory.addStock("Stock-PSU", 1000);
+        system.setInventory(inventory);
+
+        Customer customer = new CustomerImpl("Stock", "Keeper");
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.YEAR, 1);
+        CreditCard card = CreditCardFactory.getInstance("89000001", cal.getTime(), "Stock Keeper");
+        CustomModel build = (CustomModel) CustomModelFactory.getInstance("StockBuild");
+        build.setParts(List.of("Stock-GPU", "Stock-GPU", "Stock-PSU"));
+        PCModel preset = new PresetModel("Stock-Preset", "Maker", List.of("cpu"));
+
+        // 200 orders compete for enough GPUs for 150 of them
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 200; i++)
+        {
+            orders.add(system.placeOrder(List.of(build, preset), customer, card));
+        }
+        AtomicInteger fulfilled = new AtomicInteger();
+        AtomicInteger shortOfStock = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (Order order : orders)
+        {
+            futures.add(executor.submit(() ->
+            {
+                try
+                {
+                    system.fulfillOrder(order);
+                    fulfilled.incrementAndGet();
+                }
+                catch (InsufficientStockException e)
+                {
+                    assertEquals("Stock-GPU", e.getPart());
+                    shortOfStock.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures)
+        {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(150, fulfilled.get(), "Stock must never be oversold.");
+        assertEquals(50, shortOfStock.get());
+        assertEquals(0, inventory.getStock("Stock-GPU"));
+        assertEquals(1000 - 150, inventory.getStock("Stock-PSU"), "Short orders must not keep other parts.");
+        assertEquals(50, system.getOrders(OrderStatus.PLACED).size());
+        assertEquals(50, system.getMetrics().getOutOfStockRejections());
+        assertEquals(0, system.getMetrics().getIllegalTransitionRejections());
+
+        // The rest can be fulfilled once restocked
+        inventory.addStock("Stock-GPU", 100);
+        BatchFulfillmentResult batch = system.fulfillOrders(new ArrayList<>(system.getOrders(OrderStatus.PLACED)));
+        assertEquals(50, batch.getFulfilledCount());
+        assertEquals(0, inventory.getStock("Stock-GPU"));
+
+        // Only the inventory set at the time is used
+        system.setInventory(null);
+        system.fulfillOrder(system.placeOrder(List.of(build), customer, card));
+        assertEquals(0, inventory.getStock("Stock-GPU"));
+    }
+
+    @Test
+    void testFailedFulfillmentReturnsStock(@TempDir Path directory) throws Exception
+    {
+        Inventory inventory = new Inventory(0);
+        inventory.addStock("Stock-RAM", 4);
+        Customer customer = new CustomerImpl("Stock", "Keeper");
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.YEAR, 1);
+        CreditCard card = CreditCardFactory.getInstance("89000002", cal.getTime(), "Stock Keeper");
+        CustomModel build = (CustomModel) CustomModelFactory.getInstance("StockBuild2");
+        build.setParts(List.of("Stock-RAM", "Stock-RAM"));
+
+        OrderJournal journal = OrderJournal.open(directory.resolve("orders.journal"));
+        OrderSystemImpl system = new OrderSystemImpl(journal);
+        system.setInventory(inventory);
+        Order order = system.placeOrder(List.of(build), customer, card);
+        journal.close();
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> system.fulfillOrder(order));
+        assertFalse(e instanceof InsufficientStockException);
+        assertEquals(OrderStatus.PLACED, order.getStatus());
+        assertEquals(4, inventory.getStock("Stock-RAM"), "Stock reserved for a failed fulfillment is returned.");
+    }
+}
@@ -0,0 +1,281 @@
+package uk.ac.ncl.csc8404.system;
+
+import uk.ac.ncl.csc8404.model.CustomModel;
+import uk.ac.ncl.csc8404.model.CustomModelFactory;
+import uk.ac.ncl.csc8404.model.PCModel;
+import uk.ac.ncl.csc8404.model.PartDictionary;
+import uk.ac.ncl.csc8404.model.PresetModel;
+import uk.ac.ncl.csc8404.order.Order;
+import uk.ac.ncl.csc8404.order.OrderImpl;
+import uk.ac.ncl.csc8404.payment.CreditCard;
+import uk.ac.ncl.csc8404.payment.CreditCardFactory;
+import uk.ac.ncl.csc8404.user.Customer;
+import uk.ac.ncl.csc8404.user.CustomerImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary encoding of the events written to an {@link OrderJournal}.
+ * <p>
+ * A placed order is written in full: customer, card, and every model with
+ * its parts, so replaying it rebuilds the factories as well as the order.
+ * Cancelling records only the order number; fulfilling also records the
+ * parts the order was fulfilled with, so replaying it reports those parts
+ * even if a custom model has been changed since.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+final class JournalCodec
+{
+
+    static final byte PLACE = 1;
+    static final byte CANCEL = 2;
+    static final byte FULFILL = 3;
+
+    private static final byte PRESET = 0;
+    private static final byte CUSTOM = 1;
+
+    // Equal presets, customers and cards share one object while replaying
+    private final Map<PresetModel, PresetModel> presets = new HashMap<>();
+    private final Map<Customer, Customer> customers = new HashMap<>();
+
+    /**
+     * @param order a newly placed order.
+     * @return the encoded PLACE event.
+     */
+    static byte[] encodePlace(Order order)
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes))
+        {
+            out.writeByte(PLACE);
+            out.writeLong(order.getOrderId());
+            out.writeLong(order.getOrderTime());
+            writeCustomer(out, order.getCustomer());
+            writeCard(out, order.getCreditCard());
+            writeModels(out, order.getModels());
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param type CANCEL or FULFILL.
+     * @param orderId the order number.
+     * @return the encoded status event.
+     */
+    static byte[] encodeTransition(byte type, long orderId)
+    {
+        return ByteBuffer.allocate(9).put(type).putLong(orderId).array();
+    }
+
+    /**
+     * @param orderId the order number.
+     * @param parts the tallied parts of the order's custom models.
+     * @return the encoded FULFILL event.
+     */
+    static byte[] encodeFulfill(long orderId, PartCounter parts)
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + parts.size() * 16);
+        try (DataOutputStream out = new DataOutputStream(bytes))
+        {
+            out.writeByte(FULFILL);
+            out.writeLong(orderId);
+            out.writeInt(parts.size());
+            for (int i = 0; i < parts.size(); i++)
+            {
+                // Names, since dictionary ids are only stable within one run
+                out.writeUTF(PartDictionary.nameOf(parts.partId(i)));
+                out.writeInt(parts.count(i));
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static void writeCustomer(DataOutput out, Customer customer) throws IOException
+    {
+        out.writeUTF(customer.getFirstName());
+        out.writeUTF(customer.getLastName());
+    }
+
+    static void writeCard(DataOutput out, CreditCard card) throws IOException
+    {
+        out.writeUTF(card.getCardNumber());
+        out.writeLong(card.getExpiryDate().getTime());
+        out.writeUTF(card.getHolderName());
+    }
+
+    static void writeModels(DataOutput out, List<PCModel> models) throws IOException
+    {
+        out.writeInt(models.size());
+        for (PCModel model : models)
+        {
+            if (model instanceof PresetModel)
+            {
+                out.writeByte(PRESET);
+                out.writeUTF(model.getName());
+                out.writeUTF(((PresetModel) model).getManufacturer());
+            }
+            else
+            {
+                out.writeByte(CUSTOM);
+                out.writeUTF(model.getName());
+            }
+            List<String> parts = model.getParts();
+            out.writeInt(parts.size());
+            for (String part : parts)
+            {
+                out.writeUTF(part);
+            }
+        }
+    }
+
+    /**
+     * @param payload an event payload.
+     * @return the event type.
+     */
+    static byte typeOf(ByteBuffer payload)
+    {
+        return payload.get(payload.position());
+    }
+
+    /**
+     * @param payload a CANCEL or FULFILL payload.
+     * @return the order number.
+     */
+    static long orderIdOf(ByteBuffer payload)
+    {
+        return payload.getLong(payload.position() + 1);
+    }
+
+    /**
+     * @param payload a FULFILL payload.
+     * @return the tallied parts the order was fulfilled with, or null if the
+     *         record only holds the order number.
+     */
+    static PartCounter fulfilledParts(ByteBuffer payload)
+    {
+        if (payload.remaining() <= 9)
+        {
+            return null;
+        }
+        try
+        {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                    payload.array(), payload.arrayOffset() + payload.position() + 9, payload.remaining() - 9));
+            PartCounter parts = new PartCounter();
+            for (int i = in.readInt(); i > 0; i--)
+            {
+                int partId = PartDictionary.idOf(in.readUTF());
+                parts.add(partId, in.readInt());
+            }
+            parts.tally();
+            return parts;
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Rebuilds a placed order, registering its card and custom models with the factories.
+     *
+     * @param payload a PLACE payload.
+     * @return the order, in status PLACED, with its original number and time.
+     */
+    Order decodePlace(ByteBuffer payload)
+    {
+        try
+        {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                    payload.array(), payload.arrayOffset() + payload.position(), payload.remaining()));
+            in.readByte();
+            long orderId = in.readLong();
+            long orderTime = in.readLong();
+            Customer customer = readCustomer(in);
+            CreditCard card = readCard(in);
+            List<PCModel> models = readModels(in);
+            return new OrderImpl(orderId, models, customer, card, orderTime);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    Customer readCustomer(DataInput in) throws IOException
+    {
+        Customer customer = new CustomerImpl(in.readUTF(), in.readUTF());
+        return customers.computeIfAbsent(customer, c -> c);
+    }
+
+    static CreditCard readCard(DataInput in) throws IOException
+    {
+        String number = in.readUTF();
+        Date expiry = new Date(in.readLong());
+        return CreditCardFactory.getInstance(number, expiry, in.readUTF());
+    }
+
+    List<PCModel> readModels(DataInput in) throws IOException
+    {
+        int count = in.readInt();
+        List<PCModel> models = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            byte kind = in.readByte();
+            String name = in.readUTF();
+            String manufacturer = kind == PRESET ? in.readUTF() : null;
+            List<String> parts = new ArrayList<>();
+            int partCount = in.readInt();
+            for (int p = 0; p < partCount; p++)
+            {
+                parts.add(in.readUTF());
+            }
+
+            if (kind == PRESET)
+            {
+                PresetModel preset = new PresetModel(name, manufacturer, parts);
+                models.add(presets.computeIfAbsent(preset, m -> m));
+            }
+            else
+            {
+                models.add(restoreCustom(name, parts));
+            }
+        }
+        return models;
+    }
+
+    // The factory model is shared, so it is brought back to the parts recorded most recently.
+    // Fulfillments carry their own parts, so this does not change what replay reports.
+    static PCModel restoreCustom(String name, List<String> parts)
+    {
+        CustomModel custom = (CustomModel) CustomModelFactory.getInstance(name);
+        if (!custom.getParts().equals(parts))
+        {
+            custom.setParts(parts);
+        }
+        return custom;
+    }
+}
@@ -0,0 +1,113 @@
+package uk.ac.ncl.csc8404.system;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies in nanoseconds with log-linear buckets: each
+ * power of two is split into {@value #SUB_BUCKETS} equal buckets, so any
+ * value is reported to within 1/{@value #SUB_BUCKETS} of what was recorded,
+ * from nanoseconds up to centuries, in a fixed 8KB of counts per stripe.
+ * <p>
+ * The counts are striped: each thread records into one of several copies
+ * picked by its thread id, and the total and maximum are kept in cells
+ * per thread, so threads recording at once rarely touch the same cache
+ * line. Recording allocates nothing. Percentiles are read from the stripes
+ * added together, so they are consistent with each other but may miss
+ * latencies being recorded at the same time.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+final class LatencyHistogram
+{
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BITS + 1) * SUB_BUCKETS;
+
+    // A power of two at least the core count, up to 64
+    private static final int STRIPES = Math.min(64,
+            Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)));
+
+    // Stripe after stripe, each BUCKETS long
+    private final AtomicLongArray counts = new AtomicLongArray(STRIPES * BUCKETS);
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency, negative values counting as zero.
+     */
+    void record(long nanos)
+    {
+        long value = Math.max(0, nanos);
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        counts.incrementAndGet(stripe * BUCKETS + indexOf(value));
+        totalNanos.add(value);
+        maxNanos.accumulate(value);
+    }
+
+    /**
+     * @return the latencies recorded so far, summarised.
+     */
+    LatencyStats snapshot()
+    {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++)
+        {
+            long stripeCount = counts.get(i);
+            copy[i % BUCKETS] += stripeCount;
+            count += stripeCount;
+        }
+        long max = maxNanos.get();
+        return new LatencyStats(count, count == 0 ? 0 : totalNanos.sum() / count,
+                percentile(copy, count, 0.5, max), percentile(copy, count, 0.99, max),
+                percentile(copy, count, 0.999, max), max);
+    }
+
+    // The highest value in the bucket holding the value at the given rank.
+    private static long percentile(long[] counts, long count, double fraction, long max)
+    {
+        if (count == 0)
+        {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++)
+        {
+            seen += counts[i];
+            if (seen >= rank)
+            {
+                return Math.min(max, highestOf(i));
+            }
+        }
+        return max;
+    }
+
+    static int indexOf(long value)
+    {
+        if (value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    static long highestOf(int index)
+    {
+        if (index < SUB_BUCKETS)
+        {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
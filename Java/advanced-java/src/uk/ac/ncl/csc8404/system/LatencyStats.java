@@ -0,0 +1,85 @@
+package uk.ac.ncl.csc8404.system;
+
+/**
+ * Summary of the latencies of one kind of operation. Percentiles are
+ * accurate to within about 6% of the true latency, and never above the
+ * largest latency recorded.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+public final class LatencyStats
+{
+
+    private final long count;
+    private final long meanNanos;
+    private final long p50Nanos;
+    private final long p99Nanos;
+    private final long p999Nanos;
+    private final long maxNanos;
+
+    LatencyStats(long count, long meanNanos, long p50Nanos, long p99Nanos, long p999Nanos, long maxNanos)
+    {
+        this.count = count;
+        this.meanNanos = meanNanos;
+        this.p50Nanos = p50Nanos;
+        this.p99Nanos = p99Nanos;
+        this.p999Nanos = p999Nanos;
+        this.maxNanos = maxNanos;
+    }
+
+    /**
+     * @return the number of calls recorded, including those that failed.
+     */
+    public long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * @return the mean latency in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getMeanNanos()
+    {
+        return meanNanos;
+    }
+
+    /**
+     * @return the median latency in nanoseconds.
+     */
+    public long getP50Nanos()
+    {
+        return p50Nanos;
+    }
+
+    /**
+     * @return the 99th percentile latency in nanoseconds.
+     */
+    public long getP99Nanos()
+    {
+        return p99Nanos;
+    }
+
+    /**
+     * @return the 99.9th percentile latency in nanoseconds.
+     */
+    public long getP999Nanos()
+    {
+        return p999Nanos;
+    }
+
+    /**
+     * @return the largest latency in nanoseconds.
+     */
+    public long getMaxNanos()
+    {
+        return maxNanos;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "count=" + count + ", mean=" + meanNanos + "ns, p50=" + p50Nanos + "ns, p99=" + p99Nanos
+                + "ns, p999=" + p999Nanos + "ns, max=" + maxNanos + "ns";
+    }
+}
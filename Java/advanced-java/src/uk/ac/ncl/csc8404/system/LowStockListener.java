@@ -0,0 +1,23 @@
+package uk.ac.ncl.csc8404.system;
+
+/**
+ * Told when a reservation takes a part's stock in an {@link Inventory}
+ * below its low-stock threshold.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface LowStockListener
+{
+
+    /**
+     * Called on the thread that made the reservation, once each time the
+     * stock falls from at or above the threshold to below it. It should
+     * return quickly, for example by queueing a restock request.
+     *
+     * @param part the part that is running low.
+     * @param remaining the stock left just after the reservation.
+     */
+    void lowStock(String part, int remaining);
+}
@@ -0,0 +1,820 @@
+package uk.ac.ncl.csc8404.system;
+
+import uk.ac.ncl.csc8404.model.CustomModelFactory;
+import uk.ac.ncl.csc8404.model.PCModel;
+import uk.ac.ncl.csc8404.model.PresetModel;
+import uk.ac.ncl.csc8404.order.Order;
+import uk.ac.ncl.csc8404.order.OrderImpl;
+import uk.ac.ncl.csc8404.order.OrderStatus;
+import uk.ac.ncl.csc8404.payment.CreditCard;
+import uk.ac.ncl.csc8404.user.Customer;
+import uk.ac.ncl.csc8404.user.CustomerImpl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Orders moved off the heap by {@link OrderSystemImpl#archive()}, kept in
+ * compressed, immutable segment files in one directory.
+ * <p>
+ * Each segment holds up to {@value #MAX_SEGMENT_ORDERS} fulfilled or
+ * cancelled orders. Customers, cards and models are written once per
+ * segment and orders refer to them by index, and the whole body is
+ * gzipped, whose CRC catches damaged files. An uncompressed header holds
+ * the order count, the number fulfilled, the range of order times and the
+ * range of sequence numbers, so time-range queries and pages skip segments
+ * without inflating them. Each segment also keeps a small in-memory filter
+ * of its customers, so a customer's orders are only looked for in the
+ * segments that may hold some.
+ * <p>
+ * Archived orders keep the sequence numbers they had in the heap's
+ * {@link OrderLog}, and {@link #page} reads the archive and the heap
+ * together in that order, so a page token survives orders being archived
+ * between pages.
+ * <p>
+ * Reading a segment rebuilds its orders as new objects in their final
+ * status. Decoded segments are cached by soft reference, so paging
+ * through the archive does not decode a segment per order, and the cache
+ * is given back when the heap runs short. Custom models are rebuilt with
+ * the parts they had when archived, apart from the factory's models, so
+ * reading the archive never changes a live model.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+final class OrderArchive
+{
+
+    /**
+     * The most orders written to one segment.
+     */
+    static final int MAX_SEGMENT_ORDERS = 1 << 16;
+
+    private static final String SUFFIX = ".segment";
+    private static final int MAGIC = 0x4F415243; // "OARC"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 48;
+    private static final int CUSTOMER_HASH_BITS = 13;
+    private static final int CUSTOMER_BITS = 1 << CUSTOMER_HASH_BITS;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final byte PRESET = 0;
+    private static final byte CUSTOM = 1;
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private final Path directory;
+    private final long retentionMillis;
+
+    // Replaced as a whole when segments are added, so readers iterate a fixed list
+    private volatile List<Segment> segments = List.of();
+    private final ConcurrentMap<Customer, AtomicIntegerArray> customerCounts = new ConcurrentHashMap<>();
+    private int nextSegment;
+
+    /**
+     * Opens a new, empty archive.
+     *
+     * @param directory the directory for segment files, created if needed.
+     * @param retentionMillis how old an order must be before it is archived.
+     * @throws IOException if the directory cannot be created or listed.
+     * @throws IllegalArgumentException if the directory already holds segments.
+     */
+    OrderArchive(Path directory, long retentionMillis) throws IOException
+    {
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> existing = Files.newDirectoryStream(directory, "*" + SUFFIX))
+        {
+            if (existing.iterator().hasNext())
+            {
+                throw new IllegalArgumentException("Archive directory " + directory + " already holds segments.");
+            }
+        }
+        this.directory = directory;
+        this.retentionMillis = retentionMillis;
+    }
+
+    /**
+     * @return how old an order must be before it is archived, in milliseconds.
+     */
+    long getRetentionMillis()
+    {
+        return retentionMillis;
+    }
+
+    /**
+     * Writes orders to new segment files. They are not visible until
+     * {@link #publish(List, List)} is called with the result.
+     *
+     * @param orders fulfilled or cancelled orders, in history order.
+     * @param sequences the orders' sequence numbers in the heap's log, ascending.
+     * @return the segments written.
+     * @throws IOException if a segment cannot be written.
+     */
+    synchronized List<Segment> write(List<Order> orders, long[] sequences) throws IOException
+    {
+        List<Segment> written = new ArrayList<>();
+        for (int from = 0; from < orders.size(); from += MAX_SEGMENT_ORDERS)
+        {
+            int to = Math.min(orders.size(), from + MAX_SEGMENT_ORDERS);
+            Path file = directory.resolve(String.format("%08d", nextSegment++) + SUFFIX);
+            written.add(Segment.write(file, orders.subList(from, to), Arrays.copyOfRange(sequences, from, to)));
+        }
+        return written;
+    }
+
+    /**
+     * Makes newly written segments visible to readers.
+     *
+     * @param added segments returned by {@link #write(List)}.
+     * @param orders the orders in them.
+     */
+    void publish(List<Segment> added, List<Order> orders)
+    {
+        for (Order order : orders)
+        {
+            int status = order.getStatus().ordinal();
+            customerCounts.computeIfAbsent(order.getCustomer(), c -> new AtomicIntegerArray(STATUSES.length))
+                    .incrementAndGet(status);
+        }
+        List<Segment> all = new ArrayList<>(segments);
+        all.addAll(added);
+        segments = List.copyOf(all);
+    }
+
+    /**
+     * @return the number of archived orders.
+     */
+    int size()
+    {
+        int size = 0;
+        for (Segment segment : segments)
+        {
+            size += segment.count;
+        }
+        return size;
+    }
+
+    /**
+     * @param customer the customer.
+     * @param status the status to count.
+     * @return the number of the customer's archived orders in the status.
+     */
+    int countFor(Customer customer, OrderStatus status)
+    {
+        AtomicIntegerArray counts = customerCounts.get(customer);
+        return counts == null ? 0 : counts.get(status.ordinal());
+    }
+
+    /**
+     * Visits the archived orders placed in a time range, reading only the
+     * segments that overlap it.
+     *
+     * @param fromMillis start of the range, inclusive.
+     * @param toMillis end of the range, exclusive.
+     * @param visitor called once per order in the range.
+     */
+    void forEachBetween(long fromMillis, long toMillis, Consumer<Order> visitor)
+    {
+        for (Segment segment : segments)
+        {
+            if (segment.maxTime >= fromMillis && segment.minTime < toMillis)
+            {
+                for (Order order : segment.orders())
+                {
+                    if (order.getOrderTime() >= fromMillis && order.getOrderTime() < toMillis)
+                    {
+                        visitor.accept(order);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads only the segments whose customer filter may hold the customer,
+     * and stops once it has found every archived order the customer has.
+     *
+     * @param customer the customer.
+     * @return the customer's archived orders, in history order.
+     */
+    List<Order> collectFor(Customer customer)
+    {
+        int remaining = countFor(customer, OrderStatus.FULFILLED) + countFor(customer, OrderStatus.CANCELLED);
+        List<Order> matches = new ArrayList<>(remaining);
+        for (Segment segment : segments)
+        {
+            if (remaining == 0)
+            {
+                break;
+            }
+            if (!segment.mayHold(customer))
+            {
+                continue;
+            }
+            for (Order order : segment.orders())
+            {
+                if (customer.equals(order.getCustomer()))
+                {
+                    matches.add(order);
+                    remaining--;
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Reads a page of matching orders from the archive and the heap
+     * together, in sequence number order. The token is the sequence number
+     * to continue from. As orders keep their sequence numbers when they are
+     * archived, the token stays valid across {@link OrderSystemImpl#archive()};
+     * the caller must keep the archive from changing while the page is read.
+     *
+     * @param heap     the orders still on the heap.
+     * @param pageSize the most orders to return.
+     * @param token    the token of the previous page, or null for the first page.
+     * @param filter   the orders to return, or null for every order.
+     * @throws IllegalArgumentException if pageSize is not positive or the token is malformed.
+     */
+    OrderPage page(OrderLog heap, int pageSize, String token, Predicate<Order> filter)
+    {
+        if (pageSize <= 0)
+        {
+            throw new IllegalArgumentException("Page size must be positive.");
+        }
+        long from = OrderPage.sequenceOf(token);
+        int heapSize = heap.size();
+        long end = heap.sequenceOf(heapSize); // Every order numbered below is archived or on the heap
+
+        // The lowest matching sequence numbers seen so far, at most pageSize of them
+        TreeMap<Long, Order> found = new TreeMap<>();
+        List<Segment> bySequence = new ArrayList<>(segments);
+        bySequence.sort(Comparator.comparingLong(segment -> segment.firstSequence));
+        for (Segment segment : bySequence)
+        {
+            if (isPastPage(found, pageSize, segment.firstSequence))
+            {
+                break;
+            }
+            if (segment.lastSequence < from)
+            {
+                continue;
+            }
+            Decoded decoded = segment.decoded();
+            int i = Arrays.binarySearch(decoded.sequences, from);
+            for (i = i >= 0 ? i : -i - 1; i < decoded.sequences.length; i++)
+            {
+                if (isPastPage(found, pageSize, decoded.sequences[i]))
+                {
+                    break;
+                }
+                offer(found, pageSize, decoded.sequences[i], decoded.orders[i], filter);
+            }
+        }
+        for (int i = heap.positionOf(from, heapSize); i < heapSize; i++)
+        {
+            long sequence = heap.sequenceOf(i);
+            if (isPastPage(found, pageSize, sequence))
+            {
+                break;
+            }
+            offer(found, pageSize, sequence, heap.get(i), filter);
+        }
+
+        long next = found.size() == pageSize ? found.lastKey() + 1 : Math.max(from, end);
+        return OrderPage.ofSequence(new ArrayList<>(found.values()), next, next < end);
+    }
+
+    // Once the page is full, nothing numbered after its last order can be on it
+    private static boolean isPastPage(TreeMap<Long, Order> found, int pageSize, long sequence)
+    {
+        return found.size() == pageSize && sequence > found.lastKey();
+    }
+
+    private static void offer(TreeMap<Long, Order> found, int pageSize, long sequence, Order order,
+                              Predicate<Order> filter)
+    {
+        if (filter == null || filter.test(order))
+        {
+            found.put(sequence, order);
+            if (found.size() > pageSize)
+            {
+                found.pollLastEntry();
+            }
+        }
+    }
+
+    /**
+     * @param heap the orders still on the heap.
+     * @return a read-only list of the archived orders followed by the heap orders.
+     */
+    List<Order> withArchived(List<Order> heap)
+    {
+        return new History(segments, heap);
+    }
+
+    /**
+     * @param status the status.
+     * @param heap the orders in the status still on the heap.
+     * @return a read-only collection of the archived orders in the status followed by the heap orders.
+     */
+    Collection<Order> withArchived(OrderStatus status, Collection<Order> heap)
+    {
+        List<Segment> current = segments;
+        int archived = 0;
+        for (Segment segment : current)
+        {
+            archived += segment.count(status);
+        }
+        return new StatusView(current, status, archived, heap);
+    }
+
+    /**
+     * One immutable segment file, with its header kept in memory.
+     */
+    static final class Segment
+    {
+        private final Path file;
+        private final int count;
+        private final int fulfilled;
+        private final long minTime;
+        private final long maxTime;
+        private final long firstSequence;
+        private final long lastSequence;
+        // One bit per customer hash, set for every customer in the segment
+        private final long[] customerBits;
+        private volatile SoftReference<Decoded> decoded = new SoftReference<>(null);
+
+        private Segment(Path file, int count, int fulfilled, long minTime, long maxTime,
+                        long firstSequence, long lastSequence, long[] customerBits)
+        {
+            this.file = file;
+            this.count = count;
+            this.fulfilled = fulfilled;
+            this.minTime = minTime;
+            this.maxTime = maxTime;
+            this.firstSequence = firstSequence;
+            this.lastSequence = lastSequence;
+            this.customerBits = customerBits;
+        }
+
+        /**
+         * @param customer the customer.
+         * @return false if the segment holds none of the customer's orders;
+         * true if it may hold some.
+         */
+        boolean mayHold(Customer customer)
+        {
+            int bit = customerBit(customer);
+            return (customerBits[bit >>> 6] & (1L << bit)) != 0;
+        }
+
+        private static int customerBit(Customer customer)
+        {
+            return (customer.hashCode() * 0x9E3779B9) >>> (Integer.SIZE - CUSTOMER_HASH_BITS);
+        }
+
+        int count(OrderStatus status)
+        {
+            return status == OrderStatus.FULFILLED ? fulfilled
+                    : status == OrderStatus.CANCELLED ? count - fulfilled : 0;
+        }
+
+        // Written next to its destination and moved into place once complete
+        static Segment write(Path file, List<Order> orders, long[] sequences) throws IOException
+        {
+            Tables tables = new Tables();
+            OrderStatus[] statuses = new OrderStatus[orders.size()];
+            long[] customerBits = new long[CUSTOMER_BITS / Long.SIZE];
+            int fulfilled = 0;
+            long minTime = Long.MAX_VALUE;
+            long maxTime = Long.MIN_VALUE;
+            for (int i = 0; i < statuses.length; i++)
+            {
+                Order order = orders.get(i);
+                statuses[i] = order.getStatus();
+                fulfilled += statuses[i] == OrderStatus.FULFILLED ? 1 : 0;
+                minTime = Math.min(minTime, order.getOrderTime());
+                maxTime = Math.max(maxTime, order.getOrderTime());
+                int bit = customerBit(order.getCustomer());
+                customerBits[bit >>> 6] |= 1L << bit;
+                tables.customerRef(order.getCustomer());
+                tables.cardRef(order.getCreditCard());
+                order.getModels().forEach(tables::modelRef);
+            }
+
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+            {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION)
+                        .putInt(orders.size()).putInt(fulfilled).putLong(minTime).putLong(maxTime)
+                        .putLong(sequences[0]).putLong(sequences[sequences.length - 1]);
+                header.flip();
+                while (header.hasRemaining())
+                {
+                    channel.write(header);
+                }
+
+                OutputStream body = Channels.newOutputStream(channel);
+                GZIPOutputStream gzip = new GZIPOutputStream(body, BUFFER_SIZE);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(gzip, BUFFER_SIZE));
+                tables.write(out);
+                for (int i = 0; i < statuses.length; i++)
+                {
+                    Order order = orders.get(i);
+                    out.writeLong(sequences[i]);
+                    out.writeLong(order.getOrderId());
+                    out.writeLong(order.getOrderTime());
+                    out.writeByte(statuses[i].ordinal());
+                    out.writeInt(tables.customerRef(order.getCustomer()));
+                    out.writeInt(tables.cardRef(order.getCreditCard()));
+                    List<PCModel> models = order.getModels();
+                    out.writeInt(models.size());
+                    for (PCModel model : models)
+                    {
+                        out.writeInt(tables.modelRef(model));
+                    }
+                }
+                out.flush();
+                gzip.finish();
+                body.flush();
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return new Segment(file, orders.size(), fulfilled, minTime, maxTime,
+                    sequences[0], sequences[sequences.length - 1], customerBits);
+        }
+
+        /**
+         * @return the segment's orders, decoded or from the cache.
+         * @throws UncheckedIOException if the segment cannot be read.
+         */
+        Order[] orders()
+        {
+            return decoded().orders;
+        }
+
+        /**
+         * @return the segment's orders and their sequence numbers, decoded or from the cache.
+         * @throws UncheckedIOException if the segment cannot be read.
+         */
+        Decoded decoded()
+        {
+            Decoded contents = decoded.get();
+            if (contents == null)
+            {
+                try
+                {
+                    contents = read();
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+                decoded = new SoftReference<>(contents);
+            }
+            return contents;
+        }
+
+        private Decoded read() throws IOException
+        {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+            {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                while (header.hasRemaining())
+                {
+                    if (channel.read(header) < 0)
+                    {
+                        throw new IOException("Archive segment " + file + " is truncated.");
+                    }
+                }
+                header.flip();
+                if (header.getInt() != MAGIC || header.getInt() != VERSION || header.getInt() != count)
+                {
+                    throw new IOException(file + " is not the expected archive segment.");
+                }
+
+                InputStream body = Channels.newInputStream(channel);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(
+                        new GZIPInputStream(body, BUFFER_SIZE), BUFFER_SIZE));
+
+                Customer[] customers = new Customer[in.readInt()];
+                for (int i = 0; i < customers.length; i++)
+                {
+                    customers[i] = new CustomerImpl(in.readUTF(), in.readUTF());
+                }
+                CreditCard[] cards = new CreditCard[in.readInt()];
+                for (int i = 0; i < cards.length; i++)
+                {
+                    cards[i] = JournalCodec.readCard(in);
+                }
+                PCModel[] models = new PCModel[in.readInt()];
+                for (int i = 0; i < models.length; i++)
+                {
+                    models[i] = readModel(in);
+                }
+
+                Order[] orders = new Order[count];
+                long[] sequences = new long[count];
+                for (int i = 0; i < count; i++)
+                {
+                    sequences[i] = in.readLong();
+                    long orderId = in.readLong();
+                    long orderTime = in.readLong();
+                    OrderStatus status = STATUSES[in.readByte()];
+                    Customer customer = customers[in.readInt()];
+                    CreditCard card = cards[in.readInt()];
+                    PCModel[] orderModels = new PCModel[in.readInt()];
+                    for (int m = 0; m < orderModels.length; m++)
+                    {
+                        orderModels[m] = models[in.readInt()];
+                    }
+
+                    Order order = new OrderImpl(orderId, Arrays.asList(orderModels), customer, card, orderTime);
+                    if (status == OrderStatus.CANCELLED)
+                    {
+                        order.cancel();
+                    }
+                    else
+                    {
+                        order.fulfill();
+                    }
+                    orders[i] = order;
+                }
+                return new Decoded(orders, sequences);
+            }
+        }
+
+        private static PCModel readModel(DataInputStream in) throws IOException
+        {
+            byte kind = in.readByte();
+            String name = in.readUTF();
+            String manufacturer = kind == PRESET ? in.readUTF() : null;
+            List<String> parts = new ArrayList<>();
+            for (int p = in.readInt(); p > 0; p--)
+            {
+                parts.add(in.readUTF());
+            }
+            if (kind == PRESET)
+            {
+                return new PresetModel(name, manufacturer, parts);
+            }
+            // Detached from the factory, so the live model keeps its own parts
+            return CustomModelFactory.newDetached(name, parts);
+        }
+    }
+
+    /**
+     * The orders of one segment, with their sequence numbers.
+     */
+    static final class Decoded
+    {
+        private final Order[] orders;
+        private final long[] sequences;
+
+        Decoded(Order[] orders, long[] sequences)
+        {
+            this.orders = orders;
+            this.sequences = sequences;
+        }
+    }
+
+    /**
+     * The customers, cards and models of one segment, each written once.
+     */
+    private static final class Tables
+    {
+        private final Map<Customer, Integer> customerRefs = new HashMap<>();
+        private final List<Customer> customers = new ArrayList<>();
+        private final Map<CreditCard, Integer> cardRefs = new IdentityHashMap<>();
+        private final List<CreditCard> cards = new ArrayList<>();
+        private final Map<PCModel, Integer> presetRefs = new HashMap<>();
+        private final Map<PCModel, Integer> customRefs = new IdentityHashMap<>();
+        private final List<PCModel> models = new ArrayList<>();
+        private final List<List<String>> modelParts = new ArrayList<>();
+
+        int customerRef(Customer customer)
+        {
+            return refOf(customerRefs, customers, customer);
+        }
+
+        int cardRef(CreditCard card)
+        {
+            return refOf(cardRefs, cards, card);
+        }
+
+        int modelRef(PCModel model)
+        {
+            Map<PCModel, Integer> refs = model instanceof PresetModel ? presetRefs : customRefs;
+            Integer ref = refs.get(model);
+            if (ref == null)
+            {
+                // Parts are fixed the first time the model is seen
+                ref = models.size();
+                refs.put(model, ref);
+                models.add(model);
+                modelParts.add(model.getParts());
+            }
+            return ref;
+        }
+
+        private static <T> int refOf(Map<T, Integer> refs, List<T> table, T item)
+        {
+            Integer ref = refs.get(item);
+            if (ref == null)
+            {
+                ref = table.size();
+                refs.put(item, ref);
+                table.add(item);
+            }
+            return ref;
+        }
+
+        void write(DataOutputStream out) throws IOException
+        {
+            out.writeInt(customers.size());
+            for (Customer customer : customers)
+            {
+                JournalCodec.writeCustomer(out, customer);
+            }
+            out.writeInt(cards.size());
+            for (CreditCard card : cards)
+            {
+                JournalCodec.writeCard(out, card);
+            }
+            out.writeInt(models.size());
+            for (int i = 0; i < models.size(); i++)
+            {
+                PCModel model = models.get(i);
+                if (model instanceof PresetModel)
+                {
+                    out.writeByte(PRESET);
+                    out.writeUTF(model.getName());
+                    out.writeUTF(((PresetModel) model).getManufacturer());
+                }
+                else
+                {
+                    out.writeByte(CUSTOM);
+                    out.writeUTF(model.getName());
+                }
+                out.writeInt(modelParts.get(i).size());
+                for (String part : modelParts.get(i))
+                {
+                    out.writeUTF(part);
+                }
+            }
+        }
+    }
+
+    /**
+     * The archived orders followed by a live list of the heap orders.
+     */
+    private static final class History extends AbstractList<Order> implements RandomAccess
+    {
+        private final List<Segment> segments;
+        private final int[] starts;
+        private final int archived;
+        private final List<Order> heap;
+
+        History(List<Segment> segments, List<Order> heap)
+        {
+            this.segments = segments;
+            this.heap = heap;
+            this.starts = new int[segments.size()];
+            int total = 0;
+            for (int i = 0; i < starts.length; i++)
+            {
+                starts[i] = total;
+                total += segments.get(i).count;
+            }
+            this.archived = total;
+        }
+
+        @Override
+        public Order get(int index)
+        {
+            if (index < 0 || index >= size())
+            {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            if (index >= archived)
+            {
+                return heap.get(index - archived);
+            }
+            int segment = Arrays.binarySearch(starts, index);
+            segment = segment >= 0 ? segment : -segment - 2;
+            return segments.get(segment).orders()[index - starts[segment]];
+        }
+
+        @Override
+        public int size()
+        {
+            return archived + heap.size();
+        }
+    }
+
+    /**
+     * The archived orders in one status followed by a live view of the heap orders in it.
+     */
+    private static final class StatusView extends AbstractCollection<Order>
+    {
+        private final List<Segment> segments;
+        private final OrderStatus status;
+        private final int archived;
+        private final Collection<Order> heap;
+
+        StatusView(List<Segment> segments, OrderStatus status, int archived, Collection<Order> heap)
+        {
+            this.segments = segments;
+            this.status = status;
+            this.archived = archived;
+            this.heap = heap;
+        }
+
+        @Override
+        public Iterator<Order> iterator()
+        {
+            return new Iterator<>()
+            {
+                private final Iterator<Segment> remaining = segments.iterator();
+                private final Iterator<Order> heapOrders = heap.iterator();
+                private Order[] current = new Order[0];
+                private int next;
+
+                @Override
+                public boolean hasNext()
+                {
+                    while (true)
+                    {
+                        for (; next < current.length; next++)
+                        {
+                            if (current[next].getStatus() == status)
+                            {
+                                return true;
+                            }
+                        }
+                        if (!remaining.hasNext())
+                        {
+                            return heapOrders.hasNext();
+                        }
+                        Segment segment = remaining.next();
+                        current = segment.count(status) == 0 ? new Order[0] : segment.orders();
+                        next = 0;
+                    }
+                }
+
+                @Override
+                public Order next()
+                {
+                    if (!hasNext())
+                    {
+                        throw new NoSuchElementException();
+                    }
+                    return next < current.length ? current[next++] : heapOrders.next();
+                }
+            };
+        }
+
+        @Override
+        public int size()
+        {
+            return archived + heap.size();
+        }
+    }
+}
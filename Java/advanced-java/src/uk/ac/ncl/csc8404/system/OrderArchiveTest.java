@@ -0,0 +1,248 @@
+package uk.ac.ncl.csc8404.system;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.ac.ncl.csc8404.model.*;
+import uk.ac.ncl.csc8404.order.*;
+import uk.ac.ncl.csc8404.payment.*;
+import uk.ac.ncl.csc8404.user.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test
+ * This class tests moving old orders to an {@link OrderArchive} and
+ * reading them back through {@link OrderSystemImpl}.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+class OrderArchiveTest
+{
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testQueriesSeeArchivedOrders() throws Exception
+    {
+        OrderSystemImpl system = new OrderSystemImpl(dir.resolve("archive"), Duration.ofDays(30));
+        Customer alice = new CustomerImpl("Archie", "Alice");
+        Customer bob = new CustomerImpl("Archie", "Bob");
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.YEAR, 1);
+        CreditCard card = CreditCardFactory.getInstance("87000001", cal.getTime(), "Archie");
+        PCModel preset = new PresetModel("Arch-1", "Maker", Arrays.asList("cpu"));
+        CustomModel custom = (CustomModel) CustomModelFactory.getInstance("ArchiveBuild");
+        custom.setParts(List.of("fan", "fan", "case"));
+
+        // A year of old orders, some never fulfilled, and a few recent ones
+        long now = System.currentTimeMillis();
+        List<Order> old = new ArrayList<>();
+        for (int i = 0; i < 365; i++)
+        {
+            Order order = new OrderImpl(List.of(preset, custom), i % 3 == 0 ? bob : alice, card,
+                    now - (400 - i) * DAY);
+            if (i % 5 == 0)
+            {
+                order.cancel();
+            }
+            else if (i % 7 != 0)
+            {
+                order.fulfill();
+            }
+            old.add(order);
+        }
+        system.importOrders(old);
+        Order waiting = old.get(7); // Old but still placed
+        for (int i = 0; i < 10; i++)
+        {
+            system.fulfillOrder(system.placeOrder(List.of(preset), alice, card));
+        }
+
+        List<Long> history = ids(system.getOrderHistory());
+        List<Long> fulfilled = ids(system.getOrders(OrderStatus.FULFILLED));
+        List<Long> bobsOrders = ids(system.getOrdersFor(bob));
+        int bobFulfilled = system.getOrderCountFor(bob, OrderStatus.FULFILLED);
+        List<Long> range = ids(system.getOrdersBetween(now - 300 * DAY, now - 100 * DAY));
+        Object largest = system.getLargestCustomer(now - 300 * DAY, now);
+        Object part = system.getMostOrderedPart(now - 400 * DAY, now - 200 * DAY);
+        Object model = system.getMostOrderedModel();
+
+        int archived = system.archive(now);
+        long eligible = old.stream().filter(o -> o.getStatus() != OrderStatus.PLACED).count();
+        assertEquals(eligible, archived);
+        try (Stream<Path> files = Files.list(dir.resolve("archive")))
+        {
+            assertEquals(1, files.count(), "One segment should be written.");
+        }
+
+        List<Long> expectedHistory = new ArrayList<>();
+        old.stream().filter(o -> o.getStatus() != OrderStatus.PLACED).forEach(o -> expectedHistory.add(o.getOrderId()));
+        history.stream().filter(id -> !expectedHistory.contains(id)).forEach(expectedHistory::add);
+        assertEquals(expectedHistory, ids(system.getOrderHistory()), "Archived orders come first.");
+        assertEquals(history.size(), system.getMetrics().getHistorySize());
+        assertEquals(sorted(fulfilled), sorted(ids(system.getOrders(OrderStatus.FULFILLED))));
+        assertEquals(fulfilled.size(), system.getOrders(OrderStatus.FULFILLED).size());
+        assertEquals(bobsOrders.size(), system.getOrdersFor(bob).size());
+        assertEquals(sorted(bobsOrders), sorted(ids(system.getOrdersFor(bob))));
+        assertEquals(bobFulfilled, system.getOrderCountFor(bob, OrderStatus.FULFILLED));
+        assertEquals(range, ids(system.getOrdersBetween(now - 300 * DAY, now - 100 * DAY)));
+        assertEquals(largest, system.getLargestCustomer(now - 300 * DAY, now));
+        assertEquals(part, system.getMostOrderedPart(now - 400 * DAY, now - 200 * DAY));
+        assertEquals(model, system.getMostOrderedModel());
+
+        Order archivedOrder = system.getOrderHistory().get(0);
+        assertNotEquals(OrderStatus.PLACED, archivedOrder.getStatus());
+        assertThrows(IllegalStateException.class, () -> system.fulfillOrder(archivedOrder));
+
+        // Archived builds keep their recorded parts and leave the live model alone
+        custom.setParts(List.of("gpu"));
+        PCModel archivedBuild = archivedOrder.getModels().get(1);
+        assertEquals(List.of("fan", "fan", "case"), archivedBuild.getParts(), "Archived parts should be kept.");
+        assertNotSame(custom, archivedBuild);
+        assertSame(custom, CustomModelFactory.getInstance("ArchiveBuild"));
+        assertEquals(List.of("gpu"), custom.getParts(), "Live parts should be untouched.");
+
+        // The waiting order is archived once it is finished
+        assertEquals(0, system.archive(now));
+        system.fulfillOrder(waiting);
+        assertTrue(system.archive(now) > 0);
+        assertEquals(OrderStatus.FULFILLED, system.getOrderHistory().stream()
+                .filter(o -> o.getOrderId() == waiting.getOrderId()).findFirst().orElseThrow().getStatus());
+        assertEquals(history.size(), system.getOrderHistory().size());
+
+        // Paging a customer walks archived and heap orders alike
+        List<Long> paged = new ArrayList<>();
+        OrderPage page = system.getOrderPage(50, null, OrderStatus.FULFILLED, bob);
+        paged.addAll(ids(page.getOrders()));
+        while (page.hasMore())
+        {
+            page = system.getOrderPage(50, page.getNextToken(), OrderStatus.FULFILLED, bob);
+            assertTrue(page.getOrders().size() <= 50);
+            paged.addAll(ids(page.getOrders()));
+        }
+        List<Long> expectedPaged = new ArrayList<>();
+        system.getOrdersFor(bob).stream().filter(o -> o.getStatus() == OrderStatus.FULFILLED)
+                .forEach(o -> expectedPaged.add(o.getOrderId()));
+        assertEquals(expectedPaged, paged);
+        assertEquals(bobFulfilled, paged.size());
+    }
+
+    @Test
+    void testLargeArchiveSpansSegments() throws Exception
+    {
+        OrderSystemImpl system = new OrderSystemImpl(dir, Duration.ZERO);
+        Customer customer = new CustomerImpl("Archie", "Bulk");
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.YEAR, 1);
+        CreditCard card = CreditCardFactory.getInstance("87000002", cal.getTime(), "Archie");
+        PCModel preset = new PresetModel("Arch-2", "Maker", Arrays.asList("cpu"));
+
+        int count = OrderArchive.MAX_SEGMENT_ORDERS + 100;
+        List<Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            Order order = new OrderImpl(List.of(preset), customer, card, 1000 + i);
+            order.fulfill();
+            orders.add(order);
+        }
+        system.importOrders(orders);
+        assertEquals(count, system.archive(10_000_000));
+
+        List<Order> history = system.getOrderHistory();
+        assertEquals(count, history.size());
+        assertEquals(orders.get(count - 1).getOrderId(), history.get(count - 1).getOrderId());
+        assertEquals(orders.get(5).getOrderId(), history.get(5).getOrderId());
+        assertEquals(count, system.getOrderCountFor(customer, OrderStatus.FULFILLED));
+        assertEquals(100, system.getOrdersBetween(1000 + OrderArchive.MAX_SEGMENT_ORDERS, Long.MAX_VALUE).size());
+
+        assertThrows(IllegalStateException.class, () -> system.checkpoint(dir.resolve("snapshot")));
+        assertThrows(IllegalArgumentException.class, () -> new OrderSystemImpl(dir, Duration.ofDays(1)),
+                "A directory that already holds segments belongs to another system.");
+        assertThrows(IllegalStateException.class, () -> new OrderSystemImpl().archive());
+    }
+
+    @Test
+    void testPagingAcrossArchive() throws Exception
+    {
+        OrderSystemImpl system = new OrderSystemImpl(dir, Duration.ofDays(30));
+        Customer customer = new CustomerImpl("Archie", "Pager");
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.YEAR, 1);
+        CreditCard card = CreditCardFactory.getInstance("87000003", cal.getTime(), "Archie");
+        PCModel preset = new PresetModel("Arch-3", "Maker", Arrays.asList("cpu"));
+
+        // Old orders, every third one still placed, so archiving pulls orders out from between them
+        long now = System.currentTimeMillis();
+        List<Order> old = new ArrayList<>();
+        for (int i = 0; i < 60; i++)
+        {
+            Order order = new OrderImpl(List.of(preset), customer, card, now - (100 - i) * DAY);
+            if (i % 3 != 0)
+            {
+                order.fulfill();
+            }
+            old.add(order);
+        }
+        system.importOrders(old);
+        List<Long> expected = ids(old);
+
+        List<Long> paged = new ArrayList<>();
+        OrderPage page = system.getOrderPage(7, null, null, null);
+        paged.addAll(ids(page.getOrders()));
+        page = system.getOrderPage(7, page.getNextToken(), null, null);
+        paged.addAll(ids(page.getOrders()));
+
+        // Archive twice between pages, then keep placing
+        assertTrue(system.archive(now) > 0);
+        page = system.getOrderPage(7, page.getNextToken(), null, null);
+        paged.addAll(ids(page.getOrders()));
+        for (int i = 0; i < 60; i += 3)
+        {
+            system.fulfillOrder(old.get(i));
+        }
+        assertTrue(system.archive(now) > 0);
+        for (int i = 0; i < 5; i++)
+        {
+            expected.add(system.placeOrder(List.of(preset), customer, card).getOrderId());
+        }
+        while (page.hasMore())
+        {
+            page = system.getOrderPage(7, page.getNextToken(), null, null);
+            assertTrue(page.getOrders().size() <= 7);
+            paged.addAll(ids(page.getOrders()));
+        }
+
+        assertEquals(expected, paged, "Every order should be paged once, in the order added.");
+        assertEquals(List.of(), system.getOrderPage(7, page.getNextToken(), null, null).getOrders());
+        assertThrows(IllegalArgumentException.class, () -> system.getOrderPage(7, "3.14", null, null));
+    }
+
+    private static List<Long> ids(Collection<Order> orders)
+    {
+        List<Long> ids = new ArrayList<>();
+        orders.forEach(order -> ids.add(order.getOrderId()));
+        return ids;
+    }
+
+    private static List<Long> sorted(List<Long> ids)
+    {
+        List<Long> copy = new ArrayList<>(ids);
+        copy.sort(null);
+        return copy;
+    }
+}
@@ -0,0 +1,88 @@
+package uk.ac.ncl.csc8404.system;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import uk.ac.ncl.csc8404.model.CustomModel;
+import uk.ac.ncl.csc8404.model.PCModel;
+import uk.ac.ncl.csc8404.order.Order;
+import uk.ac.ncl.csc8404.order.OrderStatus;
+
+/**
+ * Flight Recorder event for a call to placeOrder, cancelOrder or
+ * fulfillOrder on {@link OrderSystemImpl}, so samples and allocations
+ * during the call can be tied to the order and its size.
+ * <p>
+ * Disabled unless a recording enables it; a disabled event is never
+ * filled in, and the JIT can then remove it altogether.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+@Name("uk.ac.ncl.csc8404.OrderOperation")
+@Label("Order Operation")
+@Category({"CSC8404", "Orders"})
+@Description("A call that places, cancels or fulfils an order")
+final class OrderEvent extends Event
+{
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Order Id")
+    @Description("Zero if no order was placed")
+    long orderId;
+
+    @Label("Models")
+    int models;
+
+    @Label("Custom Parts")
+    @Description("Parts across the custom models in the order")
+    int parts;
+
+    @Label("From Status")
+    @Description("Status before the call, absent when placing")
+    String fromStatus;
+
+    @Label("To Status")
+    @Description("Status after the call")
+    String toStatus;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    /**
+     * Commits the event if it is being recorded.
+     *
+     * @param operation the method called.
+     * @param order the order, or null if none was placed.
+     * @param fromStatus the status before the call, or null when placing.
+     * @param succeeded whether the call returned normally.
+     */
+    void finish(String operation, Order order, OrderStatus fromStatus, boolean succeeded)
+    {
+        if (!shouldCommit())
+        {
+            return;
+        }
+        this.operation = operation;
+        this.succeeded = succeeded;
+        this.fromStatus = fromStatus == null ? null : fromStatus.name();
+        if (order != null)
+        {
+            orderId = order.getOrderId();
+            toStatus = order.getStatus().name();
+            for (PCModel model : order.getModels())
+            {
+                models++;
+                if (model instanceof CustomModel)
+                {
+                    parts += ((CustomModel) model).getPartIds().length;
+                }
+            }
+        }
+        commit();
+    }
+}
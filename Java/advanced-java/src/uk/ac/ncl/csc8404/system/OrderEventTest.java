@@ -0,0 +1,116 @@
+package uk.ac.ncl.csc8404.system;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.ac.ncl.csc8404.model.*;
+import uk.ac.ncl.csc8404.order.*;
+import uk.ac.ncl.csc8404.payment.*;
+import uk.ac.ncl.csc8404.user.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test
+ * This class tests the Flight Recorder events emitted for order
+ * operations and factory lookups.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+class OrderEventTest
+{
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testEventsRecorded() throws Exception
+    {
+        OrderSystem system = new OrderSystemImpl();
+        Customer customer = new CustomerImpl("Flight", "Recorder");
+        PCModel preset = new PresetModel("Jfr-1", "Maker", Arrays.asList("cpu"));
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.YEAR, 1);
+
+        Path file = dir.resolve("orders.jfr");
+        try (Recording recording = new Recording())
+        {
+            recording.enable(OrderEvent.class).withoutThreshold();
+            recording.enable("uk.ac.ncl.csc8404.ModelLookup").withoutThreshold();
+            recording.enable("uk.ac.ncl.csc8404.CardLookup").withoutThreshold();
+            recording.start();
+
+            CreditCard card = CreditCardFactory.getInstance("86000001", cal.getTime(), "Flight Recorder");
+            CreditCardFactory.getInstance("86000001", cal.getTime(), "Flight Recorder");
+            CreditCard expired = CreditCardFactory.getInstance("86000002", new Date(0), "Flight Recorder");
+            CustomModel custom = (CustomModel) CustomModelFactory.getInstance("JfrBuild");
+            CustomModelFactory.getInstance("JfrBuild");
+            custom.setParts(List.of("fan", "fan", "case"));
+
+            Order order = system.placeOrder(List.of(preset, custom), customer, card);
+            system.fulfillOrder(order);
+            assertThrows(IllegalStateException.class, () -> system.cancelOrder(order));
+            assertThrows(IllegalArgumentException.class, () -> system.placeOrder(List.of(preset), customer, expired));
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> orders = new ArrayList<>();
+        List<Boolean> modelHits = new ArrayList<>();
+        List<Boolean> cardHits = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file))
+        {
+            switch (event.getEventType().getName())
+            {
+                case "uk.ac.ncl.csc8404.OrderOperation":
+                    orders.add(event);
+                    break;
+                case "uk.ac.ncl.csc8404.ModelLookup":
+                    if (event.getString("modelName").equals("JfrBuild"))
+                    {
+                        modelHits.add(event.getBoolean("hit"));
+                    }
+                    break;
+                case "uk.ac.ncl.csc8404.CardLookup":
+                    cardHits.add(event.getBoolean("hit"));
+                    break;
+                default:
+                    break;
+            }
+        }
+        orders.sort((a, b) -> a.getStartTime().compareTo(b.getStartTime()));
+
+        assertEquals(4, orders.size());
+        assertOrderEvent(orders.get(0), "placeOrder", null, "PLACED", true);
+        assertEquals(2, orders.get(0).getInt("models"));
+        assertEquals(3, orders.get(0).getInt("parts"));
+        assertOrderEvent(orders.get(1), "fulfillOrder", "PLACED", "FULFILLED", true);
+        assertOrderEvent(orders.get(2), "cancelOrder", "FULFILLED", "FULFILLED", false);
+        assertOrderEvent(orders.get(3), "placeOrder", null, null, false);
+        assertEquals(0, orders.get(3).getLong("orderId"), "A rejected order has no id.");
+
+        assertEquals(List.of(false, true), modelHits);
+        assertEquals(3, cardHits.size());
+        assertEquals(1, cardHits.stream().filter(hit -> hit).count(), "Only the repeated card is a hit.");
+    }
+
+    private static void assertOrderEvent(RecordedEvent event, String operation, String from, String to,
+                                         boolean succeeded)
+    {
+        assertEquals(operation, event.getString("operation"));
+        assertEquals(from, event.getString("fromStatus"));
+        assertEquals(to, event.getString("toStatus"));
+        assertEquals(succeeded, event.getBoolean("succeeded"));
+    }
+}
@@ -0,0 +1,338 @@
+package uk.ac.ncl.csc8404.system;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal for an {@link OrderSystemImpl}.
+ * <p>
+ * Every record is framed as {@code [length][crc32][payload]} and written
+ * through a {@link FileChannel}. Appends use group commit: the first
+ * waiting thread writes and fsyncs everything appended so far in one go,
+ * while the others wait for it, so many concurrent orders share one
+ * fsync instead of paying for one each. An append returns only once its
+ * record is on disk.
+ * <p>
+ * When a journal is opened, a torn or corrupt record at the end (from a
+ * crash part way through a write) is cut off, and new records follow the
+ * last complete one.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+public final class OrderJournal implements Closeable
+{
+
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+
+    private final Path file;
+    private final FileChannel channel;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+
+    // Guarded by lock
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private long appended;
+    private long durable;
+    private boolean flushing;
+    private long position;
+    private long syncCount;
+    private IOException failure;
+
+    private OrderJournal(Path file, FileChannel channel, long position)
+    {
+        this.file = file;
+        this.channel = channel;
+        this.position = position;
+    }
+
+    /**
+     * Opens a journal file, creating it if it does not exist.
+     * Any incomplete record at the end of the file is removed.
+     *
+     * @param file the journal file.
+     * @return the open journal, positioned after its last complete record.
+     * @throws IOException if the file cannot be opened or repaired.
+     */
+    public static OrderJournal open(Path file) throws IOException
+    {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try
+        {
+            long end = scan(channel, 0, null);
+            if (end < channel.size())
+            {
+                channel.truncate(end);
+                channel.force(true);
+            }
+            channel.position(end);
+            return new OrderJournal(file, channel, end);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads every complete record from a position onwards, oldest first.
+     *
+     * @param from the byte position to start from, 0 for the whole journal.
+     * @param visitor called with the payload of each record.
+     * @throws IOException if the journal cannot be read.
+     */
+    void replay(long from, Consumer<ByteBuffer> visitor) throws IOException
+    {
+        scan(channel, from, visitor);
+    }
+
+    // Walks the records from a position and returns where the last complete one ends.
+    private static long scan(FileChannel channel, long from, Consumer<ByteBuffer> visitor) throws IOException
+    {
+        long size = channel.size();
+        long offset = from;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        CRC32 crc = new CRC32();
+
+        while (offset + HEADER_SIZE <= size)
+        {
+            header.clear();
+            readFully(channel, header, offset);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length <= 0 || length > MAX_RECORD_SIZE || offset + HEADER_SIZE + length > size)
+            {
+                break;
+            }
+
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(channel, payload, offset + HEADER_SIZE);
+            payload.flip();
+
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum)
+            {
+                break;
+            }
+
+            if (visitor != null)
+            {
+                visitor.accept(payload);
+            }
+            offset += HEADER_SIZE + length;
+        }
+        return offset;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, offset + buffer.position()) < 0)
+            {
+                throw new IOException("Unexpected end of journal.");
+            }
+        }
+    }
+
+    /**
+     * Appends a record and waits until it is durable.
+     *
+     * @param payload the encoded record.
+     * @throws UncheckedIOException if the journal could not be written.
+     */
+    void append(byte[] payload)
+    {
+        append(Collections.singletonList(payload));
+    }
+
+    /**
+     * Appends several records, in order, and waits once until all of them are durable.
+     *
+     * @param payloads the encoded records.
+     * @throws UncheckedIOException if the journal could not be written.
+     */
+    void append(List<byte[]> payloads)
+    {
+        int[] checksums = new int[payloads.size()];
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < checksums.length; i++)
+        {
+            crc.reset();
+            crc.update(payloads.get(i));
+            checksums[i] = (int) crc.getValue();
+        }
+
+        lock.lock();
+        try
+        {
+            checkOpen();
+            for (int i = 0; i < checksums.length; i++)
+            {
+                byte[] payload = payloads.get(i);
+                ensurePending(HEADER_SIZE + payload.length);
+                pending.putInt(payload.length).putInt(checksums[i]).put(payload);
+            }
+            long sequence = ++appended;
+
+            while (durable < sequence)
+            {
+                if (flushing)
+                {
+                    flushed.awaitUninterruptibly();
+                    checkOpen();
+                }
+                else
+                {
+                    flushPending();
+                }
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    // Called with the lock held; releases it while writing so others can queue up behind.
+    private void flushPending()
+    {
+        flushing = true;
+        ByteBuffer batch = pending;
+        long batchEnd = appended;
+        pending = ByteBuffer.allocate(batch.capacity());
+        lock.unlock();
+
+        IOException error = null;
+        long written = 0;
+        try
+        {
+            batch.flip();
+            while (batch.hasRemaining())
+            {
+                written += channel.write(batch);
+            }
+            channel.force(false);
+        }
+        catch (IOException e)
+        {
+            error = e;
+        }
+        finally
+        {
+            lock.lock();
+        }
+
+        flushing = false;
+        if (error != null)
+        {
+            failure = error;
+        }
+        else
+        {
+            durable = batchEnd;
+            position += written;
+            syncCount++;
+        }
+        flushed.signalAll();
+        checkOpen();
+    }
+
+    private void ensurePending(int needed)
+    {
+        if (pending.remaining() < needed)
+        {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + needed));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+    }
+
+    private void checkOpen()
+    {
+        if (failure != null)
+        {
+            throw new UncheckedIOException("Order journal " + file + " failed.", failure);
+        }
+        if (!channel.isOpen())
+        {
+            throw new IllegalStateException("Order journal " + file + " is closed.");
+        }
+    }
+
+    /**
+     * @return the byte position just after the last durable record.
+     */
+    public long position()
+    {
+        lock.lock();
+        try
+        {
+            return position;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return how many fsyncs have been made; lower than the record count when commits are grouped.
+     */
+    public long getSyncCount()
+    {
+        lock.lock();
+        try
+        {
+            return syncCount;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the journal file.
+     */
+    public Path getFile()
+    {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        lock.lock();
+        try
+        {
+            while (flushing)
+            {
+                flushed.awaitUninterruptibly();
+            }
+            channel.close();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package uk.ac.ncl.csc8404.system;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.ac.ncl.csc8404.model.*;
+import uk.ac.ncl.csc8404.order.*;
+import uk.ac.ncl.csc8404.payment.*;
+import uk.ac.ncl.csc8404.user.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test
+ * This class tests that an {@link OrderSystemImpl} backed by an
+ * {@link OrderJournal} can be rebuilt after a restart or a crash.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+class OrderJournalTest
+{
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+    private Customer customerAlice, customerBob;
+    private CreditCard cardAlice, cardBob;
+    private PCModel gamingPC, customPC;
+
+    @BeforeEach
+    void setUp()
+    {
+        file = directory.resolve("orders.journal");
+
+        customerAlice = new CustomerImpl("Alice", "Smith");
+        customerBob = new CustomerImpl("Bob", "Jones");
+
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.YEAR, 1);
+        Date validDate = cal.getTime();
+        cardAlice = CreditCardFactory.getInstance("11111111", validDate, "Alice Smith");
+        cardBob = CreditCardFactory.getInstance("22222222", validDate, "Bob Jones");
+
+        gamingPC = new PresetModel("GamerX", "BuildsRUs", Arrays.asList("i9-CPU", "4090-GPU"));
+        customPC = CustomModelFactory.getInstance("JournalBuild");
+        ((CustomModel) customPC).addPart("Journal-SSD");
+    }
+
+    @Test
+    void testRecoverOrderHistory() throws IOException
+    {
+        Order fulfilled, cancelled, placed;
+        try (OrderJournal journal = OrderJournal.open(file))
+        {
+            OrderSystem system = new OrderSystemImpl(journal);
+            fulfilled = system.placeOrder(List.of(gamingPC, customPC), customerAlice, cardAlice);
+            cancelled = system.placeOrder(List.of(gamingPC), customerBob, cardBob);
+            placed = system.placeOrder(List.of(customPC), customerBob, cardBob);
+            system.fulfillOrder(fulfilled);
+            system.cancelOrder(cancelled);
+        }
+
+        try (OrderJournal journal = OrderJournal.open(file))
+        {
+            OrderSystem recovered = new OrderSystemImpl(journal);
+            List<Order> history = recovered.getOrderHistory();
+            assertEquals(3, history.size(), "Every journaled order should be replayed.");
+
+            assertEquals(fulfilled.getOrderId(), history.get(0).getOrderId(), "Order ids should survive recovery.");
+            assertEquals(fulfilled.getOrderTime(), history.get(0).getOrderTime(), "Order times should survive recovery.");
+            assertEquals(OrderStatus.FULFILLED, history.get(0).getStatus());
+            assertEquals(OrderStatus.CANCELLED, history.get(1).getStatus());
+            assertEquals(OrderStatus.PLACED, history.get(2).getStatus());
+            assertEquals(placed.getOrderId(), history.get(2).getOrderId());
+
+            assertEquals(customerAlice, recovered.getLargestCustomer().getKey());
+            assertEquals(gamingPC, recovered.getMostOrderedModel().getKey());
+            assertEquals(1, recovered.getOrders(OrderStatus.PLACED).size());
+            assertSame(customPC, history.get(2).getModels().get(0), "Custom models should come from the factory.");
+            assertSame(cardBob, history.get(1).getCreditCard(), "Cards should come from the factory.");
+
+            // New orders continue after the recovered ones
+            Order next = recovered.placeOrder(List.of(gamingPC), customerAlice, cardAlice);
+            assertTrue(next.getOrderId() > placed.getOrderId(), "New order ids should not reuse recovered ones.");
+            recovered.fulfillOrder(history.get(2));
+        }
+
+        try (OrderJournal journal = OrderJournal.open(file))
+        {
+            OrderSystem recovered = new OrderSystemImpl(journal);
+            assertEquals(4, recovered.getOrderHistory().size());
+            assertEquals(OrderStatus.FULFILLED, recovered.getOrderHistory().get(2).getStatus());
+        }
+    }
+
+    @Test
+    void testTornTailIsTruncated() throws IOException
+    {
+        long intact;
+        try (OrderJournal journal = OrderJournal.open(file))
+        {
+            OrderSystem system = new OrderSystemImpl(journal);
+            Order order = system.placeOrder(List.of(gamingPC), customerAlice, cardAlice);
+            system.fulfillOrder(order);
+            intact = journal.position();
+        }
+
+        // Simulate a crash half way through writing another record
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND))
+        {
+            channel.write(ByteBuffer.allocate(12).putInt(200).putInt(42).putInt(7).flip());
+        }
+        assertEquals(intact + 12, Files.size(file));
+
+        try (OrderJournal journal = OrderJournal.open(file))
+        {
+            assertEquals(intact, Files.size(file), "The torn record should be cut off.");
+            OrderSystem recovered = new OrderSystemImpl(journal);
+            assertEquals(1, recovered.getOrderHistory().size());
+            assertEquals(OrderStatus.FULFILLED, recovered.getOrderHistory().get(0).getStatus());
+
+            recovered.placeOrder(List.of(gamingPC), customerBob, cardBob);
+        }
+
+        try (OrderJournal journal = OrderJournal.open(file))
+        {
+            assertEquals(2, new OrderSystemImpl(journal).getOrderHistory().size(),
+                    "Records written after the repair should be readable.");
+        }
+    }
+
+    @Test
+    void testReplayReportsPartsAsFulfilled() throws IOException
+    {
+        CustomModel refit = (CustomModel) CustomModelFactory.getInstance("JournalRefit");
+        refit.setParts(List.of("Refit-Fan", "Refit-Fan"));
+        try (OrderJournal journal = OrderJournal.open(file))
+        {
+            OrderSystem system = new OrderSystemImpl(journal);
+            system.fulfillOrder(system.placeOrder(List.of(refit), customerAlice, cardAlice));
+
+            // The build changes after the fulfillment, and a later order records the new parts
+            refit.setParts(List.of("Refit-Case"));
+            system.placeOrder(List.of(refit), customerBob, cardBob);
+        }
+
+        try (OrderJournal journal = OrderJournal.open(file))
+        {
+            OrderSystem recovered = new OrderSystemImpl(journal);
+            assertEquals(Map.entry("Refit-Fan", 2), recovered.getMostOrderedPart(),
+                    "Replay should report the parts the order was fulfilled with.");
+            assertEquals(1, recovered.getTopParts(10).size());
+        }
+    }
+
+    @Test
+    void testBatchFulfillmentIsJournaled() throws IOException
+    {
+        List<Order> batch = new ArrayList<>();
+        try (OrderJournal journal = OrderJournal.open(file))
+        {
+            OrderSystemImpl system = new OrderSystemImpl(journal);
+            for (int i = 0; i < 600; i++)
+            {
+                batch.add(system.placeOrder(List.of(gamingPC), customerAlice, cardAlice));
+            }
+            batch.add(batch.get(0));
+            BatchFulfillmentResult result = system.fulfillOrders(batch);
+            assertEquals(600, result.getFulfilledCount());
+            assertEquals(1, result.getFailures().size());
+
+            // A second batch reuses the system's pool
+            Order late = system.placeOrder(List.of(gamingPC), customerAlice, cardAlice);
+            assertEquals(1, system.fulfillOrders(List.of(late)).getFulfilledCount());
+
+            system.close();
+            assertThrows(IllegalStateException.class, () -> system.fulfillOrders(List.of(late)),
+                    "A closed system should not start a new pool.");
+        }
+
+        try (OrderJournal journal = OrderJournal.open(file))
+        {
+            OrderSystem recovered = new OrderSystemImpl(journal);
+            assertEquals(601, recovered.getOrders(OrderStatus.FULFILLED).size());
+            assertEquals(601, recovered.getMostOrderedModel().getValue());
+        }
+    }
+
+    @Test
+    void testConcurrentAppendsShareSyncs() throws Exception
+    {
+        int threads = 8;
+        int ordersPerThread = 50;
+        try (OrderJournal journal = OrderJournal.open(file))
+        {
+            OrderSystem system = new OrderSystemImpl(journal);
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            Future<?>[] futures = new Future<?>[threads];
+            for (int t = 0; t < threads; t++)
+            {
+                futures[t] = executor.submit(() -> {
+                    for (int i = 0; i < ordersPerThread; i++)
+                    {
+                        system.placeOrder(List.of(gamingPC), customerAlice, cardAlice);
+                    }
+                });
+            }
+            for (Future<?> future : futures)
+            {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+
+            assertEquals(threads * ordersPerThread, system.getOrderHistory().size());
+            assertTrue(journal.getSyncCount() < threads * ordersPerThread,
+                    "Concurrent appends should be committed in groups.");
+        }
+
+        try (OrderJournal journal = OrderJournal.open(file))
+        {
+            assertEquals(threads * ordersPerThread, new OrderSystemImpl(journal).getOrderHistory().size());
+        }
+    }
+
+    @Test
+    void testImportedOrdersAreJournaledInOneSync() throws IOException
+    {
+        Order fulfilled = new OrderImpl(List.of(gamingPC), customerAlice, cardAlice, 1_000L);
+        fulfilled.fulfill();
+        Order cancelled = new OrderImpl(List.of(gamingPC), customerBob, cardBob, 2_000L);
+        cancelled.cancel();
+        Order placed = new OrderImpl(List.of(gamingPC), customerBob, cardBob, 3_000L);
+
+        try (OrderJournal journal = OrderJournal.open(file))
+        {
+            OrderSystem system = new OrderSystemImpl(journal);
+            system.importOrders(List.of(fulfilled, cancelled, placed));
+            assertEquals(1, journal.getSyncCount(), "A batch should be committed with a single sync.");
+        }
+
+        try (OrderJournal journal = OrderJournal.open(file))
+        {
+            OrderSystem recovered = new OrderSystemImpl(journal);
+            List<Order> history = recovered.getOrderHistory();
+            assertEquals(3, history.size());
+            assertEquals(fulfilled.getOrderId(), history.get(0).getOrderId());
+            assertEquals(placed.getOrderId(), history.get(2).getOrderId());
+            assertEquals(OrderStatus.FULFILLED, history.get(0).getStatus());
+            assertEquals(OrderStatus.CANCELLED, history.get(1).getStatus());
+            assertEquals(OrderStatus.PLACED, history.get(2).getStatus());
+            assertEquals(1_000L, history.get(0).getOrderTime(), "Original times should survive recovery.");
+            assertEquals(customerAlice, recovered.getLargestCustomer().getKey());
+        }
+    }
+
+    @Test
+    void testClosedJournalRejectsAppends() throws IOException
+    {
+        OrderJournal journal = OrderJournal.open(file);
+        OrderSystem system = new OrderSystemImpl(journal);
+        Order toFulfill = system.placeOrder(List.of(gamingPC, customPC), customerAlice, cardAlice);
+        Order toCancel = system.placeOrder(List.of(gamingPC), customerAlice, cardAlice);
+        journal.close();
+        assertThrows(IllegalStateException.class,
+                () -> system.placeOrder(List.of(gamingPC), customerAlice, cardAlice));
+
+        // A change that cannot be written must not happen at all
+        assertThrows(IllegalStateException.class, () -> system.fulfillOrder(toFulfill));
+        assertThrows(IllegalStateException.class, () -> system.cancelOrder(toCancel));
+        assertEquals(OrderStatus.PLACED, toFulfill.getStatus());
+        assertEquals(OrderStatus.PLACED, toCancel.getStatus());
+        assertEquals(2, system.getOrders(OrderStatus.PLACED).size());
+        assertTrue(system.getOrders(OrderStatus.FULFILLED).isEmpty());
+        assertEquals(2, system.getOrderCountFor(customerAlice, OrderStatus.PLACED));
+        assertNull(system.getMostOrderedModel(), "Nothing was fulfilled.");
+        assertNull(system.getMostOrderedPart());
+    }
+}
@@ -0,0 +1,327 @@
+package uk.ac.ncl.csc8404.system;
+
+import uk.ac.ncl.csc8404.order.Order;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Append-only order history that is safe for concurrent writers and readers.
+ * Orders are stored in fixed-size segments, so an append never copies
+ * earlier orders. Writers claim a slot with a single atomic increment and
+ * fill it; readers only see the gap-free prefix of filled slots.
+ * <p>
+ * Each writer publishes its own slot. After filling it, a writer moves the
+ * published size over every filled slot it finds, its own and those of
+ * later writers, so one writer can publish a whole run of appends and
+ * writers never take turns. An append still returns only once its order is
+ * published, so the caller's own order is visible to readers as soon as
+ * its append returns. If an earlier writer is descheduled between claiming
+ * and filling its slot (a single store), later appends wait for it, but
+ * they wait by reading the size rather than by competing to update it.
+ * <p>
+ * The list itself is read-only, orders are added with {@link #append(Order)}.
+ * As published orders never change, a spliterator covers a fixed prefix
+ * and reads the segments directly.
+ * <p>
+ * Each order also has a sequence number: its position among every order
+ * appended to this log and to the logs it was copied from with
+ * {@link #without(Set)}. Unlike its position, an order's sequence number
+ * does not change when earlier orders are removed.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+final class OrderLog extends AbstractList<Order> implements RandomAccess
+{
+
+    private static final int SEGMENT_SHIFT = 12;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Order[].class);
+
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final AtomicInteger published = new AtomicInteger();
+
+    private volatile Order[][] segments = new Order[16][];
+
+    // Sequence numbers of the orders carried over by without(); later ones follow from the position
+    private final long[] carried;
+    private final long sequenceOffset;
+
+    /**
+     * Creates an empty log, numbering orders from zero.
+     */
+    OrderLog()
+    {
+        this(new long[0], 0);
+    }
+
+    private OrderLog(long[] carried, long sequenceOffset)
+    {
+        this.carried = carried;
+        this.sequenceOffset = sequenceOffset;
+    }
+
+    /**
+     * Adds an order to the end of the log.
+     *
+     * @param order the order to add.
+     * @return the position of the order in the log.
+     * @throws IllegalArgumentException if the order is null.
+     */
+    int append(Order order)
+    {
+        if (order == null)
+        {
+            throw new IllegalArgumentException("Order cannot be null."); // An empty slot is never published
+        }
+        int index = reserved.getAndIncrement();
+        if (index < 0)
+        {
+            throw new IllegalStateException("Order log is full.");
+        }
+
+        SLOT.setVolatile(segmentFor(index), index & SEGMENT_MASK, order);
+
+        // Publish every filled slot, waiting only while an earlier slot is still empty.
+        int spins = 0;
+        while (publishFilled() <= index)
+        {
+            if (++spins % 64 == 0)
+            {
+                Thread.yield();
+            }
+            else
+            {
+                Thread.onSpinWait();
+            }
+        }
+        return index;
+    }
+
+    // Moves the published size past each filled slot and returns the size reached.
+    private int publishFilled()
+    {
+        int next = published.get();
+        while (isFilled(next))
+        {
+            if (published.compareAndSet(next, next + 1))
+            {
+                next++;
+            }
+            else
+            {
+                next = published.get();
+            }
+        }
+        return next;
+    }
+
+    private boolean isFilled(int index)
+    {
+        if (index < 0) // Past the last slot
+        {
+            return false;
+        }
+        int segment = index >>> SEGMENT_SHIFT;
+        Order[][] current = segments;
+        return segment < current.length && current[segment] != null
+                && SLOT.getVolatile(current[segment], index & SEGMENT_MASK) != null;
+    }
+
+    private Order[] segmentFor(int index)
+    {
+        int segment = index >>> SEGMENT_SHIFT;
+        Order[][] current = segments;
+        if (segment < current.length && current[segment] != null)
+        {
+            return current[segment];
+        }
+        return allocateSegment(segment);
+    }
+
+    // Only runs once every SEGMENT_SIZE appends.
+    private synchronized Order[] allocateSegment(int segment)
+    {
+        Order[][] current = segments;
+        if (segment >= current.length)
+        {
+            Order[][] grown = new Order[Math.max(current.length * 2, segment + 1)][];
+            System.arraycopy(current, 0, grown, 0, current.length);
+            current = grown;
+        }
+        if (current[segment] == null)
+        {
+            current[segment] = new Order[SEGMENT_SIZE];
+        }
+        segments = current;
+        return current[segment];
+    }
+
+    /**
+     * @param index a position in the log, at most its size.
+     * @return the sequence number of the order at the position, or at the
+     * size, the number the next order appended will have.
+     */
+    long sequenceOf(int index)
+    {
+        return index < carried.length ? carried[index] : index + sequenceOffset;
+    }
+
+    /**
+     * @param sequence a sequence number.
+     * @param size the size of the log as read by the caller.
+     * @return the position of the first order numbered at least the given
+     * sequence number, or size if there is none.
+     */
+    int positionOf(long sequence, int size)
+    {
+        if (carried.length > 0 && sequence <= carried[carried.length - 1])
+        {
+            int found = Arrays.binarySearch(carried, sequence);
+            return found >= 0 ? found : -found - 1;
+        }
+        return (int) Math.min(size, Math.max(carried.length, sequence - sequenceOffset));
+    }
+
+    /**
+     * Copies the log, leaving some orders out. The orders kept keep their
+     * sequence numbers, and orders appended to the copy are numbered after
+     * every order appended to this log. Nothing may be appended to this log
+     * while it is copied.
+     *
+     * @param removed the orders to leave out, compared by identity or equality as the set does.
+     * @return the copy.
+     */
+    OrderLog without(Set<Order> removed)
+    {
+        int size = size();
+        long[] keptSequences = new long[size];
+        int kept = 0;
+        for (int i = 0; i < size; i++)
+        {
+            if (!removed.contains(get(i)))
+            {
+                keptSequences[kept++] = sequenceOf(i);
+            }
+        }
+        OrderLog copy = new OrderLog(Arrays.copyOf(keptSequences, kept), sequenceOf(size) - kept);
+        for (int i = 0; i < size; i++)
+        {
+            Order order = get(i);
+            if (!removed.contains(order))
+            {
+                copy.append(order);
+            }
+        }
+        return copy;
+    }
+
+    @Override
+    public Order get(int index)
+    {
+        if (index < 0 || index >= published.get())
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        return segments[index >>> SEGMENT_SHIFT][index & SEGMENT_MASK];
+    }
+
+    @Override
+    public int size()
+    {
+        return published.get();
+    }
+
+    @Override
+    public Spliterator<Order> spliterator()
+    {
+        // Read the size first: every segment it covers is then visible.
+        int size = published.get();
+        return new LogSpliterator(segments, 0, size);
+    }
+
+    /**
+     * Splits on segment boundaries where it can, so each half walks
+     * whole arrays.
+     */
+    private static final class LogSpliterator implements Spliterator<Order>
+    {
+        private final Order[][] segments;
+        private int index;
+        private final int fence;
+
+        LogSpliterator(Order[][] segments, int index, int fence)
+        {
+            this.segments = segments;
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Order> action)
+        {
+            if (index >= fence)
+            {
+                return false;
+            }
+            action.accept(segments[index >>> SEGMENT_SHIFT][index & SEGMENT_MASK]);
+            index++;
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Order> action)
+        {
+            int i = index;
+            index = fence;
+            while (i < fence)
+            {
+                Order[] segment = segments[i >>> SEGMENT_SHIFT];
+                int end = Math.min(fence, (i | SEGMENT_MASK) + 1);
+                for (int slot = i & SEGMENT_MASK; i < end; i++, slot++)
+                {
+                    action.accept(segment[slot]);
+                }
+            }
+        }
+
+        @Override
+        public Spliterator<Order> trySplit()
+        {
+            int mid = (index + fence) >>> 1;
+            if ((mid & ~SEGMENT_MASK) > index)
+            {
+                mid &= ~SEGMENT_MASK;
+            }
+            if (mid <= index)
+            {
+                return null;
+            }
+            LogSpliterator prefix = new LogSpliterator(segments, index, mid);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize()
+        {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics()
+        {
+            return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+    }
+}
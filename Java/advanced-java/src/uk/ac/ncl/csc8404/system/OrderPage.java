@@ -0,0 +1,176 @@
+package uk.ac.ncl.csc8404.system;
+
+import uk.ac.ncl.csc8404.order.Order;
+import uk.ac.ncl.csc8404.order.OrderStatus;
+import uk.ac.ncl.csc8404.user.Customer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * One page of orders read with {@link OrderSystem#getOrderPage}.
+ * The continuation token records where the page ended, so the next page
+ * can be read later, including orders placed in between.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+public final class OrderPage
+{
+
+    private final List<Order> orders;
+    private final String nextToken;
+    private final boolean more;
+
+    private OrderPage(List<Order> orders, String nextToken, boolean more)
+    {
+        this.orders = orders;
+        this.nextToken = nextToken;
+        this.more = more;
+    }
+
+    /**
+     * @param status   the status to match, or null for any status.
+     * @param customer the customer to match, or null for every customer.
+     * @return a filter for {@link #read}, or null if every order matches.
+     */
+    static Predicate<Order> matching(OrderStatus status, Customer customer)
+    {
+        if (customer == null)
+        {
+            return status == null ? null : order -> order.getStatus() == status;
+        }
+        return order -> (status == null || order.getStatus() == status) && customer.equals(order.getCustomer());
+    }
+
+    /**
+     * Reads a page of matching orders from a list that only grows at the end.
+     * The token is the position after the last order looked at, followed by
+     * that order's id, which is checked so a token is never silently applied
+     * to a list that has changed underneath it. Only the orders from the
+     * token onwards are looked at, one at a time, so the source should be a
+     * view rather than a list built for each page.
+     *
+     * @param source   the orders to page through, in order.
+     * @param pageSize the most orders to return.
+     * @param token    the token of the previous page, or null for the first page.
+     * @param filter   the orders to return, or null for every order.
+     */
+    static OrderPage read(List<Order> source, int pageSize, String token, Predicate<Order> filter)
+    {
+        if (pageSize <= 0)
+        {
+            throw new IllegalArgumentException("Page size must be positive.");
+        }
+
+        int position = positionOf(source, token);
+        int end = source.size();
+        List<Order> orders = new ArrayList<>(Math.min(pageSize, end - position));
+        while (position < end && orders.size() < pageSize)
+        {
+            Order order = source.get(position++);
+            if (filter == null || filter.test(order))
+            {
+                orders.add(order);
+            }
+        }
+        String next = position == 0 ? "0" : position + "." + source.get(position - 1).getOrderId();
+        return new OrderPage(Collections.unmodifiableList(orders), next, position < end);
+    }
+
+    /**
+     * @param orders the orders in the page.
+     * @param next   the sequence number to continue from.
+     * @param more   whether any order was numbered from next onwards when the page was read.
+     * @return a page whose token is a sequence number, as read by {@link OrderArchive#page}.
+     */
+    static OrderPage ofSequence(List<Order> orders, long next, boolean more)
+    {
+        return new OrderPage(Collections.unmodifiableList(orders), Long.toString(next), more);
+    }
+
+    /**
+     * @param token a token from {@link #ofSequence}, or null for the first page.
+     * @return the sequence number to continue from.
+     * @throws IllegalArgumentException if the token is not a sequence number.
+     */
+    static long sequenceOf(String token)
+    {
+        if (token == null)
+        {
+            return 0;
+        }
+        long sequence;
+        try
+        {
+            sequence = Long.parseLong(token);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Invalid continuation token: " + token, e);
+        }
+        if (sequence < 0)
+        {
+            throw new IllegalArgumentException("Invalid continuation token: " + token);
+        }
+        return sequence;
+    }
+
+    private static int positionOf(List<Order> source, String token)
+    {
+        if (token == null || token.equals("0"))
+        {
+            return 0;
+        }
+
+        int position;
+        long orderId;
+        try
+        {
+            int dot = token.indexOf('.');
+            position = Integer.parseInt(token.substring(0, Math.max(dot, 0)));
+            orderId = Long.parseLong(token.substring(dot + 1));
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Invalid continuation token: " + token, e);
+        }
+        if (position <= 0)
+        {
+            throw new IllegalArgumentException("Invalid continuation token: " + token);
+        }
+        if (position > source.size() || source.get(position - 1).getOrderId() != orderId)
+        {
+            throw new IllegalStateException("Orders have moved since the continuation token was issued.");
+        }
+        return position;
+    }
+
+    /**
+     * @return the orders in this page, oldest first, at most the page size.
+     */
+    public List<Order> getOrders()
+    {
+        return orders;
+    }
+
+    /**
+     * @return the token to pass to read the next page. It is never null,
+     * so a page that reached the end can still be continued once more
+     * orders have been placed.
+     */
+    public String getNextToken()
+    {
+        return nextToken;
+    }
+
+    /**
+     * @return true if there were more orders left to look at when this page was read.
+     */
+    public boolean hasMore()
+    {
+        return more;
+    }
+}
@@ -0,0 +1,536 @@
+package uk.ac.ncl.csc8404.system;
+
+import uk.ac.ncl.csc8404.model.CustomModelFactory;
+import uk.ac.ncl.csc8404.model.PCModel;
+import uk.ac.ncl.csc8404.model.PresetModel;
+import uk.ac.ncl.csc8404.order.Order;
+import uk.ac.ncl.csc8404.order.OrderImpl;
+import uk.ac.ncl.csc8404.order.OrderStatus;
+import uk.ac.ncl.csc8404.payment.CreditCard;
+import uk.ac.ncl.csc8404.payment.CreditCardFactory;
+import uk.ac.ncl.csc8404.user.Customer;
+import uk.ac.ncl.csc8404.user.CustomerImpl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Point-in-time image of an {@link OrderSystemImpl}, written so a restart
+ * only has to replay the journal records that came after it.
+ * <p>
+ * Customers, cards, models and part names are written once each in shared
+ * tables, and every order refers to them by index, so an order costs a few
+ * dozen bytes. The customer and model counters are stored too, derived
+ * from the very statuses that were written, so they always agree with the
+ * orders. Part counts are taken from the system as of the journal position,
+ * since a custom model may have changed since its orders were fulfilled;
+ * replaying the FULFILL records after that position adds the rest.
+ * <p>
+ * The file is written next to its destination and moved into place once
+ * complete, and it carries a CRC32 of its body, so a crash while writing
+ * leaves the previous snapshot untouched.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+final class OrderSnapshot
+{
+
+    private static final int MAGIC = 0x4F534E50; // "OSNP"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final long journalPosition;
+    private final Order[] orders;
+    private final boolean ascending;
+    private final Map<Customer, Integer> customerSales;
+    private final Map<PCModel, Integer> modelSales;
+    private final Map<String, Integer> partSales;
+
+    private Order[] byId;
+
+    private OrderSnapshot(long journalPosition, Order[] orders, boolean ascending, Map<Customer, Integer> customerSales,
+                          Map<PCModel, Integer> modelSales, Map<String, Integer> partSales)
+    {
+        this.journalPosition = journalPosition;
+        this.orders = orders;
+        this.ascending = ascending;
+        this.customerSales = customerSales;
+        this.modelSales = modelSales;
+        this.partSales = partSales;
+    }
+
+    /**
+     * Writes a snapshot. Each order's status is read exactly once, so an order
+     * changing while the snapshot is written is recorded either before or after
+     * the change. The caller must make sure that every change journaled before
+     * journalPosition has been applied, so the snapshot never holds an order in
+     * a status that a record it skips has already changed.
+     *
+     * @param file the snapshot file, replaced atomically.
+     * @param journalPosition the journal position every given order was placed before.
+     * @param orders the orders to write, in history order.
+     * @param partSales the count of each part in the orders fulfilled before journalPosition.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    static void write(Path file, long journalPosition, List<Order> orders, Map<String, Integer> partSales)
+            throws IOException
+    {
+        Tables tables = new Tables();
+        int[] partCounts = tables.partCounts(partSales);
+        for (CreditCard card : CreditCardFactory.getInstances())
+        {
+            tables.cardRef(card);
+        }
+        for (PCModel model : CustomModelFactory.getInstances())
+        {
+            tables.modelRef(model);
+        }
+        for (Order order : orders)
+        {
+            tables.customerRef(order.getCustomer());
+            tables.cardRef(order.getCreditCard());
+            for (PCModel model : order.getModels())
+            {
+                tables.modelRef(model);
+            }
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            channel.position(HEADER_SIZE);
+            CheckedOutputStream checked = new CheckedOutputStream(Channels.newOutputStream(channel), new CRC32());
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(checked, BUFFER_SIZE));
+
+            out.writeLong(journalPosition);
+            tables.write(out);
+            writeOrders(out, orders, tables);
+            writeCounts(out, partCounts);
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC).putInt(VERSION).putLong(checked.getChecksum().getValue());
+            header.flip();
+            while (header.hasRemaining())
+            {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Writes the orders, and the customer and model counters for the statuses as written.
+    private static void writeOrders(DataOutputStream out, List<Order> orders, Tables tables) throws IOException
+    {
+        int[] customerCounts = new int[tables.customers.size()];
+        int[] presetCounts = new int[tables.presets.size()];
+
+        out.writeInt(orders.size());
+        for (Order order : orders)
+        {
+            OrderStatus status = order.getStatus();
+            int customer = tables.customerRef(order.getCustomer());
+            List<PCModel> models = order.getModels();
+
+            out.writeLong(order.getOrderId());
+            out.writeLong(order.getOrderTime());
+            out.writeByte(status.ordinal());
+            out.writeInt(customer);
+            out.writeInt(tables.cardRef(order.getCreditCard()));
+            out.writeInt(models.size());
+            for (PCModel model : models)
+            {
+                int ref = tables.modelRef(model);
+                out.writeInt(ref);
+
+                if (status == OrderStatus.FULFILLED && ref < tables.presets.size())
+                {
+                    presetCounts[ref]++;
+                }
+            }
+            if (status == OrderStatus.FULFILLED)
+            {
+                customerCounts[customer]++;
+            }
+        }
+
+        writeCounts(out, customerCounts);
+        writeCounts(out, presetCounts);
+    }
+
+    private static void writeCounts(DataOutputStream out, int[] counts) throws IOException
+    {
+        int nonZero = 0;
+        for (int count : counts)
+        {
+            nonZero += count == 0 ? 0 : 1;
+        }
+        out.writeInt(nonZero);
+        for (int i = 0; i < counts.length; i++)
+        {
+            if (counts[i] != 0)
+            {
+                out.writeInt(i);
+                out.writeInt(counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads a snapshot, registering its cards and custom models with the factories.
+     *
+     * @param file the snapshot file.
+     * @return the snapshot.
+     * @throws IOException if the file cannot be read, or is not a complete snapshot.
+     */
+    static OrderSnapshot read(Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining())
+            {
+                if (channel.read(header, header.position()) < 0)
+                {
+                    throw new IOException("Snapshot " + file + " is truncated.");
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION)
+            {
+                throw new IOException(file + " is not an order snapshot.");
+            }
+            // Checked before anything is decoded, so a damaged file leaves the factories alone
+            if (checksum(channel) != header.getLong())
+            {
+                throw new IOException("Snapshot " + file + " is corrupt.");
+            }
+
+            channel.position(HEADER_SIZE);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+            long journalPosition = in.readLong();
+
+            String[] parts = new String[in.readInt()];
+            for (int i = 0; i < parts.length; i++)
+            {
+                parts[i] = in.readUTF();
+            }
+            CreditCard[] cards = new CreditCard[in.readInt()];
+            for (int i = 0; i < cards.length; i++)
+            {
+                cards[i] = JournalCodec.readCard(in);
+            }
+            Customer[] customers = new Customer[in.readInt()];
+            for (int i = 0; i < customers.length; i++)
+            {
+                customers[i] = new CustomerImpl(in.readUTF(), in.readUTF());
+            }
+            PCModel[] models = new PCModel[in.readInt()];
+            int presetCount = in.readInt();
+            for (int i = 0; i < models.length; i++)
+            {
+                String name = in.readUTF();
+                String manufacturer = i < presetCount ? in.readUTF() : null;
+                List<String> modelParts = new ArrayList<>();
+                for (int p = in.readInt(); p > 0; p--)
+                {
+                    modelParts.add(parts[in.readInt()]);
+                }
+                models[i] = i < presetCount
+                        ? new PresetModel(name, manufacturer, modelParts)
+                        : JournalCodec.restoreCustom(name, modelParts);
+            }
+
+            Order[] orders = new Order[in.readInt()];
+            OrderStatus[] statuses = OrderStatus.values();
+            boolean ascending = true;
+            for (int i = 0; i < orders.length; i++)
+            {
+                long orderId = in.readLong();
+                long orderTime = in.readLong();
+                OrderStatus status = statuses[in.readByte()];
+                Customer customer = customers[in.readInt()];
+                CreditCard card = cards[in.readInt()];
+                PCModel[] orderModels = new PCModel[in.readInt()];
+                for (int m = 0; m < orderModels.length; m++)
+                {
+                    orderModels[m] = models[in.readInt()];
+                }
+
+                Order order = new OrderImpl(orderId, Arrays.asList(orderModels), customer, card, orderTime);
+                if (status == OrderStatus.CANCELLED)
+                {
+                    order.cancel();
+                }
+                else if (status == OrderStatus.FULFILLED)
+                {
+                    order.fulfill();
+                }
+                ascending &= i == 0 || orders[i - 1].getOrderId() < orderId;
+                orders[i] = order;
+            }
+
+            return new OrderSnapshot(journalPosition, orders, ascending, readCounts(in, customers),
+                    readCounts(in, models), readCounts(in, parts));
+        }
+    }
+
+    private static <T> Map<T, Integer> readCounts(DataInputStream in, T[] table) throws IOException
+    {
+        int size = in.readInt();
+        Map<T, Integer> counts = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++)
+        {
+            counts.put(table[in.readInt()], in.readInt());
+        }
+        return counts;
+    }
+
+    private static long checksum(FileChannel channel) throws IOException
+    {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE * 16);
+        long offset = HEADER_SIZE;
+        int read;
+        while ((read = channel.read(buffer, offset)) >= 0)
+        {
+            buffer.flip();
+            crc.update(buffer);
+            buffer.clear();
+            offset += read;
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * @return the journal position to replay from.
+     */
+    long getJournalPosition()
+    {
+        return journalPosition;
+    }
+
+    /**
+     * @return the orders, in history order, already in their recorded status.
+     */
+    Order[] getOrders()
+    {
+        return orders;
+    }
+
+    /**
+     * @return fulfilled orders per customer.
+     */
+    Map<Customer, Integer> getCustomerSales()
+    {
+        return customerSales;
+    }
+
+    /**
+     * @return fulfilled orders per preset model.
+     */
+    Map<PCModel, Integer> getModelSales()
+    {
+        return modelSales;
+    }
+
+    /**
+     * @return custom parts ordered per part name.
+     */
+    Map<String, Integer> getPartSales()
+    {
+        return partSales;
+    }
+
+    /**
+     * Looks up a snapshot order by number, for journal records written after the snapshot.
+     *
+     * @param orderId the order number.
+     * @return the order, or null if it is not in the snapshot.
+     */
+    Order find(long orderId)
+    {
+        if (byId == null)
+        {
+            // Histories built by one thread are already in number order
+            byId = ascending ? orders : orders.clone();
+            if (!ascending)
+            {
+                Arrays.sort(byId, Comparator.comparingLong(Order::getOrderId));
+            }
+        }
+
+        int low = 0;
+        int high = byId.length - 1;
+        while (low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            long id = byId[middle].getOrderId();
+            if (id < orderId)
+            {
+                low = middle + 1;
+            }
+            else if (id > orderId)
+            {
+                high = middle - 1;
+            }
+            else
+            {
+                return byId[middle];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The shared tables that orders refer to by index. Preset models come
+     * first in the model table, followed by every other model.
+     */
+    private static final class Tables
+    {
+        private final Map<String, Integer> partRefs = new HashMap<>();
+        private final List<String> parts = new ArrayList<>();
+        private final Map<CreditCard, Integer> cardRefs = new IdentityHashMap<>();
+        private final List<CreditCard> cards = new ArrayList<>();
+        private final Map<Customer, Integer> customerRefs = new HashMap<>();
+        private final List<Customer> customers = new ArrayList<>();
+        private final Map<PCModel, Integer> presetRefs = new HashMap<>();
+        private final List<PresetModel> presets = new ArrayList<>();
+        private final Map<PCModel, Integer> customRefs = new IdentityHashMap<>();
+        private final List<PCModel> customs = new ArrayList<>();
+        private final List<int[]> customParts = new ArrayList<>();
+
+        int cardRef(CreditCard card)
+        {
+            return refOf(cardRefs, cards, card);
+        }
+
+        int customerRef(Customer customer)
+        {
+            return refOf(customerRefs, customers, customer);
+        }
+
+        int modelRef(PCModel model)
+        {
+            if (model instanceof PresetModel)
+            {
+                return refOf(presetRefs, presets, (PresetModel) model);
+            }
+            Integer ref = customRefs.get(model);
+            if (ref == null)
+            {
+                // Parts are read once, so every order refers to the same list
+                ref = customs.size();
+                customRefs.put(model, ref);
+                customs.add(model);
+                customParts.add(partRefs(model.getParts()));
+            }
+            return presetRefs.size() + ref;
+        }
+
+        // Counts indexed by part reference
+        int[] partCounts(Map<String, Integer> partSales)
+        {
+            for (String part : partSales.keySet())
+            {
+                refOf(partRefs, parts, part);
+            }
+            int[] counts = new int[parts.size()];
+            partSales.forEach((part, count) -> counts[partRefs.get(part)] = count);
+            return counts;
+        }
+
+        private int[] partRefs(List<String> names)
+        {
+            int[] refs = new int[names.size()];
+            for (int i = 0; i < refs.length; i++)
+            {
+                refs[i] = refOf(partRefs, parts, names.get(i));
+            }
+            return refs;
+        }
+
+        private static <T> int refOf(Map<? super T, Integer> refs, List<T> table, T item)
+        {
+            Integer ref = refs.get(item);
+            if (ref == null)
+            {
+                ref = table.size();
+                refs.put(item, ref);
+                table.add(item);
+            }
+            return ref;
+        }
+
+        void write(DataOutputStream out) throws IOException
+        {
+            List<int[]> presetParts = new ArrayList<>(presets.size());
+            for (PresetModel preset : presets)
+            {
+                presetParts.add(partRefs(preset.getParts()));
+            }
+
+            out.writeInt(parts.size());
+            for (String part : parts)
+            {
+                out.writeUTF(part);
+            }
+            out.writeInt(cards.size());
+            for (CreditCard card : cards)
+            {
+                JournalCodec.writeCard(out, card);
+            }
+            out.writeInt(customers.size());
+            for (Customer customer : customers)
+            {
+                JournalCodec.writeCustomer(out, customer);
+            }
+
+            out.writeInt(presets.size() + customs.size());
+            out.writeInt(presets.size());
+            for (int i = 0; i < presets.size(); i++)
+            {
+                out.writeUTF(presets.get(i).getName());
+                out.writeUTF(presets.get(i).getManufacturer());
+                writeRefs(out, presetParts.get(i));
+            }
+            for (int i = 0; i < customs.size(); i++)
+            {
+                out.writeUTF(customs.get(i).getName());
+                writeRefs(out, customParts.get(i));
+            }
+        }
+
+        private static void writeRefs(DataOutputStream out, int[] refs) throws IOException
+        {
+            out.writeInt(refs.length);
+            for (int ref : refs)
+            {
+                out.writeInt(ref);
+            }
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package uk.ac.ncl.csc8404.system;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.ac.ncl.csc8404.model.*;
+import uk.ac.ncl.csc8404.order.*;
+import uk.ac.ncl.csc8404.payment.*;
+import uk.ac.ncl.csc8404.user.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test
+ * This class tests that an {@link OrderSystemImpl} can be restarted from
+ * a snapshot plus the journal records written after it.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+class OrderSnapshotTest
+{
+
+    // Startup target for the large history test: ten million orders in under a minute
+    private static final int LARGE_HISTORY = 10_000_000;
+    private static final long LARGE_STARTUP_MILLIS = 60_000;
+
+    @TempDir
+    Path directory;
+
+    private Path journalFile, snapshotFile;
+    private Customer customerAlice, customerBob;
+    private CreditCard cardAlice, cardBob;
+    private PCModel gamingPC, officePC, customPC;
+
+    @BeforeEach
+    void setUp()
+    {
+        journalFile = directory.resolve("orders.journal");
+        snapshotFile = directory.resolve("orders.snapshot");
+
+        customerAlice = new CustomerImpl("Alice", "Smith");
+        customerBob = new CustomerImpl("Bob", "Jones");
+
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.YEAR, 1);
+        Date validDate = cal.getTime();
+        cardAlice = CreditCardFactory.getInstance("11111111", validDate, "Alice Smith");
+        cardBob = CreditCardFactory.getInstance("22222222", validDate, "Bob Jones");
+
+        gamingPC = new PresetModel("GamerX", "BuildsRUs", Arrays.asList("i9-CPU", "4090-GPU"));
+        officePC = new PresetModel("OfficePal", "Dell", Arrays.asList("i5-CPU", "Onboard-GPU"));
+        customPC = CustomModelFactory.getInstance("SnapshotBuild");
+        for (String part : customPC.getParts())
+        {
+            ((CustomModel) customPC).removePart(part);
+        }
+        ((CustomModel) customPC).addPart("Snapshot-SSD");
+        ((CustomModel) customPC).addPart("Snapshot-SSD");
+    }
+
+    @Test
+    void testRestartFromSnapshotAndJournalTail() throws IOException
+    {
+        Order beforeFulfilled, beforePlaced, beforeCancelled, after;
+        try (OrderJournal journal = OrderJournal.open(journalFile))
+        {
+            OrderSystemImpl system = new OrderSystemImpl(journal);
+            beforeFulfilled = system.placeOrder(List.of(gamingPC, customPC), customerAlice, cardAlice);
+            beforePlaced = system.placeOrder(List.of(officePC), customerBob, cardBob);
+            beforeCancelled = system.placeOrder(List.of(officePC), customerBob, cardBob);
+            system.fulfillOrder(beforeFulfilled);
+
+            system.checkpoint(snapshotFile);
+            assertTrue(Files.exists(snapshotFile));
+
+            // Changes after the snapshot only exist in the journal
+            after = system.placeOrder(List.of(officePC), customerBob, cardBob);
+            system.fulfillOrder(beforePlaced);
+            system.fulfillOrder(after);
+            system.cancelOrder(beforeCancelled);
+        }
+
+        try (OrderJournal journal = OrderJournal.open(journalFile))
+        {
+            OrderSystem recovered = new OrderSystemImpl(journal, snapshotFile);
+            List<Order> history = recovered.getOrderHistory();
+            assertEquals(4, history.size(), "Snapshot orders and journal tail orders should both be restored.");
+            assertEquals(beforeFulfilled.getOrderId(), history.get(0).getOrderId());
+            assertEquals(after.getOrderId(), history.get(3).getOrderId());
+            assertEquals(after.getOrderTime(), history.get(3).getOrderTime());
+
+            assertEquals(OrderStatus.FULFILLED, history.get(0).getStatus());
+            assertEquals(OrderStatus.FULFILLED, history.get(1).getStatus(), "A tail transition should apply to a snapshot order.");
+            assertEquals(OrderStatus.CANCELLED, history.get(2).getStatus());
+            assertEquals(OrderStatus.FULFILLED, history.get(3).getStatus());
+
+            // Counters come from the snapshot and the tail without counting anything twice
+            assertEquals(customerBob, recovered.getLargestCustomer().getKey());
+            assertEquals(2, recovered.getLargestCustomer().getValue());
+            assertEquals(officePC, recovered.getMostOrderedModel().getKey());
+            assertEquals(2, recovered.getMostOrderedModel().getValue());
+            assertEquals("Snapshot-SSD", recovered.getMostOrderedPart().getKey());
+            assertEquals(2, recovered.getMostOrderedPart().getValue());
+
+            assertEquals(1, recovered.getOrderCountFor(customerBob, OrderStatus.CANCELLED));
+            assertEquals(0, recovered.getOrders(OrderStatus.PLACED).size());
+            assertSame(customPC, history.get(0).getModels().get(1), "Custom models should come from the factory.");
+        }
+    }
+
+    @Test
+    void testSnapshotKeepsPartsAsFulfilled() throws IOException
+    {
+        CustomModel refit = (CustomModel) CustomModelFactory.getInstance("SnapshotRefit");
+        refit.setParts(List.of("Refit-Fan", "Refit-Fan"));
+        List<Map.Entry<String, Integer>> topParts;
+        try (OrderJournal journal = OrderJournal.open(journalFile))
+        {
+            OrderSystemImpl system = new OrderSystemImpl(journal);
+            system.fulfillOrder(system.placeOrder(List.of(refit), customerAlice, cardAlice));
+            refit.setParts(List.of("Refit-Case")); // Changed after the fulfillment
+            system.checkpoint(snapshotFile);
+            topParts = system.getTopParts(10);
+        }
+
+        try (OrderJournal journal = OrderJournal.open(journalFile))
+        {
+            OrderSystem recovered = new OrderSystemImpl(journal, snapshotFile);
+            assertEquals(List.of(Map.entry("Refit-Fan", 2)), topParts);
+            assertEquals(topParts, recovered.getTopParts(10), "Parts should be restored as they were fulfilled.");
+        }
+    }
+
+    @Test
+    void testCheckpointWhileOrdersArePlaced() throws Exception
+    {
+        int threads = 4;
+        AtomicBoolean running = new AtomicBoolean(true);
+        OrderSystemImpl system;
+        try (OrderJournal journal = OrderJournal.open(journalFile))
+        {
+            system = new OrderSystemImpl(journal);
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            Future<?>[] futures = new Future<?>[threads];
+            for (int t = 0; t < threads; t++)
+            {
+                int id = t;
+                futures[t] = executor.submit(() -> {
+                    for (int i = 0; running.get() || i < 20; i++)
+                    {
+                        Order order = system.placeOrder(List.of(gamingPC, customPC),
+                                id % 2 == 0 ? customerAlice : customerBob, id % 2 == 0 ? cardAlice : cardBob);
+                        if (i % 3 == 0)
+                        {
+                            system.cancelOrder(order);
+                        }
+                        else if (i % 3 == 1)
+                        {
+                            system.fulfillOrder(order);
+                        }
+                    }
+                });
+            }
+
+            for (int i = 0; i < 5; i++)
+            {
+                system.checkpoint(snapshotFile);
+            }
+            running.set(false);
+            for (Future<?> future : futures)
+            {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+        }
+
+        try (OrderJournal journal = OrderJournal.open(journalFile))
+        {
+            OrderSystem recovered = new OrderSystemImpl(journal, snapshotFile);
+            assertEquals(system.getOrderHistory().size(), recovered.getOrderHistory().size());
+            for (OrderStatus status : OrderStatus.values())
+            {
+                assertEquals(system.getOrders(status).size(), recovered.getOrders(status).size(),
+                        "Recovered " + status + " orders should match.");
+            }
+            assertEquals(system.getLargestCustomer(), recovered.getLargestCustomer());
+            assertEquals(system.getMostOrderedModel(), recovered.getMostOrderedModel());
+            assertEquals(system.getMostOrderedPart(), recovered.getMostOrderedPart());
+        }
+    }
+
+    @Test
+    void testCheckpointWhileOrderIsFulfilled() throws Exception
+    {
+        CountDownLatch applying = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        Order order = new PausingOrder(new OrderImpl(List.of(gamingPC), customerAlice, cardAlice), applying, resume);
+        try (OrderJournal journal = OrderJournal.open(journalFile))
+        {
+            OrderSystemImpl system = new OrderSystemImpl(journal);
+            system.importOrders(List.of(order));
+
+            // The FULFILL record is durable, but the status has not changed yet
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            Future<?> fulfilling = executor.submit(() -> system.fulfillOrder(order));
+            assertTrue(applying.await(10, TimeUnit.SECONDS));
+            Future<?> checkpoint = executor.submit(() -> {
+                system.checkpoint(snapshotFile);
+                return null;
+            });
+            Thread.sleep(100);
+            resume.countDown();
+            fulfilling.get(10, TimeUnit.SECONDS);
+            checkpoint.get(10, TimeUnit.SECONDS);
+            executor.shutdown();
+        }
+
+        try (OrderJournal journal = OrderJournal.open(journalFile))
+        {
+            OrderSystem recovered = new OrderSystemImpl(journal, snapshotFile);
+            assertEquals(OrderStatus.FULFILLED, recovered.getOrderHistory().get(0).getStatus(),
+                    "A change journaled before the checkpoint should not be lost.");
+            assertEquals(1, recovered.getMostOrderedModel().getValue());
+        }
+    }
+
+    @Test
+    void testCorruptSnapshotIsRejected() throws IOException
+    {
+        try (OrderJournal journal = OrderJournal.open(journalFile))
+        {
+            OrderSystemImpl system = new OrderSystemImpl(journal);
+            system.placeOrder(List.of(gamingPC), customerAlice, cardAlice);
+            system.checkpoint(snapshotFile);
+        }
+
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.WRITE))
+        {
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) 0xFF}), channel.size() - 1);
+        }
+
+        try (OrderJournal journal = OrderJournal.open(journalFile))
+        {
+            assertThrows(IOException.class, () -> new OrderSystemImpl(journal, snapshotFile));
+        }
+    }
+
+    @Test
+    void testMissingSnapshotReplaysWholeJournal() throws IOException
+    {
+        try (OrderJournal journal = OrderJournal.open(journalFile))
+        {
+            new OrderSystemImpl(journal).placeOrder(List.of(gamingPC), customerAlice, cardAlice);
+        }
+        try (OrderJournal journal = OrderJournal.open(journalFile))
+        {
+            assertEquals(1, new OrderSystemImpl(journal, snapshotFile).getOrderHistory().size());
+        }
+    }
+
+    /**
+     * Run with {@code mvn test -P large-tests}; needs a heap of a few gigabytes.
+     */
+    @Test
+    @Tag("large")
+    void testLargeHistoryStartup() throws IOException
+    {
+        OrderSystemImpl system = new OrderSystemImpl();
+        for (int i = 0; i < LARGE_HISTORY; i++)
+        {
+            Order order = system.placeOrder(List.of(i % 2 == 0 ? gamingPC : customPC),
+                    i % 3 == 0 ? customerAlice : customerBob, i % 3 == 0 ? cardAlice : cardBob);
+            if (i % 4 == 0)
+            {
+                system.fulfillOrder(order);
+            }
+        }
+        Map.Entry<Customer, Integer> largestCustomer = system.getLargestCustomer();
+        system.checkpoint(snapshotFile);
+        system = null;
+        System.gc();
+
+        try (OrderJournal journal = OrderJournal.open(journalFile))
+        {
+            long start = System.nanoTime();
+            OrderSystemImpl recovered = new OrderSystemImpl(journal, snapshotFile);
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            System.out.println("Started " + LARGE_HISTORY + " orders from a snapshot in " + elapsedMillis + " ms");
+
+            assertEquals(LARGE_HISTORY, recovered.getOrderHistory().size());
+            assertEquals(largestCustomer, recovered.getLargestCustomer());
+            assertTrue(elapsedMillis < LARGE_STARTUP_MILLIS,
+                    "Startup took " + elapsedMillis + " ms, the target is " + LARGE_STARTUP_MILLIS + " ms.");
+        }
+    }
+
+    /**
+     * An order that pauses while its status is being changed to fulfilled.
+     */
+    private static final class PausingOrder implements Order
+    {
+        private final Order order;
+        private final CountDownLatch applying;
+        private final CountDownLatch resume;
+
+        PausingOrder(Order order, CountDownLatch applying, CountDownLatch resume)
+        {
+            this.order = order;
+            this.applying = applying;
+            this.resume = resume;
+        }
+
+        @Override
+        public long getOrderId()
+        {
+            return order.getOrderId();
+        }
+
+        @Override
+        public List<PCModel> getModels()
+        {
+            return order.getModels();
+        }
+
+        @Override
+        public Customer getCustomer()
+        {
+            return order.getCustomer();
+        }
+
+        @Override
+        public CreditCard getCreditCard()
+        {
+            return order.getCreditCard();
+        }
+
+        @Override
+        public Date getOrderDate()
+        {
+            return order.getOrderDate();
+        }
+
+        @Override
+        public long getOrderTime()
+        {
+            return order.getOrderTime();
+        }
+
+        @Override
+        public OrderStatus getStatus()
+        {
+            return order.getStatus();
+        }
+
+        @Override
+        public void fulfill()
+        {
+            applying.countDown();
+            try
+            {
+                resume.await(10, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            order.fulfill();
+        }
+
+        @Override
+        public void cancel()
+        {
+            order.cancel();
+        }
+    }
+}
@@ -2,9 +2,12 @@ package uk.ac.ncl.csc8404.system;
 
 import uk.ac.ncl.csc8404.model.PCModel;
 import uk.ac.ncl.csc8404.order.Order;
+import uk.ac.ncl.csc8404.order.OrderStatus;
 import uk.ac.ncl.csc8404.payment.CreditCard;
 import uk.ac.ncl.csc8404.user.Customer;
 
+import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -33,7 +36,7 @@ public interface OrderSystem
      * Cancels an existing order.
      *
      * @param order The order to be cancelled.
-     * @throws IllegalStateException if the order has already been fulfilled.
+     * @throws IllegalStateException if the order has already been fulfilled or cancelled.
      */
     void cancelOrder(Order order);
 
@@ -47,6 +50,29 @@ public interface OrderSystem
      */
     FulfillmentResult fulfillOrder(Order order);
 
+    /**
+     * Adds orders that were placed outside this system, such as historical
+     * orders being migrated, keeping their order times and their current
+     * statuses. Cards are not checked for validity, as a historical order may
+     * well have been paid with a card that has since expired. Imported
+     * fulfilled orders count towards the reports.
+     *
+     * @param orders The orders to add, in the order they were placed.
+     * @throws IllegalArgumentException if orders is null or contains null.
+     */
+    void importOrders(Collection<Order> orders);
+
+    /**
+     * Fulfills a batch of orders, in parallel for large batches.
+     * An order that cannot be fulfilled is reported in the result
+     * and does not stop the rest of the batch.
+     *
+     * @param orders The orders to be fulfilled.
+     * @return The combined fulfillment of every order that was fulfilled,
+     * with its maps sorted by name, and the orders that failed.
+     */
+    BatchFulfillmentResult fulfillOrders(Collection<Order> orders);
+
     /**
      * Customer with the highest number of fulfilled orders.
      *
@@ -63,15 +89,184 @@ public interface OrderSystem
 
     /**
      * Gets the most ordered part in custom models across all fulfilled orders.
+     * Parts are counted as each order is fulfilled, so later changes to a
+     * custom model do not change the report.
      *
      * @return A map entry containing the most popular part with order count.
      */
     Map.Entry<String, Integer> getMostOrderedPart();
 
+    /**
+     * Gets the customers with the most fulfilled orders.
+     *
+     * @param k The number of customers to return.
+     * @return Up to k entries of customer and fulfilled order count, highest first,
+     * with equal counts in alphabetical order of full name.
+     * @throws IllegalArgumentException if k is not positive.
+     */
+    List<Map.Entry<Customer, Integer>> getTopCustomers(int k);
+
+    /**
+     * Gets the most ordered preset models across all fulfilled orders.
+     *
+     * @param k The number of models to return.
+     * @return Up to k entries of preset model and order count, highest first,
+     * with equal counts in alphabetical order of name.
+     * @throws IllegalArgumentException if k is not positive.
+     */
+    List<Map.Entry<PCModel, Integer>> getTopModels(int k);
+
+    /**
+     * Gets the most ordered parts in custom models across all fulfilled orders.
+     *
+     * @param k The number of parts to return.
+     * @return Up to k entries of part and order count, highest first,
+     * with equal counts in alphabetical order.
+     * @throws IllegalArgumentException if k is not positive.
+     */
+    List<Map.Entry<String, Integer>> getTopParts(int k);
+
+    /**
+     * Gets the most ordered preset models across all fulfilled orders, with
+     * bounds on each count. Systems that count approximately, in fixed
+     * memory, report how far each count may be off; otherwise the counts
+     * are exact and their error is zero.
+     *
+     * @param k The number of models to return.
+     * @return Up to k preset models, highest estimated count first,
+     * with equal counts in alphabetical order of name.
+     * @throws IllegalArgumentException if k is not positive.
+     */
+    List<HeavyHitter<PCModel>> getApproximateTopModels(int k);
+
+    /**
+     * Gets the most ordered parts in custom models across all fulfilled
+     * orders, with bounds on each count, as for {@link #getApproximateTopModels(int)}.
+     *
+     * @param k The number of parts to return.
+     * @return Up to k parts, highest estimated count first, with equal counts in alphabetical order.
+     * @throws IllegalArgumentException if k is not positive.
+     */
+    List<HeavyHitter<String>> getApproximateTopParts(int k);
+
+    /**
+     * Gets the most ordered preset model across orders fulfilled within a
+     * recent window, such as the last hour. The window is measured to the
+     * nearest minute.
+     *
+     * @param window How far back to look, up to 24 hours.
+     * @return A map entry containing the most popular preset model with order count,
+     * or null if no preset model was fulfilled in the window.
+     * @throws IllegalArgumentException if window is null, not positive or longer than 24 hours.
+     */
+    Map.Entry<PCModel, Integer> getTrendingModel(Duration window);
+
+    /**
+     * Gets the most ordered part in custom models across orders fulfilled
+     * within a recent window, as for {@link #getTrendingModel(Duration)}.
+     *
+     * @param window How far back to look, up to 24 hours.
+     * @return A map entry containing the most popular part with order count, or null if none.
+     * @throws IllegalArgumentException if window is null, not positive or longer than 24 hours.
+     */
+    Map.Entry<String, Integer> getTrendingPart(Duration window);
+
+    /**
+     * Customer with the highest number of fulfilled orders placed in a time range.
+     *
+     * @param fromMillis Start of the range in epoch milliseconds, inclusive.
+     * @param toMillis   End of the range in epoch milliseconds, exclusive.
+     * @return A map entry containing customer with highest fulfilled order count,
+     * or null if no order in the range is fulfilled.
+     * @throws IllegalArgumentException if fromMillis is after toMillis.
+     */
+    Map.Entry<Customer, Integer> getLargestCustomer(long fromMillis, long toMillis);
+
+    /**
+     * Gets the most ordered preset model across fulfilled orders placed in a time range.
+     *
+     * @param fromMillis Start of the range in epoch milliseconds, inclusive.
+     * @param toMillis   End of the range in epoch milliseconds, exclusive.
+     * @return A map entry containing the most popular preset model with order count, or null if none.
+     * @throws IllegalArgumentException if fromMillis is after toMillis.
+     */
+    Map.Entry<PCModel, Integer> getMostOrderedModel(long fromMillis, long toMillis);
+
+    /**
+     * Gets the most ordered part in custom models across fulfilled orders placed in a time range.
+     * Unlike {@link #getMostOrderedPart()}, the parts are read from the orders'
+     * custom models when the report runs, so a model changed since its orders
+     * were fulfilled is counted with its current parts.
+     *
+     * @param fromMillis Start of the range in epoch milliseconds, inclusive.
+     * @param toMillis   End of the range in epoch milliseconds, exclusive.
+     * @return A map entry containing the most popular part with order count, or null if none.
+     * @throws IllegalArgumentException if fromMillis is after toMillis.
+     */
+    Map.Entry<String, Integer> getMostOrderedPart(long fromMillis, long toMillis);
+
+    /**
+     * Returns the orders placed in a time range, oldest first.
+     *
+     * @param fromMillis Start of the range in epoch milliseconds, inclusive.
+     * @param toMillis   End of the range in epoch milliseconds, exclusive.
+     * @return A new list of the orders in the range.
+     * @throws IllegalArgumentException if fromMillis is after toMillis.
+     */
+    List<Order> getOrdersBetween(long fromMillis, long toMillis);
+
+    /**
+     * Returns the orders currently in a given status.
+     * The cost depends only on the number of orders in that status.
+     *
+     * @param status The status to look up.
+     * @return A live, unmodifiable view of the orders in that status, in no particular order.
+     * @throws IllegalArgumentException if status is null.
+     */
+    Collection<Order> getOrders(OrderStatus status);
+
+    /**
+     * Returns every order placed by a customer, in the order they were placed.
+     * Customers are matched by name, so an equal customer object finds the same orders.
+     *
+     * @param customer The customer to look up.
+     * @return A live, unmodifiable view of the customer's orders, empty if there are none.
+     * @throws IllegalArgumentException if customer is null.
+     */
+    List<Order> getOrdersFor(Customer customer);
+
+    /**
+     * Counts a customer's orders that are currently in a given status.
+     *
+     * @param customer The customer to look up.
+     * @param status   The status to count.
+     * @return The number of matching orders.
+     * @throws IllegalArgumentException if customer or status is null.
+     */
+    int getOrderCountFor(Customer customer, OrderStatus status);
+
     /**
      * Returns a view of the entire order history.
+     * Its spliterator is SIZED and SUBSIZED, covering the orders placed
+     * before it was created, so a parallel stream over the history splits
+     * evenly without copying it.
      * @return An unmodifiable list of all orders placed.
      */
     List<Order> getOrderHistory();
 
-}
\ No newline at end of file
+    /**
+     * Reads the order history a page at a time, in the order placed.
+     * Pass the token of each page to read the next one; the filters must
+     * be the same for every page.
+     *
+     * @param pageSize          The most orders to return.
+     * @param continuationToken The token of the previous page, or null for the first page.
+     * @param status            Only return orders in this status, or null for any status.
+     * @param customer          Only return this customer's orders, or null for every customer.
+     * @return The page of orders and the token to continue from.
+     * @throws IllegalArgumentException if pageSize is not positive or the token is malformed.
+     * @throws IllegalStateException if the token no longer matches the orders it was read from.
+     */
+    OrderPage getOrderPage(int pageSize, String continuationToken, OrderStatus status, Customer customer);
+
+}
@@ -3,79 +3,627 @@ package uk.ac.ncl.csc8404.system;
 import uk.ac.ncl.csc8404.model.*;
 import uk.ac.ncl.csc8404.order.*;
 import uk.ac.ncl.csc8404.payment.*;
+import uk.ac.ncl.csc8404.system.OrderSystemMetrics.Operation;
 import uk.ac.ncl.csc8404.user.*;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.AbstractMap;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
 /**
  * An implementation of the {@link OrderSystem} interface.
  * It manages the entire order history and provides the business logic
  * for processing and analyzing orders.
+ * <p>
+ * The system is safe to share between threads. Orders are appended to a
+ * lock-free history, status changes rely on the atomic transitions in
+ * {@link OrderImpl}, and the report counters are concurrent, so placing,
+ * cancelling and fulfilling orders never takes a system-wide lock.
+ * <p>
+ * A system built with an {@link OrderJournal} writes every change to it
+ * before the change is visible, and rebuilds itself (and the model and
+ * card factories) from the journal when it is constructed. Periodic
+ * snapshots ({@link #checkpoint(Path)}) keep that replay short. Its batch
+ * fulfillments run on a pool of its own, which {@link #close()} stops.
+ * <p>
+ * A system built with an archive directory keeps only recent orders on
+ * the heap: {@link #archive()} moves old, finished orders to compressed
+ * files, which the queries and reports read back transparently.
  *
  * @author Swapnil Sagar
  * @version 1.0
  */
-public final class OrderSystemImpl implements OrderSystem
+public final class OrderSystemImpl implements OrderSystem, AutoCloseable
 {
 
-    private final List<Order> orderHistory = new ArrayList<>();
+    // Ties in the reports are broken alphabetically
+    private static final Comparator<Customer> BY_FULL_NAME = Comparator.comparing(Customer::getFullName);
+    private static final Comparator<PCModel> BY_MODEL_NAME = Comparator.comparing(PCModel::getName);
+
+    private static final long NOT_TRENDING = Long.MIN_VALUE;
+
+    // Replaced, without the archived orders, when orders move to the archive
+    private volatile OrderLog orderHistory = new OrderLog();
+    private final StatusIndex ordersByStatus = new StatusIndex();
+    private final TimeIndex ordersByTime = new TimeIndex();
+    private final CustomerIndex ordersByCustomer = new CustomerIndex();
+
+    // Running counters for the reports, updated as orders are fulfilled.
+    private final SalesTally<Customer> customerSales = new SalesTally<>(BY_FULL_NAME);
+    private final SalesTally<PCModel> modelSales = new SalesTally<>(BY_MODEL_NAME);
+    private final PartTally partSales = new PartTally();
+
+    // Fixed-size summaries that replace modelSales and partSales when counting approximately
+    private final SpaceSaving<PCModel> approximateModelSales;
+    private final SpaceSaving<String> approximatePartSales;
+
+    // Recent sales for the trending reports, by fulfilment time. Not rebuilt on recovery,
+    // as the journal does not record when orders were fulfilled.
+    private final TrendingCounter<PCModel> trendingModels = new TrendingCounter<>(BY_MODEL_NAME);
+    private final TrendingCounter<String> trendingParts = new TrendingCounter<>(Comparator.<String>naturalOrder());
+
+    private final OrderSystemMetrics metrics = new OrderSystemMetrics(this::historySize);
+
+    private final OrderJournal journal;
+    private final OrderArchive archive;
+    private volatile Inventory inventory;
+
+    // Runs journaled batches, whose fulfillments block on syncs; created by the first one
+    private final Object poolLock = new Object();
+    private volatile ForkJoinPool blockingPool;
+    private boolean closed; // Guarded by poolLock
+
+    // Placing a journaled order holds this shared; a checkpoint holds it exclusively,
+    // so the journal position and history size it reads describe the same orders.
+    // In a system that archives, every change to the indexes holds it shared, and
+    // moving orders to the archive holds it exclusively.
+    private final ReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+
+    /**
+     * Constructs an in-memory order system.
+     */
+    public OrderSystemImpl()
+    {
+        this.journal = null;
+        this.archive = null;
+        this.approximateModelSales = null;
+        this.approximatePartSales = null;
+    }
+
+    /**
+     * Constructs an in-memory order system that counts preset models and
+     * parts approximately, in counters that do not grow with the number of
+     * distinct models or parts ordered. Every model and part report,
+     * including {@link #getMostOrderedModel()} and {@link #getTopParts(int)},
+     * is then an estimate that may be above the true count by up to
+     * maxError times the total counted. Customer reports and time-range
+     * reports stay exact.
+     * <p>
+     * This bounds the report counters only. Custom models still store their
+     * parts as ids from the {@link PartDictionary}, which keeps every part
+     * name it has seen, and the order history and trending counters grow as
+     * in the exact mode. The counters are updated under a lock, so
+     * concurrent fulfillments take turns to count their sales.
+     *
+     * @param maxError the most an estimate may exceed the true count by, as a fraction of the total.
+     * @throws IllegalArgumentException if maxError is not between 0 and 1, exclusive, or is too small.
+     */
+    public OrderSystemImpl(double maxError)
+    {
+        this.journal = null;
+        this.archive = null;
+        this.approximateModelSales = new SpaceSaving<>(maxError);
+        this.approximatePartSales = new SpaceSaving<>(maxError);
+    }
+
+    /**
+     * Constructs an in-memory order system that keeps only recent orders on
+     * the heap. Each call to {@link #archive()} moves fulfilled and cancelled
+     * orders older than the retention period into compressed segment files
+     * in archiveDirectory. The history, status, customer and time-range
+     * queries and reports still include archived orders, reading them back
+     * from disk as needed; the running reports are not affected at all.
+     * Orders still waiting to be fulfilled are never archived.
+     *
+     * @param archiveDirectory the directory for segment files, created if needed.
+     * @param retention how old an order must be before it is archived.
+     * @throws IOException if the directory cannot be created.
+     * @throws IllegalArgumentException if archiveDirectory or retention is null, retention
+     *                                  is negative, or the directory already holds segments.
+     */
+    public OrderSystemImpl(Path archiveDirectory, Duration retention) throws IOException
+    {
+        if (archiveDirectory == null || retention == null || retention.isNegative())
+        {
+            throw new IllegalArgumentException("Archive directory and a non-negative retention are required.");
+        }
+        this.journal = null;
+        this.archive = new OrderArchive(archiveDirectory, windowMillis(retention));
+        this.approximateModelSales = null;
+        this.approximatePartSales = null;
+    }
+
+    /**
+     * Constructs an order system backed by a journal, first replaying
+     * every order already recorded in it.
+     *
+     * @param journal the journal to recover from and write to.
+     * @throws IOException if the journal cannot be read.
+     * @throws IllegalArgumentException if journal is null.
+     */
+    public OrderSystemImpl(OrderJournal journal) throws IOException
+    {
+        this(journal, null);
+    }
+
+    /**
+     * Constructs an order system backed by a journal, starting from a
+     * snapshot written by {@link #checkpoint(Path)} and replaying only the
+     * journal records written after it. If the snapshot file does not
+     * exist the whole journal is replayed.
+     *
+     * @param journal the journal to recover from and write to.
+     * @param snapshotFile the latest snapshot, or null to replay the whole journal.
+     * @throws IOException if the journal or the snapshot cannot be read.
+     * @throws IllegalArgumentException if journal is null.
+     */
+    public OrderSystemImpl(OrderJournal journal, Path snapshotFile) throws IOException
+    {
+        if (journal == null)
+        {
+            throw new IllegalArgumentException("Order journal cannot be null.");
+        }
+        OrderSnapshot snapshot = null;
+        if (snapshotFile != null && Files.exists(snapshotFile))
+        {
+            snapshot = OrderSnapshot.read(snapshotFile);
+            restore(snapshot);
+        }
+        replay(journal, snapshot);
+        this.journal = journal;
+        this.archive = null;
+        this.approximateModelSales = null;
+        this.approximatePartSales = null;
+    }
+
+    private void restore(OrderSnapshot snapshot)
+    {
+        for (Order order : snapshot.getOrders())
+        {
+            orderHistory.append(order);
+            ordersByStatus.restored(order);
+            ordersByTime.add(order);
+            ordersByCustomer.restored(order);
+        }
+        snapshot.getCustomerSales().forEach(customerSales::add);
+        snapshot.getModelSales().forEach(modelSales::add);
+        snapshot.getPartSales().forEach((part, count) -> partSales.add(PartDictionary.idOf(part), count));
+    }
+
+    private void replay(OrderJournal source, OrderSnapshot snapshot) throws IOException
+    {
+        JournalCodec codec = new JournalCodec();
+        Map<Long, Order> replayed = new HashMap<>();
+
+        // Records after the snapshot may repeat changes it already holds; those are skipped.
+        source.replay(snapshot == null ? 0 : snapshot.getJournalPosition(), payload -> {
+            byte type = JournalCodec.typeOf(payload);
+            if (type == JournalCodec.PLACE)
+            {
+                Order order = codec.decodePlace(payload);
+                boolean known = snapshot != null && snapshot.find(order.getOrderId()) != null;
+                if (!known && replayed.putIfAbsent(order.getOrderId(), order) == null)
+                {
+                    register(order);
+                }
+                return;
+            }
+
+            // A transition is only written for a placed order, so anything else is skipped
+            long orderId = JournalCodec.orderIdOf(payload);
+            Order order = replayed.get(orderId);
+            if (order == null && snapshot != null)
+            {
+                order = snapshot.find(orderId);
+                if (order != null && type == JournalCodec.FULFILL && order.getStatus() == OrderStatus.FULFILLED)
+                {
+                    // Fulfilled after the snapshot's part counts were taken, but before its status was read
+                    PartCounter parts = JournalCodec.fulfilledParts(payload);
+                    addPartSales(parts != null ? parts : partsOf(order));
+                    return;
+                }
+            }
+            if (order == null || order.getStatus() != OrderStatus.PLACED)
+            {
+                return;
+            }
+            if (type == JournalCodec.CANCEL)
+            {
+                order.cancel();
+                recordCancellation(order);
+            }
+            else if (type == JournalCodec.FULFILL)
+            {
+                order.fulfill();
+                PartCounter parts = JournalCodec.fulfilledParts(payload);
+                recordFulfillment(order, parts != null ? parts : partsOf(order), NOT_TRENDING);
+            }
+        });
+    }
+
+    /**
+     * Writes a snapshot of the whole system (orders, report counters, and the
+     * card and custom model factories) that a later
+     * {@link #OrderSystemImpl(OrderJournal, Path)} can start from.
+     * Orders keep being placed, cancelled and fulfilled while the snapshot
+     * is written; placing and status changes are only paused for the moment
+     * it takes to note the journal position and history size. Without a
+     * journal, changes made while the snapshot is written may be left out. Call it periodically, for example
+     * from a {@link java.util.concurrent.ScheduledExecutorService}, to bound
+     * how much of the journal a restart has to replay.
+     *
+     * @param snapshotFile the file to write, replaced atomically.
+     * @throws IOException if the snapshot cannot be written.
+     * @throws IllegalArgumentException if snapshotFile is null.
+     * @throws IllegalStateException if the system archives orders.
+     */
+    public void checkpoint(Path snapshotFile) throws IOException
+    {
+        if (snapshotFile == null)
+        {
+            throw new IllegalArgumentException("Snapshot file cannot be null.");
+        }
+        if (archive != null)
+        {
+            throw new IllegalStateException("A system that archives orders cannot be checkpointed.");
+        }
+
+        long journalPosition;
+        int size;
+        Map<String, Integer> parts;
+        checkpointLock.writeLock().lock();
+        try
+        {
+            journalPosition = journal == null ? 0 : journal.position();
+            size = orderHistory.size();
+            parts = partSales.counts(); // As fulfilled, which the orders alone no longer tell
+        }
+        finally
+        {
+            checkpointLock.writeLock().unlock();
+        }
+        OrderSnapshot.write(snapshotFile, journalPosition, orderHistory.subList(0, size), parts);
+    }
+
+
+    /**
+     * @return the latencies and counters of this order system's operations.
+     */
+    public OrderSystemMetrics getMetrics()
+    {
+        return metrics;
+    }
 
 
     @Override
     public Order placeOrder(List<PCModel> models, Customer customer, CreditCard creditCard)
+    {
+        long start = System.nanoTime();
+        OrderEvent event = new OrderEvent();
+        event.begin();
+        Order order = null;
+        try
+        {
+            order = place(models, customer, creditCard);
+            return order;
+        }
+        finally
+        {
+            metrics.record(Operation.PLACE_ORDER, start);
+            event.finish("placeOrder", order, null, order != null);
+        }
+    }
+
+    private Order place(List<PCModel> models, Customer customer, CreditCard creditCard)
     {
         if (!creditCard.isValid())
         {
+            metrics.invalidCardRejected();
             throw new IllegalArgumentException("Cannot place order with an invalid credit card.");
         }
         Order order = new OrderImpl(models, customer, creditCard);
-        orderHistory.add(order);
+        if (journal == null && archive == null)
+        {
+            register(order);
+            return order;
+        }
+
+        byte[] record = journal == null ? null : JournalCodec.encodePlace(order);
+        checkpointLock.readLock().lock();
+        try
+        {
+            if (record != null)
+            {
+                journal.append(record);
+            }
+            register(order);
+        }
+        finally
+        {
+            checkpointLock.readLock().unlock();
+        }
         return order;
     }
 
+    // Holds the order's monitor, so a status change through this system cannot start
+    // until every index has the order; the history, which anyone can read, comes last.
+    private void register(Order order)
+    {
+        synchronized (order)
+        {
+            ordersByStatus.placed(order);
+            ordersByTime.add(order);
+            ordersByCustomer.placed(order);
+            orderHistory.append(order);
+        }
+    }
+
 
     @Override
     public void cancelOrder(Order order)
+    {
+        long start = System.nanoTime();
+        OrderEvent event = new OrderEvent();
+        event.begin();
+        OrderStatus fromStatus = order == null ? null : order.getStatus();
+        boolean succeeded = false;
+        try
+        {
+            cancel(order);
+            succeeded = true;
+        }
+        catch (IllegalStateException e)
+        {
+            metrics.illegalTransitionRejected();
+            throw e;
+        }
+        finally
+        {
+            metrics.record(Operation.CANCEL_ORDER, start);
+            event.finish("cancelOrder", order, fromStatus, succeeded);
+        }
+    }
+
+    private void cancel(Order order)
     {
         if (order.getStatus() == OrderStatus.FULFILLED)
         {
             throw new IllegalStateException("Cannot cancel an order that has already been fulfilled.");
         }
-        order.cancel();
+        Lock guard = statusGuard();
+        try
+        {
+            transition(order, JournalCodec.CANCEL, null, order::cancel); // Only one of two racing calls can succeed
+            recordCancellation(order);
+        }
+        finally
+        {
+            release(guard);
+        }
+    }
+
+    // Changes to one order are serialised on its monitor, after register() has released it.
+    // With a journal the record is written before the status changes, so a failed write
+    // leaves the order as it was, and of two racing changes only the applied one is written.
+    // A fulfillment also records the parts it is reported with.
+    private void transition(Order order, byte type, PartCounter parts, Runnable change)
+    {
+        synchronized (order)
+        {
+            if (journal != null && order.getStatus() == OrderStatus.PLACED)
+            {
+                journal.append(type == JournalCodec.FULFILL
+                        ? JournalCodec.encodeFulfill(order.getOrderId(), parts)
+                        : JournalCodec.encodeTransition(type, order.getOrderId()));
+            }
+            change.run(); // Throws if the order is no longer placed
+        }
+    }
+
+    // A status change must not overlap moving orders to the archive, nor a checkpoint noting
+    // the journal position between writing a change's record and applying it.
+    private Lock statusGuard()
+    {
+        if (journal == null && archive == null)
+        {
+            return null;
+        }
+        Lock lock = checkpointLock.readLock();
+        lock.lock();
+        return lock;
+    }
+
+    private static void release(Lock guard)
+    {
+        if (guard != null)
+        {
+            guard.unlock();
+        }
+    }
+
+    private void recordCancellation(Order order)
+    {
+        ordersByStatus.moved(order, OrderStatus.PLACED, OrderStatus.CANCELLED);
+        ordersByCustomer.moved(order, OrderStatus.PLACED, OrderStatus.CANCELLED);
     }
 
 
     @Override
     public FulfillmentResult fulfillOrder(Order order)
+    {
+        long start = System.nanoTime();
+        OrderEvent event = new OrderEvent();
+        event.begin();
+        OrderStatus fromStatus = order == null ? null : order.getStatus();
+        boolean succeeded = false;
+        try
+        {
+            FulfillmentResult result = fulfill(order);
+            succeeded = true;
+            return result;
+        }
+        catch (InsufficientStockException e)
+        {
+            metrics.outOfStockRejected();
+            throw e;
+        }
+        catch (IllegalStateException e)
+        {
+            metrics.illegalTransitionRejected();
+            throw e;
+        }
+        finally
+        {
+            metrics.record(Operation.FULFILL_ORDER, start);
+            event.finish("fulfillOrder", order, fromStatus, succeeded);
+        }
+    }
+
+    private FulfillmentResult fulfill(Order order)
     {
         if (order.getStatus() == OrderStatus.CANCELLED || order.getStatus() == OrderStatus.FULFILLED)
         {
             throw new IllegalStateException("Order cannot be fulfilled as it is " + order.getStatus());
         }
-        order.fulfill();
+        // Read once, so the stock reserved and the parts reported always agree
+        PartCounter parts = partsOf(order);
+        Inventory stock = inventory;
+        if (stock != null)
+        {
+            reserve(stock, order, parts);
+        }
+        Lock guard = statusGuard();
+        try
+        {
+            try
+            {
+                transition(order, JournalCodec.FULFILL, parts, order::fulfill);
+            }
+            catch (RuntimeException e)
+            {
+                if (stock != null)
+                {
+                    stock.release(parts); // Not fulfilled, so the stock was not used
+                }
+                throw e;
+            }
+            // Fulfilled now, so its stock stays reserved even if recording fails.
+            // The report counters are updated at most once per order.
+            return recordFulfillment(order, parts, System.currentTimeMillis());
+        }
+        finally
+        {
+            release(guard);
+        }
+    }
+
+    // The parts of an order's custom models, tallied.
+    private static PartCounter partsOf(Order order)
+    {
+        PartCounter parts = new PartCounter();
+        for (PCModel model : order.getModels())
+        {
+            if (model instanceof CustomModel)
+            {
+                parts.addAll(((CustomModel) model).getPartIds());
+            }
+        }
+        parts.tally();
+        return parts;
+    }
+
+    private static void reserve(Inventory stock, Order order, PartCounter parts)
+    {
+        int shortPart = stock.reserve(parts);
+        if (shortPart >= 0)
+        {
+            String part = PartDictionary.nameOf(parts.partId(shortPart));
+            throw new InsufficientStockException(part,
+                    "Not enough " + part + " in stock to fulfill order " + order.getOrderId());
+        }
+    }
+
+    private FulfillmentResult recordFulfillment(Order order, PartCounter parts, long fulfilledAt)
+    {
+        ordersByStatus.moved(order, OrderStatus.PLACED, OrderStatus.FULFILLED);
+        ordersByCustomer.moved(order, OrderStatus.PLACED, OrderStatus.FULFILLED);
+        return tally(order, parts, fulfilledAt);
+    }
+
+    // Adds a fulfilled order, with the tallied parts of its custom models, to the report
+    // counters, and to the trending ones unless fulfilledAt is NOT_TRENDING.
+    private FulfillmentResult tally(Order order, PartCounter parts, long fulfilledAt)
+    {
+        boolean trending = fulfilledAt != NOT_TRENDING;
+        CountMap presetOrders = new CountMap(order.getModels().size());
 
-        Map<String, Map<String, Integer>> presetOrders = new HashMap<>();
-        Map<String, Integer> customParts = new HashMap<>();
+        customerSales.increment(order.getCustomer());
 
         for (PCModel model : order.getModels())
         {
             if (model instanceof PresetModel)
             {
                 PresetModel preset = (PresetModel) model;
-                presetOrders.computeIfAbsent(preset.getManufacturer(), k -> new HashMap<>())
-                        .merge(preset.getName(), 1, Integer::sum);
-            }
-            else if (model instanceof CustomModel)
-            {
-                for (String part : model.getParts())
+                presetOrders.add(preset.getManufacturer(), preset.getName(), 1);
+                if (approximateModelSales == null)
+                {
+                    modelSales.increment(preset);
+                }
+                else
                 {
-                    customParts.merge(part, 1, Integer::sum);
+                    approximateModelSales.add(preset, 1);
                 }
+                if (trending)
+                {
+                    trendingModels.add(preset, 1, fulfilledAt);
+                }
+            }
+        }
+
+        int distinct = parts.size();
+        CountMap customParts = new CountMap(distinct);
+        for (int i = 0; i < distinct; i++)
+        {
+            String part = PartDictionary.nameOf(parts.partId(i));
+            customParts.add(part, parts.count(i));
+            if (approximatePartSales == null)
+            {
+                partSales.add(parts.partId(i), parts.count(i));
+            }
+            else
+            {
+                approximatePartSales.add(part, parts.count(i));
+            }
+            if (trending)
+            {
+                trendingParts.add(part, parts.count(i), fulfilledAt);
             }
         }
 
@@ -83,174 +631,756 @@ public final class OrderSystemImpl implements OrderSystem
     }
 
 
-    private List<Order> getFulfilledOrders()
+    @Override
+    public void importOrders(Collection<Order> orders)
     {
+        long start = System.nanoTime();
+        try
+        {
+            importAll(orders);
+        }
+        finally
+        {
+            metrics.record(Operation.IMPORT_ORDERS, start);
+        }
+    }
+
+    private void importAll(Collection<Order> orders)
+    {
+        if (orders == null)
+        {
+            throw new IllegalArgumentException("Imported orders cannot be null.");
+        }
+        for (Order order : orders)
+        {
+            if (order == null)
+            {
+                throw new IllegalArgumentException("Imported orders cannot be null.");
+            }
+        }
+        if (orders.isEmpty())
+        {
+            return;
+        }
+        if (journal == null)
+        {
+            Lock guard = statusGuard();
+            try
+            {
+                orders.forEach(order -> registerImported(order, fulfilledPartsOf(order)));
+            }
+            finally
+            {
+                release(guard);
+            }
+            return;
+        }
 
-        List<Order> fulfilledOrders = new ArrayList<>();
-        for (Order order : orderHistory)
+        List<byte[]> records = new ArrayList<>(orders.size() * 2);
+        List<PartCounter> fulfilledParts = new ArrayList<>(orders.size());
+        for (Order order : orders)
         {
-            if (order.getStatus() == OrderStatus.FULFILLED)
+            records.add(JournalCodec.encodePlace(order));
+            PartCounter parts = fulfilledPartsOf(order);
+            fulfilledParts.add(parts);
+            if (parts != null)
             {
-                fulfilledOrders.add(order);
+                records.add(JournalCodec.encodeFulfill(order.getOrderId(), parts));
+            }
+            else if (order.getStatus() == OrderStatus.CANCELLED)
+            {
+                records.add(JournalCodec.encodeTransition(JournalCodec.CANCEL, order.getOrderId()));
             }
         }
-        return fulfilledOrders;
 
+        checkpointLock.readLock().lock();
+        try
+        {
+            journal.append(records); // One wait for the whole batch
+            int i = 0;
+            for (Order order : orders)
+            {
+                registerImported(order, fulfilledParts.get(i++));
+            }
+        }
+        finally
+        {
+            checkpointLock.readLock().unlock();
+        }
     }
 
-    @Override
-    public Map.Entry<Customer, Integer> getLargestCustomer()
+    // The parts a fulfilled imported order is reported and journaled with, null if not fulfilled.
+    private static PartCounter fulfilledPartsOf(Order order)
     {
+        return order.getStatus() == OrderStatus.FULFILLED ? partsOf(order) : null;
+    }
 
-        List<Order> fulfilledOrders = getFulfilledOrders();
-        if (fulfilledOrders.isEmpty())
+    private void addPartSales(PartCounter parts)
+    {
+        for (int i = 0; i < parts.size(); i++)
         {
-            return null;
+            partSales.add(parts.partId(i), parts.count(i));
         }
+    }
 
-        Map<Customer, Integer> customerCounts = new HashMap<>();
-        for (Order order : fulfilledOrders)
+    private void registerImported(Order order, PartCounter fulfilledParts)
+    {
+        orderHistory.append(order);
+        ordersByStatus.restored(order);
+        ordersByTime.add(order);
+        ordersByCustomer.restored(order);
+        if (fulfilledParts != null)
         {
-            customerCounts.merge(order.getCustomer(), 1, Integer::sum);
+            tally(order, fulfilledParts, order.getOrderTime()); // The nearest known time; counts only if recent
         }
+    }
 
-        Customer largestCustomer = null;
-        int maxOrders = -1;
 
-        for (Map.Entry<Customer, Integer> entry : customerCounts.entrySet())
+    /**
+     * {@inheritDoc}
+     * <p>
+     * In a system backed by a journal, the batch runs on a pool created
+     * for the system's first batch and kept until {@link #close()}.
+     *
+     * @throws IllegalStateException if the system is backed by a journal and has been closed.
+     */
+    @Override
+    public BatchFulfillmentResult fulfillOrders(Collection<Order> orders)
+    {
+        if (journal != null)
         {
-            if (entry.getValue() > maxOrders)
-            {
-                maxOrders = entry.getValue();
-                largestCustomer = entry.getKey();
-            }
-            else if (entry.getValue() == maxOrders)
+            return BatchFulfillment.run(orders, this::fulfillOrder, blockingPool()); // Each fulfillment waits for a sync
+        }
+        return BatchFulfillment.run(orders, this::fulfillOrder);
+    }
+
+    private ForkJoinPool blockingPool()
+    {
+        ForkJoinPool pool = blockingPool;
+        if (pool == null)
+        {
+            synchronized (poolLock)
             {
-                // Alphabetical sort rule
-                if (entry.getKey().getFullName().compareTo(largestCustomer.getFullName()) < 0)
+                if (closed)
                 {
-                    largestCustomer = entry.getKey();
+                    throw new IllegalStateException("Order system has been closed.");
+                }
+                pool = blockingPool;
+                if (pool == null)
+                {
+                    pool = BatchFulfillment.newBlockingPool();
+                    blockingPool = pool;
                 }
             }
+        }
+        return pool;
+    }
 
+    /**
+     * Stops the threads started to fulfill batches of journaled orders.
+     * Fulfilling a batch afterwards fails; everything else keeps working.
+     * The journal is not closed, as it belongs to the caller.
+     */
+    @Override
+    public void close()
+    {
+        synchronized (poolLock)
+        {
+            closed = true;
+            if (blockingPool != null)
+            {
+                blockingPool.shutdown();
+                blockingPool = null;
+            }
+        }
+    }
+
+
+    @Override
+    public Map.Entry<Customer, Integer> getLargestCustomer()
+    {
+        long start = System.nanoTime();
+        try
+        {
+            return customerSales.getLeader();
+        }
+        finally
+        {
+            metrics.record(Operation.REPORT, start);
         }
-        return new AbstractMap.SimpleEntry<>(largestCustomer, maxOrders);
     }
 
 
     @Override
     public Map.Entry<PCModel, Integer> getMostOrderedModel()
     {
-        List<Order> fulfilledOrders = getFulfilledOrders();
-        if (fulfilledOrders.isEmpty())
+        long start = System.nanoTime();
+        try
         {
-            return null;
+            if (approximateModelSales != null)
+            {
+                return first(approximateModelSales.getTop(1, BY_MODEL_NAME));
+            }
+            return modelSales.getLeader();
+        }
+        finally
+        {
+            metrics.record(Operation.REPORT, start);
         }
+    }
 
-        Map<PCModel, Integer> modelCounts = new HashMap<>();
-        for (Order order : fulfilledOrders)
+    @Override
+    public Map.Entry<String, Integer> getMostOrderedPart()
+    {
+        long start = System.nanoTime();
+        try
         {
-            for (PCModel model : order.getModels())
+            if (approximatePartSales != null)
             {
-                if (model instanceof PresetModel)
-                {
-                    modelCounts.merge(model, 1, Integer::sum);
-                }
+                return first(approximatePartSales.getTop(1, Comparator.naturalOrder()));
             }
+            return partSales.getLeader();
+        }
+        finally
+        {
+            metrics.record(Operation.REPORT, start);
+        }
+    }
+
+    private static <K> Map.Entry<K, Integer> first(List<HeavyHitter<K>> top)
+    {
+        return top.isEmpty() ? null : entryOf(top.get(0));
+    }
+
+    private static <K> Map.Entry<K, Integer> entryOf(HeavyHitter<K> hitter)
+    {
+        return new AbstractMap.SimpleEntry<>(hitter.getItem(), (int) Math.min(Integer.MAX_VALUE, hitter.getCount()));
+    }
 
+    @Override
+    public List<Map.Entry<Customer, Integer>> getTopCustomers(int k)
+    {
+        long start = System.nanoTime();
+        try
+        {
+            checkTopCount(k);
+            return customerSales.getTop(k);
+        }
+        finally
+        {
+            metrics.record(Operation.REPORT, start);
         }
+    }
 
-        if (modelCounts.isEmpty())
+    @Override
+    public List<Map.Entry<PCModel, Integer>> getTopModels(int k)
+    {
+        long start = System.nanoTime();
+        try
         {
-            return null;
+            checkTopCount(k);
+            if (approximateModelSales != null)
+            {
+                return entriesOf(approximateModelSales.getTop(k, BY_MODEL_NAME));
+            }
+            return modelSales.getTop(k);
+        }
+        finally
+        {
+            metrics.record(Operation.REPORT, start);
         }
+    }
 
+    @Override
+    public List<Map.Entry<String, Integer>> getTopParts(int k)
+    {
+        long start = System.nanoTime();
+        try
+        {
+            checkTopCount(k);
+            if (approximatePartSales != null)
+            {
+                return entriesOf(approximatePartSales.getTop(k, Comparator.naturalOrder()));
+            }
+            return partSales.getTop(k);
+        }
+        finally
+        {
+            metrics.record(Operation.REPORT, start);
+        }
+    }
 
-        PCModel mostOrderedModel = null;
-        int maxCount = -10;
+    private static <K> List<Map.Entry<K, Integer>> entriesOf(List<HeavyHitter<K>> top)
+    {
+        List<Map.Entry<K, Integer>> entries = new ArrayList<>(top.size());
+        top.forEach(hitter -> entries.add(entryOf(hitter)));
+        return entries;
+    }
 
-        for (Map.Entry<PCModel, Integer> entry : modelCounts.entrySet())
+    @Override
+    public List<HeavyHitter<PCModel>> getApproximateTopModels(int k)
+    {
+        long start = System.nanoTime();
+        try
         {
-            if (entry.getValue() > maxCount)
+            checkTopCount(k);
+            if (approximateModelSales != null)
             {
-
-                maxCount = entry.getValue();
-                mostOrderedModel = entry.getKey();
+                return approximateModelSales.getTop(k, BY_MODEL_NAME);
             }
+            return exactHitters(modelSales.getTop(k));
+        }
+        finally
+        {
+            metrics.record(Operation.REPORT, start);
+        }
+    }
 
-            else if (entry.getValue() == maxCount)
+    @Override
+    public List<HeavyHitter<String>> getApproximateTopParts(int k)
+    {
+        long start = System.nanoTime();
+        try
+        {
+            checkTopCount(k);
+            if (approximatePartSales != null)
             {
-                // Alphabetical sort rule
-                if (entry.getKey().getName().compareTo(mostOrderedModel.getName()) < 0)
-                {
-                    mostOrderedModel = entry.getKey();
-                }
+                return approximatePartSales.getTop(k, Comparator.naturalOrder());
             }
+            return exactHitters(partSales.getTop(k));
         }
+        finally
+        {
+            metrics.record(Operation.REPORT, start);
+        }
+    }
+
+    private static <K> List<HeavyHitter<K>> exactHitters(List<Map.Entry<K, Integer>> top)
+    {
+        List<HeavyHitter<K>> hitters = new ArrayList<>(top.size());
+        top.forEach(entry -> hitters.add(new HeavyHitter<>(entry.getKey(), entry.getValue(), 0)));
+        return hitters;
+    }
 
-        return new AbstractMap.SimpleEntry<>(mostOrderedModel, maxCount);
+    @Override
+    public Map.Entry<PCModel, Integer> getTrendingModel(Duration window)
+    {
+        long start = System.nanoTime();
+        try
+        {
+            return trendingModels.getLeader(windowMillis(window), System.currentTimeMillis());
+        }
+        finally
+        {
+            metrics.record(Operation.REPORT, start);
+        }
     }
 
     @Override
-    public Map.Entry<String, Integer> getMostOrderedPart()
+    public Map.Entry<String, Integer> getTrendingPart(Duration window)
     {
-        List<Order> fulfilledOrders = getFulfilledOrders();
-        if (fulfilledOrders.isEmpty())
+        long start = System.nanoTime();
+        try
         {
-            return null;
+            return trendingParts.getLeader(windowMillis(window), System.currentTimeMillis());
+        }
+        finally
+        {
+            metrics.record(Operation.REPORT, start);
+        }
+    }
+
+    // Converts a trending window for TrendingCounter, which rejects the out of range ones.
+    static long windowMillis(Duration window)
+    {
+        if (window == null)
+        {
+            throw new IllegalArgumentException("Window cannot be null.");
+        }
+        try
+        {
+            return window.toMillis();
         }
+        catch (ArithmeticException e)
+        {
+            return window.isNegative() ? Long.MIN_VALUE : Long.MAX_VALUE; // Rejected as out of range
+        }
+    }
+
+    private static void checkTopCount(int k)
+    {
+        if (k <= 0)
+        {
+            throw new IllegalArgumentException("Number of entries must be positive.");
+        }
+    }
 
 
-        Map<String, Integer> partCounts = new HashMap<>();
-        for (Order order : fulfilledOrders)
+    @Override
+    public Map.Entry<Customer, Integer> getLargestCustomer(long fromMillis, long toMillis)
+    {
+        long start = System.nanoTime();
+        try
         {
+            checkRange(fromMillis, toMillis);
 
-            for (PCModel model : order.getModels())
-            {
-                if (model instanceof CustomModel)
+            Map<Customer, Integer> customerCounts = new HashMap<>();
+            forEachBetween(fromMillis, toMillis, order -> {
+                if (order.getStatus() == OrderStatus.FULFILLED)
                 {
-                    for (String part : model.getParts())
+                    customerCounts.merge(order.getCustomer(), 1, Integer::sum);
+                }
+            });
+            return leaderOf(customerCounts, BY_FULL_NAME);
+        }
+        finally
+        {
+            metrics.record(Operation.TIME_RANGE_REPORT, start);
+        }
+    }
+
+    @Override
+    public Map.Entry<PCModel, Integer> getMostOrderedModel(long fromMillis, long toMillis)
+    {
+        long start = System.nanoTime();
+        try
+        {
+            checkRange(fromMillis, toMillis);
+
+            Map<PCModel, Integer> modelCounts = new HashMap<>();
+            forEachBetween(fromMillis, toMillis, order -> {
+                if (order.getStatus() == OrderStatus.FULFILLED)
+                {
+                    for (PCModel model : order.getModels())
                     {
-                        partCounts.merge(part, 1, Integer::sum);
+                        if (model instanceof PresetModel)
+                        {
+                            modelCounts.merge(model, 1, Integer::sum);
+                        }
                     }
                 }
+            });
+            return leaderOf(modelCounts, BY_MODEL_NAME);
+        }
+        finally
+        {
+            metrics.record(Operation.TIME_RANGE_REPORT, start);
+        }
+    }
+
+    @Override
+    public Map.Entry<String, Integer> getMostOrderedPart(long fromMillis, long toMillis)
+    {
+        long start = System.nanoTime();
+        try
+        {
+            checkRange(fromMillis, toMillis);
+
+            PartCounter parts = new PartCounter();
+            forEachBetween(fromMillis, toMillis, order -> {
+                if (order.getStatus() == OrderStatus.FULFILLED)
+                {
+                    for (PCModel model : order.getModels())
+                    {
+                        if (model instanceof CustomModel)
+                        {
+                            parts.addAll(((CustomModel) model).getPartIds());
+                        }
+                    }
+                }
+            });
+
+            String mostOrderedPart = null;
+            int maxCount = 0;
+            int distinct = parts.tally();
+            for (int i = 0; i < distinct; i++)
+            {
+                String part = PartDictionary.nameOf(parts.partId(i));
+                // Alphabetical sort rule
+                if (parts.count(i) > maxCount || (parts.count(i) == maxCount && part.compareTo(mostOrderedPart) < 0))
+                {
+                    mostOrderedPart = part;
+                    maxCount = parts.count(i);
+                }
             }
+            return mostOrderedPart == null ? null : new AbstractMap.SimpleEntry<>(mostOrderedPart, maxCount);
+        }
+        finally
+        {
+            metrics.record(Operation.TIME_RANGE_REPORT, start);
+        }
+    }
 
+    @Override
+    public List<Order> getOrdersBetween(long fromMillis, long toMillis)
+    {
+        checkRange(fromMillis, toMillis);
+        if (archive == null)
+        {
+            return ordersByTime.between(fromMillis, toMillis);
         }
+        List<Order> orders = new ArrayList<>();
+        forEachBetween(fromMillis, toMillis, orders::add);
+        orders.sort(Comparator.comparingLong(Order::getOrderTime)); // Stable, so the index order is kept
+        return orders;
+    }
 
-        if (partCounts.isEmpty())
+    // Visits the orders in a time range, archived ones first.
+    private void forEachBetween(long fromMillis, long toMillis, Consumer<Order> visitor)
+    {
+        if (archive == null)
         {
-            return null;
+            ordersByTime.forEachBetween(fromMillis, toMillis, visitor);
+            return;
+        }
+        checkpointLock.readLock().lock();
+        try
+        {
+            archive.forEachBetween(fromMillis, toMillis, visitor);
+            ordersByTime.forEachBetween(fromMillis, toMillis, visitor);
         }
+        finally
+        {
+            checkpointLock.readLock().unlock();
+        }
+    }
 
-        String mostOrderedPart = null;
-        int maxCount = -1;
+    private static void checkRange(long fromMillis, long toMillis)
+    {
+        if (fromMillis > toMillis)
+        {
+            throw new IllegalArgumentException("Start of time range cannot be after its end.");
+        }
+    }
 
-        for (Map.Entry<String, Integer> entry : partCounts.entrySet())
+    private static <K> Map.Entry<K, Integer> leaderOf(Map<K, Integer> counts, Comparator<K> tieBreak)
+    {
+        K leader = null;
+        int maxCount = 0;
+        for (Map.Entry<K, Integer> entry : counts.entrySet())
         {
-            if (entry.getValue() > maxCount)
+            if (leader == null || entry.getValue() > maxCount
+                    || (entry.getValue() == maxCount && tieBreak.compare(entry.getKey(), leader) < 0))
             {
+                leader = entry.getKey();
                 maxCount = entry.getValue();
-                mostOrderedPart = entry.getKey();
             }
+        }
+        return leader == null ? null : new AbstractMap.SimpleEntry<>(leader, maxCount);
+    }
 
-            else if (entry.getValue() == maxCount)
-            {
-                // Alphabetical sort rule
-                if (entry.getKey().compareTo(mostOrderedPart) < 0)
-                {
-                    mostOrderedPart = entry.getKey();
-                }
+    @Override
+    public Collection<Order> getOrders(OrderStatus status)
+    {
+        if (status == null)
+        {
+            throw new IllegalArgumentException("Order status cannot be null.");
+        }
+        if (archive == null || status == OrderStatus.PLACED)
+        {
+            return ordersByStatus.view(status);
+        }
+        checkpointLock.readLock().lock();
+        try
+        {
+            return archive.withArchived(status, ordersByStatus.view(status));
+        }
+        finally
+        {
+            checkpointLock.readLock().unlock();
+        }
+    }
 
-            }
+    @Override
+    public List<Order> getOrdersFor(Customer customer)
+    {
+        if (customer == null)
+        {
+            throw new IllegalArgumentException("Customer cannot be null.");
+        }
+        if (archive == null)
+        {
+            return ordersByCustomer.ordersFor(customer);
+        }
+        checkpointLock.readLock().lock();
+        try
+        {
+            List<Order> orders = archive.collectFor(customer);
+            orders.addAll(ordersByCustomer.ordersFor(customer));
+            return Collections.unmodifiableList(orders);
+        }
+        finally
+        {
+            checkpointLock.readLock().unlock();
         }
-        return new AbstractMap.SimpleEntry<>(mostOrderedPart, maxCount);
     }
 
+    @Override
+    public int getOrderCountFor(Customer customer, OrderStatus status)
+    {
+        if (customer == null || status == null)
+        {
+            throw new IllegalArgumentException("Customer and order status cannot be null.");
+        }
+        if (archive == null)
+        {
+            return ordersByCustomer.countFor(customer, status);
+        }
+        checkpointLock.readLock().lock();
+        try
+        {
+            return archive.countFor(customer, status) + ordersByCustomer.countFor(customer, status);
+        }
+        finally
+        {
+            checkpointLock.readLock().unlock();
+        }
+    }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * In a system that archives, archived orders come first, in the order
+     * they were placed, followed by the orders still on the heap. The list
+     * follows new orders until the next call to {@link #archive()}.
+     */
     @Override
     public List<Order> getOrderHistory()
     {
-        return Collections.unmodifiableList(orderHistory);
+        if (archive == null)
+        {
+            return Collections.unmodifiableList(orderHistory);
+        }
+        checkpointLock.readLock().lock();
+        try
+        {
+            return archive.withArchived(orderHistory);
+        }
+        finally
+        {
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Tracks warehouse stock from now on: each fulfillment then reserves
+     * the parts of its custom models, all or none, and fails with an
+     * {@link InsufficientStockException} if any part is short, leaving the
+     * order placed. Imported and recovered orders do not take stock.
+     *
+     * @param inventory the stock to reserve from, or null to stop tracking stock.
+     */
+    public void setInventory(Inventory inventory)
+    {
+        this.inventory = inventory;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * In a system that archives, pages are read in the order the orders
+     * were added, across the archive and the heap together, and the token
+     * records the sequence number to continue from rather than a position,
+     * so it stays valid when {@link #archive()} runs between pages.
+     */
+    @Override
+    public OrderPage getOrderPage(int pageSize, String continuationToken, OrderStatus status, Customer customer)
+    {
+        if (archive != null)
+        {
+            checkpointLock.readLock().lock();
+            try
+            {
+                return archive.page(orderHistory, pageSize, continuationToken, OrderPage.matching(status, customer));
+            }
+            finally
+            {
+                checkpointLock.readLock().unlock();
+            }
+        }
+        if (customer != null)
+        {
+            // A live view of the customer's orders
+            return OrderPage.read(ordersByCustomer.ordersFor(customer), pageSize, continuationToken,
+                    OrderPage.matching(status, null));
+        }
+        return OrderPage.read(getOrderHistory(), pageSize, continuationToken, OrderPage.matching(status, null));
+    }
+
+    private int historySize()
+    {
+        return orderHistory.size() + (archive == null ? 0 : archive.size());
+    }
+
+    /**
+     * Moves fulfilled and cancelled orders older than the retention period
+     * from the heap to a new archive segment. Orders keep being placed and
+     * reports keep being answered while the segment is written; changes to
+     * orders only wait while the heap indexes drop the archived orders.
+     * Call it periodically, for example from a
+     * {@link java.util.concurrent.ScheduledExecutorService}.
+     *
+     * @return the number of orders archived.
+     * @throws IOException if the segment cannot be written, in which case nothing is archived.
+     * @throws IllegalStateException if the system was not constructed with an archive.
+     */
+    public int archive() throws IOException
+    {
+        return archive(System.currentTimeMillis());
+    }
+
+    /**
+     * As {@link #archive()}, taking orders older than the retention period before nowMillis.
+     */
+    int archive(long nowMillis) throws IOException
+    {
+        if (archive == null)
+        {
+            throw new IllegalStateException("Order system was not constructed with an archive.");
+        }
+        synchronized (archive)
+        {
+            long cutoff = nowMillis - archive.getRetentionMillis();
+            OrderLog heap = orderHistory;
+            int heapSize = heap.size();
+            List<Order> moving = new ArrayList<>();
+            long[] sequences = new long[heapSize];
+            for (int i = 0; i < heapSize; i++)
+            {
+                // Final statuses never change, so the orders chosen stay eligible
+                Order order = heap.get(i);
+                if (order.getStatus() != OrderStatus.PLACED && order.getOrderTime() < cutoff)
+                {
+                    sequences[moving.size()] = heap.sequenceOf(i);
+                    moving.add(order);
+                }
+            }
+            if (moving.isEmpty())
+            {
+                return 0;
+            }
+            List<OrderArchive.Segment> segments = archive.write(moving, Arrays.copyOf(sequences, moving.size()));
+
+            Set<Order> archived = Collections.newSetFromMap(new IdentityHashMap<>(moving.size() * 2));
+            archived.addAll(moving);
+            checkpointLock.writeLock().lock();
+            try
+            {
+                OrderLog kept = orderHistory.without(archived); // The orders kept keep their sequence numbers
+                for (Order order : moving)
+                {
+                    ordersByStatus.archived(order);
+                    ordersByTime.archived(order);
+                }
+                ordersByCustomer.archived(moving);
+                archive.publish(segments, moving);
+                orderHistory = kept;
+            }
+            finally
+            {
+                checkpointLock.writeLock().unlock();
+            }
+            return moving.size();
+        }
     }
-}
\ No newline at end of file
+}
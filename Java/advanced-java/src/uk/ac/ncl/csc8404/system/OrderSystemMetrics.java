@@ -0,0 +1,215 @@
+package uk.ac.ncl.csc8404.system;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * Latencies and counters of the operations of an {@link OrderSystemImpl}.
+ * Every call is timed, including calls that fail, and recording allocates
+ * nothing. The metrics can be read directly or published as a platform
+ * MBean with {@link #register(String)}.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+public final class OrderSystemMetrics implements OrderSystemMetricsMXBean
+{
+
+    /**
+     * The operations that are timed.
+     */
+    public enum Operation
+    {
+        PLACE_ORDER,
+        CANCEL_ORDER,
+        FULFILL_ORDER,
+        IMPORT_ORDERS,
+        /**
+         * The reports over all orders, including the top lists and trending reports.
+         */
+        REPORT,
+        /**
+         * The reports over a time range.
+         */
+        TIME_RANGE_REPORT
+    }
+
+    /**
+     * The JMX domain the metrics are registered under.
+     */
+    public static final String DOMAIN = "uk.ac.ncl.csc8404";
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+    private final AtomicLong invalidCardRejections = new AtomicLong();
+    private final AtomicLong illegalTransitionRejections = new AtomicLong();
+    private final AtomicLong outOfStockRejections = new AtomicLong();
+    private final IntSupplier historySize;
+    private ObjectName registeredName;
+
+    OrderSystemMetrics(IntSupplier historySize)
+    {
+        this.historySize = historySize;
+        for (int i = 0; i < latencies.length; i++)
+        {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Records a call that started at startNanos, as read from System.nanoTime().
+     */
+    void record(Operation operation, long startNanos)
+    {
+        latencies[operation.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    void invalidCardRejected()
+    {
+        invalidCardRejections.incrementAndGet();
+    }
+
+    void illegalTransitionRejected()
+    {
+        illegalTransitionRejections.incrementAndGet();
+    }
+
+    void outOfStockRejected()
+    {
+        outOfStockRejections.incrementAndGet();
+    }
+
+    /**
+     * @param operation the operation.
+     * @return the latencies of the operation so far.
+     * @throws IllegalArgumentException if operation is null.
+     */
+    public LatencyStats getLatency(Operation operation)
+    {
+        if (operation == null)
+        {
+            throw new IllegalArgumentException("Operation cannot be null.");
+        }
+        return latencies[operation.ordinal()].snapshot();
+    }
+
+    @Override
+    public LatencyStats getPlaceOrderLatency()
+    {
+        return getLatency(Operation.PLACE_ORDER);
+    }
+
+    @Override
+    public LatencyStats getCancelOrderLatency()
+    {
+        return getLatency(Operation.CANCEL_ORDER);
+    }
+
+    @Override
+    public LatencyStats getFulfillOrderLatency()
+    {
+        return getLatency(Operation.FULFILL_ORDER);
+    }
+
+    @Override
+    public LatencyStats getImportOrdersLatency()
+    {
+        return getLatency(Operation.IMPORT_ORDERS);
+    }
+
+    @Override
+    public LatencyStats getReportLatency()
+    {
+        return getLatency(Operation.REPORT);
+    }
+
+    @Override
+    public LatencyStats getTimeRangeReportLatency()
+    {
+        return getLatency(Operation.TIME_RANGE_REPORT);
+    }
+
+    @Override
+    public long getInvalidCardRejections()
+    {
+        return invalidCardRejections.get();
+    }
+
+    @Override
+    public long getIllegalTransitionRejections()
+    {
+        return illegalTransitionRejections.get();
+    }
+
+    @Override
+    public long getOutOfStockRejections()
+    {
+        return outOfStockRejections.get();
+    }
+
+    @Override
+    public int getHistorySize()
+    {
+        return historySize.getAsInt();
+    }
+
+    /**
+     * Publishes the metrics as a platform MBean named
+     * {@code uk.ac.ncl.csc8404:type=OrderSystem,name=<name>}.
+     *
+     * @param name distinguishes this order system from others in the same JVM.
+     * @return the name the MBean was registered under.
+     * @throws IllegalArgumentException if name is null or empty.
+     * @throws IllegalStateException if the metrics are already registered, or
+     *                               another MBean has the same name.
+     */
+    public synchronized ObjectName register(String name)
+    {
+        if (name == null || name.isEmpty())
+        {
+            throw new IllegalArgumentException("MBean name cannot be null or empty.");
+        }
+        if (registeredName != null)
+        {
+            throw new IllegalStateException("Metrics are already registered as " + registeredName);
+        }
+        try
+        {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=OrderSystem,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            registeredName = objectName;
+            return objectName;
+        }
+        catch (JMException e)
+        {
+            throw new IllegalStateException("Could not register metrics as " + name, e);
+        }
+    }
+
+    /**
+     * Removes the MBean published by {@link #register(String)}, if any.
+     */
+    public synchronized void unregister()
+    {
+        if (registeredName == null)
+        {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try
+        {
+            if (server.isRegistered(registeredName))
+            {
+                server.unregisterMBean(registeredName);
+            }
+        }
+        catch (JMException e)
+        {
+            throw new IllegalStateException("Could not unregister metrics " + registeredName, e);
+        }
+        registeredName = null;
+    }
+}
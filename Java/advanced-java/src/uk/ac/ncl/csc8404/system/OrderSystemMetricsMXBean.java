@@ -0,0 +1,65 @@
+package uk.ac.ncl.csc8404.system;
+
+/**
+ * Management interface of {@link OrderSystemMetrics}, published to JMX
+ * by {@link OrderSystemMetrics#register(String)}. Latencies appear as
+ * composite attributes holding the count, mean, percentiles and maximum.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+public interface OrderSystemMetricsMXBean
+{
+
+    /**
+     * @return latencies of placeOrder.
+     */
+    LatencyStats getPlaceOrderLatency();
+
+    /**
+     * @return latencies of cancelOrder.
+     */
+    LatencyStats getCancelOrderLatency();
+
+    /**
+     * @return latencies of fulfillOrder.
+     */
+    LatencyStats getFulfillOrderLatency();
+
+    /**
+     * @return latencies of importOrders.
+     */
+    LatencyStats getImportOrdersLatency();
+
+    /**
+     * @return latencies of the reports over all orders, such as getMostOrderedModel.
+     */
+    LatencyStats getReportLatency();
+
+    /**
+     * @return latencies of the reports over a time range.
+     */
+    LatencyStats getTimeRangeReportLatency();
+
+    /**
+     * @return the number of orders rejected for an invalid credit card.
+     */
+    long getInvalidCardRejections();
+
+    /**
+     * @return the number of cancellations and fulfilments rejected
+     * because the order was already cancelled or fulfilled.
+     */
+    long getIllegalTransitionRejections();
+
+    /**
+     * @return the number of fulfillments rejected because the inventory
+     * did not hold enough of a part.
+     */
+    long getOutOfStockRejections();
+
+    /**
+     * @return the number of orders in the order history.
+     */
+    int getHistorySize();
+}
@@ -0,0 +1,178 @@
+package uk.ac.ncl.csc8404.system;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ncl.csc8404.model.*;
+import uk.ac.ncl.csc8404.order.*;
+import uk.ac.ncl.csc8404.payment.*;
+import uk.ac.ncl.csc8404.system.OrderSystemMetrics.Operation;
+import uk.ac.ncl.csc8404.user.*;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * JUnit test
+ * This class tests the {@link LatencyHistogram} and the
+ * {@link OrderSystemMetrics} kept by {@link OrderSystemImpl}.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+class OrderSystemMetricsTest
+{
+
+    @Test
+    void testPercentilesWithinBucketError()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[100_000];
+        Random random = new Random(19);
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = (long) Math.exp(random.nextDouble() * 20); // 1ns to about 0.5s
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        LatencyStats stats = histogram.snapshot();
+        assertEquals(values.length, stats.getCount());
+        assertEquals(values[values.length - 1], stats.getMaxNanos());
+        assertWithin(values[49_999], stats.getP50Nanos());
+        assertWithin(values[98_999], stats.getP99Nanos());
+        assertWithin(values[99_899], stats.getP999Nanos());
+
+        for (long value : new long[] {0, 1, 15, 16, 17, 1000, Long.MAX_VALUE})
+        {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(LatencyHistogram.highestOf(index) >= value, "Buckets should cover their values.");
+            assertTrue(index == 0 || LatencyHistogram.highestOf(index - 1) < value, "Buckets should not overlap.");
+        }
+        assertEquals(0, new LatencyHistogram().snapshot().getP99Nanos());
+    }
+
+    @Test
+    void testRecordingFromManyThreads() throws Exception
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try
+        {
+            Future<?>[] recorders = new Future<?>[8];
+            for (int t = 0; t < recorders.length; t++)
+            {
+                long latency = 100 * (t + 1);
+                recorders[t] = pool.submit(() ->
+                {
+                    for (int i = 0; i < 10_000; i++)
+                    {
+                        histogram.record(latency);
+                    }
+                });
+            }
+            for (Future<?> recorder : recorders)
+            {
+                recorder.get();
+            }
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+
+        LatencyStats stats = histogram.snapshot();
+        assertEquals(80_000, stats.getCount(), "Every latency from every thread should be counted.");
+        assertEquals(450, stats.getMeanNanos());
+        assertEquals(800, stats.getMaxNanos());
+        assertWithin(400, stats.getP50Nanos());
+    }
+
+    @Test
+    void testRecordingDoesNotAllocate()
+    {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled());
+
+        OrderSystemMetrics metrics = new OrderSystemMetrics(() -> 0);
+        long thread = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 1_000_000; i++)
+        {
+            metrics.record(Operation.FULFILL_ORDER, System.nanoTime() - i);
+        }
+        long allocated = allocations.getThreadAllocatedBytes(thread) - before;
+        assertTrue(allocated < 64 * 1024, "Recording allocated " + allocated + " bytes.");
+    }
+
+    @Test
+    void testSystemMetricsPublishedAsMBean() throws Exception
+    {
+        OrderSystemImpl system = new OrderSystemImpl();
+        Customer customer = new CustomerImpl("Metric", "Maker");
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.YEAR, 1);
+        CreditCard card = CreditCardFactory.getInstance("85000001", cal.getTime(), "Metric Maker");
+        CreditCard expired = CreditCardFactory.getInstance("85000002", new Date(0), "Metric Maker");
+        PCModel preset = new PresetModel("Metric-1", "Maker", Arrays.asList("cpu"));
+
+        Order first = system.placeOrder(List.of(preset), customer, card);
+        Order second = system.placeOrder(List.of(preset), customer, card);
+        assertThrows(IllegalArgumentException.class, () -> system.placeOrder(List.of(preset), customer, expired));
+        system.fulfillOrder(first);
+        system.cancelOrder(second);
+        assertThrows(IllegalStateException.class, () -> system.fulfillOrder(first));
+        assertThrows(IllegalStateException.class, () -> system.cancelOrder(first));
+        system.getMostOrderedModel();
+        system.getLargestCustomer(0, Long.MAX_VALUE);
+
+        OrderSystemMetrics metrics = system.getMetrics();
+        assertEquals(3, metrics.getLatency(Operation.PLACE_ORDER).getCount(), "Failed calls are timed too.");
+        assertEquals(2, metrics.getFulfillOrderLatency().getCount());
+        assertEquals(2, metrics.getCancelOrderLatency().getCount());
+        assertEquals(1, metrics.getReportLatency().getCount());
+        assertEquals(1, metrics.getTimeRangeReportLatency().getCount());
+        assertEquals(1, metrics.getInvalidCardRejections());
+        assertEquals(2, metrics.getIllegalTransitionRejections());
+        assertEquals(2, metrics.getHistorySize());
+
+        ObjectName name = metrics.register("metrics-test");
+        try
+        {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(2, server.getAttribute(name, "HistorySize"));
+            assertEquals(1L, server.getAttribute(name, "InvalidCardRejections"));
+            CompositeData place = (CompositeData) server.getAttribute(name, "PlaceOrderLatency");
+            assertEquals(3L, place.get("count"));
+            assertTrue((Long) place.get("p999Nanos") >= (Long) place.get("p50Nanos"));
+            assertThrows(IllegalStateException.class, () -> metrics.register("metrics-test"));
+            assertThrows(IllegalStateException.class, () -> new OrderSystemImpl().getMetrics().register("metrics-test"),
+                    "Names must be unique within the JVM.");
+        }
+        finally
+        {
+            metrics.unregister();
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+
+    private static void assertWithin(long expected, long actual)
+    {
+        assertTrue(actual >= expected && actual <= expected + expected / 16 + 1,
+                "Expected about " + expected + " but was " + actual);
+    }
+}
@@ -7,11 +7,21 @@ import uk.ac.ncl.csc8404.order.*;
 import uk.ac.ncl.csc8404.payment.*;
 import uk.ac.ncl.csc8404.user.*;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -156,6 +166,54 @@ class OrderSystemTest
         assertEquals(3, mostUsed.getValue());
     }
 
+    @Test
+    void testMostOrderedPartTieBreak()
+    {
+        PCModel zetaFirst = CustomModelFactory.getInstance("TieBuild");
+        ((CustomModel) zetaFirst).addPart("Zeta-Fan");
+        ((CustomModel) zetaFirst).addPart("Zeta-Fan");
+        ((CustomModel) zetaFirst).addPart("Alpha-Case");
+
+        // Zeta-Fan=2 after the first order, then Alpha-Case catches up and wins alphabetically
+        FulfillmentResult result = system.fulfillOrder(system.placeOrder(List.of(zetaFirst), customerAlice, cardAlice));
+        assertEquals(2, result.getPartsFromWarehouse().get("Zeta-Fan"));
+        assertEquals(Map.entry("Zeta-Fan", 2), system.getMostOrderedPart());
+
+        PCModel alphaOnly = CustomModelFactory.getInstance("TieBuild2");
+        ((CustomModel) alphaOnly).addPart("Alpha-Case");
+        system.fulfillOrder(system.placeOrder(List.of(alphaOnly), customerBob, cardBob));
+        assertEquals(Map.entry("Alpha-Case", 2), system.getMostOrderedPart());
+    }
+
+    @Test
+    void testTopLists()
+    {
+        assertTrue(system.getTopCustomers(10).isEmpty(), "Nothing is ranked before an order is fulfilled.");
+        assertThrows(IllegalArgumentException.class, () -> system.getTopModels(0));
+
+        CustomModel topBuild = (CustomModel) CustomModelFactory.getInstance("TopListBuild");
+        topBuild.setParts(List.of("Zeta-Fan", "Extra-RAM", "Zeta-Fan"));
+
+        // Charlie 3, Bob 2 and Alice 2, so Alice comes before Bob alphabetically
+        for (int i = 0; i < 3; i++)
+        {
+            system.fulfillOrder(system.placeOrder(List.of(officePC), customerCharlie, cardCharlie));
+        }
+        system.fulfillOrder(system.placeOrder(List.of(gamingPC, officePC), customerBob, cardBob));
+        system.fulfillOrder(system.placeOrder(List.of(budgetPC, topBuild), customerBob, cardBob));
+        system.fulfillOrder(system.placeOrder(List.of(gamingPC), customerAlice, cardAlice));
+        system.fulfillOrder(system.placeOrder(List.of(budgetPC), customerAlice, cardAlice));
+        system.cancelOrder(system.placeOrder(List.of(gamingPC), customerAlice, cardAlice));
+
+        assertEquals(List.of(Map.entry(customerCharlie, 3), Map.entry(customerAlice, 2), Map.entry(customerBob, 2)),
+                system.getTopCustomers(10));
+        assertEquals(List.of(Map.entry(customerCharlie, 3)), system.getTopCustomers(1));
+        assertEquals(List.of(Map.entry(officePC, 4), Map.entry(budgetPC, 2), Map.entry(gamingPC, 2)),
+                system.getTopModels(3));
+        assertEquals(system.getMostOrderedModel(), system.getTopModels(1).get(0));
+        assertEquals(List.of(Map.entry("Zeta-Fan", 2), Map.entry("Extra-RAM", 1)), system.getTopParts(5));
+    }
+
     @Test
     void testReportsWithNoFulfilledOrders()
     {
@@ -167,4 +225,393 @@ class OrderSystemTest
         assertNull(system.getMostOrderedModel(), "Returns null if no orders are fulfilled.");
         assertNull(system.getMostOrderedPart(), "Returns null if no orders are fulfilled.");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testReportsFollowEachFulfillment()
+    {
+        // Charlie leads first, Alice then ties and takes over alphabetically
+        system.fulfillOrder(system.placeOrder(List.of(officePC), customerCharlie, cardCharlie));
+        assertEquals(customerCharlie, system.getLargestCustomer().getKey());
+
+        system.fulfillOrder(system.placeOrder(List.of(gamingPC), customerAlice, cardAlice));
+        assertEquals(customerAlice, system.getLargestCustomer().getKey());
+        assertEquals(gamingPC, system.getMostOrderedModel().getKey());
+
+        // Cancelled and placed orders are never counted
+        system.cancelOrder(system.placeOrder(List.of(officePC), customerCharlie, cardCharlie));
+        system.placeOrder(List.of(officePC), customerCharlie, cardCharlie);
+        assertEquals(1, system.getLargestCustomer().getValue());
+
+        system.fulfillOrder(system.placeOrder(List.of(officePC), customerCharlie, cardCharlie));
+        assertEquals(customerCharlie, system.getLargestCustomer().getKey());
+        assertEquals(officePC, system.getMostOrderedModel().getKey());
+        assertEquals(2, system.getMostOrderedModel().getValue());
+    }
+
+    @Test
+    void testConcurrentOrderProcessing() throws Exception
+    {
+        // Stress case: threads place orders together, then race to fulfill or cancel all of them
+        int threads = 8;
+        int ordersPerThread = 2000;
+        List<Customer> customers = List.of(customerAlice, customerBob, customerCharlie);
+        List<CreditCard> cards = List.of(cardAlice, cardBob, cardCharlie);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try
+        {
+            CountDownLatch placeStart = new CountDownLatch(1);
+            List<Future<?>> placing = new ArrayList<>();
+            for (int t = 0; t < threads; t++)
+            {
+                int who = t % customers.size();
+                placing.add(pool.submit(() -> {
+                    placeStart.await();
+                    for (int i = 0; i < ordersPerThread; i++)
+                    {
+                        system.placeOrder(List.of(gamingPC, customPC), customers.get(who), cards.get(who));
+                    }
+                    return null;
+                }));
+            }
+            placeStart.countDown();
+            for (Future<?> f : placing)
+            {
+                f.get();
+            }
+
+            List<Order> history = system.getOrderHistory();
+            assertEquals(threads * ordersPerThread, history.size(), "No placed order should be lost.");
+
+            AtomicInteger fulfilled = new AtomicInteger();
+            AtomicInteger cancelled = new AtomicInteger();
+            CountDownLatch raceStart = new CountDownLatch(1);
+            List<Future<?>> racing = new ArrayList<>();
+            for (int t = 0; t < threads; t++)
+            {
+                boolean fulfiller = t % 2 == 0;
+                racing.add(pool.submit(() -> {
+                    raceStart.await();
+                    // Opposite directions, so each side wins some orders wherever they meet
+                    for (int i = 0; i < history.size(); i++)
+                    {
+                        Order order = history.get(fulfiller ? i : history.size() - 1 - i);
+                        try
+                        {
+                            if (fulfiller)
+                            {
+                                system.fulfillOrder(order);
+                                fulfilled.incrementAndGet();
+                            }
+                            else
+                            {
+                                system.cancelOrder(order);
+                                cancelled.incrementAndGet();
+                            }
+                        }
+                        catch (IllegalStateException e)
+                        {
+                            // Lost the race for this order
+                        }
+                    }
+                    return null;
+                }));
+            }
+            raceStart.countDown();
+            for (Future<?> f : racing)
+            {
+                f.get();
+            }
+
+            // Every order made exactly one legal transition
+            assertEquals(history.size(), fulfilled.get() + cancelled.get());
+
+            Map<Customer, Integer> expected = new HashMap<>();
+            int fulfilledInHistory = 0;
+            for (Order order : history)
+            {
+                assertNotEquals(OrderStatus.PLACED, order.getStatus());
+                if (order.getStatus() == OrderStatus.FULFILLED)
+                {
+                    fulfilledInHistory++;
+                    expected.merge(order.getCustomer(), 1, Integer::sum);
+                }
+            }
+            assertEquals(fulfilled.get(), fulfilledInHistory);
+            assertEquals(fulfilled.get(), system.getOrders(OrderStatus.FULFILLED).size());
+            assertEquals(cancelled.get(), system.getOrders(OrderStatus.CANCELLED).size());
+            assertTrue(system.getOrders(OrderStatus.PLACED).isEmpty());
+
+            // The report counters saw every fulfillment exactly once
+            Map.Entry<Customer, Integer> largest = system.getLargestCustomer();
+            assertEquals(expected.get(largest.getKey()), largest.getValue());
+            assertEquals(expected.values().stream().max(Integer::compare).orElseThrow(), largest.getValue());
+            assertEquals(fulfilledInHistory, system.getMostOrderedModel().getValue());
+
+            // The rankings saw them too, with one entry per customer
+            List<Map.Entry<Customer, Integer>> top = system.getTopCustomers(expected.size() + 1);
+            assertEquals(expected.size(), top.size());
+            for (Map.Entry<Customer, Integer> entry : top)
+            {
+                assertEquals(expected.get(entry.getKey()), entry.getValue());
+            }
+            assertEquals(largest, top.get(0));
+        }
+        finally
+        {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void testFulfillOrdersMergesBatch()
+    {
+        List<Order> batch = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+        {
+            batch.add(system.placeOrder(List.of(gamingPC, budgetPC, officePC), customerAlice, cardAlice));
+        }
+        Order cancelled = system.placeOrder(List.of(gamingPC), customerBob, cardBob);
+        system.cancelOrder(cancelled);
+        batch.add(500, cancelled);
+        batch.add(batch.get(0)); // Listed twice, can only be fulfilled once
+        batch.add(batch.get(0));
+        batch.add(700, null);
+        batch.add(null);
+
+        BatchFulfillmentResult result = system.fulfillOrders(batch);
+
+        assertEquals(1000, result.getFulfilledCount());
+        List<Order> failed = new ArrayList<>();
+        result.getFailures().forEach(failure -> failed.add(failure.getKey()));
+        assertEquals(Arrays.asList(cancelled, null, batch.get(0), batch.get(0), null), failed,
+                "Failures are reported in batch order, once per failure.");
+        assertEquals("Order cannot be null.", result.getFailures().get(1).getValue());
+
+        Map<String, Map<String, Integer>> presets = result.getMergedResult().getPresetModelsFromManufacturers();
+        assertEquals(List.of("BuildsRUs", "Dell"), new ArrayList<>(presets.keySet()), "Manufacturers are sorted.");
+        assertEquals(Map.of("BudgetBox", 1000, "GamerX", 1000), presets.get("BuildsRUs"));
+        assertEquals(1000, presets.get("Dell").get("OfficePal"));
+
+        // The batch updates the reports like single fulfillments do
+        assertEquals(1000, system.getLargestCustomer().getValue());
+        for (Order order : batch)
+        {
+            assertTrue(order == null || order.getStatus() != OrderStatus.PLACED);
+        }
+    }
+
+    @Test
+    void testGetOrdersByStatus()
+    {
+        Order placed = system.placeOrder(List.of(gamingPC), customerAlice, cardAlice);
+        Order fulfilled = system.placeOrder(List.of(officePC), customerBob, cardBob);
+        Order cancelled = system.placeOrder(List.of(budgetPC), customerCharlie, cardCharlie);
+
+        Collection<Order> placedView = system.getOrders(OrderStatus.PLACED);
+        assertEquals(3, placedView.size());
+
+        system.fulfillOrder(fulfilled);
+        system.cancelOrder(cancelled);
+
+        // The view is live and only holds orders in its status
+        assertEquals(List.of(placed), new ArrayList<>(placedView));
+        assertEquals(List.of(fulfilled), new ArrayList<>(system.getOrders(OrderStatus.FULFILLED)));
+        assertEquals(List.of(cancelled), new ArrayList<>(system.getOrders(OrderStatus.CANCELLED)));
+        assertSame(placedView, system.getOrders(OrderStatus.PLACED), "The view is not rebuilt per call.");
+
+        assertThrows(UnsupportedOperationException.class, () -> placedView.remove(placed));
+        assertThrows(IllegalArgumentException.class, () -> system.getOrders(null));
+    }
+
+    @Test
+    void testTimeRangeQueries() throws InterruptedException
+    {
+        PCModel rangeBuild = CustomModelFactory.getInstance("RangeBuild");
+        ((CustomModel) rangeBuild).addPart("Range-PSU");
+
+        // Earlier orders: Charlie buys twice, once with a custom build
+        Order early1 = system.placeOrder(List.of(officePC, rangeBuild), customerCharlie, cardCharlie);
+        Order early2 = system.placeOrder(List.of(officePC), customerCharlie, cardCharlie);
+        system.fulfillOrder(early1);
+        system.fulfillOrder(early2);
+
+        Thread.sleep(5);
+        long boundary = System.currentTimeMillis();
+        Thread.sleep(5);
+
+        // Later orders: Alice buys once, plus one order left placed
+        Order late = system.placeOrder(List.of(gamingPC), customerAlice, cardAlice);
+        system.fulfillOrder(late);
+        Order open = system.placeOrder(List.of(gamingPC), customerBob, cardBob);
+
+        assertEquals(List.of(early1, early2), system.getOrdersBetween(0, boundary));
+        assertEquals(List.of(late, open), system.getOrdersBetween(boundary, Long.MAX_VALUE));
+        assertEquals(List.of(late), system.getOrdersBetween(late.getOrderTime(), late.getOrderTime() + 1)
+                .subList(0, 1));
+        assertTrue(system.getOrdersBetween(boundary, boundary).isEmpty());
+
+        assertEquals(Map.entry(customerCharlie, 2), system.getLargestCustomer(0, boundary));
+        assertEquals(Map.entry(customerAlice, 1), system.getLargestCustomer(boundary, Long.MAX_VALUE));
+        assertEquals(Map.entry(officePC, 2), system.getMostOrderedModel(0, boundary));
+        assertEquals(Map.entry(gamingPC, 1), system.getMostOrderedModel(boundary, Long.MAX_VALUE));
+        assertEquals(Map.entry("Range-PSU", 1), system.getMostOrderedPart(0, boundary));
+        assertNull(system.getMostOrderedPart(boundary, Long.MAX_VALUE), "No custom parts were ordered later.");
+
+        assertThrows(IllegalArgumentException.class, () -> system.getOrdersBetween(10, 5));
+    }
+
+    @Test
+    void testOrdersForCustomer()
+    {
+        Order first = system.placeOrder(List.of(gamingPC), customerAlice, cardAlice);
+        Order second = system.placeOrder(List.of(officePC), customerAlice, cardAlice);
+        Order third = system.placeOrder(List.of(budgetPC), customerAlice, cardAlice);
+        system.placeOrder(List.of(budgetPC), customerBob, cardBob);
+
+        system.fulfillOrder(first);
+        system.cancelOrder(second);
+
+        // An equal customer object finds the same orders
+        Customer sameAlice = new CustomerImpl("Alice", "Smith");
+        assertEquals(List.of(first, second, third), system.getOrdersFor(sameAlice));
+        assertEquals(1, system.getOrderCountFor(sameAlice, OrderStatus.FULFILLED));
+        assertEquals(1, system.getOrderCountFor(sameAlice, OrderStatus.CANCELLED));
+        assertEquals(1, system.getOrderCountFor(sameAlice, OrderStatus.PLACED));
+        assertEquals(1, system.getOrderCountFor(customerBob, OrderStatus.PLACED));
+
+        Customer stranger = new CustomerImpl("Nobody", "Here");
+        assertTrue(system.getOrdersFor(stranger).isEmpty());
+        assertEquals(0, system.getOrderCountFor(stranger, OrderStatus.PLACED));
+
+        assertThrows(UnsupportedOperationException.class, () -> system.getOrdersFor(sameAlice).clear());
+        assertThrows(IllegalArgumentException.class, () -> system.getOrdersFor(null));
+        assertThrows(IllegalArgumentException.class, () -> system.getOrderCountFor(sameAlice, null));
+    }
+
+    @Test
+    void testOrderPages()
+    {
+        List<Order> alices = new ArrayList<>();
+        for (int i = 0; i < 7; i++)
+        {
+            alices.add(system.placeOrder(List.of(gamingPC), customerAlice, cardAlice));
+            system.placeOrder(List.of(officePC), customerBob, cardBob);
+        }
+        system.fulfillOrder(alices.get(1));
+        system.fulfillOrder(alices.get(4));
+
+        List<Order> read = new ArrayList<>();
+        OrderPage page = system.getOrderPage(3, null, null, customerAlice);
+        read.addAll(page.getOrders());
+        while (page.hasMore())
+        {
+            page = system.getOrderPage(3, page.getNextToken(), null, customerAlice);
+            assertTrue(page.getOrders().size() <= 3);
+            read.addAll(page.getOrders());
+        }
+        assertEquals(alices, read);
+
+        // A finished cursor picks up orders placed later
+        Order later = system.placeOrder(List.of(gamingPC), customerAlice, cardAlice);
+        assertEquals(List.of(later), system.getOrderPage(3, page.getNextToken(), null, customerAlice).getOrders());
+
+        OrderPage fulfilled = system.getOrderPage(10, null, OrderStatus.FULFILLED, null);
+        assertEquals(List.of(alices.get(1), alices.get(4)), fulfilled.getOrders());
+        assertFalse(fulfilled.hasMore());
+        OrderPage first = system.getOrderPage(1, null, OrderStatus.FULFILLED, null);
+        assertEquals(List.of(alices.get(4)),
+                system.getOrderPage(5, first.getNextToken(), OrderStatus.FULFILLED, null).getOrders());
+
+        assertThrows(IllegalArgumentException.class, () -> system.getOrderPage(0, null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> system.getOrderPage(5, "not-a-token", null, null));
+        assertThrows(IllegalStateException.class, () -> system.getOrderPage(5, "3.999999", null, null),
+                "A token must name the order it stopped after.");
+    }
+
+    @Test
+    void testHistorySpliterator()
+    {
+        int count = 10_000;
+        for (int i = 0; i < count; i++)
+        {
+            system.placeOrder(List.of(budgetPC), customerCharlie, cardCharlie);
+        }
+        List<Order> history = system.getOrderHistory();
+
+        Spliterator<Order> whole = history.spliterator();
+        assertTrue(whole.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED));
+        assertEquals(count, whole.getExactSizeIfKnown());
+        system.placeOrder(List.of(budgetPC), customerCharlie, cardCharlie);
+        assertEquals(count, whole.estimateSize(), "The spliterator covers the orders placed before it.");
+
+        Spliterator<Order> prefix = whole.trySplit();
+        assertNotNull(prefix);
+        assertEquals(count, prefix.estimateSize() + whole.estimateSize());
+        List<Order> walked = new ArrayList<>();
+        prefix.forEachRemaining(walked::add);
+        while (whole.tryAdvance(walked::add))
+        {
+        }
+        assertEquals(history.subList(0, count), walked);
+
+        assertEquals(count + 1, history.parallelStream().count());
+        assertEquals(count + 1, history.parallelStream().filter(order -> order.getCustomer() == customerCharlie).count());
+    }
+
+    @Test
+    void testCancelFromHistoryWhilePlacing() throws Exception
+    {
+        int placers = 3;
+        int ordersPerPlacer = 3000;
+        ExecutorService pool = Executors.newFixedThreadPool(placers + 1);
+        try
+        {
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicInteger placing = new AtomicInteger(placers);
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < placers; t++)
+            {
+                tasks.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ordersPerPlacer; i++)
+                    {
+                        system.placeOrder(List.of(budgetPC), customerCharlie, cardCharlie);
+                    }
+                    placing.decrementAndGet();
+                    return null;
+                }));
+            }
+            // Cancels each order as soon as it shows up in the history
+            tasks.add(pool.submit(() -> {
+                start.await();
+                int seen = 0;
+                while (placing.get() > 0 || seen < system.getOrderHistory().size())
+                {
+                    List<Order> history = system.getOrderHistory();
+                    for (; seen < history.size(); seen++)
+                    {
+                        system.cancelOrder(history.get(seen));
+                    }
+                }
+                return null;
+            }));
+            start.countDown();
+            for (Future<?> task : tasks)
+            {
+                task.get();
+            }
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+
+        int total = placers * ordersPerPlacer;
+        assertEquals(total, system.getOrders(OrderStatus.CANCELLED).size());
+        assertTrue(system.getOrders(OrderStatus.PLACED).isEmpty(), "A cancelled order must not stay placed.");
+        assertEquals(total, system.getOrderCountFor(customerCharlie, OrderStatus.CANCELLED));
+        assertEquals(0, system.getOrderCountFor(customerCharlie, OrderStatus.PLACED));
+    }
+}
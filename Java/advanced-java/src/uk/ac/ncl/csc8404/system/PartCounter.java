@@ -0,0 +1,105 @@
+package uk.ac.ncl.csc8404.system;
+
+import java.util.Arrays;
+
+/**
+ * Counts part ids for one piece of work, such as a single fulfillment
+ * or one time-range report, without boxing.
+ * Ids are gathered into an {@code int} array; {@link #tally()} then sorts
+ * it so equal ids are adjacent and compacts them into distinct ids and counts.
+ * Not thread-safe, use one per task.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+final class PartCounter
+{
+
+    private int[] ids = new int[16];
+    private int[] counts = new int[0];
+    private int size;
+
+    /**
+     * Adds one of each of the given parts.
+     *
+     * @param partIds part ids from the {@link uk.ac.ncl.csc8404.model.PartDictionary}.
+     */
+    void addAll(int[] partIds)
+    {
+        if (size + partIds.length > ids.length)
+        {
+            ids = Arrays.copyOf(ids, Math.max(ids.length * 2, size + partIds.length));
+        }
+        System.arraycopy(partIds, 0, ids, size, partIds.length);
+        size += partIds.length;
+    }
+
+    /**
+     * Adds a number of one part.
+     *
+     * @param partId a part id from the {@link uk.ac.ncl.csc8404.model.PartDictionary}.
+     * @param times how many to add.
+     */
+    void add(int partId, int times)
+    {
+        if (size + times > ids.length)
+        {
+            ids = Arrays.copyOf(ids, Math.max(ids.length * 2, size + times));
+        }
+        Arrays.fill(ids, size, size + times, partId);
+        size += times;
+    }
+
+    /**
+     * Groups the parts added so far. Call once, after the last add.
+     *
+     * @return the number of distinct parts, read back with {@link #partId(int)} and {@link #count(int)}.
+     */
+    int tally()
+    {
+        Arrays.sort(ids, 0, size);
+        counts = new int[size];
+
+        int distinct = 0;
+        for (int i = 0; i < size; )
+        {
+            int run = 1;
+            while (i + run < size && ids[i + run] == ids[i])
+            {
+                run++;
+            }
+            ids[distinct] = ids[i];
+            counts[distinct] = run;
+            distinct++;
+            i += run;
+        }
+        size = distinct;
+        return distinct;
+    }
+
+    /**
+     * @return the number of distinct parts, once tallied.
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * @param index position among the distinct parts.
+     * @return the part id at that position.
+     */
+    int partId(int index)
+    {
+        return ids[index];
+    }
+
+    /**
+     * @param index position among the distinct parts.
+     * @return how many times that part was added.
+     */
+    int count(int index)
+    {
+        return counts[index];
+    }
+}
@@ -0,0 +1,206 @@
+package uk.ac.ncl.csc8404.system;
+
+import uk.ac.ncl.csc8404.model.PartDictionary;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Running count of ordered parts, indexed by {@link PartDictionary} id.
+ * The part-specific counterpart of {@link SalesTally}: counts live in
+ * {@code int} arrays rather than a map of boxed counts, and the leader is
+ * packed into a single {@code long} (count in the high half, id in the low
+ * half) that is replaced with compare-and-set.
+ * <p>
+ * Parts are also ranked, packed the same way, in count order and then
+ * alphabetically, so the top {@code k} parts are read off the front.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+final class PartTally
+{
+
+    private static final int SEGMENT_SHIFT = 10;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final long NONE = -1L;
+    private static final int STRIPES = 64;
+
+    // Most sold first, then the alphabetical sort rule
+    private static final Comparator<Long> BY_RANK = Comparator.<Long>comparingInt(packed -> -(int) (packed >>> 32))
+            .thenComparing(packed -> PartDictionary.nameOf((int) (long) packed));
+
+    private volatile AtomicIntegerArray[] segments = new AtomicIntegerArray[4];
+    private final AtomicLong leader = new AtomicLong(NONE);
+    private final ConcurrentSkipListSet<Long> ranking = new ConcurrentSkipListSet<>(BY_RANK);
+    private final Object[] stripes = new Object[STRIPES];
+
+    PartTally()
+    {
+        for (int i = 0; i < STRIPES; i++)
+        {
+            stripes[i] = new Object();
+        }
+    }
+
+    /**
+     * Adds sales for a part and updates the leader.
+     *
+     * @param partId the part's dictionary id.
+     * @param quantity how many were sold, at least one.
+     */
+    void add(int partId, int quantity)
+    {
+        AtomicIntegerArray segment = segmentFor(partId);
+        int count;
+        // A part's count and ranking entry change together; readers of the ranking
+        // are not locked out, see getTop
+        synchronized (stripes[partId & (STRIPES - 1)])
+        {
+            count = segment.addAndGet(partId & SEGMENT_MASK, quantity);
+            ranking.add(((long) count << 32) | partId);
+            if (count != quantity)
+            {
+                ranking.remove(((long) (count - quantity) << 32) | partId);
+            }
+        }
+
+        long current = leader.get();
+        while (beats(partId, count, current))
+        {
+            if (leader.compareAndSet(current, ((long) count << 32) | partId))
+            {
+                return;
+            }
+            current = leader.get();
+        }
+    }
+
+    private static boolean beats(int partId, int count, long current)
+    {
+        if (current == NONE)
+        {
+            return true;
+        }
+        int leaderCount = (int) (current >>> 32);
+        int leaderId = (int) current;
+        if (count != leaderCount)
+        {
+            return count > leaderCount;
+        }
+        // Alphabetical sort rule
+        return partId != leaderId
+                && PartDictionary.nameOf(partId).compareTo(PartDictionary.nameOf(leaderId)) < 0;
+    }
+
+    /**
+     * @param partId the part's dictionary id.
+     * @return how many of the part have been sold.
+     */
+    int count(int partId)
+    {
+        AtomicIntegerArray[] current = segments;
+        int segment = partId >>> SEGMENT_SHIFT;
+        if (segment >= current.length || current[segment] == null)
+        {
+            return 0;
+        }
+        return current[segment].get(partId & SEGMENT_MASK);
+    }
+
+    /**
+     * @return the most sold part and its count, or null if nothing has been counted.
+     */
+    Map.Entry<String, Integer> getLeader()
+    {
+        long current = leader.get();
+        if (current == NONE)
+        {
+            return null;
+        }
+        return new AbstractMap.SimpleEntry<>(PartDictionary.nameOf((int) current), (int) (current >>> 32));
+    }
+
+    /**
+     * Reads the ranking without locking, so while parts are being counted
+     * a part may be listed at its old or new count, or left out if it moved
+     * ahead of the read, as in {@link SalesTally#getTop(int)}.
+     *
+     * @param k how many parts to return.
+     * @return up to k parts with the highest counts, highest first, ties alphabetically.
+     */
+    List<Map.Entry<String, Integer>> getTop(int k)
+    {
+        List<Map.Entry<String, Integer>> top = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+        for (long packed : ranking)
+        {
+            if (top.size() == k)
+            {
+                break;
+            }
+            // A part being updated can briefly be listed twice; the first is the newer count
+            int partId = (int) packed;
+            if (seen.add(partId))
+            {
+                top.add(new AbstractMap.SimpleEntry<>(PartDictionary.nameOf(partId), (int) (packed >>> 32)));
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Reads every count, as exactly as {@link #getTop(int)}: counts are only
+     * a snapshot if no part is counted during the call.
+     *
+     * @return the count of every part sold, keyed by part name.
+     */
+    Map<String, Integer> counts()
+    {
+        Map<String, Integer> counts = new HashMap<>();
+        for (long packed : ranking)
+        {
+            // The first entry of a part being updated is the newer count
+            counts.putIfAbsent(PartDictionary.nameOf((int) packed), (int) (packed >>> 32));
+        }
+        return counts;
+    }
+
+    private AtomicIntegerArray segmentFor(int partId)
+    {
+        int segment = partId >>> SEGMENT_SHIFT;
+        AtomicIntegerArray[] current = segments;
+        if (segment < current.length && current[segment] != null)
+        {
+            return current[segment];
+        }
+        return allocateSegment(segment);
+    }
+
+    private synchronized AtomicIntegerArray allocateSegment(int segment)
+    {
+        AtomicIntegerArray[] current = segments;
+        if (segment >= current.length)
+        {
+            AtomicIntegerArray[] grown = new AtomicIntegerArray[Math.max(current.length * 2, segment + 1)];
+            System.arraycopy(current, 0, grown, 0, current.length);
+            current = grown;
+        }
+        if (current[segment] == null)
+        {
+            current[segment] = new AtomicIntegerArray(SEGMENT_SIZE);
+        }
+        segments = current;
+        return current[segment];
+    }
+}
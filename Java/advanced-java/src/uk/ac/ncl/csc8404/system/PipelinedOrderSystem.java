@@ -0,0 +1,339 @@
+package uk.ac.ncl.csc8404.system;
+
+import uk.ac.ncl.csc8404.model.PCModel;
+import uk.ac.ncl.csc8404.order.Order;
+import uk.ac.ncl.csc8404.payment.CreditCard;
+import uk.ac.ncl.csc8404.user.Customer;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link AsyncOrderSystem} that runs requests through a pipeline of
+ * {@link AsyncOrderSystem.Stage stages} in front of an {@link OrderSystem}.
+ * <p>
+ * Each stage has a bounded queue and its own workers. A new request is
+ * rejected at once if the first queue is full, so callers are never
+ * blocked; between stages a worker waits for room in the next queue, so a
+ * slow stage holds back the ones before it instead of letting work pile up.
+ * <p>
+ * Workers run on virtual threads when the runtime has them, which lets
+ * slow blocking stages have many workers cheaply, and on daemon platform
+ * threads otherwise.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+public final class PipelinedOrderSystem implements AsyncOrderSystem
+{
+
+    /**
+     * Default capacity of each stage's queue.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    /**
+     * Default number of workers per stage.
+     */
+    public static final int DEFAULT_WORKERS = 16;
+
+    private static final AtomicInteger PIPELINE_COUNT = new AtomicInteger();
+
+    private final OrderSystem system;
+    private final Map<Stage, StageWorkers> stages = new EnumMap<>(Stage.class);
+    private volatile boolean closed;
+
+    /**
+     * Constructs a pipeline with the default queue capacity and workers.
+     *
+     * @param system the system orders are placed in.
+     * @throws IllegalArgumentException if system is null.
+     */
+    public PipelinedOrderSystem(OrderSystem system)
+    {
+        this(system, DEFAULT_QUEUE_CAPACITY, DEFAULT_WORKERS);
+    }
+
+    /**
+     * Constructs a new PipelinedOrderSystem.
+     *
+     * @param system the system orders are placed in.
+     * @param queueCapacity the capacity of each stage's queue.
+     * @param workersPerStage the number of workers each stage has.
+     * @throws IllegalArgumentException if system is null or a count is not positive.
+     */
+    public PipelinedOrderSystem(OrderSystem system, int queueCapacity, int workersPerStage)
+    {
+        if (system == null)
+        {
+            throw new IllegalArgumentException("Order system cannot be null.");
+        }
+        if (queueCapacity <= 0 || workersPerStage <= 0)
+        {
+            throw new IllegalArgumentException("Queue capacity and worker count must be positive.");
+        }
+
+        this.system = system;
+        ThreadFactory threads = threadFactory("order-pipeline-" + PIPELINE_COUNT.incrementAndGet());
+        for (Stage stage : Stage.values())
+        {
+            stages.put(stage, new StageWorkers(queueCapacity, workersPerStage, threads));
+        }
+    }
+
+    @Override
+    public CompletableFuture<Order> placeOrderAsync(List<PCModel> models, Customer customer, CreditCard creditCard)
+    {
+        CompletableFuture<Order> future = new CompletableFuture<>();
+        List<PCModel> copy = models == null ? null : new ArrayList<>(models); // The caller may reuse the list
+        submit(future, () ->
+        {
+            validate(copy, customer, creditCard);
+            forward(Stage.CREATION, future, () -> future.complete(system.placeOrder(copy, customer, creditCard)));
+        });
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<FulfillmentResult> fulfillOrderAsync(Order order)
+    {
+        CompletableFuture<FulfillmentResult> future = new CompletableFuture<>();
+        submit(future, () ->
+        {
+            if (order == null)
+            {
+                throw new IllegalArgumentException("Order cannot be null.");
+            }
+            forward(Stage.FULFILMENT, future, () -> future.complete(system.fulfillOrder(order)));
+        });
+        return future;
+    }
+
+    private static void validate(List<PCModel> models, Customer customer, CreditCard creditCard)
+    {
+        if (models == null || models.isEmpty() || models.contains(null))
+        {
+            throw new IllegalArgumentException("Model list cannot be null or empty.");
+        }
+        if (customer == null)
+        {
+            throw new IllegalArgumentException("Customer cannot be null.");
+        }
+        if (creditCard == null || !creditCard.isValid())
+        {
+            throw new IllegalArgumentException("Cannot place order with an invalid credit card.");
+        }
+    }
+
+    // Called by callers, so it never waits for room.
+    private void submit(CompletableFuture<?> future, Runnable work)
+    {
+        if (closed)
+        {
+            future.completeExceptionally(new RejectedExecutionException("Order pipeline is closed."));
+            return;
+        }
+        BlockingQueue<Job> queue = stages.get(Stage.VALIDATION).queue;
+        Job job = new Job(future, work);
+        if (!queue.offer(job))
+        {
+            future.completeExceptionally(new RejectedExecutionException("Order pipeline is full."));
+        }
+        else if (closed && queue.remove(job))
+        {
+            // Closed while offering, after the queue was drained
+            future.completeExceptionally(new RejectedExecutionException("Order pipeline is closed."));
+        }
+    }
+
+    // Called by workers, so it waits for room in the next stage.
+    private void forward(Stage stage, CompletableFuture<?> future, Runnable work)
+    {
+        try
+        {
+            stages.get(stage).queue.put(new Job(future, work));
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(new RejectedExecutionException("Order pipeline was interrupted."));
+        }
+    }
+
+    @Override
+    public int getQueueDepth(Stage stage)
+    {
+        if (stage == null)
+        {
+            throw new IllegalArgumentException("Stage cannot be null.");
+        }
+        return stages.get(stage).queue.size();
+    }
+
+    @Override
+    public OrderSystem getOrderSystem()
+    {
+        return system;
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+        // Stages stop in order, so everything an earlier stage forwards is still run.
+        for (Stage stage : Stage.values())
+        {
+            stages.get(stage).stop();
+        }
+        // Requests that raced with closing are left behind the stop markers.
+        for (StageWorkers workers : stages.values())
+        {
+            Job job;
+            while ((job = workers.queue.poll()) != null)
+            {
+                if (job.future != null)
+                {
+                    job.future.completeExceptionally(new RejectedExecutionException("Order pipeline is closed."));
+                }
+            }
+        }
+    }
+
+    // Uses Thread.ofVirtual() where it exists, without needing it to compile.
+    private static ThreadFactory threadFactory(String name)
+    {
+        try
+        {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+            Method factory = builderType.getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        }
+        catch (ReflectiveOperationException | RuntimeException e)
+        {
+            AtomicInteger count = new AtomicInteger();
+            return task ->
+            {
+                Thread thread = new Thread(task, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+
+    /**
+     * A request waiting in a stage's queue. A job with no work tells a
+     * worker to stop.
+     */
+    private static final class Job
+    {
+        final CompletableFuture<?> future;
+        final Runnable work;
+
+        Job(CompletableFuture<?> future, Runnable work)
+        {
+            this.future = future;
+            this.work = work;
+        }
+    }
+
+    /**
+     * The queue and workers of one stage.
+     */
+    private static final class StageWorkers
+    {
+        final BlockingQueue<Job> queue;
+        final List<Thread> threads = new ArrayList<>();
+
+        StageWorkers(int capacity, int workers, ThreadFactory factory)
+        {
+            queue = new ArrayBlockingQueue<>(capacity);
+            for (int i = 0; i < workers; i++)
+            {
+                Thread thread = factory.newThread(this::run);
+                threads.add(thread);
+                thread.start();
+            }
+        }
+
+        private void run()
+        {
+            while (true)
+            {
+                Job job;
+                try
+                {
+                    job = queue.take();
+                }
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+                if (job.work == null)
+                {
+                    return;
+                }
+                try
+                {
+                    job.work.run();
+                }
+                catch (Throwable e)
+                {
+                    job.future.completeExceptionally(e); // Keep the worker alive for the next job
+                }
+            }
+        }
+
+        void stop()
+        {
+            boolean interrupted = false;
+            for (int i = 0; i < threads.size(); i++)
+            {
+                while (true)
+                {
+                    try
+                    {
+                        queue.put(new Job(null, null));
+                        break;
+                    }
+                    catch (InterruptedException e)
+                    {
+                        interrupted = true;
+                    }
+                }
+            }
+            for (Thread thread : threads)
+            {
+                while (thread.isAlive())
+                {
+                    try
+                    {
+                        thread.join();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
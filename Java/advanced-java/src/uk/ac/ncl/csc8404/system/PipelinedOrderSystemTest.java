@@ -0,0 +1,179 @@
+package uk.ac.ncl.csc8404.system;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ncl.csc8404.model.*;
+import uk.ac.ncl.csc8404.order.*;
+import uk.ac.ncl.csc8404.payment.*;
+import uk.ac.ncl.csc8404.user.*;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test
+ * This class tests the asynchronous {@link PipelinedOrderSystem}.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+class PipelinedOrderSystemTest
+{
+
+    private Customer customerAlice;
+    private CreditCard cardAlice, expiredCard;
+    private PCModel gamingPC;
+
+    @BeforeEach
+    void setUp()
+    {
+        customerAlice = new CustomerImpl("Alice", "Smith");
+
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.YEAR, 1);
+        cardAlice = CreditCardFactory.getInstance("11111111", cal.getTime(), "Alice Smith");
+        expiredCard = CreditCardFactory.getInstance("82000001", new Date(0), "Old Card");
+
+        gamingPC = new PresetModel("GamerX", "BuildsRUs", Arrays.asList("i9-CPU", "4090-GPU"));
+    }
+
+    @Test
+    void testPlaceAndFulfillAsync() throws Exception
+    {
+        try (PipelinedOrderSystem pipeline = new PipelinedOrderSystem(new OrderSystemImpl(), 64, 4))
+        {
+            List<CompletableFuture<FulfillmentResult>> results = new ArrayList<>();
+            for (int i = 0; i < 50; i++)
+            {
+                results.add(pipeline.placeOrderAsync(List.of(gamingPC), customerAlice, cardAlice)
+                        .thenCompose(pipeline::fulfillOrderAsync));
+            }
+            for (CompletableFuture<FulfillmentResult> result : results)
+            {
+                assertEquals(1, result.get(10, TimeUnit.SECONDS).getPresetModelsFromManufacturers().get("BuildsRUs").get("GamerX"));
+            }
+
+            OrderSystem system = pipeline.getOrderSystem();
+            assertEquals(50, system.getOrderHistory().size());
+            assertEquals(50, system.getOrders(OrderStatus.FULFILLED).size());
+            assertEquals(50, system.getLargestCustomer().getValue());
+        }
+    }
+
+    @Test
+    void testFailuresCompleteExceptionally()
+    {
+        try (PipelinedOrderSystem pipeline = new PipelinedOrderSystem(new OrderSystemImpl(), 8, 1))
+        {
+            assertCause(IllegalArgumentException.class,
+                    pipeline.placeOrderAsync(List.of(gamingPC), customerAlice, expiredCard));
+            assertCause(IllegalArgumentException.class,
+                    pipeline.placeOrderAsync(List.of(), customerAlice, cardAlice));
+            assertCause(IllegalArgumentException.class, pipeline.fulfillOrderAsync(null));
+
+            Order order = pipeline.placeOrderAsync(List.of(gamingPC), customerAlice, cardAlice).join();
+            pipeline.getOrderSystem().cancelOrder(order);
+            assertCause(IllegalStateException.class, pipeline.fulfillOrderAsync(order));
+            assertEquals(1, pipeline.getOrderSystem().getOrderHistory().size(), "Invalid requests should not create orders.");
+        }
+    }
+
+    @Test
+    void testQueueDepthAndBackPressure() throws Exception
+    {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        OrderSystem slow = blockingPlaceOrder(new OrderSystemImpl(), entered, release);
+
+        int capacity = 4;
+        PipelinedOrderSystem pipeline = new PipelinedOrderSystem(slow, capacity, 1);
+        List<CompletableFuture<Order>> accepted = new ArrayList<>();
+        accepted.add(pipeline.placeOrderAsync(List.of(gamingPC), customerAlice, cardAlice));
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+
+        // Creation is stuck, so the creation queue fills, then the validation worker waits, then validation fills
+        CompletableFuture<Order> rejected = null;
+        for (int i = 0; i < 3 * capacity && rejected == null; i++)
+        {
+            CompletableFuture<Order> future = pipeline.placeOrderAsync(List.of(gamingPC), customerAlice, cardAlice);
+            if (future.isCompletedExceptionally())
+            {
+                rejected = future;
+            }
+            else
+            {
+                accepted.add(future);
+                waitForDepths(pipeline, Math.min(accepted.size() - 1, capacity),
+                        Math.max(0, accepted.size() - 2 - capacity));
+            }
+        }
+        assertNotNull(rejected, "A full pipeline should reject new requests.");
+        assertCause(RejectedExecutionException.class, rejected);
+        assertEquals(capacity, pipeline.getQueueDepth(AsyncOrderSystem.Stage.CREATION));
+        assertEquals(capacity, pipeline.getQueueDepth(AsyncOrderSystem.Stage.VALIDATION));
+        assertEquals(0, pipeline.getQueueDepth(AsyncOrderSystem.Stage.FULFILMENT));
+
+        release.countDown();
+        pipeline.close();
+        for (CompletableFuture<Order> future : accepted)
+        {
+            assertNotNull(future.get(10, TimeUnit.SECONDS), "Accepted requests should finish when closing.");
+        }
+        assertEquals(accepted.size(), slow.getOrderHistory().size());
+        assertCause(RejectedExecutionException.class,
+                pipeline.placeOrderAsync(List.of(gamingPC), customerAlice, cardAlice));
+    }
+
+    // Waits for the workers to move the queued requests along.
+    private static void waitForDepths(PipelinedOrderSystem pipeline, int creation, int validation)
+            throws InterruptedException
+    {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (pipeline.getQueueDepth(AsyncOrderSystem.Stage.CREATION) != creation
+                || pipeline.getQueueDepth(AsyncOrderSystem.Stage.VALIDATION) != validation)
+        {
+            assertTrue(System.nanoTime() < deadline, "Queue depths did not settle.");
+            Thread.sleep(1);
+        }
+    }
+
+    // A system whose first placeOrder call waits until released.
+    private static OrderSystem blockingPlaceOrder(OrderSystem system, CountDownLatch entered, CountDownLatch release)
+    {
+        return (OrderSystem) Proxy.newProxyInstance(OrderSystem.class.getClassLoader(),
+                new Class<?>[] {OrderSystem.class}, (proxy, method, args) ->
+                {
+                    if (method.getName().equals("placeOrder"))
+                    {
+                        entered.countDown();
+                        release.await();
+                    }
+                    try
+                    {
+                        return method.invoke(system, args);
+                    }
+                    catch (InvocationTargetException e)
+                    {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private static void assertCause(Class<? extends Throwable> type, CompletableFuture<?> future)
+    {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(type, e.getCause());
+    }
+}
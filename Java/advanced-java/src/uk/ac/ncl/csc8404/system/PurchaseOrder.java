@@ -0,0 +1,97 @@
+package uk.ac.ncl.csc8404.system;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An immutable value object representing one purchase order to a
+ * manufacturer: the preset models needed by a number of fulfilled
+ * orders, consolidated by a {@link PurchaseOrderBatcher}.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+public final class PurchaseOrder
+{
+
+    private final String manufacturer;
+    private final CountMap models;
+    private final int totalModels;
+    private final int fulfillmentCount;
+    private final long firstDemandMillis;
+
+    PurchaseOrder(String manufacturer, CountMap models, int totalModels, int fulfillmentCount, long firstDemandMillis)
+    {
+        this.manufacturer = manufacturer;
+        this.models = models;
+        this.totalModels = totalModels;
+        this.fulfillmentCount = fulfillmentCount;
+        this.firstDemandMillis = firstDemandMillis;
+    }
+
+    /**
+     * @return the manufacturer the purchase order is for.
+     */
+    public String getManufacturer()
+    {
+        return manufacturer;
+    }
+
+    /**
+     * @return a read-only map of model name to the number to order, sorted by name.
+     */
+    public Map<String, Integer> getModels()
+    {
+        return models.asMap();
+    }
+
+    /**
+     * @return the number of models to order, over every model name.
+     */
+    public int getTotalModels()
+    {
+        return totalModels;
+    }
+
+    /**
+     * @return the number of fulfillments consolidated into this purchase order.
+     */
+    public int getFulfillmentCount()
+    {
+        return fulfillmentCount;
+    }
+
+    /**
+     * @return when the oldest demand in this purchase order was added, in epoch milliseconds.
+     */
+    public long getFirstDemandMillis()
+    {
+        return firstDemandMillis;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj) return true;
+        if (!(obj instanceof PurchaseOrder)) return false;
+        PurchaseOrder that = (PurchaseOrder) obj;
+        return fulfillmentCount == that.fulfillmentCount && firstDemandMillis == that.firstDemandMillis
+                && manufacturer.equals(that.manufacturer) && models.sameCounts(that.models);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(manufacturer, getModels(), fulfillmentCount, firstDemandMillis);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PurchaseOrder{" +
+                "manufacturer=" + manufacturer +
+                ", models=" + getModels() +
+                ", fulfillmentCount=" + fulfillmentCount +
+                '}';
+    }
+}
@@ -0,0 +1,387 @@
+package uk.ac.ncl.csc8404.system;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Consolidates the preset models needed by fulfilled orders into one
+ * purchase order per manufacturer, instead of one per fulfillment.
+ * Feed it the result of each fulfillment:
+ * <pre>
+ *     batcher.add(system.fulfillOrder(order));
+ * </pre>
+ * A manufacturer's purchase order is sent once it holds enough models, or
+ * once its oldest demand has waited long enough, whichever comes first.
+ * <p>
+ * Purchase orders are sent to the {@link PurchaseOrderSink} from a single
+ * daemon thread. Adding demand only takes a short per-manufacturer lock
+ * and never waits for the sink. Adds share a read lock that {@link #close()}
+ * takes exclusively, so demand accepted before closing is always sent.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+public final class PurchaseOrderBatcher implements AutoCloseable
+{
+
+    /**
+     * Default number of models that sends a manufacturer's purchase order.
+     */
+    public static final int DEFAULT_MAX_MODELS = 100;
+
+    /**
+     * Default longest time demand waits before its purchase order is sent.
+     */
+    public static final Duration DEFAULT_MAX_DELAY = Duration.ofMinutes(15);
+
+    private static final AtomicInteger BATCHER_COUNT = new AtomicInteger();
+
+    private final PurchaseOrderSink sink;
+    private final int maxModels;
+    private final long maxDelayNanos;
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final ReadWriteLock closing = new ReentrantReadWriteLock();
+    private boolean closed; // Guarded by closing
+
+    /**
+     * Constructs a batcher with the default thresholds.
+     *
+     * @param sink where purchase orders are sent.
+     * @throws IllegalArgumentException if sink is null.
+     */
+    public PurchaseOrderBatcher(PurchaseOrderSink sink)
+    {
+        this(sink, DEFAULT_MAX_MODELS, DEFAULT_MAX_DELAY);
+    }
+
+    /**
+     * Constructs a new PurchaseOrderBatcher.
+     *
+     * @param sink where purchase orders are sent.
+     * @param maxModels the number of models that sends a manufacturer's purchase order.
+     * @param maxDelay the longest time demand waits before its purchase order is sent.
+     * @throws IllegalArgumentException if sink or maxDelay is null, or a threshold is not positive.
+     */
+    public PurchaseOrderBatcher(PurchaseOrderSink sink, int maxModels, Duration maxDelay)
+    {
+        if (sink == null || maxDelay == null)
+        {
+            throw new IllegalArgumentException("Sink and delay cannot be null.");
+        }
+        if (maxModels <= 0 || maxDelay.isNegative() || maxDelay.isZero())
+        {
+            throw new IllegalArgumentException("Model count and delay must be positive.");
+        }
+
+        this.sink = sink;
+        this.maxModels = maxModels;
+        this.maxDelayNanos = toNanos(maxDelay);
+
+        String name = "purchase-orders-" + BATCHER_COUNT.incrementAndGet();
+        scheduler = new ScheduledThreadPoolExecutor(1, task ->
+        {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    private static long toNanos(Duration delay)
+    {
+        try
+        {
+            return delay.toNanos();
+        }
+        catch (ArithmeticException e)
+        {
+            return Long.MAX_VALUE; // Hundreds of years, never reached
+        }
+    }
+
+    /**
+     * Adds the preset models of a fulfillment to each manufacturer's
+     * pending purchase order. Parts collected from the warehouse are not
+     * ordered from manufacturers and are ignored.
+     *
+     * @param result the result of fulfilling one or more orders.
+     * @throws IllegalArgumentException if result is null.
+     * @throws IllegalStateException if the batcher is closed.
+     */
+    public void add(FulfillmentResult result)
+    {
+        if (result == null)
+        {
+            throw new IllegalArgumentException("Fulfillment result cannot be null.");
+        }
+        closing.readLock().lock();
+        try
+        {
+            if (closed)
+            {
+                throw new IllegalStateException("Purchase order batcher is closed.");
+            }
+            addDemand(result.presetModelCounts());
+        }
+        finally
+        {
+            closing.readLock().unlock();
+        }
+    }
+
+    private void addDemand(CountMap models)
+    {
+        for (int i = 0; i < models.size(); i++)
+        {
+            if (models.count(i) <= 0)
+            {
+                continue;
+            }
+            String manufacturer = models.first(i);
+            Pending batch = pending.computeIfAbsent(manufacturer, Pending::new);
+            synchronized (batch)
+            {
+                // Each manufacturer is counted once per fulfillment, at its first model.
+                boolean newFulfillment = true;
+                for (int j = 0; j < i; j++)
+                {
+                    if (manufacturer.equals(models.first(j)))
+                    {
+                        newFulfillment = false;
+                        break;
+                    }
+                }
+                batch.add(models.second(i), models.count(i), newFulfillment);
+            }
+        }
+    }
+
+    /**
+     * Sends every pending purchase order now, whatever its size or age.
+     *
+     * @return the number of purchase orders queued to the sink.
+     */
+    public int flush()
+    {
+        int count = 0;
+        for (Pending batch : pending.values())
+        {
+            synchronized (batch)
+            {
+                if (batch.total > 0)
+                {
+                    batch.sendLater();
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of purchase orders sent to the sink.
+     */
+    public long getSentCount()
+    {
+        return sent.get();
+    }
+
+    /**
+     * @return the number of purchase orders lost because the sink threw.
+     */
+    public long getFailedCount()
+    {
+        return failed.get();
+    }
+
+    /**
+     * Stops accepting demand, sends every pending purchase order and
+     * waits for the sink to receive them.
+     */
+    @Override
+    public synchronized void close()
+    {
+        // Waits for adds in progress; later ones see closed and are rejected
+        closing.writeLock().lock();
+        try
+        {
+            if (closed)
+            {
+                return;
+            }
+            closed = true;
+        }
+        finally
+        {
+            closing.writeLock().unlock();
+        }
+        flush();
+        scheduler.shutdown();
+        boolean interrupted = false;
+        while (true)
+        {
+            try
+            {
+                if (scheduler.awaitTermination(1, TimeUnit.MINUTES))
+                {
+                    break;
+                }
+            }
+            catch (InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        // Demand a rejected hand-off left behind, now that the scheduler thread has finished
+        for (Pending batch : pending.values())
+        {
+            PurchaseOrder purchaseOrder = null;
+            synchronized (batch)
+            {
+                if (batch.total > 0)
+                {
+                    purchaseOrder = batch.take();
+                }
+            }
+            if (purchaseOrder != null)
+            {
+                send(purchaseOrder);
+            }
+        }
+    }
+
+    private void send(PurchaseOrder purchaseOrder)
+    {
+        try
+        {
+            sink.send(purchaseOrder);
+            sent.incrementAndGet();
+        }
+        catch (RuntimeException e)
+        {
+            failed.incrementAndGet(); // The next purchase order still goes out
+        }
+    }
+
+    /**
+     * The purchase order being built for one manufacturer. Guarded by its
+     * own monitor.
+     */
+    private final class Pending
+    {
+        private final String manufacturer;
+        private CountMap models = new CountMap(16);
+        private int total;
+        private int fulfillments;
+        private long firstDemandMillis;
+        private long generation;
+        private ScheduledFuture<?> timer;
+
+        Pending(String manufacturer)
+        {
+            this.manufacturer = manufacturer;
+        }
+
+        void add(String model, int count, boolean newFulfillment)
+        {
+            if (total == 0)
+            {
+                firstDemandMillis = System.currentTimeMillis();
+                long due = generation;
+                try
+                {
+                    timer = scheduler.schedule(() -> sendIfDue(due), maxDelayNanos, TimeUnit.NANOSECONDS);
+                }
+                catch (RejectedExecutionException e)
+                {
+                    timer = null; // Shut down, the demand is sent by close()
+                }
+            }
+            models.add(model, count);
+            total += count;
+            if (newFulfillment)
+            {
+                fulfillments++;
+            }
+            if (total >= maxModels)
+            {
+                sendLater();
+            }
+        }
+
+        // Runs on the scheduler thread once the oldest demand is old enough.
+        private void sendIfDue(long due)
+        {
+            PurchaseOrder purchaseOrder;
+            synchronized (this)
+            {
+                if (generation != due || total == 0)
+                {
+                    return; // Already sent for its size
+                }
+                purchaseOrder = take();
+            }
+            send(purchaseOrder);
+        }
+
+        // Caller holds the monitor.
+        void sendLater()
+        {
+            PurchaseOrder purchaseOrder = toPurchaseOrder();
+            try
+            {
+                scheduler.execute(() -> send(purchaseOrder));
+            }
+            catch (RejectedExecutionException e)
+            {
+                return; // Shut down, the demand is left for close() to send
+            }
+            reset();
+        }
+
+        PurchaseOrder take()
+        {
+            PurchaseOrder purchaseOrder = toPurchaseOrder();
+            reset();
+            return purchaseOrder;
+        }
+
+        private PurchaseOrder toPurchaseOrder()
+        {
+            return new PurchaseOrder(manufacturer, models.sorted(), total, fulfillments, firstDemandMillis);
+        }
+
+        private void reset()
+        {
+            if (timer != null)
+            {
+                timer.cancel(false);
+                timer = null;
+            }
+            models = new CountMap(Math.max(16, models.size()));
+            total = 0;
+            fulfillments = 0;
+            generation++;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package uk.ac.ncl.csc8404.system;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ncl.csc8404.model.*;
+import uk.ac.ncl.csc8404.order.*;
+import uk.ac.ncl.csc8404.payment.*;
+import uk.ac.ncl.csc8404.user.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test
+ * This class tests consolidating fulfillments into purchase orders
+ * with the {@link PurchaseOrderBatcher}.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+class PurchaseOrderBatcherTest
+{
+
+    @Test
+    void testSizeThresholdSendsPerManufacturer() throws Exception
+    {
+        OrderSystem system = new OrderSystemImpl();
+        Customer customer = new CustomerImpl("Purchase", "Planner");
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.YEAR, 1);
+        CreditCard card = CreditCardFactory.getInstance("88000001", cal.getTime(), "Purchase Planner");
+        PCModel tower = new PresetModel("PO-Tower", "Acme", Arrays.asList("cpu"));
+        PCModel mini = new PresetModel("PO-Mini", "Acme", Arrays.asList("cpu"));
+        PCModel laptop = new PresetModel("PO-Laptop", "Globex", Arrays.asList("cpu"));
+        PCModel custom = CustomModelFactory.getInstance("PurchaseBuild");
+        ((CustomModel) custom).addPart("fan");
+
+        BlockingQueue<PurchaseOrder> sent = new LinkedBlockingQueue<>();
+        try (PurchaseOrderBatcher batcher = new PurchaseOrderBatcher(sent::add, 10, Duration.ofHours(1)))
+        {
+            for (int i = 0; i < 4; i++)
+            {
+                batcher.add(system.fulfillOrder(system.placeOrder(List.of(tower, mini, tower, laptop, custom),
+                        customer, card)));
+            }
+            // Acme passes 10 models at the fourth fulfillment's towers; its mini starts the next batch
+            PurchaseOrder acme = sent.poll(5, TimeUnit.SECONDS);
+            assertNotNull(acme);
+            assertEquals("Acme", acme.getManufacturer());
+            assertEquals(Map.of("PO-Mini", 3, "PO-Tower", 8), acme.getModels());
+            assertEquals(List.of("PO-Mini", "PO-Tower"), new ArrayList<>(acme.getModels().keySet()));
+            assertEquals(11, acme.getTotalModels());
+            assertEquals(4, acme.getFulfillmentCount());
+            assertNull(sent.poll(100, TimeUnit.MILLISECONDS), "Globex is below both thresholds.");
+
+            assertEquals(2, batcher.flush());
+            List<PurchaseOrder> flushed = List.of(sent.take(), sent.take());
+            assertTrue(flushed.stream().anyMatch(po -> po.getManufacturer().equals("Globex")
+                    && po.getModels().equals(Map.of("PO-Laptop", 4))));
+            assertTrue(flushed.stream().anyMatch(po -> po.getManufacturer().equals("Acme")
+                    && po.getModels().equals(Map.of("PO-Mini", 1))));
+            assertEquals(0, batcher.flush());
+        }
+    }
+
+    @Test
+    void testDelayThresholdAndClose() throws Exception
+    {
+        FulfillmentResult one = new FulfillmentResult(Map.of("Initech", Map.of("Server", 1)), Map.of("fan", 2));
+        FulfillmentResult other = new FulfillmentResult(Map.of("Umbrella", Map.of("Kiosk", 2)), Map.of());
+
+        BlockingQueue<PurchaseOrder> sent = new LinkedBlockingQueue<>();
+        PurchaseOrderBatcher batcher = new PurchaseOrderBatcher(purchaseOrder ->
+        {
+            if (purchaseOrder.getManufacturer().equals("Broken"))
+            {
+                throw new IllegalStateException("Supplier is down.");
+            }
+            sent.add(purchaseOrder);
+        }, 1000, Duration.ofMillis(50));
+
+        long start = System.currentTimeMillis();
+        batcher.add(one);
+        batcher.add(one);
+        PurchaseOrder late = sent.poll(5, TimeUnit.SECONDS);
+        assertNotNull(late, "Old demand should be sent without reaching the size threshold.");
+        assertTrue(System.currentTimeMillis() - start >= 50);
+        assertEquals(Map.of("Server", 2), late.getModels());
+        assertEquals(2, late.getFulfillmentCount());
+
+        batcher.add(new FulfillmentResult(Map.of("Broken", Map.of("Widget", 1)), Map.of()));
+        batcher.add(other);
+        batcher.close();
+        assertEquals(Map.of("Kiosk", 2), sent.poll().getModels(), "Closing sends what is pending.");
+        assertEquals(2, batcher.getSentCount());
+        assertEquals(1, batcher.getFailedCount());
+
+        assertThrows(IllegalStateException.class, () -> batcher.add(other));
+        assertThrows(IllegalArgumentException.class, () -> new PurchaseOrderBatcher(sent::add, 0, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> new PurchaseOrderBatcher(null));
+    }
+
+    @Test
+    void testAddsRacingCloseAreSentOrRejected() throws Exception
+    {
+        FulfillmentResult demand = new FulfillmentResult(Map.of("Hooli", Map.of("Box", 1)), Map.of());
+        AtomicInteger received = new AtomicInteger();
+        PurchaseOrderBatcher batcher = new PurchaseOrderBatcher(
+                purchaseOrder -> received.addAndGet(purchaseOrder.getTotalModels()), 7, Duration.ofHours(1));
+
+        int threads = 4;
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++)
+        {
+            pool.execute(() ->
+            {
+                started.countDown();
+                try
+                {
+                    while (true)
+                    {
+                        batcher.add(demand);
+                        accepted.incrementAndGet();
+                    }
+                }
+                catch (IllegalStateException e)
+                {
+                    // Closed
+                }
+            });
+        }
+        started.await();
+        Thread.sleep(20);
+        batcher.close();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertTrue(accepted.get() > 0);
+        assertEquals(accepted.get(), received.get(), "Every accepted add should reach the sink.");
+    }
+}
@@ -0,0 +1,22 @@
+package uk.ac.ncl.csc8404.system;
+
+/**
+ * Receives the purchase orders consolidated by a {@link PurchaseOrderBatcher},
+ * for example to write them out or hand them to a supplier's client.
+ * Purchase orders are sent one at a time from the batcher's own thread,
+ * so a sink does not have to be thread-safe.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface PurchaseOrderSink
+{
+
+    /**
+     * Sends a purchase order. A sink that throws loses that purchase order.
+     *
+     * @param purchaseOrder the purchase order to send.
+     */
+    void send(PurchaseOrder purchaseOrder);
+}
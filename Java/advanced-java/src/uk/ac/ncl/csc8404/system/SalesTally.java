@@ -0,0 +1,171 @@
+package uk.ac.ncl.csc8404.system;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Running sales counter used by {@link OrderSystemImpl} for its reports.
+ * Counts are only ever incremented (a fulfilled order stays fulfilled),
+ * so the current leader can be kept up to date on every increment
+ * instead of rescanning the order history.
+ * <p>
+ * Safe for concurrent use: counts live in a {@link ConcurrentHashMap} and
+ * the leader is replaced with compare-and-set, so only threads that
+ * actually change the leader ever contend with each other.
+ * <p>
+ * Every item is also kept in a ranking ordered by count and then by the
+ * tie-break, so the top {@code k} items are read off the front of it
+ * without sorting anything.
+ *
+ * @param <K> the type of item being counted.
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+final class SalesTally<K>
+{
+
+    private final Map<K, Rank<K>> counts = new ConcurrentHashMap<>();
+    private final Comparator<K> tieBreak;
+
+    private final AtomicReference<Map.Entry<K, Integer>> leader = new AtomicReference<>();
+
+    private final ConcurrentSkipListSet<Rank<K>> ranking;
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    /**
+     * Constructs an empty tally.
+     *
+     * @param tieBreak ordering used to choose between items with equal counts,
+     *                 the smallest item wins.
+     */
+    SalesTally(Comparator<K> tieBreak)
+    {
+        this.tieBreak = tieBreak;
+        // The sequence only separates distinct items the tie-break calls equal
+        this.ranking = new ConcurrentSkipListSet<>(Comparator.<Rank<K>>comparingInt(rank -> -rank.count)
+                .thenComparing(rank -> rank.item, tieBreak)
+                .thenComparingLong(rank -> rank.sequence));
+    }
+
+    /**
+     * Adds one sale for the given item and updates the leader.
+     *
+     * @param item the item sold.
+     */
+    void increment(K item)
+    {
+        add(item, 1);
+    }
+
+    /**
+     * Adds several sales for the given item and updates the leader.
+     *
+     * @param item the item sold.
+     * @param quantity how many were sold, at least one.
+     */
+    void add(K item, int quantity)
+    {
+        // Each item's ranking entry is replaced under its map entry's lock, the new entry
+        // going in before the old one leaves. The new entry sorts ahead of the old one, so
+        // a reader that has already passed its place can still miss the item (see getTop).
+        int count = counts.compute(item, (key, old) ->
+        {
+            Rank<K> rank = old == null
+                    ? new Rank<>(key, quantity, nextSequence.getAndIncrement())
+                    : new Rank<>(key, old.count + quantity, old.sequence);
+            ranking.add(rank);
+            if (old != null)
+            {
+                ranking.remove(old);
+            }
+            return rank;
+        }).count;
+
+        Map.Entry<K, Integer> current = leader.get();
+        while (beats(item, count, current))
+        {
+            Map.Entry<K, Integer> candidate = new AbstractMap.SimpleImmutableEntry<>(item, count);
+            if (leader.compareAndSet(current, candidate))
+            {
+                return;
+            }
+            current = leader.get();
+        }
+    }
+
+    private boolean beats(K item, int count, Map.Entry<K, Integer> current)
+    {
+        if (current == null || count > current.getValue())
+        {
+            return true;
+        }
+        return count == current.getValue() && tieBreak.compare(item, current.getKey()) < 0;
+    }
+
+    /**
+     * @return the item with the highest count and its count, or null if nothing has been counted.
+     */
+    Map.Entry<K, Integer> getLeader()
+    {
+        Map.Entry<K, Integer> current = leader.get();
+        if (current == null)
+        {
+            return null;
+        }
+        return new AbstractMap.SimpleEntry<>(current);
+    }
+
+    /**
+     * Reads the ranking without locking. While counts are changing the
+     * result is not a snapshot: an item counted during the call may be
+     * listed at its old or new count, or left out if it moved ahead of
+     * the read. Once counting stops the result is exact.
+     *
+     * @param k how many items to return.
+     * @return up to k items with the highest counts, highest first, ties in tie-break order.
+     */
+    List<Map.Entry<K, Integer>> getTop(int k)
+    {
+        List<Map.Entry<K, Integer>> top = new ArrayList<>(Math.min(k, counts.size()));
+        Set<K> seen = new HashSet<>();
+        for (Rank<K> rank : ranking)
+        {
+            if (top.size() == k)
+            {
+                break;
+            }
+            // An item being updated can briefly be listed twice; the first is the newer count
+            if (seen.add(rank.item))
+            {
+                top.add(new AbstractMap.SimpleEntry<>(rank.item, rank.count));
+            }
+        }
+        return top;
+    }
+
+    /**
+     * An item's count as held in the ranking.
+     */
+    private static final class Rank<K>
+    {
+        final K item;
+        final int count;
+        final long sequence;
+
+        Rank(K item, int count, long sequence)
+        {
+            this.item = item;
+            this.count = count;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package uk.ac.ncl.csc8404.system;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fixed-size summary of the most frequent items in a stream, using the
+ * Space-Saving algorithm (Metwally, Agrawal and El Abbadi). At most
+ * {@code capacity} items are counted. When a new item arrives and every
+ * counter is taken, it replaces the item with the smallest count and
+ * inherits that count as its possible error.
+ * <p>
+ * With {@code N} counted in total, every estimate is at most
+ * {@code N / capacity} above the true count, and every item whose true
+ * count is above {@code N / capacity} is in the summary.
+ * <p>
+ * Counters sit in a binary min-heap, so an update costs O(log capacity).
+ * Every method, including each update, synchronizes on the summary, so
+ * threads counting into one summary take turns. An order system counting
+ * approximately updates its summaries on every fulfillment, so its
+ * fulfillments are serialized on them, unlike the exact counters.
+ *
+ * @param <K> the type of item being counted.
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+final class SpaceSaving<K>
+{
+
+    /**
+     * The largest number of counters a summary may have.
+     */
+    static final int MAX_CAPACITY = 1 << 24;
+
+    private final Map<K, Counter<K>> counters;
+    private final Counter<K>[] heap;
+    private int size;
+    private long total;
+
+    /**
+     * Constructs a summary that is accurate to within a fraction of the total.
+     *
+     * @param maxError the most an estimate may exceed the true count by, as a fraction of the total.
+     * @throws IllegalArgumentException if maxError is not between 0 and 1, exclusive,
+     *                                  or would need more than {@link #MAX_CAPACITY} counters.
+     */
+    @SuppressWarnings("unchecked")
+    SpaceSaving(double maxError)
+    {
+        if (!(maxError > 0 && maxError < 1))
+        {
+            throw new IllegalArgumentException("Maximum error must be between 0 and 1.");
+        }
+        double needed = Math.ceil(1 / maxError);
+        if (needed > MAX_CAPACITY)
+        {
+            throw new IllegalArgumentException("Maximum error is too small for a bounded summary.");
+        }
+        this.heap = (Counter<K>[]) new Counter<?>[(int) needed];
+        this.counters = new HashMap<>();
+    }
+
+    /**
+     * Counts an item.
+     *
+     * @param item the item.
+     * @param quantity how many to count, at least one.
+     */
+    synchronized void add(K item, int quantity)
+    {
+        total += quantity;
+        Counter<K> counter = counters.get(item);
+        if (counter != null)
+        {
+            counter.count += quantity;
+            siftDown(counter.index);
+            return;
+        }
+        if (size < heap.length)
+        {
+            counter = new Counter<>(item, quantity, 0);
+            counter.index = size;
+            heap[size++] = counter;
+            counters.put(item, counter);
+            siftUp(counter.index);
+            return;
+        }
+
+        // Take over the smallest counter, which may have been counting this item all along
+        counter = heap[0];
+        counters.remove(counter.item);
+        counter.item = item;
+        counter.error = counter.count;
+        counter.count += quantity;
+        counters.put(item, counter);
+        siftDown(0);
+    }
+
+    /**
+     * @return the total of every quantity counted.
+     */
+    synchronized long getTotal()
+    {
+        return total;
+    }
+
+    /**
+     * @return the number of counters, which bounds memory use.
+     */
+    int getCapacity()
+    {
+        return heap.length;
+    }
+
+    /**
+     * @param k how many items to return.
+     * @param tieBreak ordering of items with equal estimates, smallest first.
+     * @return up to k items with the highest estimates, highest first.
+     */
+    synchronized List<HeavyHitter<K>> getTop(int k, Comparator<K> tieBreak)
+    {
+        List<Counter<K>> sorted = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+        {
+            sorted.add(heap[i]);
+        }
+        sorted.sort(Comparator.<Counter<K>>comparingLong(counter -> -counter.count)
+                .thenComparing(counter -> counter.item, tieBreak));
+
+        List<HeavyHitter<K>> top = new ArrayList<>(Math.min(k, size));
+        for (int i = 0; i < sorted.size() && i < k; i++)
+        {
+            Counter<K> counter = sorted.get(i);
+            top.add(new HeavyHitter<>(counter.item, counter.count, counter.error));
+        }
+        return top;
+    }
+
+    private void siftUp(int index)
+    {
+        Counter<K> counter = heap[index];
+        while (index > 0)
+        {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent].count <= counter.count)
+            {
+                break;
+            }
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(counter, index);
+    }
+
+    private void siftDown(int index)
+    {
+        Counter<K> counter = heap[index];
+        while (true)
+        {
+            int child = 2 * index + 1;
+            if (child >= size)
+            {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1].count < heap[child].count)
+            {
+                child++;
+            }
+            if (counter.count <= heap[child].count)
+            {
+                break;
+            }
+            place(heap[child], index);
+            index = child;
+        }
+        place(counter, index);
+    }
+
+    private void place(Counter<K> counter, int index)
+    {
+        heap[index] = counter;
+        counter.index = index;
+    }
+
+    /**
+     * One monitored item.
+     */
+    private static final class Counter<K>
+    {
+        K item;
+        long count;
+        long error;
+        int index;
+
+        Counter(K item, long count, long error)
+        {
+            this.item = item;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package uk.ac.ncl.csc8404.system;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ncl.csc8404.model.*;
+import uk.ac.ncl.csc8404.order.*;
+import uk.ac.ncl.csc8404.payment.*;
+import uk.ac.ncl.csc8404.user.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test
+ * This class tests the {@link SpaceSaving} summary and the approximate
+ * mode of {@link OrderSystemImpl} against exact counts.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+class SpaceSavingTest
+{
+
+    @Test
+    void testErrorBoundsOnSkewedStream()
+    {
+        double maxError = 0.01;
+        SpaceSaving<String> summary = new SpaceSaving<>(maxError);
+        assertEquals(100, summary.getCapacity());
+
+        Map<String, Integer> exact = new HashMap<>();
+        Random random = new Random(17);
+        double[] zipf = zipf(5000, 1.1);
+        for (int i = 0; i < 200_000; i++)
+        {
+            String item = "item-" + sample(zipf, random);
+            int quantity = 1 + random.nextInt(3);
+            summary.add(item, quantity);
+            exact.merge(item, quantity, Integer::sum);
+        }
+
+        long total = summary.getTotal();
+        List<HeavyHitter<String>> top = summary.getTop(Integer.MAX_VALUE, Comparator.naturalOrder());
+        assertEquals(100, top.size(), "The summary should never hold more than its capacity.");
+        for (HeavyHitter<String> hitter : top)
+        {
+            int trueCount = exact.get(hitter.getItem());
+            assertTrue(hitter.getCount() >= trueCount, "Estimates should never be below the true count.");
+            assertTrue(hitter.getGuaranteedCount() <= trueCount, "The guaranteed count should be a lower bound.");
+            assertTrue(hitter.getCount() - trueCount <= maxError * total, "Estimates should be within the error bound.");
+        }
+
+        // Every item above the bound must have been kept
+        List<String> kept = new ArrayList<>();
+        top.forEach(hitter -> kept.add(hitter.getItem()));
+        exact.forEach((item, count) -> {
+            if (count > maxError * total)
+            {
+                assertTrue(kept.contains(item), item + " is a heavy hitter and should be kept.");
+            }
+        });
+
+        // On a skewed stream the leaders come out in the right order
+        List<String> exactTop = new ArrayList<>(exact.keySet());
+        exactTop.sort(Comparator.<String>comparingInt(exact::get).reversed().thenComparing(Comparator.naturalOrder()));
+        assertEquals(exactTop.subList(0, 5), kept.subList(0, 5));
+    }
+
+    @Test
+    void testReplacedItemInheritsError()
+    {
+        SpaceSaving<String> summary = new SpaceSaving<>(0.5); // Two counters
+        summary.add("a", 5);
+        summary.add("b", 2);
+        summary.add("c", 1); // Takes over b
+
+        List<HeavyHitter<String>> top = summary.getTop(2, Comparator.naturalOrder());
+        assertEquals(new HeavyHitter<>("a", 5, 0), top.get(0));
+        assertEquals(new HeavyHitter<>("c", 3, 2), top.get(1));
+        assertEquals(1, top.get(1).getGuaranteedCount());
+
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSaving<String>(0));
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSaving<String>(1));
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSaving<String>(1e-9));
+    }
+
+    @Test
+    void testApproximateSystemMatchesExactSystem()
+    {
+        double maxError = 0.02;
+        OrderSystem exact = new OrderSystemImpl();
+        OrderSystem approximate = new OrderSystemImpl(maxError);
+
+        Customer customer = new CustomerImpl("Approx", "Imate");
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.YEAR, 1);
+        CreditCard card = CreditCardFactory.getInstance("83000001", cal.getTime(), "Approx Imate");
+        CustomModel custom = (CustomModel) CustomModelFactory.getInstance("ApproxBuild");
+
+        // Far more distinct parts and models than the summaries have counters
+        double[] partWeights = zipf(3000, 1.2);
+        double[] modelWeights = zipf(500, 1.2);
+        List<PCModel> presets = new ArrayList<>();
+        for (int i = 0; i < modelWeights.length; i++)
+        {
+            presets.add(new PresetModel("Approx-" + i, "Maker", Arrays.asList("cpu", "ram")));
+        }
+
+        Random random = new Random(8404);
+        for (int i = 0; i < 10_000; i++)
+        {
+            List<String> parts = new ArrayList<>();
+            for (int p = random.nextInt(4); p >= 0; p--)
+            {
+                parts.add("free text part " + sample(partWeights, random));
+            }
+            custom.setParts(parts);
+            List<PCModel> models = List.of(presets.get(sample(modelWeights, random)), custom);
+            exact.fulfillOrder(exact.placeOrder(models, customer, card));
+            approximate.fulfillOrder(approximate.placeOrder(models, customer, card));
+        }
+
+        assertEquals(exact.getLargestCustomer(), approximate.getLargestCustomer(), "Customer reports stay exact.");
+        assertEquals(exact.getMostOrderedModel().getKey(), approximate.getMostOrderedModel().getKey());
+        assertEquals(exact.getMostOrderedPart().getKey(), approximate.getMostOrderedPart().getKey());
+        assertEquals(keys(exact.getTopParts(3)), keys(approximate.getTopParts(3)));
+
+        long partTotal = 0;
+        Map<String, Integer> exactParts = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : exact.getTopParts(Integer.MAX_VALUE))
+        {
+            exactParts.put(entry.getKey(), entry.getValue());
+            partTotal += entry.getValue();
+        }
+        List<HeavyHitter<String>> hitters = approximate.getApproximateTopParts(Integer.MAX_VALUE);
+        assertEquals(50, hitters.size(), "Only the configured number of parts should be tracked.");
+        for (HeavyHitter<String> hitter : hitters)
+        {
+            int trueCount = exactParts.get(hitter.getItem());
+            assertTrue(hitter.getCount() >= trueCount && hitter.getGuaranteedCount() <= trueCount);
+            assertTrue(hitter.getCount() - trueCount <= maxError * partTotal);
+        }
+
+        // The exact system reports its counts with no error
+        HeavyHitter<PCModel> exactLeader = exact.getApproximateTopModels(1).get(0);
+        assertEquals(0, exactLeader.getError());
+        assertEquals(exact.getMostOrderedModel().getValue().longValue(), exactLeader.getCount());
+    }
+
+    private static <K> List<K> keys(List<Map.Entry<K, Integer>> entries)
+    {
+        List<K> keys = new ArrayList<>();
+        entries.forEach(entry -> keys.add(entry.getKey()));
+        return keys;
+    }
+
+    // Cumulative Zipf weights over n items.
+    private static double[] zipf(int n, double exponent)
+    {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++)
+        {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < n; i++)
+        {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static int sample(double[] cumulative, Random random)
+    {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(cumulative.length - 1, index < 0 ? -index - 1 : index);
+    }
+}
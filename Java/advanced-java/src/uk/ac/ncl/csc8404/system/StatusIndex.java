@@ -0,0 +1,96 @@
+package uk.ac.ncl.csc8404.system;
+
+import uk.ac.ncl.csc8404.order.Order;
+import uk.ac.ncl.csc8404.order.OrderStatus;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Secondary index of orders by status, kept by {@link OrderSystemImpl}.
+ * Each status has its own concurrent set, so a query by status only
+ * touches the orders in that status, and the read-only views handed out
+ * are created once, up front.
+ * <p>
+ * On a transition the order is added to its new bucket before it is
+ * removed from the old one, so a concurrent reader may briefly see it
+ * in both, but never in neither.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+final class StatusIndex
+{
+
+    private final Map<OrderStatus, Set<Order>> buckets = new EnumMap<>(OrderStatus.class);
+    private final Map<OrderStatus, Collection<Order>> views = new EnumMap<>(OrderStatus.class);
+
+    /**
+     * Constructs an empty index with one bucket per status.
+     */
+    StatusIndex()
+    {
+        for (OrderStatus status : OrderStatus.values())
+        {
+            Set<Order> bucket = ConcurrentHashMap.newKeySet();
+            buckets.put(status, bucket);
+            views.put(status, Collections.unmodifiableSet(bucket));
+        }
+    }
+
+    /**
+     * Records a newly placed order.
+     *
+     * @param order the order, in status PLACED.
+     */
+    void placed(Order order)
+    {
+        buckets.get(OrderStatus.PLACED).add(order);
+    }
+
+    /**
+     * Records a status transition that has already happened on the order.
+     *
+     * @param order the order.
+     * @param from the status it left.
+     * @param to the status it entered.
+     */
+    void moved(Order order, OrderStatus from, OrderStatus to)
+    {
+        buckets.get(to).add(order);
+        buckets.get(from).remove(order);
+    }
+
+    /**
+     * Records an order that is already in its final status, such as one loaded from a snapshot.
+     *
+     * @param order the order.
+     */
+    void restored(Order order)
+    {
+        buckets.get(order.getStatus()).add(order);
+    }
+
+    /**
+     * Drops an order that has been moved to the archive.
+     *
+     * @param order the order, in its final status.
+     */
+    void archived(Order order)
+    {
+        buckets.get(order.getStatus()).remove(order);
+    }
+
+    /**
+     * @param status the status to look up.
+     * @return a live, read-only view of the orders in that status.
+     */
+    Collection<Order> view(OrderStatus status)
+    {
+        return views.get(status);
+    }
+}
@@ -0,0 +1,79 @@
+package uk.ac.ncl.csc8404.system;
+
+import uk.ac.ncl.csc8404.order.Order;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * Index of orders by order time, kept by {@link OrderSystemImpl}.
+ * A concurrent skip list maps each millisecond to the orders placed in it,
+ * so a time range is found in O(log n) and then walked in time order,
+ * without looking at orders outside the range.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+final class TimeIndex
+{
+
+    private final ConcurrentNavigableMap<Long, Queue<Order>> byTime = new ConcurrentSkipListMap<>();
+
+    /**
+     * Adds an order under its order time.
+     *
+     * @param order the order to index.
+     */
+    void add(Order order)
+    {
+        byTime.computeIfAbsent(order.getOrderTime(), t -> new ConcurrentLinkedQueue<>()).add(order);
+    }
+
+    /**
+     * Drops an order that has been moved to the archive. Must not run
+     * alongside {@link #add(Order)}, which could be adding to a time
+     * that is being emptied.
+     *
+     * @param order the order to drop.
+     */
+    void archived(Order order)
+    {
+        Queue<Order> orders = byTime.get(order.getOrderTime());
+        if (orders != null && orders.remove(order) && orders.isEmpty())
+        {
+            byTime.remove(order.getOrderTime(), orders);
+        }
+    }
+
+    /**
+     * Visits the orders placed in a time range, oldest first.
+     *
+     * @param fromMillis start of the range, inclusive.
+     * @param toMillis end of the range, exclusive.
+     * @param visitor called once per order.
+     */
+    void forEachBetween(long fromMillis, long toMillis, Consumer<Order> visitor)
+    {
+        for (Queue<Order> orders : byTime.subMap(fromMillis, true, toMillis, false).values())
+        {
+            orders.forEach(visitor);
+        }
+    }
+
+    /**
+     * @param fromMillis start of the range, inclusive.
+     * @param toMillis end of the range, exclusive.
+     * @return the orders placed in the range, oldest first.
+     */
+    List<Order> between(long fromMillis, long toMillis)
+    {
+        List<Order> orders = new ArrayList<>();
+        forEachBetween(fromMillis, toMillis, orders::add);
+        return orders;
+    }
+}
@@ -0,0 +1,168 @@
+package uk.ac.ncl.csc8404.system;
+
+import java.util.AbstractMap;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Sales counts over a sliding window of recent time, for trending reports.
+ * Time is cut into fixed buckets held in a ring; a sale is counted in the
+ * bucket for the time it happened. When time moves past the end of the
+ * ring, the oldest slot is reused by swapping in a fresh bucket, so expiry
+ * is O(1) and memory depends only on the ring and on how many distinct
+ * items sell within it, never on how long the system has run.
+ * <p>
+ * A query merges the buckets that cover the window, so windows are
+ * measured to the nearest bucket: the current, partly filled bucket is
+ * always included.
+ * <p>
+ * Safe for concurrent use. A sale that loses the race with the reuse of
+ * its slot is dropped, which only happens to sales older than the ring.
+ * Sales timed later than now are ignored, since their buckets would
+ * otherwise take over slots that current sales still need.
+ *
+ * @param <K> the type of item being counted.
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+final class TrendingCounter<K>
+{
+
+    /**
+     * Default bucket width.
+     */
+    static final long BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Default number of buckets, covering a day.
+     */
+    static final int BUCKETS = 24 * 60;
+
+    private final Comparator<K> tieBreak;
+    private final long bucketMillis;
+    private final AtomicReferenceArray<Bucket<K>> ring;
+
+    /**
+     * Constructs a counter covering the last day in one-minute buckets.
+     *
+     * @param tieBreak ordering used to choose between items with equal counts,
+     *                 the smallest item wins.
+     */
+    TrendingCounter(Comparator<K> tieBreak)
+    {
+        this(tieBreak, BUCKET_MILLIS, BUCKETS);
+    }
+
+    /**
+     * Constructs a counter.
+     *
+     * @param tieBreak ordering used to choose between items with equal counts.
+     * @param bucketMillis the width of each bucket.
+     * @param buckets the number of buckets in the ring.
+     */
+    TrendingCounter(Comparator<K> tieBreak, long bucketMillis, int buckets)
+    {
+        this.tieBreak = tieBreak;
+        this.bucketMillis = bucketMillis;
+        this.ring = new AtomicReferenceArray<>(buckets);
+    }
+
+    /**
+     * @return the longest window that can be queried, in milliseconds.
+     */
+    long getMaxWindowMillis()
+    {
+        return bucketMillis * ring.length();
+    }
+
+    /**
+     * Counts sales of an item.
+     *
+     * @param item the item sold.
+     * @param quantity how many were sold.
+     * @param millis when they were sold, ignored if later than now.
+     */
+    void add(K item, int quantity, long millis)
+    {
+        if (millis > System.currentTimeMillis())
+        {
+            return; // Not sold yet, such as an imported order from a clock that runs ahead
+        }
+        long epoch = Math.floorDiv(millis, bucketMillis);
+        int slot = (int) Math.floorMod(epoch, (long) ring.length());
+        while (true)
+        {
+            Bucket<K> bucket = ring.get(slot);
+            if (bucket != null && bucket.epoch == epoch)
+            {
+                bucket.counts.merge(item, quantity, Integer::sum);
+                return;
+            }
+            if (bucket != null && bucket.epoch > epoch)
+            {
+                return; // Older than anything the ring still holds
+            }
+            ring.compareAndSet(slot, bucket, new Bucket<>(epoch)); // Expires the old bucket in one step
+        }
+    }
+
+    /**
+     * Finds the item sold most within a window ending now.
+     *
+     * @param windowMillis the length of the window.
+     * @param nowMillis the current time.
+     * @return the item with the highest count and its count, or null if nothing sold in the window.
+     * @throws IllegalArgumentException if the window is not positive or longer than the ring.
+     */
+    Map.Entry<K, Integer> getLeader(long windowMillis, long nowMillis)
+    {
+        if (windowMillis <= 0 || windowMillis > getMaxWindowMillis())
+        {
+            throw new IllegalArgumentException("Window must be positive and at most "
+                    + TimeUnit.MILLISECONDS.toMinutes(getMaxWindowMillis()) + " minutes.");
+        }
+
+        long newest = Math.floorDiv(nowMillis, bucketMillis);
+        long buckets = (windowMillis + bucketMillis - 1) / bucketMillis;
+        Map<K, Integer> counts = new HashMap<>();
+        for (long epoch = newest - buckets + 1; epoch <= newest; epoch++)
+        {
+            Bucket<K> bucket = ring.get((int) Math.floorMod(epoch, (long) ring.length()));
+            if (bucket != null && bucket.epoch == epoch)
+            {
+                bucket.counts.forEach((item, count) -> counts.merge(item, count, Integer::sum));
+            }
+        }
+
+        K leader = null;
+        int maxCount = 0;
+        for (Map.Entry<K, Integer> entry : counts.entrySet())
+        {
+            int count = entry.getValue();
+            if (count > maxCount || (count == maxCount && tieBreak.compare(entry.getKey(), leader) < 0))
+            {
+                leader = entry.getKey();
+                maxCount = count;
+            }
+        }
+        return leader == null ? null : new AbstractMap.SimpleEntry<>(leader, maxCount);
+    }
+
+    /**
+     * The sales in one bucket of time.
+     */
+    private static final class Bucket<K>
+    {
+        final long epoch;
+        final Map<K, Integer> counts = new ConcurrentHashMap<>();
+
+        Bucket(long epoch)
+        {
+            this.epoch = epoch;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package uk.ac.ncl.csc8404.system;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ncl.csc8404.model.*;
+import uk.ac.ncl.csc8404.payment.*;
+import uk.ac.ncl.csc8404.user.*;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test
+ * This class tests the {@link TrendingCounter} behind the trending reports.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+class TrendingCounterTest
+{
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long T0 = 1_700_000_000_000L;
+
+    @Test
+    void testWindowsCoverRecentBuckets()
+    {
+        TrendingCounter<String> counter = new TrendingCounter<>(Comparator.<String>naturalOrder(), MINUTE, 60);
+        counter.add("old", 10, T0);
+        counter.add("recent", 3, T0 + 50 * MINUTE);
+        counter.add("recent", 1, T0 + 59 * MINUTE);
+        long now = T0 + 59 * MINUTE + 1000;
+
+        assertEquals(Map.entry("recent", 1), counter.getLeader(MINUTE, now), "Only the current bucket.");
+        assertEquals(Map.entry("recent", 4), counter.getLeader(10 * MINUTE, now));
+        assertEquals(Map.entry("old", 10), counter.getLeader(60 * MINUTE, now));
+        assertNull(counter.getLeader(MINUTE, now + 5 * MINUTE), "Nothing sold in the last minute.");
+
+        assertThrows(IllegalArgumentException.class, () -> counter.getLeader(0, now));
+        assertThrows(IllegalArgumentException.class, () -> counter.getLeader(61 * MINUTE, now));
+    }
+
+    @Test
+    void testOldBucketsExpire()
+    {
+        TrendingCounter<String> counter = new TrendingCounter<>(Comparator.<String>naturalOrder(), MINUTE, 60);
+        counter.add("b", 5, T0);
+        counter.add("a", 2, T0 + 60 * MINUTE); // Same slot, one lap later
+        counter.add("b", 7, T0 + 30 * MINUTE);
+        counter.add("b", 9, T0); // Older than the ring now holds
+
+        long now = T0 + 60 * MINUTE;
+        assertEquals(Map.entry("b", 7), counter.getLeader(60 * MINUTE, now), "The first sale of b has expired.");
+        counter.add("a", 5, now);
+        assertEquals(Map.entry("a", 7), counter.getLeader(60 * MINUTE, now), "Ties go to the smallest item.");
+        assertNull(counter.getLeader(60 * MINUTE, now + 120 * MINUTE), "Queries skip buckets from earlier laps.");
+    }
+
+    @Test
+    void testFutureSalesAreIgnored()
+    {
+        TrendingCounter<String> counter = new TrendingCounter<>(Comparator.<String>naturalOrder(), MINUTE, 60);
+        long now = System.currentTimeMillis();
+        counter.add("ahead", 5, now + 60 * MINUTE); // Would take the current sale's slot, one lap early
+        counter.add("current", 1, now);
+
+        assertEquals(Map.entry("current", 1), counter.getLeader(60 * MINUTE, now), "A current sale should be kept.");
+    }
+
+    @Test
+    void testTrendingReports()
+    {
+        Customer customer = new CustomerImpl("Trend", "Setter");
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.YEAR, 1);
+        CreditCard card = CreditCardFactory.getInstance("84000001", cal.getTime(), "Trend Setter");
+        CustomModel custom = (CustomModel) CustomModelFactory.getInstance("TrendBuild");
+        custom.setParts(List.of("fan", "fan", "case"));
+        PCModel preset = new PresetModel("Trend-1", "Maker", Arrays.asList("cpu"));
+
+        for (OrderSystem system : List.of(new OrderSystemImpl(), new ColumnarOrderSystem()))
+        {
+            assertNull(system.getTrendingModel(Duration.ofHours(1)));
+            system.placeOrder(List.of(preset), customer, card); // Not fulfilled, so not trending
+            system.fulfillOrder(system.placeOrder(List.of(preset, custom), customer, card));
+            system.fulfillOrder(system.placeOrder(List.of(preset, custom), customer, card));
+
+            assertEquals(Map.entry(preset, 2), system.getTrendingModel(Duration.ofMinutes(5)));
+            assertEquals(Map.entry("fan", 4), system.getTrendingPart(Duration.ofHours(24)));
+            assertThrows(IllegalArgumentException.class, () -> system.getTrendingModel(null));
+            assertThrows(IllegalArgumentException.class, () -> system.getTrendingPart(Duration.ZERO));
+            assertThrows(IllegalArgumentException.class, () -> system.getTrendingPart(Duration.ofMinutes(-5)));
+            assertThrows(IllegalArgumentException.class, () -> system.getTrendingModel(Duration.ofDays(2)));
+            assertThrows(IllegalArgumentException.class,
+                    () -> system.getTrendingModel(Duration.ofSeconds(Long.MAX_VALUE)));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package uk.ac.ncl.csc8404.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.ncl.csc8404.model.CustomModelFactory;
+import uk.ac.ncl.csc8404.model.PCModel;
+import uk.ac.ncl.csc8404.payment.CreditCard;
+import uk.ac.ncl.csc8404.payment.CreditCardFactory;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the instance-controlled factories, looking up
+ * names and card numbers that are already registered.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FactoryBenchmark
+{
+
+    // Must be a power of two, lookups cycle through the registry with a mask.
+    @Param({"1024", "65536"})
+    public int registrySize;
+
+    private String[] modelNames;
+    private String[] cardNumbers;
+    private PCModel[] retained;
+    private Date expiry;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void register()
+    {
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.YEAR, 5);
+        expiry = cal.getTime();
+
+        modelNames = new String[registrySize];
+        cardNumbers = new String[registrySize];
+        retained = new PCModel[registrySize];
+        for (int i = 0; i < registrySize; i++)
+        {
+            modelNames[i] = "FactoryBench" + i;
+            cardNumbers[i] = OrderFixtures.cardNumber(i);
+            retained[i] = CustomModelFactory.getInstance(modelNames[i]);
+            CreditCardFactory.getInstance(cardNumbers[i], expiry, "Bench Holder");
+        }
+    }
+
+    @Benchmark
+    public PCModel customModelLookup()
+    {
+        next = (next + 1) & (registrySize - 1);
+        return CustomModelFactory.getInstance(modelNames[next]);
+    }
+
+    @Benchmark
+    public CreditCard creditCardLookup()
+    {
+        next = (next + 1) & (registrySize - 1);
+        return CreditCardFactory.getInstance(cardNumbers[next], expiry, "Bench Holder");
+    }
+}
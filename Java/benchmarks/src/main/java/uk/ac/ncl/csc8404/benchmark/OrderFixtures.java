@@ -0,0 +1,143 @@
+package uk.ac.ncl.csc8404.benchmark;
+
+import uk.ac.ncl.csc8404.model.CustomModel;
+import uk.ac.ncl.csc8404.model.CustomModelFactory;
+import uk.ac.ncl.csc8404.model.PCModel;
+import uk.ac.ncl.csc8404.model.PresetModel;
+import uk.ac.ncl.csc8404.order.Order;
+import uk.ac.ncl.csc8404.payment.CreditCard;
+import uk.ac.ncl.csc8404.payment.CreditCardFactory;
+import uk.ac.ncl.csc8404.system.OrderSystem;
+import uk.ac.ncl.csc8404.user.Customer;
+import uk.ac.ncl.csc8404.user.CustomerImpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Shared test data for the benchmarks.
+ * Builds a fixed catalogue of customers, cards and models and fills an
+ * {@link OrderSystem} with a realistic mix of placed, fulfilled and
+ * cancelled orders.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+final class OrderFixtures
+{
+
+    private static final String[] MANUFACTURERS = {"Dell", "HP", "Lenovo", "BuildsRUs", "Acer"};
+    private static final String[] PARTS = {
+            "CPU:-i3", "CPU:-i5", "CPU:-i7", "CPU:-i9", "RAM:-8GB", "RAM:-16GB", "RAM:-32GB",
+            "GPU:-3060", "GPU:-4070", "GPU:-4090", "SSD:-512GB", "SSD:-1TB", "SSD:-2TB", "PSU:-750W"
+    };
+
+    final List<Customer> customers = new ArrayList<>();
+    final List<CreditCard> cards = new ArrayList<>();
+    final List<PCModel> presetModels = new ArrayList<>();
+    final List<PCModel> customModels = new ArrayList<>();
+
+    private final SplittableRandom random = new SplittableRandom(8404);
+
+    /**
+     * Builds the catalogue.
+     *
+     * @param customerCount number of distinct customers, each with their own card.
+     * @param presetCount number of preset models.
+     * @param customCount number of custom models.
+     */
+    OrderFixtures(int customerCount, int presetCount, int customCount)
+    {
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.YEAR, 5);
+        Date expiry = cal.getTime();
+
+        for (int i = 0; i < customerCount; i++)
+        {
+            customers.add(new CustomerImpl("Customer" + i, "Benchmark"));
+            cards.add(CreditCardFactory.getInstance(cardNumber(i), expiry, "Customer" + i + " Benchmark"));
+        }
+
+        for (int i = 0; i < presetCount; i++)
+        {
+            presetModels.add(new PresetModel("Preset" + i, MANUFACTURERS[i % MANUFACTURERS.length],
+                    Arrays.asList(PARTS[i % PARTS.length], PARTS[(i + 3) % PARTS.length])));
+        }
+
+        for (int i = 0; i < customCount; i++)
+        {
+            CustomModel custom = (CustomModel) CustomModelFactory.getInstance("BenchCustom" + i);
+            if (custom.getParts().isEmpty())
+            {
+                for (int p = 0; p < 4; p++)
+                {
+                    custom.addPart(PARTS[(i + p * 5) % PARTS.length]);
+                }
+            }
+            customModels.add(custom);
+        }
+    }
+
+    /**
+     * @param i index of the card.
+     * @return a valid 8-digit card number for the index.
+     */
+    static String cardNumber(int i)
+    {
+        return String.format("%08d", 10_000_000 + i);
+    }
+
+    /**
+     * @return a random basket of one to three models.
+     */
+    List<PCModel> randomBasket()
+    {
+        int size = 1 + random.nextInt(3);
+        List<PCModel> basket = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+        {
+            List<PCModel> source = random.nextInt(4) == 0 ? customModels : presetModels;
+            basket.add(source.get(random.nextInt(source.size())));
+        }
+        return basket;
+    }
+
+    /**
+     * Places a random order.
+     *
+     * @param system the system to place the order on.
+     * @return the placed order.
+     */
+    Order placeRandomOrder(OrderSystem system)
+    {
+        int who = random.nextInt(customers.size());
+        return system.placeOrder(randomBasket(), customers.get(who), cards.get(who));
+    }
+
+    /**
+     * Fills the system with orders: about 60% fulfilled, 10% cancelled, the rest left placed.
+     *
+     * @param system the system to fill.
+     * @param historySize number of orders to place.
+     */
+    void populate(OrderSystem system, int historySize)
+    {
+        for (int i = 0; i < historySize; i++)
+        {
+            Order order = placeRandomOrder(system);
+            int roll = random.nextInt(10);
+            if (roll < 6)
+            {
+                system.fulfillOrder(order);
+            }
+            else if (roll == 6)
+            {
+                system.cancelOrder(order);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package uk.ac.ncl.csc8404.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import uk.ac.ncl.csc8404.order.Order;
+import uk.ac.ncl.csc8404.system.OrderSystem;
+import uk.ac.ncl.csc8404.system.OrderSystemImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for placing and fulfilling orders against an existing history.
+ * Run with {@code java -jar target/benchmarks.jar OrderPipelineBenchmark}.
+ * The largest history needs a big heap, see the {@link Fork} settings.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class OrderPipelineBenchmark
+{
+
+    private static final int BATCH = 1024;
+
+    /**
+     * A system filled with {@code historySize} orders before the trial starts.
+     */
+    @State(Scope.Benchmark)
+    public static class History
+    {
+        @Param({"1000", "10000", "100000", "1000000", "10000000"})
+        public int historySize;
+
+        OrderSystem system;
+        OrderFixtures fixtures;
+
+        @Setup(Level.Trial)
+        public void fill()
+        {
+            system = new OrderSystemImpl();
+            fixtures = new OrderFixtures(1000, 200, 100);
+            fixtures.populate(system, historySize);
+        }
+    }
+
+    /**
+     * A batch of freshly placed orders waiting to be fulfilled.
+     * Placing them is outside the measured time.
+     */
+    @State(Scope.Thread)
+    public static class PlacedBatch
+    {
+        final List<Order> orders = new ArrayList<>(BATCH);
+
+        @Setup(Level.Invocation)
+        public void place(History history)
+        {
+            orders.clear();
+            for (int i = 0; i < BATCH; i++)
+            {
+                orders.add(history.fixtures.placeRandomOrder(history.system));
+            }
+        }
+    }
+
+    @Benchmark
+    public Order placeOrder(History history)
+    {
+        return history.fixtures.placeRandomOrder(history.system);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void fulfillOrder(History history, PlacedBatch batch, Blackhole blackhole)
+    {
+        for (Order order : batch.orders)
+        {
+            blackhole.consume(history.system.fulfillOrder(order));
+        }
+    }
+}
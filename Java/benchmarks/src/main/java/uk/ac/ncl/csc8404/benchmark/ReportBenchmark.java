@@ -0,0 +1,73 @@
+package uk.ac.ncl.csc8404.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.ncl.csc8404.model.PCModel;
+import uk.ac.ncl.csc8404.system.ColumnarOrderSystem;
+import uk.ac.ncl.csc8404.system.OrderSystem;
+import uk.ac.ncl.csc8404.system.OrderSystemImpl;
+import uk.ac.ncl.csc8404.user.Customer;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the three report methods of {@link OrderSystem}
+ * over histories from a thousand to ten million orders, for both the
+ * object backend and the columnar one.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class ReportBenchmark
+{
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int historySize;
+
+    @Param({"objects", "columnar"})
+    public String backend;
+
+    private OrderSystem system;
+
+    @Setup(Level.Trial)
+    public void fill()
+    {
+        system = "columnar".equals(backend) ? new ColumnarOrderSystem() : new OrderSystemImpl();
+        new OrderFixtures(1000, 200, 100).populate(system, historySize);
+    }
+
+    @Benchmark
+    public Map.Entry<Customer, Integer> largestCustomer()
+    {
+        return system.getLargestCustomer();
+    }
+
+    @Benchmark
+    public Map.Entry<PCModel, Integer> mostOrderedModel()
+    {
+        return system.getMostOrderedModel();
+    }
+
+    @Benchmark
+    public Map.Entry<String, Integer> mostOrderedPart()
+    {
+        return system.getMostOrderedPart();
+    }
+}
@@ -0,0 +1,100 @@
+package uk.ac.ncl.csc8404.system;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.ncl.csc8404.model.PresetModel;
+import uk.ac.ncl.csc8404.order.Order;
+import uk.ac.ncl.csc8404.order.OrderImpl;
+import uk.ac.ncl.csc8404.payment.CreditCardFactory;
+import uk.ac.ncl.csc8404.user.CustomerImpl;
+
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for appending to the shared order history from a growing
+ * number of threads. Throughput that stops rising, or falls, as threads
+ * are added shows writers waiting on each other to publish.
+ * Run with {@code java -jar target/benchmarks.jar OrderLogBenchmark}.
+ * <p>
+ * The order log is package-private, so this benchmark lives in the order
+ * system's package.
+ *
+ * @author Swapnil Sagar
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class OrderLogBenchmark
+{
+
+    private Order order;
+    private OrderLog log;
+
+    @Setup(Level.Trial)
+    public void createOrder()
+    {
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.YEAR, 5);
+        order = new OrderImpl(List.of(new PresetModel("LogBench", "Dell", List.of("CPU:-i5"))),
+                new CustomerImpl("Log", "Benchmark"),
+                CreditCardFactory.getInstance("70000001", cal.getTime(), "Log Benchmark"));
+    }
+
+    // A fresh log each iteration keeps the heap from filling with segments.
+    @Setup(Level.Iteration)
+    public void createLog()
+    {
+        log = new OrderLog();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int append1()
+    {
+        return log.append(order);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public int append2()
+    {
+        return log.append(order);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int append4()
+    {
+        return log.append(order);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int append8()
+    {
+        return log.append(order);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public int append16()
+    {
+        return log.append(order);
+    }
+}